@@ -59,6 +59,11 @@ public final class PradarService {
      */
     static public final String PRADAR_UPSTREAM_APPNAME_KEY = PRADAR_HEADER_PREFIX + "p-pradar-upappname";
 
+    /**
+     * 紧凑格式的上下文，所有需要传输的上下文字段编码在这一个 key 中
+     */
+    static public final String PRADAR_CONTEXT_KEY = PRADAR_HEADER_PREFIX + "p-pradar-ctx";
+
     /**
      * 上下文 logtype
      */
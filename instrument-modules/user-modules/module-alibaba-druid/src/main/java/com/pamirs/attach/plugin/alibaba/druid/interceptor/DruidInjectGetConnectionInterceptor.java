@@ -43,11 +43,14 @@ import java.sql.SQLException;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Destroyable(DruidDestroy.class)
 public class DruidInjectGetConnectionInterceptor extends CutoffInterceptorAdaptor {
     private static Logger logger = LoggerFactory.getLogger(DruidInjectGetConnectionInterceptor.class.getName());
 
+    private static AtomicBoolean isInited = new AtomicBoolean(false);
+
     public DruidInjectGetConnectionInterceptor() {
         addListener();
     }
@@ -55,9 +58,8 @@ public class DruidInjectGetConnectionInterceptor extends CutoffInterceptorAdapto
     @Override
     public CutOffResult cutoff0(Advice advice) {
         DruidDataSource target1 = (DruidDataSource) advice.getTarget();
-        DataSourceMeta<DruidDataSource> dataSourceMeta = new DataSourceMeta<DruidDataSource>(target1.getUrl(), target1.getUsername(), target1);
         ClusterTestUtils.validateClusterTest();
-        DataSourceWrapUtil.doWrap(dataSourceMeta);
+        DbDruidMediatorDataSource mediatorDataSource = DataSourceWrapUtil.getMediator(target1);
         //判断带有压测标示，是否初始化
         //初始化
         Connection connection = null;
@@ -66,29 +68,24 @@ public class DruidInjectGetConnectionInterceptor extends CutoffInterceptorAdapto
          * 如果未找到配置情况下则当前流量为压测流量时返回null,非压测流量则执行业务连接池正常逻辑,此种情况可能由于数据源未配置的情况
          * 如果获取连接出错时如果流量为压测流量则返回null，非压测流量则执行业务连接池正常逻辑
          */
-        if (DataSourceWrapUtil.pressureDataSources.containsKey(dataSourceMeta)) {
-            DbDruidMediatorDataSource mediatorDataSource = DataSourceWrapUtil.pressureDataSources.get(dataSourceMeta);
-            if (mediatorDataSource != null) {
-                try {
-                    connection = mediatorDataSource.getConnection();
-                } catch (SQLException e) {
-                    throw new PressureMeasureError(e);
-                }
-            } else {
-                if (!Pradar.isClusterTest()) {
-                    return CutOffResult.passed();
-                }
+        if (mediatorDataSource != null) {
+            try {
+                connection = mediatorDataSource.getConnection();
+            } catch (SQLException e) {
+                throw new PressureMeasureError(e);
             }
             return CutOffResult.cutoff(connection);
-        } else {
-            if (!Pradar.isClusterTest()) {
-                return CutOffResult.passed();
-            }
-            return CutOffResult.cutoff(null);
         }
+        if (!Pradar.isClusterTest()) {
+            return CutOffResult.passed();
+        }
+        return CutOffResult.cutoff(null);
     }
 
     private void addListener() {
+        if (!isInited.compareAndSet(false, true)) {
+            return;
+        }
         EventRouter.router().addListener(new PradarEventListener() {
             @Override
             public EventResult onEvent(IEvent event) {
@@ -134,6 +131,7 @@ public class DruidInjectGetConnectionInterceptor extends CutoffInterceptorAdapto
                     }
 
                 }
+                DataSourceWrapUtil.mediatorRegistry.clear();
                 return EventResult.success("module-alibaba-druid: destroyed shadow table datasource success.");
             }
 
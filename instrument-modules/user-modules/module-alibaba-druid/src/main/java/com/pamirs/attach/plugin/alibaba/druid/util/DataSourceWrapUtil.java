@@ -16,6 +16,7 @@ package com.pamirs.attach.plugin.alibaba.druid.util;
 
 import com.alibaba.druid.pool.DruidDataSource;
 import com.pamirs.attach.plugin.alibaba.druid.obj.DbDruidMediatorDataSource;
+import com.pamirs.attach.plugin.common.datasource.ShadowDataSourceRegistry;
 import com.pamirs.pradar.ConfigNames;
 import com.pamirs.pradar.ErrorTypeEnum;
 import com.pamirs.pradar.pressurement.agent.shared.service.DataSourceMeta;
@@ -38,6 +39,11 @@ public class DataSourceWrapUtil {
 
     public static final ConcurrentHashMap<DataSourceMeta, DbDruidMediatorDataSource> pressureDataSources = new ConcurrentHashMap<DataSourceMeta, DbDruidMediatorDataSource>();
 
+    /**
+     * 业务数据源到中介的快速查找，获取连接时先从这里查找，找不到时再初始化
+     */
+    public static final ShadowDataSourceRegistry<DruidDataSource, DbDruidMediatorDataSource> mediatorRegistry = new ShadowDataSourceRegistry<DruidDataSource, DbDruidMediatorDataSource>();
+
     public static void destroy() {
         Iterator<Map.Entry<DataSourceMeta, DbDruidMediatorDataSource>> it = pressureDataSources.entrySet().iterator();
         while (it.hasNext()) {
@@ -46,6 +52,26 @@ public class DataSourceWrapUtil {
             entry.getValue().close();
         }
         pressureDataSources.clear();
+        mediatorRegistry.clear();
+    }
+
+    /**
+     * 获取业务数据源对应的中介，第一次获取或者注册表清空之后重新初始化
+     *
+     * @param dataSource 业务数据源
+     * @return 没有对应的中介时返回 null
+     */
+    public static DbDruidMediatorDataSource getMediator(DruidDataSource dataSource) {
+        DbDruidMediatorDataSource mediator = mediatorRegistry.get(dataSource);
+        if (mediator != null || mediatorRegistry.contains(dataSource)) {
+            return mediator;
+        }
+        long version = mediatorRegistry.version();
+        DataSourceMeta<DruidDataSource> dataSourceMeta = new DataSourceMeta<DruidDataSource>(dataSource.getUrl(), dataSource.getUsername(), dataSource);
+        doWrap(dataSourceMeta);
+        mediator = pressureDataSources.get(dataSourceMeta);
+        mediatorRegistry.register(dataSource, mediator, version);
+        return mediator;
     }
 
     public static void doWrap(DataSourceMeta<DruidDataSource> dataSourceMeta) {
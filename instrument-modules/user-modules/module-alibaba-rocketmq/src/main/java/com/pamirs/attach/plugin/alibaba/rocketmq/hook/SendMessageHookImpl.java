@@ -109,6 +109,7 @@ public class SendMessageHookImpl implements SendMessageHook, MQTraceConstants {
             for (Map.Entry<String, String> entry : traceBean.getContext().entrySet()) {
                 putUserProperty(message, entry.getKey(), entry.getValue());
             }
+            clearStaleContext(message, traceBean.getContext());
         } catch (PradarException e) {
             LOGGER.error("", e);
             if (Pradar.isClusterTest()) {
@@ -127,6 +128,22 @@ public class SendMessageHookImpl implements SendMessageHook, MQTraceConstants {
         }
     }
 
+    /**
+     * 使用紧凑格式传输上下文时，清除消息上次发送时留下的其他上下文字段，
+     * 否则接收方会用这些字段覆盖紧凑格式中的值
+     */
+    private void clearStaleContext(Message message, Map<String, String> context) {
+        if (!context.containsKey(PradarService.PRADAR_CONTEXT_KEY)) {
+            return;
+        }
+        for (String key : Pradar.getInvokeContextTransformKeys()) {
+            if (!context.containsKey(key) && !PradarService.PRADAR_CLUSTER_TEST_KEY.equals(key)
+                    && message.getProperty(key) != null) {
+                MessageAccessor.clearProperty(message, key);
+            }
+        }
+    }
+
     private void putUserProperty(Message message, String key, String value) {
         if (value != null && !value.isEmpty()) {
             message.putUserProperty(key, value);
@@ -40,7 +40,8 @@ public class MQSendMessageTraceLog {
         Pradar.startClientInvoke(service, method);
 
         MQTraceBean traceBean = ctx.getTraceBeans().get(0);
-        traceBean.setContext(Pradar.getInvokeContextMap());
+        // 上下文会写入消息属性发送给消费端，只传输需要远程传输的字段
+        traceBean.setContext(Pradar.getInvokeContextTransformMap());
         //如果使用消息头模式传递压测标，则需要显示从消费发送端设置
 
         Pradar.requestSize(traceBean.getBodyLength());
@@ -51,8 +52,7 @@ public class MQSendMessageTraceLog {
         // 如果采用异步的方式提交消息，需要将Pradar的context在不同线程中进行传递（默认Pradar的context是存放在
         // ThreadLocal 中）
         if (ctx.isAsync()) {
-            ctx.setRpcContextInner(Pradar.getInvokeContextMap());
-            Pradar.popInvokeContext();
+            ctx.setRpcContextInner(Pradar.popInvokeContext());
         }
     }
 
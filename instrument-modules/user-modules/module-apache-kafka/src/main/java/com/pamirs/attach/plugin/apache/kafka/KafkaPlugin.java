@@ -71,6 +71,8 @@ public class KafkaPlugin extends ModuleLifecycleAdapter implements ExtensionModu
         this.enhanceTemplate.enhance(this, "org.apache.kafka.clients.consumer.KafkaConsumer", new EnhanceCallback() {
             @Override
             public void doEnhance(InstrumentClass target) {
+                // 每次拉取都会读取消费者上的动态属性
+                target.withDynamicField();
                 InstrumentMethod constructor = target.getConstructors();
                 constructor.addInterceptor(Listeners.of(ConsumerConstructorInterceptor.class, "KafkaConsumerConstructorScope", ExecutionPolicy.BOUNDARY, Interceptors.SCOPE_CALLBACK));
 
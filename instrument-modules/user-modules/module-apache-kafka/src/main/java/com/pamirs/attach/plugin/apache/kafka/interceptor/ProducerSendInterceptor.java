@@ -18,6 +18,7 @@ import com.pamirs.attach.plugin.apache.kafka.KafkaConstants;
 import com.pamirs.attach.plugin.apache.kafka.destroy.KafkaDestroy;
 import com.pamirs.attach.plugin.apache.kafka.header.HeaderProcessor;
 import com.pamirs.attach.plugin.apache.kafka.header.HeaderProvider;
+import com.pamirs.pradar.InvokeContext;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.PradarService;
 import com.pamirs.pradar.PradarSwitcher;
@@ -39,7 +40,6 @@ import org.apache.kafka.common.header.Headers;
 
 import java.lang.reflect.Field;
 import java.util.List;
-import java.util.Map;
 
 /**
  * send方法增强类
@@ -112,7 +112,9 @@ public class ProducerSendInterceptor extends TraceInterceptorAdaptor {
         }
         try {
             final Callback callback = (Callback) advice.getParameterArray()[1];
-            final Map<String, String> context = Pradar.getInvokeContextMap();
+            // 回调在 kafka 的 io 线程中执行，直接传递当前的上下文对象，没有上下文时只传递压测标等标记
+            final InvokeContext invokeContext = Pradar.getInvokeContext();
+            final Object context = invokeContext != null ? invokeContext : Pradar.getInvokeContextTransformMap();
             if (callback != null) {
                 advice.changeParameter(1, new Callback() {
                     @Override
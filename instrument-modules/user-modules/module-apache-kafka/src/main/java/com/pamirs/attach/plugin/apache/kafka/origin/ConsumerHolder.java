@@ -23,6 +23,8 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
+import com.pamirs.attach.plugin.apache.kafka.origin.selector.FetchMetricsLagSelector;
+import com.pamirs.attach.plugin.apache.kafka.origin.selector.PollingSelector;
 import org.apache.commons.lang.StringUtils;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
@@ -62,9 +64,8 @@ public class ConsumerHolder {
         while (it.hasNext()) {
             Map.Entry<KafkaConsumer, ConsumerProxy> entry = it.next();
             it.remove();
-            Consumer consumer = entry.getValue().getPtConsumer();
-            if (consumer != null) {
-                consumer.close();
+            if (entry.getValue().getPtConsumer() != null) {
+                entry.getValue().closePtConsumer();
             }
         }
         PROXY_MAPPING.clear();
@@ -104,7 +105,12 @@ public class ConsumerHolder {
                 consumerProxy = ConsumerHolder.PROXY_MAPPING.get(consumer);
                 if (consumerProxy == null) {
                     try {
-                        consumerProxy = new ConsumerProxy(consumer, consumerMetaData, getAllowMaxLag(), timeout);
+                        if (isDedicatedShadowConsumer()) {
+                            consumerProxy = new ConsumerProxy(consumer, consumerMetaData, getAllowMaxLag(),
+                                new FetchMetricsLagSelector(new PollingSelector(), consumer, getAllowMaxLagRecords()), timeout, true);
+                        } else {
+                            consumerProxy = new ConsumerProxy(consumer, consumerMetaData, getAllowMaxLag(), timeout);
+                        }
                         log.info("shadow consumer create successful! with biz group id : {} biz topic : {} pt group id : {} pt_topic : {}",
                             consumerMetaData.getGroupId(), consumerMetaData.getTopics(),
                             consumerMetaData.getPtGroupId(), consumerMetaData.getShadowTopics());
@@ -131,4 +137,26 @@ public class ConsumerHolder {
         }
         return maxLagMillSecond;
     }
+
+    /**
+     * 影子消费者是否使用独立的拉取线程
+     */
+    private static boolean isDedicatedShadowConsumer() {
+        return Boolean.parseBoolean(System.getProperty("shadow.kafka.dedicatedConsumer"));
+    }
+
+    /**
+     * 独立拉取时业务消费者允许落后的消息条数，超过之后暂停把影子消息交给业务线程
+     */
+    private static long getAllowMaxLagRecords() {
+        long maxLagRecords = 1000;
+        String maxLagRecordsStr = System.getProperty("shadow.kafka.maxLagRecords");
+        if (!StringUtils.isEmpty(maxLagRecordsStr)) {
+            try {
+                maxLagRecords = Long.parseLong(maxLagRecordsStr);
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        return maxLagRecords;
+    }
 }
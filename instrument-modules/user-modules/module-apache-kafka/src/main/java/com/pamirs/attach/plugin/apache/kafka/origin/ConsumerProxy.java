@@ -79,18 +79,67 @@ public class ConsumerProxy<K, V> implements Consumer<K, V> {
 
     private final long currentPollTime;
 
+    /**
+     * 影子消费者独立的拉取线程，为空时在业务线程中交替拉取
+     */
+    private final ShadowConsumerLoop shadowConsumerLoop;
+
     public ConsumerProxy(KafkaConsumer consumer, ConsumerMetaData topicAndGroup, long maxLagMillSecond, long timeout) {
         this(consumer, topicAndGroup, maxLagMillSecond, new PollingSelector(), timeout);
     }
 
     public ConsumerProxy(KafkaConsumer consumer, ConsumerMetaData topicAndGroup,
         long maxLagMillSecond, PollConsumerSelector consumerSelector,  long timeout) {
+        this(consumer, topicAndGroup, maxLagMillSecond, consumerSelector, timeout, false);
+    }
+
+    public ConsumerProxy(KafkaConsumer consumer, ConsumerMetaData topicAndGroup,
+        long maxLagMillSecond, PollConsumerSelector consumerSelector, long timeout, boolean dedicatedShadowConsumer) {
         this.bizConsumer = consumer;
         this.allowMaxLag = maxLagMillSecond;
         this.currentPollTime = timeout;
-        this.ptConsumer = createPtConsumer(consumer, topicAndGroup);
         this.topicAndGroup = topicAndGroup;
         this.consumerSelector = consumerSelector;
+        Properties config = createPtConsumerConfig(consumer, topicAndGroup);
+        if (dedicatedShadowConsumer) {
+            /**
+             * 消费者的位点包含还在缓冲区中的消息，不能自动提交，改为由拉取线程只提交已经交给业务线程的位点
+             */
+            long autoCommitInterval = getAutoCommitInterval(config);
+            config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, Boolean.FALSE.toString());
+            this.ptConsumer = new WithTryCatchConsumerProxy(new KafkaConsumer(config));
+            this.shadowConsumerLoop = new ShadowConsumerLoop(ptConsumer, topicAndGroup.getPtGroupId(), autoCommitInterval);
+            subscribeShadowTopics();
+            this.shadowConsumerLoop.start();
+        } else {
+            this.ptConsumer = new WithTryCatchConsumerProxy(new KafkaConsumer(config));
+            this.shadowConsumerLoop = null;
+            subscribeShadowTopics();
+        }
+    }
+
+    /**
+     * 业务消费者开启自动提交时的提交间隔
+     *
+     * @return 没有开启自动提交时返回 -1
+     */
+    private static long getAutoCommitInterval(Properties config) {
+        if (Boolean.FALSE.toString().equalsIgnoreCase(config.getProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG))) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(config.getProperty(ConsumerConfig.AUTO_COMMIT_INTERVAL_MS_CONFIG, "5000"));
+        } catch (NumberFormatException e) {
+            return 5000;
+        }
+    }
+
+    private void subscribeShadowTopics() {
+        if (shadowConsumerLoop != null) {
+            this.ptConsumer.subscribe(this.topicAndGroup.getShadowTopics(), shadowConsumerLoop);
+        } else {
+            this.ptConsumer.subscribe(this.topicAndGroup.getShadowTopics());
+        }
     }
 
     public Consumer getPtConsumer() {
@@ -131,7 +180,7 @@ public class ConsumerProxy<K, V> implements Consumer<K, V> {
     public void subscribe(Pattern pattern, ConsumerRebalanceListener callback) {
         this.bizConsumer.subscribe(pattern, callback);
         this.topicAndGroup = ConsumerMetaData.build((KafkaConsumer)bizConsumer);
-        this.ptConsumer.subscribe(this.topicAndGroup.getShadowTopics());
+        subscribeShadowTopics();
     }
 
     @Override
@@ -144,14 +193,14 @@ public class ConsumerProxy<K, V> implements Consumer<K, V> {
     public void subscribe(Collection topics, ConsumerRebalanceListener callback) {
         this.bizConsumer.subscribe(topics, callback);
         this.topicAndGroup = ConsumerMetaData.build((KafkaConsumer)bizConsumer);
-        this.ptConsumer.subscribe(this.topicAndGroup.getShadowTopics());
+        subscribeShadowTopics();
     }
 
     @Override
     public void subscribe(Collection topics) {
         this.bizConsumer.subscribe(topics);
         this.topicAndGroup = ConsumerMetaData.build((KafkaConsumer)bizConsumer);
-        this.ptConsumer.subscribe(this.topicAndGroup.getShadowTopics());
+        subscribeShadowTopics();
     }
 
     @Override
@@ -160,6 +209,9 @@ public class ConsumerProxy<K, V> implements Consumer<K, V> {
             log.warn("biz lag : {} over allowMaxLagMillSecond : {}, so priority use biz consumer", lag, allowMaxLag);
             return doBizPoll(timeout);
         }
+        if (shadowConsumerLoop != null) {
+            return doDedicatedPoll(timeout);
+        }
         if (consumerSelector.select() == ConsumerType.SHADOW) {
             return doShadowPoll(timeout);
         } else {
@@ -178,6 +230,20 @@ public class ConsumerProxy<K, V> implements Consumer<K, V> {
         }
     }
 
+    /**
+     * 影子消息已经由独立的线程拉取好，轮到影子消费者时直接取出，没有影子消息时拉取业务消息
+     */
+    private ConsumerRecords doDedicatedPoll(long timeout) {
+        if (consumerSelector.select() == ConsumerType.SHADOW) {
+            ConsumerRecords consumerRecords = shadowConsumerLoop.poll();
+            if (consumerRecords != null) {
+                Pradar.setClusterTest(true);
+                return consumerRecords;
+            }
+        }
+        return doBizPoll(timeout);
+    }
+
     private ConsumerRecords doBizPoll(long timeout) {
         ConsumerRecords consumerRecords = bizConsumer.poll(timeout);
         logDetection(consumerRecords);
@@ -213,6 +279,10 @@ public class ConsumerProxy<K, V> implements Consumer<K, V> {
     @Override
     public void commitAsync(OffsetCommitCallback callback) {
         if (Pradar.isClusterTest()) {
+            if (shadowConsumerLoop != null) {
+                ptConsumer.commitAsync(shadowConsumerLoop.getDeliveredOffsets(), wrapShadowCommitCallback(callback));
+                return;
+            }
             ptConsumer.commitAsync(wrapShadowCommitCallback(callback));
         } else {
             bizConsumer.commitAsync(callback);
@@ -232,6 +302,10 @@ public class ConsumerProxy<K, V> implements Consumer<K, V> {
 
     @Override
     public void commitSync() {
+        if (shadowConsumerLoop != null && Pradar.isClusterTest()) {
+            ptConsumer.commitSync(shadowConsumerLoop.getDeliveredOffsets());
+            return;
+        }
         Consumer consumer = chooseConsumerByContext();
         consumer.commitSync();
     }
@@ -274,15 +348,28 @@ public class ConsumerProxy<K, V> implements Consumer<K, V> {
     @Override
     public void close() {
         bizConsumer.close();
-        ptConsumer.close();
+        closePtConsumer();
     }
 
     @Override
     public void close(long timeout, TimeUnit unit) {
         bizConsumer.close(timeout, unit);
+        if (shadowConsumerLoop != null) {
+            shadowConsumerLoop.stop();
+        }
         ptConsumer.close(timeout, unit);
     }
 
+    /**
+     * 关闭影子消费者，有独立的拉取线程时先停止拉取线程
+     */
+    public void closePtConsumer() {
+        if (shadowConsumerLoop != null) {
+            shadowConsumerLoop.stop();
+        }
+        ptConsumer.close();
+    }
+
     @Override
     public void wakeup() {
         this.bizConsumer.wakeup();
@@ -423,7 +510,7 @@ public class ConsumerProxy<K, V> implements Consumer<K, V> {
         }
     }
 
-    private Consumer createPtConsumer(KafkaConsumer consumer, ConsumerMetaData consumerMetaData) {
+    private Properties createPtConsumerConfig(KafkaConsumer consumer, ConsumerMetaData consumerMetaData) {
         Properties config = new Properties();
         Object coordinator = Reflect.on(consumer).get("coordinator");
         Object client = Reflect.on(consumer).get("client");
@@ -514,9 +601,7 @@ public class ConsumerProxy<K, V> implements Consumer<K, V> {
         putSlience(config, ConsumerConfig.MAX_POLL_RECORDS_CONFIG, fetcher, "maxPollRecords");
         putSlience(config, ConsumerConfig.CHECK_CRCS_CONFIG, fetcher, "checkCrcs");
 
-        KafkaConsumer kafkaConsumer = new KafkaConsumer(config);
-        kafkaConsumer.subscribe(consumerMetaData.getShadowTopics());
-        return new WithTryCatchConsumerProxy(kafkaConsumer);
+        return config;
     }
 
     private static void putSlience(Properties config, String configStr, Object value) {
@@ -0,0 +1,306 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.apache.kafka.origin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 影子消费者独立的拉取线程
+ * <p>
+ * 影子消费者在单独的线程中拉取消息，拉取到的消息放入有限的缓冲区，业务线程调用 poll 时直接从缓冲区取出，
+ * 不再在业务线程中等待影子消息的拉取，影子 topic 没有消息时也不会占用业务线程的拉取时间
+ * </p>
+ * <p>
+ * 缓冲区满时暂停所有分区的拉取，继续调用 poll 只保持消费组心跳，业务线程取走消息之后再恢复拉取。
+ * 重新分配之后新分到的分区在下一次暂停之前还会拉取到消息，放不进缓冲区的消息保留在拉取线程中，缓冲区有空间之后再放入
+ * </p>
+ * <p>
+ * 影子消费者关闭了自动提交，消费者的位点包含还在缓冲区中的消息，只提交已经交给业务线程的位点：
+ * 业务消费者开启自动提交时由拉取线程按照相同的间隔提交，否则在业务调用无参的 commitSync/commitAsync 时提交。
+ * 停止或者分区被回收时缓冲区中的消息丢弃，分区的位点退回到第一条没有交给业务线程的消息
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:18 下午
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+class ShadowConsumerLoop implements Runnable, ConsumerRebalanceListener {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ShadowConsumerLoop.class);
+
+    /**
+     * 单次拉取的最长等待时间，同时也是业务线程提交影子偏移量时最长的等待时间
+     */
+    private final static long POLL_TIMEOUT = 100;
+
+    /**
+     * 最多缓冲的批次数
+     */
+    private final static int DEFAULT_CAPACITY = 2;
+
+    private final Consumer ptConsumer;
+
+    private final BlockingQueue<ConsumerRecords> buffer;
+
+    private final Thread thread;
+
+    /**
+     * 自动提交的间隔，小于等于 0 时由业务提交
+     */
+    private final long autoCommitInterval;
+
+    /**
+     * 已经交给业务线程的下一个位点
+     */
+    private final Map<TopicPartition, OffsetAndMetadata> deliveredOffsets = new ConcurrentHashMap<TopicPartition, OffsetAndMetadata>();
+
+    private volatile boolean running;
+
+    private boolean paused;
+
+    /**
+     * 缓冲区已满时没有放入的消息，只在拉取线程中访问
+     */
+    private ConsumerRecords pending;
+
+    private long lastCommitTime;
+
+    ShadowConsumerLoop(Consumer ptConsumer, String ptGroupId, long autoCommitInterval) {
+        this(ptConsumer, ptGroupId, autoCommitInterval, DEFAULT_CAPACITY);
+    }
+
+    ShadowConsumerLoop(Consumer ptConsumer, String ptGroupId, long autoCommitInterval, int capacity) {
+        this.ptConsumer = ptConsumer;
+        this.autoCommitInterval = autoCommitInterval;
+        this.buffer = new ArrayBlockingQueue<ConsumerRecords>(capacity);
+        this.thread = new Thread(this, "Shadow-Kafka-Consumer-" + ptGroupId);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        running = true;
+        lastCommitTime = System.currentTimeMillis();
+        thread.start();
+    }
+
+    /**
+     * 取出一批已经拉取到的影子消息，不等待
+     *
+     * @return 没有已经拉取到的消息时返回 null
+     */
+    ConsumerRecords poll() {
+        ConsumerRecords records = buffer.poll();
+        if (records != null) {
+            for (TopicPartition partition : (Set<TopicPartition>) records.partitions()) {
+                List<ConsumerRecord> list = records.records(partition);
+                deliveredOffsets.put(partition, new OffsetAndMetadata(list.get(list.size() - 1).offset() + 1));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 已经交给业务线程的位点，业务提交影子消费者的位点时只能提交这些位点
+     */
+    Map<TopicPartition, OffsetAndMetadata> getDeliveredOffsets() {
+        return new HashMap<TopicPartition, OffsetAndMetadata>(deliveredOffsets);
+    }
+
+    void stop() {
+        running = false;
+        try {
+            thread.join(POLL_TIMEOUT * 5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rewind(ptConsumer.assignment());
+        buffer.clear();
+        pending = null;
+        if (autoCommitInterval > 0) {
+            commitDelivered(null, true);
+        }
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        rewind(partitions);
+        if (autoCommitInterval > 0) {
+            commitDelivered(partitions, true);
+        }
+        for (TopicPartition partition : partitions) {
+            deliveredOffsets.remove(partition);
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+    }
+
+    /**
+     * 丢弃缓冲区中这些分区的消息，并将分区的位点退回到第一条没有交给业务线程的消息
+     */
+    private void rewind(Collection<TopicPartition> partitions) {
+        if (partitions == null || partitions.isEmpty()) {
+            return;
+        }
+        List<ConsumerRecords> drained = new ArrayList<ConsumerRecords>(DEFAULT_CAPACITY + 1);
+        buffer.drainTo(drained);
+        if (pending != null) {
+            drained.add(pending);
+            pending = null;
+        }
+        List<ConsumerRecords> kept = new ArrayList<ConsumerRecords>(drained.size());
+        Map<TopicPartition, Long> firstOffsets = new HashMap<TopicPartition, Long>();
+        for (ConsumerRecords records : drained) {
+            Set<TopicPartition> recordPartitions = records.partitions();
+            Map<TopicPartition, List<ConsumerRecord>> remaining = new HashMap<TopicPartition, List<ConsumerRecord>>();
+            for (TopicPartition partition : recordPartitions) {
+                List<ConsumerRecord> list = records.records(partition);
+                if (!partitions.contains(partition)) {
+                    remaining.put(partition, list);
+                } else if (!firstOffsets.containsKey(partition)) {
+                    firstOffsets.put(partition, list.get(0).offset());
+                }
+            }
+            if (remaining.size() == recordPartitions.size()) {
+                kept.add(records);
+            } else if (!remaining.isEmpty()) {
+                kept.add(new ConsumerRecords(remaining));
+            }
+        }
+        for (ConsumerRecords consumerRecords : kept) {
+            hold(consumerRecords);
+        }
+        for (Map.Entry<TopicPartition, Long> entry : firstOffsets.entrySet()) {
+            ptConsumer.seek(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 放入缓冲区，缓冲区已满时保留在拉取线程中，按照拉取的顺序追加到还没有放入的消息之后
+     */
+    private void hold(ConsumerRecords records) {
+        if (pending == null && buffer.offer(records)) {
+            return;
+        }
+        pending = pending == null ? records : merge(pending, records);
+    }
+
+    private static ConsumerRecords merge(ConsumerRecords first, ConsumerRecords second) {
+        Map<TopicPartition, List<ConsumerRecord>> merged = new HashMap<TopicPartition, List<ConsumerRecord>>();
+        for (TopicPartition partition : (Set<TopicPartition>) first.partitions()) {
+            merged.put(partition, new ArrayList<ConsumerRecord>(first.records(partition)));
+        }
+        for (TopicPartition partition : (Set<TopicPartition>) second.partitions()) {
+            List<ConsumerRecord> list = merged.get(partition);
+            if (list == null) {
+                merged.put(partition, second.records(partition));
+            } else {
+                list.addAll(second.records(partition));
+            }
+        }
+        return new ConsumerRecords(merged);
+    }
+
+    /**
+     * 提交已经交给业务线程的位点
+     *
+     * @param partitions 需要提交的分区，为 null 时提交所有分区
+     * @param sync       是否同步提交
+     */
+    private void commitDelivered(Collection<TopicPartition> partitions, boolean sync) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = getDeliveredOffsets();
+        if (partitions != null) {
+            offsets.keySet().retainAll(partitions);
+        }
+        if (offsets.isEmpty()) {
+            return;
+        }
+        if (sync) {
+            ptConsumer.commitSync(offsets);
+        } else {
+            ptConsumer.commitAsync(offsets, null);
+        }
+    }
+
+    private void maybeAutoCommit() {
+        if (autoCommitInterval <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastCommitTime >= autoCommitInterval) {
+            lastCommitTime = now;
+            commitDelivered(null, false);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                if (pending != null && buffer.offer(pending)) {
+                    pending = null;
+                }
+                boolean full = pending != null || buffer.remainingCapacity() == 0;
+                /**
+                 * 满的时候每次都暂停一次，重新分配之后新分到的分区也会暂停
+                 */
+                Set<TopicPartition> assignment = ptConsumer.assignment();
+                /**
+                 * 取消订阅之后不再拉取，否则每次拉取都会报错
+                 */
+                if (assignment.isEmpty() && ptConsumer.subscription().isEmpty()) {
+                    Thread.sleep(POLL_TIMEOUT);
+                    continue;
+                }
+                if (full) {
+                    ptConsumer.pause(assignment);
+                } else if (paused) {
+                    ptConsumer.resume(assignment);
+                }
+                paused = full;
+                maybeAutoCommit();
+                ConsumerRecords records = ptConsumer.poll(POLL_TIMEOUT);
+                if (records != null && !records.isEmpty()) {
+                    hold(records);
+                }
+            } catch (Throwable e) {
+                LOGGER.error("shadow consumer poll loop fail!", e);
+                try {
+                    Thread.sleep(POLL_TIMEOUT);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+}
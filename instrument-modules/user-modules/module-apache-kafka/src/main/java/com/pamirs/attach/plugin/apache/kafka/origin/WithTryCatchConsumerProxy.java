@@ -37,6 +37,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * 影子消费者的代理，吞掉影子消费者调用的异常
+ * <p>
+ * KafkaConsumer 不允许多线程同时调用，影子消费者使用独立的拉取线程时业务线程还会提交偏移量，
+ * 所以除了 wakeup 和 metrics 之外的方法都需要串行执行
+ * </p>
+ *
  * @author jirenhe | jirenhe@shulie.io
  * @since 2021/05/17 2:36 下午
  */
@@ -49,7 +55,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     public WithTryCatchConsumerProxy(KafkaConsumer consumer) {this.consumer = consumer;}
 
     @Override
-    public Set<TopicPartition> assignment() {
+    public synchronized Set<TopicPartition> assignment() {
         try {
             return consumer.assignment();
         } catch (Exception e) {
@@ -59,7 +65,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public Set<String> subscription() {
+    public synchronized Set<String> subscription() {
         try {
             return consumer.subscription();
         } catch (Exception e) {
@@ -69,7 +75,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void subscribe(Pattern pattern, ConsumerRebalanceListener callback) {
+    public synchronized void subscribe(Pattern pattern, ConsumerRebalanceListener callback) {
         try {
             consumer.subscribe(pattern, callback);
         } catch (Exception e) {
@@ -78,7 +84,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void unsubscribe() {
+    public synchronized void unsubscribe() {
         try {
             consumer.unsubscribe();
         } catch (Exception e) {
@@ -87,7 +93,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public ConsumerRecords poll(long timeout) {
+    public synchronized ConsumerRecords poll(long timeout) {
         try {
             return consumer.poll(timeout);
         } catch (Exception e) {
@@ -97,7 +103,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void commitSync() {
+    public synchronized void commitSync() {
         try {
             consumer.commitSync();
         } catch (Exception e) {
@@ -106,7 +112,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void commitAsync() {
+    public synchronized void commitAsync() {
         try {
             consumer.commitAsync();
         } catch (Exception e) {
@@ -115,7 +121,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void commitAsync(OffsetCommitCallback callback) {
+    public synchronized void commitAsync(OffsetCommitCallback callback) {
         try {
             consumer.commitAsync(callback);
         } catch (Exception e) {
@@ -124,7 +130,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void seek(TopicPartition partition, long offset) {
+    public synchronized void seek(TopicPartition partition, long offset) {
         try {
             consumer.seek(partition, offset);
         } catch (Exception e) {
@@ -133,7 +139,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public long position(TopicPartition partition) {
+    public synchronized long position(TopicPartition partition) {
         try {
             return consumer.position(partition);
         } catch (Exception e) {
@@ -143,7 +149,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public OffsetAndMetadata committed(TopicPartition partition) {
+    public synchronized OffsetAndMetadata committed(TopicPartition partition) {
         try {
             return consumer.committed(partition);
         } catch (Exception e) {
@@ -163,7 +169,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public List<PartitionInfo> partitionsFor(String topic) {
+    public synchronized List<PartitionInfo> partitionsFor(String topic) {
         try {
             return consumer.partitionsFor(topic);
         } catch (Exception e) {
@@ -173,7 +179,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public Map<String, List<PartitionInfo>> listTopics() {
+    public synchronized Map<String, List<PartitionInfo>> listTopics() {
         try {
             return consumer.listTopics();
         } catch (Exception e) {
@@ -183,7 +189,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public Set<TopicPartition> paused() {
+    public synchronized Set<TopicPartition> paused() {
         try {
             return consumer.paused();
         } catch (Exception e) {
@@ -193,7 +199,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
         try {
             consumer.close();
         } catch (Exception e) {
@@ -202,7 +208,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void close(long timeout, TimeUnit unit) {
+    public synchronized void close(long timeout, TimeUnit unit) {
         try {
             consumer.close(timeout, unit);
         } catch (Exception e) {
@@ -220,7 +226,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public Map<TopicPartition, Long> endOffsets(Collection collection) {
+    public synchronized Map<TopicPartition, Long> endOffsets(Collection collection) {
         try {
             return consumer.endOffsets(collection);
         } catch (Exception e) {
@@ -230,7 +236,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public Map<TopicPartition, Long> beginningOffsets(Collection collection) {
+    public synchronized Map<TopicPartition, Long> beginningOffsets(Collection collection) {
         try {
             return consumer.beginningOffsets(collection);
         } catch (Exception e) {
@@ -240,7 +246,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public Map<TopicPartition, OffsetAndTimestamp> offsetsForTimes(Map timestampsToSearch) {
+    public synchronized Map<TopicPartition, OffsetAndTimestamp> offsetsForTimes(Map timestampsToSearch) {
         try {
             return consumer.offsetsForTimes(timestampsToSearch);
         } catch (Exception e) {
@@ -250,7 +256,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void resume(Collection collection) {
+    public synchronized void resume(Collection collection) {
         try {
             consumer.resume(collection);
         } catch (Exception e) {
@@ -259,7 +265,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void pause(Collection collection) {
+    public synchronized void pause(Collection collection) {
         try {
             consumer.pause(collection);
         } catch (Exception e) {
@@ -268,7 +274,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void seekToEnd(Collection collection) {
+    public synchronized void seekToEnd(Collection collection) {
         try {
             consumer.seekToEnd(collection);
         } catch (Exception e) {
@@ -277,7 +283,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void seekToBeginning(Collection collection) {
+    public synchronized void seekToBeginning(Collection collection) {
         try {
             consumer.seekToBeginning(collection);
         } catch (Exception e) {
@@ -286,7 +292,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void commitAsync(Map offsets, OffsetCommitCallback callback) {
+    public synchronized void commitAsync(Map offsets, OffsetCommitCallback callback) {
         try {
             consumer.commitAsync(offsets, callback);
         } catch (Exception e) {
@@ -295,7 +301,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void commitSync(Map offsets) {
+    public synchronized void commitSync(Map offsets) {
         try {
             consumer.commitSync(offsets);
         } catch (Exception e) {
@@ -304,7 +310,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void assign(Collection collection) {
+    public synchronized void assign(Collection collection) {
         try {
             consumer.assign(collection);
         } catch (Exception e) {
@@ -313,7 +319,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void subscribe(Collection topics, ConsumerRebalanceListener callback) {
+    public synchronized void subscribe(Collection topics, ConsumerRebalanceListener callback) {
         try {
             consumer.subscribe(topics, callback);
         } catch (Exception e) {
@@ -322,7 +328,7 @@ public class WithTryCatchConsumerProxy implements Consumer {
     }
 
     @Override
-    public void subscribe(Collection topics) {
+    public synchronized void subscribe(Collection topics) {
         try {
             consumer.subscribe(topics);
         } catch (Exception e) {
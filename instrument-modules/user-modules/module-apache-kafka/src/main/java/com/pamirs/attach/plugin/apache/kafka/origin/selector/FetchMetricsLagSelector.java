@@ -0,0 +1,111 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.apache.kafka.origin.selector;
+
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+
+/**
+ * 根据业务消费者本地的拉取指标选择消费者
+ * <p>
+ * 读取业务消费者客户端在拉取时本地统计的 records-lag-max 指标(分区最多落后的消息条数)，
+ * 不需要像 {@link LagDetectionSelector} 一样每次都请求 broker 查询提交的偏移量。
+ * 落后的消息条数超过阈值时优先消费业务消息，否则交给下一个选择器
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:18 下午
+ */
+public class FetchMetricsLagSelector implements PollConsumerSelector {
+
+    private final static String FETCH_MANAGER_METRIC_GROUP = "consumer-fetch-manager-metrics";
+
+    private final static String RECORDS_LAG_MAX = "records-lag-max";
+
+    /**
+     * 找不到指标时重新查找的间隔
+     */
+    private final static long LOOKUP_INTERVAL = 5000;
+
+    private final PollConsumerSelector consumerSelector;
+
+    private final Consumer<?, ?> bizConsumer;
+
+    private final long maxLagRecords;
+
+    private Metric lagMetric;
+
+    private long nextLookupTime;
+
+    public FetchMetricsLagSelector(PollConsumerSelector selector, Consumer<?, ?> bizConsumer, long maxLagRecords) {
+        this.consumerSelector = selector;
+        this.bizConsumer = bizConsumer;
+        this.maxLagRecords = maxLagRecords;
+    }
+
+    @Override
+    public ConsumerType select() {
+        if (getLag() > maxLagRecords) {
+            return ConsumerType.BIZ;
+        }
+        return consumerSelector.select();
+    }
+
+    private double getLag() {
+        if (lagMetric == null) {
+            long now = System.currentTimeMillis();
+            if (now < nextLookupTime) {
+                return 0;
+            }
+            nextLookupTime = now + LOOKUP_INTERVAL;
+            lagMetric = findLagMetric();
+            if (lagMetric == null) {
+                return 0;
+            }
+        }
+        double lag;
+        try {
+            lag = lagMetric.value();
+        } catch (Throwable e) {
+            lagMetric = null;
+            return 0;
+        }
+        /**
+         * 还没有拉取过时为 NaN 或者负无穷
+         */
+        if (Double.isNaN(lag) || Double.isInfinite(lag)) {
+            return 0;
+        }
+        return lag;
+    }
+
+    /**
+     * 查找客户端级别的指标，分区级别的指标带有 topic、partition 标签
+     */
+    private Metric findLagMetric() {
+        for (Map.Entry<MetricName, ? extends Metric> entry : bizConsumer.metrics().entrySet()) {
+            MetricName metricName = entry.getKey();
+            if (RECORDS_LAG_MAX.equals(metricName.name())
+                && FETCH_MANAGER_METRIC_GROUP.equals(metricName.group())
+                && !metricName.tags().containsKey("topic")) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+}
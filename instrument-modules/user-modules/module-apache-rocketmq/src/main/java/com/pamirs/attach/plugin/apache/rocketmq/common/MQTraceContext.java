@@ -14,8 +14,9 @@
  */
 package com.pamirs.attach.plugin.apache.rocketmq.common;
 
+import com.pamirs.pradar.InvokeContext;
+
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -35,7 +36,7 @@ public class MQTraceContext {
     private boolean async;
     private long startTime = System.currentTimeMillis();
     private long costTime;
-    private Map<String, String> rpcContextInner;
+    private InvokeContext rpcContextInner;
     private List<MQTraceBean> traceBeans;
 
     public int getResultCode() {
@@ -118,11 +119,11 @@ public class MQTraceContext {
         this.costTime = costTime;
     }
 
-    public Map<String, String> getRpcContextInner() {
+    public InvokeContext getRpcContextInner() {
         return rpcContextInner;
     }
 
-    public void setRpcContextInner(Map<String, String> rpcContextInner) {
+    public void setRpcContextInner(InvokeContext rpcContextInner) {
         this.rpcContextInner = rpcContextInner;
     }
 
@@ -63,12 +63,11 @@ public class TomcatJdbcDataSourceProxyGetConnectionInterceptor extends CutoffInt
     public CutOffResult cutoff0(Advice advice) {
         Object target = advice.getTarget();
         DataSource dataSource = (DataSource) target;
-        DataSourceMeta<DataSource> dataSourceMeta = new DataSourceMeta<DataSource>(dataSource.getUrl(), dataSource.getUsername(), dataSource);
         /**
          * 压测状态为关闭,如果当前为压测流量则直接报错
          */
         ClusterTestUtils.validateClusterTest();
-        DataSourceWrapUtil.doWrap(dataSourceMeta);
+        TomcatJdbcMediatorDataSource mediatorDataSource = DataSourceWrapUtil.getMediator(dataSource);
         Connection connection = null;
 
         /**
@@ -76,26 +75,18 @@ public class TomcatJdbcDataSourceProxyGetConnectionInterceptor extends CutoffInt
          * 如果未找到配置情况下则当前流量为压测流量时返回null,非压测流量则执行业务连接池正常逻辑,此种情况可能由于数据源未配置的情况
          * 如果获取连接出错时如果流量为压测流量则返回null，非压测流量则执行业务连接池正常逻辑
          */
-        if (DataSourceWrapUtil.pressureDataSources.containsKey(dataSourceMeta)) {
-            TomcatJdbcMediatorDataSource mediatorDataSource = DataSourceWrapUtil.pressureDataSources.get(dataSourceMeta);
-            if (mediatorDataSource != null) {
-                try {
-                    connection = mediatorDataSource.getConnection();
-                } catch (SQLException e) {
-                    throw new PressureMeasureError(e);
-                }
-            } else {
-                if (!Pradar.isClusterTest()) {
-                    return CutOffResult.passed();
-                }
+        if (mediatorDataSource != null) {
+            try {
+                connection = mediatorDataSource.getConnection();
+            } catch (SQLException e) {
+                throw new PressureMeasureError(e);
             }
             return CutOffResult.cutoff(connection);
-        } else {
-            if (!Pradar.isClusterTest()) {
-                return CutOffResult.passed();
-            }
-            return CutOffResult.cutoff(null);
         }
+        if (!Pradar.isClusterTest()) {
+            return CutOffResult.passed();
+        }
+        return CutOffResult.cutoff(null);
     }
 
     private void addListener() {
@@ -147,6 +138,7 @@ public class TomcatJdbcDataSourceProxyGetConnectionInterceptor extends CutoffInt
                     }
 
                 }
+                DataSourceWrapUtil.mediatorRegistry.clear();
                 return EventResult.success("module-tomcat-jdbc: destroyed shadow table datasource success.");
             }
 
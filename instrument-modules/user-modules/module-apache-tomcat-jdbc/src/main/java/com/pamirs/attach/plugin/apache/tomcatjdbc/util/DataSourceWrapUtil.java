@@ -15,6 +15,7 @@
 package com.pamirs.attach.plugin.apache.tomcatjdbc.util;
 
 import com.pamirs.attach.plugin.apache.tomcatjdbc.obj.TomcatJdbcMediatorDataSource;
+import com.pamirs.attach.plugin.common.datasource.ShadowDataSourceRegistry;
 import com.pamirs.pradar.ErrorTypeEnum;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
 import com.pamirs.pradar.pressurement.agent.shared.service.DataSourceMeta;
@@ -38,6 +39,11 @@ public class DataSourceWrapUtil {
 
     public static final ConcurrentHashMap<DataSourceMeta, TomcatJdbcMediatorDataSource> pressureDataSources = new ConcurrentHashMap<DataSourceMeta, TomcatJdbcMediatorDataSource>();
 
+    /**
+     * 业务数据源到中介的快速查找，获取连接时先从这里查找，找不到时再初始化
+     */
+    public static final ShadowDataSourceRegistry<DataSource, TomcatJdbcMediatorDataSource> mediatorRegistry = new ShadowDataSourceRegistry<DataSource, TomcatJdbcMediatorDataSource>();
+
     public static void destroy() {
         Iterator<Map.Entry<DataSourceMeta, TomcatJdbcMediatorDataSource>> it = pressureDataSources.entrySet().iterator();
         while (it.hasNext()) {
@@ -46,6 +52,26 @@ public class DataSourceWrapUtil {
             entry.getValue().close();
         }
         pressureDataSources.clear();
+        mediatorRegistry.clear();
+    }
+
+    /**
+     * 获取业务数据源对应的中介，第一次获取或者注册表清空之后重新初始化
+     *
+     * @param dataSource 业务数据源
+     * @return 没有对应的中介时返回 null
+     */
+    public static TomcatJdbcMediatorDataSource getMediator(DataSource dataSource) {
+        TomcatJdbcMediatorDataSource mediator = mediatorRegistry.get(dataSource);
+        if (mediator != null || mediatorRegistry.contains(dataSource)) {
+            return mediator;
+        }
+        long version = mediatorRegistry.version();
+        DataSourceMeta<DataSource> dataSourceMeta = new DataSourceMeta<DataSource>(dataSource.getUrl(), dataSource.getUsername(), dataSource);
+        doWrap(dataSourceMeta);
+        mediator = pressureDataSources.get(dataSourceMeta);
+        mediatorRegistry.register(dataSource, mediator, version);
+        return mediator;
     }
 
     public static void doWrap(DataSourceMeta<DataSource> dataSourceMeta) {
@@ -46,6 +46,7 @@ import java.sql.SQLException;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @Description
@@ -57,36 +58,22 @@ import java.util.Set;
 public class DataSourceGetConnectionCutoffInterceptor extends CutoffInterceptorAdaptor {
     private final static Logger logger = LoggerFactory.getLogger(DataSourceGetConnectionCutoffInterceptor.class.getName());
 
+    private static AtomicBoolean isInited = new AtomicBoolean(false);
+
     public DataSourceGetConnectionCutoffInterceptor() {
         addListener();
     }
 
     public String getUsername(AtomikosDataSourceBean datasource) {
-        String username = datasource.getXaProperties().getProperty("user");
-        if (username == null) {
-            username = datasource.getXaProperties().getProperty("username");
-        }
-        if (username == null) {
-            username = datasource.getXaProperties().getProperty("User");
-        }
-        if (username == null) {
-            username = datasource.getXaProperties().getProperty("USER");
-        }
-        return username;
+        return AtomikosDataSourceBeanWrapUtil.getUsername(datasource);
     }
 
     public String getUrl(AtomikosDataSourceBean datasource) {
-        String url = datasource.getXaProperties().getProperty("URL");
-        if (url == null) {
-            url = datasource.getXaProperties().getProperty("url");
-        }
-        return url;
+        return AtomikosDataSourceBeanWrapUtil.getUrl(datasource);
     }
 
     private CutOffResult wrapAtomikosDataSourceBean(AtomikosDataSourceBean dataSourceBean) {
-        DataSourceMeta<AtomikosDataSourceBean> dataSourceMeta = new DataSourceMeta<AtomikosDataSourceBean>(getUrl(dataSourceBean),
-                getUsername(dataSourceBean), dataSourceBean);
-        AtomikosDataSourceBeanWrapUtil.init(dataSourceMeta);
+        AtomikosDataSourceBeanMediaDataSource mediatorDataSource = AtomikosDataSourceBeanWrapUtil.getMediator(dataSourceBean);
 
         Connection connection = null;
 
@@ -95,31 +82,22 @@ public class DataSourceGetConnectionCutoffInterceptor extends CutoffInterceptorA
          * 如果未找到配置情况下则当前流量为压测流量时返回null,非压测流量则执行业务连接池正常逻辑,此种情况可能由于数据源未配置的情况
          * 如果获取连接出错时如果流量为压测流量则返回null，非压测流量则执行业务连接池正常逻辑
          */
-        if (AtomikosDataSourceBeanWrapUtil.pressureDataSources.containsKey(dataSourceMeta)) {
-            AtomikosDataSourceBeanMediaDataSource mediatorDataSource = AtomikosDataSourceBeanWrapUtil.pressureDataSources.get(dataSourceMeta);
-            if (mediatorDataSource != null) {
-                try {
-                    connection = mediatorDataSource.getConnection();
-                } catch (SQLException e) {
-                    throw new PressureMeasureError(e);
-                }
-            } else {
-                if (!Pradar.isClusterTest()) {
-                    return CutOffResult.passed();
-                }
+        if (mediatorDataSource != null) {
+            try {
+                connection = mediatorDataSource.getConnection();
+            } catch (SQLException e) {
+                throw new PressureMeasureError(e);
             }
             return CutOffResult.cutoff(connection);
-        } else {
-            if (!Pradar.isClusterTest()) {
-                return CutOffResult.passed();
-            }
-            return CutOffResult.cutoff(null);
         }
+        if (!Pradar.isClusterTest()) {
+            return CutOffResult.passed();
+        }
+        return CutOffResult.cutoff(null);
     }
 
     private CutOffResult wrapAtomikosNonXADataSourceBean(AtomikosNonXADataSourceBean dataSourceBean) {
-        DataSourceMeta<AtomikosNonXADataSourceBean> dataSourceMeta = new DataSourceMeta<AtomikosNonXADataSourceBean>(dataSourceBean.getUrl(), dataSourceBean.getUser(), dataSourceBean);
-        AtomikosNonXADataSourceBeanWrapUtil.init(dataSourceMeta);
+        AtomikosNonXADataSourceBeanMediaDataSource mediatorDataSource = AtomikosNonXADataSourceBeanWrapUtil.getMediator(dataSourceBean);
 
         Connection connection = null;
 
@@ -128,26 +106,18 @@ public class DataSourceGetConnectionCutoffInterceptor extends CutoffInterceptorA
          * 如果未找到配置情况下则当前流量为压测流量时返回null,非压测流量则执行业务连接池正常逻辑,此种情况可能由于数据源未配置的情况
          * 如果获取连接出错时如果流量为压测流量则返回null，非压测流量则执行业务连接池正常逻辑
          */
-        if (AtomikosNonXADataSourceBeanWrapUtil.pressureDataSources.containsKey(dataSourceMeta)) {
-            AtomikosNonXADataSourceBeanMediaDataSource mediatorDataSource = AtomikosNonXADataSourceBeanWrapUtil.pressureDataSources.get(dataSourceMeta);
-            if (mediatorDataSource != null) {
-                try {
-                    connection = mediatorDataSource.getConnection();
-                } catch (SQLException e) {
-                    throw new PressureMeasureError(e);
-                }
-            } else {
-                if (!Pradar.isClusterTest()) {
-                    return CutOffResult.passed();
-                }
+        if (mediatorDataSource != null) {
+            try {
+                connection = mediatorDataSource.getConnection();
+            } catch (SQLException e) {
+                throw new PressureMeasureError(e);
             }
             return CutOffResult.cutoff(connection);
-        } else {
-            if (!Pradar.isClusterTest()) {
-                return CutOffResult.passed();
-            }
-            return CutOffResult.cutoff(null);
         }
+        if (!Pradar.isClusterTest()) {
+            return CutOffResult.passed();
+        }
+        return CutOffResult.cutoff(null);
     }
 
     @Override
@@ -180,6 +150,9 @@ public class DataSourceGetConnectionCutoffInterceptor extends CutoffInterceptorA
     }
 
     private void addListener() {
+        if (!isInited.compareAndSet(false, true)) {
+            return;
+        }
         EventRouter.router().addListener(new PradarEventListener() {
             @Override
             public EventResult onEvent(IEvent event) {
@@ -244,6 +217,8 @@ public class DataSourceGetConnectionCutoffInterceptor extends CutoffInterceptorA
                     }
 
                 }
+                AtomikosDataSourceBeanWrapUtil.mediatorRegistry.clear();
+                AtomikosNonXADataSourceBeanWrapUtil.mediatorRegistry.clear();
                 return EventResult.success("module-atomikos-datasource: destroyed shadow table datasource success.");
             }
 
@@ -15,6 +15,7 @@
 package com.pamirs.attach.plugin.atomikos.utils;
 
 import com.atomikos.jdbc.AtomikosDataSourceBean;
+import com.pamirs.attach.plugin.common.datasource.ShadowDataSourceRegistry;
 import com.pamirs.pradar.ConfigNames;
 import com.pamirs.pradar.ErrorTypeEnum;
 import com.pamirs.pradar.Pradar;
@@ -43,6 +44,11 @@ public class AtomikosDataSourceBeanWrapUtil {
 
     public static final ConcurrentHashMap<DataSourceMeta, AtomikosDataSourceBeanMediaDataSource> pressureDataSources = new ConcurrentHashMap<DataSourceMeta, AtomikosDataSourceBeanMediaDataSource>();
 
+    /**
+     * 业务数据源到中介的快速查找，获取连接时先从这里查找，找不到时再初始化
+     */
+    public static final ShadowDataSourceRegistry<AtomikosDataSourceBean, AtomikosDataSourceBeanMediaDataSource> mediatorRegistry = new ShadowDataSourceRegistry<AtomikosDataSourceBean, AtomikosDataSourceBeanMediaDataSource>();
+
     public static void destroy() {
         Iterator<Map.Entry<DataSourceMeta, AtomikosDataSourceBeanMediaDataSource>> it = pressureDataSources.entrySet().iterator();
         while (it.hasNext()) {
@@ -51,6 +57,26 @@ public class AtomikosDataSourceBeanWrapUtil {
             entry.getValue().close();
         }
         pressureDataSources.clear();
+        mediatorRegistry.clear();
+    }
+
+    /**
+     * 获取业务数据源对应的中介，第一次获取或者注册表清空之后重新初始化
+     *
+     * @param dataSource 业务数据源
+     * @return 没有对应的中介时返回 null
+     */
+    public static AtomikosDataSourceBeanMediaDataSource getMediator(AtomikosDataSourceBean dataSource) {
+        AtomikosDataSourceBeanMediaDataSource mediator = mediatorRegistry.get(dataSource);
+        if (mediator != null || mediatorRegistry.contains(dataSource)) {
+            return mediator;
+        }
+        long version = mediatorRegistry.version();
+        DataSourceMeta<AtomikosDataSourceBean> dataSourceMeta = new DataSourceMeta<AtomikosDataSourceBean>(getUrl(dataSource), getUsername(dataSource), dataSource);
+        init(dataSourceMeta);
+        mediator = pressureDataSources.get(dataSourceMeta);
+        mediatorRegistry.register(dataSource, mediator, version);
+        return mediator;
     }
 
     public static String getUsername(AtomikosDataSourceBean datasource) {
@@ -61,6 +87,9 @@ public class AtomikosDataSourceBeanWrapUtil {
         if (username == null) {
             username = datasource.getXaProperties().getProperty("User");
         }
+        if (username == null) {
+            username = datasource.getXaProperties().getProperty("USER");
+        }
         return username;
     }
 
@@ -15,6 +15,7 @@
 package com.pamirs.attach.plugin.atomikos.utils;
 
 import com.atomikos.jdbc.nonxa.AtomikosNonXADataSourceBean;
+import com.pamirs.attach.plugin.common.datasource.ShadowDataSourceRegistry;
 import com.pamirs.pradar.ConfigNames;
 import com.pamirs.pradar.ErrorTypeEnum;
 import com.pamirs.pradar.Pradar;
@@ -39,6 +40,11 @@ public class AtomikosNonXADataSourceBeanWrapUtil {
 
     public static final ConcurrentHashMap<DataSourceMeta, AtomikosNonXADataSourceBeanMediaDataSource> pressureDataSources = new ConcurrentHashMap<DataSourceMeta, AtomikosNonXADataSourceBeanMediaDataSource>();
 
+    /**
+     * 业务数据源到中介的快速查找，获取连接时先从这里查找，找不到时再初始化
+     */
+    public static final ShadowDataSourceRegistry<AtomikosNonXADataSourceBean, AtomikosNonXADataSourceBeanMediaDataSource> mediatorRegistry = new ShadowDataSourceRegistry<AtomikosNonXADataSourceBean, AtomikosNonXADataSourceBeanMediaDataSource>();
+
     public static void destroy() {
         Iterator<Map.Entry<DataSourceMeta, AtomikosNonXADataSourceBeanMediaDataSource>> it = pressureDataSources.entrySet().iterator();
         while (it.hasNext()) {
@@ -47,6 +53,26 @@ public class AtomikosNonXADataSourceBeanWrapUtil {
             entry.getValue().close();
         }
         pressureDataSources.clear();
+        mediatorRegistry.clear();
+    }
+
+    /**
+     * 获取业务数据源对应的中介，第一次获取或者注册表清空之后重新初始化
+     *
+     * @param dataSource 业务数据源
+     * @return 没有对应的中介时返回 null
+     */
+    public static AtomikosNonXADataSourceBeanMediaDataSource getMediator(AtomikosNonXADataSourceBean dataSource) {
+        AtomikosNonXADataSourceBeanMediaDataSource mediator = mediatorRegistry.get(dataSource);
+        if (mediator != null || mediatorRegistry.contains(dataSource)) {
+            return mediator;
+        }
+        long version = mediatorRegistry.version();
+        DataSourceMeta<AtomikosNonXADataSourceBean> dataSourceMeta = new DataSourceMeta<AtomikosNonXADataSourceBean>(dataSource.getUrl(), dataSource.getUser(), dataSource);
+        init(dataSourceMeta);
+        mediator = pressureDataSources.get(dataSourceMeta);
+        mediatorRegistry.register(dataSource, mediator, version);
+        return mediator;
     }
 
     public static boolean validate(AtomikosNonXADataSourceBean sourceDataSource) {
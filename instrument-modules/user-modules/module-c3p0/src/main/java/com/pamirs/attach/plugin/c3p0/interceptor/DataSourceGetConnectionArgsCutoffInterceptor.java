@@ -63,10 +63,9 @@ public class DataSourceGetConnectionArgsCutoffInterceptor extends CutoffIntercep
     public CutOffResult cutoff0(Advice advice) {
         Object target = advice.getTarget();
         ComboPooledDataSource dataSource = (ComboPooledDataSource) target;
-        DataSourceMeta<ComboPooledDataSource> dataSourceMeta = new DataSourceMeta<ComboPooledDataSource>(dataSource.getJdbcUrl(), dataSource.getUser(), dataSource);
         ClusterTestUtils.validateClusterTest();
 
-        DataSourceWrapUtil.init(dataSourceMeta);
+        C3p0MediaDataSource mediatorDataSource = DataSourceWrapUtil.getMediator(dataSource);
         Connection connection = null;
 
         /**
@@ -74,26 +73,18 @@ public class DataSourceGetConnectionArgsCutoffInterceptor extends CutoffIntercep
          * 如果未找到配置情况下则当前流量为压测流量时返回null,非压测流量则执行业务连接池正常逻辑,此种情况可能由于数据源未配置的情况
          * 如果获取连接出错时如果流量为压测流量则返回null，非压测流量则执行业务连接池正常逻辑
          */
-        if (DataSourceWrapUtil.pressureDataSources.containsKey(dataSourceMeta)) {
-            C3p0MediaDataSource mediatorDataSource = DataSourceWrapUtil.pressureDataSources.get(dataSourceMeta);
-            if (mediatorDataSource != null) {
-                try {
-                    connection = mediatorDataSource.getConnection();
-                } catch (SQLException e) {
-                    throw new PressureMeasureError(e);
-                }
-            } else {
-                if (!Pradar.isClusterTest()) {
-                    return CutOffResult.passed();
-                }
+        if (mediatorDataSource != null) {
+            try {
+                connection = mediatorDataSource.getConnection();
+            } catch (SQLException e) {
+                throw new PressureMeasureError(e);
             }
             return CutOffResult.cutoff(connection);
-        } else {
-            if (!Pradar.isClusterTest()) {
-                return CutOffResult.passed();
-            }
-            return CutOffResult.cutoff(null);
         }
+        if (!Pradar.isClusterTest()) {
+            return CutOffResult.passed();
+        }
+        return CutOffResult.cutoff(null);
     }
 
     private void addListener() {
@@ -145,6 +136,7 @@ public class DataSourceGetConnectionArgsCutoffInterceptor extends CutoffIntercep
                     }
 
                 }
+                DataSourceWrapUtil.mediatorRegistry.clear();
                 return EventResult.success("module-c3p0: destroyed shadow table datasource success.");
             }
 
@@ -63,10 +63,9 @@ public class DataSourceGetConnectionCutoffInterceptor extends CutoffInterceptorA
     public CutOffResult cutoff0(Advice advice) {
         Object target = advice.getTarget();
         ComboPooledDataSource dataSource = (ComboPooledDataSource) target;
-        DataSourceMeta<ComboPooledDataSource> dataSourceMeta = new DataSourceMeta<ComboPooledDataSource>(dataSource.getJdbcUrl(), dataSource.getUser(), dataSource);
         ClusterTestUtils.validateClusterTest();
 
-        DataSourceWrapUtil.init(dataSourceMeta);
+        C3p0MediaDataSource mediatorDataSource = DataSourceWrapUtil.getMediator(dataSource);
 
         Connection connection = null;
 
@@ -77,26 +76,18 @@ public class DataSourceGetConnectionCutoffInterceptor extends CutoffInterceptorA
          *
          * 如果配置初始化异常或者没有对应配置
          */
-        if (DataSourceWrapUtil.pressureDataSources.containsKey(dataSourceMeta)) {
-            C3p0MediaDataSource mediatorDataSource = DataSourceWrapUtil.pressureDataSources.get(dataSourceMeta);
-            if (mediatorDataSource != null) {
-                try {
-                    connection = mediatorDataSource.getConnection();
-                } catch (SQLException e) {
-                    throw new PressureMeasureError(e);
-                }
-            } else {
-                if (!Pradar.isClusterTest()) {
-                    return CutOffResult.passed();
-                }
+        if (mediatorDataSource != null) {
+            try {
+                connection = mediatorDataSource.getConnection();
+            } catch (SQLException e) {
+                throw new PressureMeasureError(e);
             }
             return CutOffResult.cutoff(connection);
-        } else {
-            if (!Pradar.isClusterTest()) {
-                return CutOffResult.passed();
-            }
-            return CutOffResult.cutoff(null);
         }
+        if (!Pradar.isClusterTest()) {
+            return CutOffResult.passed();
+        }
+        return CutOffResult.cutoff(null);
     }
 
     private void addListener() {
@@ -148,6 +139,7 @@ public class DataSourceGetConnectionCutoffInterceptor extends CutoffInterceptorA
                     }
 
                 }
+                DataSourceWrapUtil.mediatorRegistry.clear();
                 return EventResult.success("module-c3p0: destroyed shadow table datasource success.");
             }
 
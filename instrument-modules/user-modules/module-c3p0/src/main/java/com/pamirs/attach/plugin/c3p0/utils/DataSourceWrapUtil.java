@@ -15,6 +15,7 @@
 package com.pamirs.attach.plugin.c3p0.utils;
 
 import com.mchange.v2.c3p0.ComboPooledDataSource;
+import com.pamirs.attach.plugin.common.datasource.ShadowDataSourceRegistry;
 import com.pamirs.pradar.*;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
 import com.pamirs.pradar.pressurement.agent.shared.service.DataSourceMeta;
@@ -43,6 +44,11 @@ public class DataSourceWrapUtil {
 
     public static final ConcurrentHashMap<DataSourceMeta, C3p0MediaDataSource> pressureDataSources = new ConcurrentHashMap<DataSourceMeta, C3p0MediaDataSource>();
 
+    /**
+     * 业务数据源到中介的快速查找，获取连接时先从这里查找，找不到时再初始化
+     */
+    public static final ShadowDataSourceRegistry<ComboPooledDataSource, C3p0MediaDataSource> mediatorRegistry = new ShadowDataSourceRegistry<ComboPooledDataSource, C3p0MediaDataSource>();
+
     public static void destroy() {
         Iterator<Map.Entry<DataSourceMeta, C3p0MediaDataSource>> it = pressureDataSources.entrySet().iterator();
         while (it.hasNext()) {
@@ -51,6 +57,26 @@ public class DataSourceWrapUtil {
             entry.getValue().close();
         }
         pressureDataSources.clear();
+        mediatorRegistry.clear();
+    }
+
+    /**
+     * 获取业务数据源对应的中介，第一次获取或者注册表清空之后重新初始化
+     *
+     * @param dataSource 业务数据源
+     * @return 没有对应的中介时返回 null
+     */
+    public static C3p0MediaDataSource getMediator(ComboPooledDataSource dataSource) {
+        C3p0MediaDataSource mediator = mediatorRegistry.get(dataSource);
+        if (mediator != null || mediatorRegistry.contains(dataSource)) {
+            return mediator;
+        }
+        long version = mediatorRegistry.version();
+        DataSourceMeta<ComboPooledDataSource> dataSourceMeta = new DataSourceMeta<ComboPooledDataSource>(dataSource.getJdbcUrl(), dataSource.getUser(), dataSource);
+        init(dataSourceMeta);
+        mediator = pressureDataSources.get(dataSourceMeta);
+        mediatorRegistry.register(dataSource, mediator, version);
+        return mediator;
     }
 
     public static boolean validate(ComboPooledDataSource sourceDataSource) {
@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.caffeine;
 
+import com.pamirs.attach.plugin.caffeine.interceptor.CacheConstructorInterceptor;
 import com.pamirs.attach.plugin.caffeine.interceptor.ComputeIfAbsentInterceptor;
 import com.pamirs.attach.plugin.caffeine.interceptor.ComputeInterceptor;
 import com.pamirs.attach.plugin.caffeine.interceptor.EntrySetInterceptor;
@@ -23,11 +24,14 @@ import com.pamirs.attach.plugin.caffeine.interceptor.GetAllInterceptor;
 import com.pamirs.attach.plugin.caffeine.interceptor.IsEmptyInterceptor;
 import com.pamirs.attach.plugin.caffeine.interceptor.KeySetInterceptor;
 import com.pamirs.attach.plugin.caffeine.interceptor.PutAllInterceptor;
+import com.pamirs.attach.plugin.caffeine.interceptor.ShadowCacheRouteInterceptor;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.shulie.instrument.simulator.api.ExtensionModule;
 import com.shulie.instrument.simulator.api.ModuleInfo;
 import com.shulie.instrument.simulator.api.ModuleLifecycleAdapter;
 import com.shulie.instrument.simulator.api.instrument.EnhanceCallback;
 import com.shulie.instrument.simulator.api.instrument.InstrumentClass;
+import com.shulie.instrument.simulator.api.instrument.InstrumentMethod;
 import com.shulie.instrument.simulator.api.listener.Listeners;
 import org.kohsuke.MetaInfServices;
 
@@ -44,29 +48,33 @@ public class CaffeinePlugin extends ModuleLifecycleAdapter implements ExtensionM
         enhanceTemplate.enhance(this, new EnhanceCallback() {
                 @Override
                 public void doEnhance(InstrumentClass target) {
+                    if (ShadowCacheTwins.isEnabled()) {
+                        target.getConstructor("com.github.benmanes.caffeine.cache.Caffeine", "boolean")
+                            .addInterceptor(Listeners.of(CacheConstructorInterceptor.class));
+                    }
 
                     //ConcurrentMap接口所有方法
                     addConcurrentMapMethodInterceptor(target);
 
                     //特有的方法
-                    target.getDeclaredMethod("getIfPresent", "java.lang.Object", "boolean")
+                    route(target.getDeclaredMethod("getIfPresent", "java.lang.Object", "boolean"))
                         .addInterceptor(Listeners.of(FirstKeyInterceptor.class));
 
-                    target.getDeclaredMethod("put", "java.lang.Object", "java.lang.Object", "boolean")
+                    route(target.getDeclaredMethod("put", "java.lang.Object", "java.lang.Object", "boolean"))
                         .addInterceptor(Listeners.of(FirstKeyInterceptor.class));
 
-                    target.getDeclaredMethod("computeIfAbsent", "java.lang.Object", "java.util.function.Function",
-                        "boolean", "boolean")
+                    route(target.getDeclaredMethod("computeIfAbsent", "java.lang.Object", "java.util.function.Function",
+                        "boolean", "boolean"))
                         .addInterceptor(Listeners.of(ComputeIfAbsentInterceptor.class));
 
-                    target.getDeclaredMethod("remap", "java.lang.Object", "java.util.function.BiFunction")
+                    route(target.getDeclaredMethod("remap", "java.lang.Object", "java.util.function.BiFunction"))
                         .addInterceptor(Listeners.of(FirstKeyWithBiFunctionInterceptor.class));
 
-                    target.getDeclaredMethod("getAllPresent", "java.lang.Iterable")
+                    route(target.getDeclaredMethod("getAllPresent", "java.lang.Iterable"))
                         .addInterceptor(Listeners.of(GetAllInterceptor.class));
 
-                    target.getDeclaredMethod("compute", "java.lang.Object", "java.util.function.BiFunction",
-                        "boolean", "boolean", "boolean")
+                    route(target.getDeclaredMethod("compute", "java.lang.Object", "java.util.function.BiFunction",
+                        "boolean", "boolean", "boolean"))
                         .addInterceptor(Listeners.of(ComputeInterceptor.class));
 
                 }
@@ -76,37 +84,42 @@ public class CaffeinePlugin extends ModuleLifecycleAdapter implements ExtensionM
         enhanceTemplate.enhance(this, new EnhanceCallback() {
                 @Override
                 public void doEnhance(InstrumentClass target) {
+                    if (ShadowCacheTwins.isEnabled()) {
+                        target.getConstructor("com.github.benmanes.caffeine.cache.Caffeine",
+                            "com.github.benmanes.caffeine.cache.CacheLoader", "boolean")
+                            .addInterceptor(Listeners.of(CacheConstructorInterceptor.class));
+                    }
 
                     //ConcurrentMap接口所有方法
                     addConcurrentMapMethodInterceptor(target);
 
                     //特有的方法
-                    target.getDeclaredMethod("getIfPresent", "java.lang.Object", "boolean")
+                    route(target.getDeclaredMethod("getIfPresent", "java.lang.Object", "boolean"))
                         .addInterceptor(Listeners.of(FirstKeyInterceptor.class));
 
-                    target.getDeclaredMethod("getIfPresentQuietly", "java.lang.Object", "long[]")
+                    route(target.getDeclaredMethod("getIfPresentQuietly", "java.lang.Object", "long[]"))
                         .addInterceptor(Listeners.of(FirstKeyInterceptor.class));
 
-                    target.getDeclaredMethod("put", "java.lang.Object", "java.lang.Object",
-                        "com.github.benmanes.caffeine.cache.Expiry", "boolean", "boolean")
+                    route(target.getDeclaredMethod("put", "java.lang.Object", "java.lang.Object",
+                        "com.github.benmanes.caffeine.cache.Expiry", "boolean", "boolean"))
                         .addInterceptor(Listeners.of(FirstKeyInterceptor.class));
 
-                    target.getDeclaredMethod("computeIfAbsent", "java.lang.Object", "java.util.function.Function",
-                        "boolean", "boolean")
+                    route(target.getDeclaredMethod("computeIfAbsent", "java.lang.Object", "java.util.function.Function",
+                        "boolean", "boolean"))
                         .addInterceptor(Listeners.of(ComputeIfAbsentInterceptor.class));
 
-                    target.getDeclaredMethod("remap", "java.lang.Object", "java.lang.Object",
-                        "java.util.function.BiFunction", "long[]", "boolean")
+                    route(target.getDeclaredMethod("remap", "java.lang.Object", "java.lang.Object",
+                        "java.util.function.BiFunction", "long[]", "boolean"))
                         .addInterceptor(Listeners.of(FirstKeyInterceptor.class));
 
-                    target.getDeclaredMethod("getAllPresent", "java.lang.Iterable")
+                    route(target.getDeclaredMethod("getAllPresent", "java.lang.Iterable"))
                         .addInterceptor(Listeners.of(GetAllInterceptor.class));
 
-                    target.getDeclaredMethod("compute", "java.lang.Object", "java.util.function.BiFunction",
-                        "boolean", "boolean", "boolean")
+                    route(target.getDeclaredMethod("compute", "java.lang.Object", "java.util.function.BiFunction",
+                        "boolean", "boolean", "boolean"))
                         .addInterceptor(Listeners.of(ComputeInterceptor.class));
-                    target.getDeclaredMethod("compute", "java.lang.Object", "java.util.function.BiFunction",
-                        "boolean", "boolean")
+                    route(target.getDeclaredMethod("compute", "java.lang.Object", "java.util.function.BiFunction",
+                        "boolean", "boolean"))
                         .addInterceptor(Listeners.of(ComputeInterceptor.class));
 
                 }
@@ -115,57 +128,67 @@ public class CaffeinePlugin extends ModuleLifecycleAdapter implements ExtensionM
 
     }
 
+    /**
+     * 隔离模式下先把压测流量的调用转到影子缓存上，需要在 key 的拦截器之前添加
+     */
+    private InstrumentMethod route(InstrumentMethod method) {
+        if (ShadowCacheTwins.isEnabled()) {
+            method.addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+        }
+        return method;
+    }
+
     private void addConcurrentMapMethodInterceptor(InstrumentClass target) {
 
-        target.getDeclaredMethod("remove", "java.lang.Object", "java.lang.Object")
+        route(target.getDeclaredMethod("remove", "java.lang.Object", "java.lang.Object"))
             .addInterceptor(Listeners.of(FirstKeyInterceptor.class));
 
-        target.getDeclaredMethod("remove", "java.lang.Object")
+        route(target.getDeclaredMethod("remove", "java.lang.Object"))
             .addInterceptor(Listeners.of(FirstKeyInterceptor.class));
 
-        target.getDeclaredMethod("replace", "java.lang.Object", "java.lang.Object", "java.lang.Object")
+        route(target.getDeclaredMethod("replace", "java.lang.Object", "java.lang.Object", "java.lang.Object"))
             .addInterceptor(Listeners.of(FirstKeyInterceptor.class));
 
-        target.getDeclaredMethod("replace", "java.lang.Object", "java.lang.Object")
+        route(target.getDeclaredMethod("replace", "java.lang.Object", "java.lang.Object"))
             .addInterceptor(Listeners.of(FirstKeyInterceptor.class));
 
-        target.getDeclaredMethod("putIfAbsent", "java.lang.Object", "java.lang.Object")
+        route(target.getDeclaredMethod("putIfAbsent", "java.lang.Object", "java.lang.Object"))
             .addInterceptor(Listeners.of(FirstKeyInterceptor.class));
 
-        target.getDeclaredMethod("getOrDefault", "java.lang.Object", "java.lang.Object")
+        route(target.getDeclaredMethod("getOrDefault", "java.lang.Object", "java.lang.Object"))
             .addInterceptor(Listeners.of(FirstKeyInterceptor.class));
 
-        target.getDeclaredMethod("computeIfAbsent", "java.lang.Object", "java.util.function.Function")
+        route(target.getDeclaredMethod("computeIfAbsent", "java.lang.Object", "java.util.function.Function"))
             .addInterceptor(Listeners.of(FirstKeyWithBiFunctionInterceptor.class));
 
-        target.getDeclaredMethod("computeIfPresent", "java.lang.Object", "java.util.function.BiFunction")
+        route(target.getDeclaredMethod("computeIfPresent", "java.lang.Object", "java.util.function.BiFunction"))
             .addInterceptor(Listeners.of(FirstKeyWithBiFunctionInterceptor.class));
 
-        target.getDeclaredMethod("compute", "java.lang.Object", "java.util.function.BiFunction")
+        route(target.getDeclaredMethod("compute", "java.lang.Object", "java.util.function.BiFunction"))
             .addInterceptor(Listeners.of(FirstKeyWithBiFunctionInterceptor.class));
 
-        target.getDeclaredMethod("merge", "java.lang.Object", "java.lang.Object", "java.util.function.BiFunction")
+        route(target.getDeclaredMethod("merge", "java.lang.Object", "java.lang.Object", "java.util.function.BiFunction"))
             .addInterceptor(Listeners.of(FirstKeyWithBiFunctionInterceptor.class));
 
-        target.getDeclaredMethod("get", "java.lang.Object")
+        route(target.getDeclaredMethod("get", "java.lang.Object"))
             .addInterceptor(Listeners.of(FirstKeyInterceptor.class));
 
-        target.getDeclaredMethod("put", "java.lang.Object", "java.lang.Object")
+        route(target.getDeclaredMethod("put", "java.lang.Object", "java.lang.Object"))
             .addInterceptor(Listeners.of(FirstKeyInterceptor.class));
 
-        target.getDeclaredMethod("isEmpty")
+        route(target.getDeclaredMethod("isEmpty"))
             .addInterceptor(Listeners.of(IsEmptyInterceptor.class));
 
-        target.getDeclaredMethod("entrySet")
+        route(target.getDeclaredMethod("entrySet"))
             .addInterceptor(Listeners.of(EntrySetInterceptor.class));
 
-        target.getDeclaredMethod("putAll", "java.util.Map")
+        route(target.getDeclaredMethod("putAll", "java.util.Map"))
             .addInterceptor(Listeners.of(PutAllInterceptor.class));
 
-        target.getDeclaredMethod("keySet")
+        route(target.getDeclaredMethod("keySet"))
             .addInterceptor(Listeners.of(KeySetInterceptor.class));
 
-        target.getDeclaredMethod("containsKey", "java.lang.Object")
+        route(target.getDeclaredMethod("containsKey", "java.lang.Object"))
             .addInterceptor(Listeners.of(FirstKeyInterceptor.class));
     }
 }
@@ -15,6 +15,7 @@
 package com.pamirs.attach.plugin.caffeine.interceptor;
 
 import com.pamirs.pradar.Pradar;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.pamirs.pradar.interceptor.ModificationInterceptorAdaptor;
 import com.shulie.instrument.simulator.api.listener.ext.Advice;
 import org.apache.commons.lang.ArrayUtils;
@@ -30,6 +31,12 @@ public abstract class AbstractFilterInterceptor extends ModificationInterceptorA
         if (!Pradar.isClusterTest()) {
             return advice.getParameterArray();
         }
+        /**
+         * 隔离模式下压测流量访问的是影子缓存，不需要包装 key
+         */
+        if (ShadowCacheTwins.getInstance().isIsolated(advice.getTarget())) {
+            return advice.getParameterArray();
+        }
         Object[] args = advice.getParameterArray();
         if (ArrayUtils.isEmpty(args)) {
             return advice.getParameterArray();
@@ -22,6 +22,7 @@ import java.util.Set;
 import com.pamirs.attach.plugin.caffeine.utils.WrapEntry;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.cache.ClusterTestCacheWrapperKey;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.pamirs.pradar.interceptor.ModificationInterceptorAdaptor;
 import com.shulie.instrument.simulator.api.listener.ext.Advice;
 
@@ -34,6 +35,9 @@ public class EntrySetInterceptor extends ModificationInterceptorAdaptor {
     @Override
     public Object getResult0(Advice advice) throws Throwable {
         Object returnObj = advice.getReturnObj();
+        if (ShadowCacheTwins.getInstance().isIsolated(advice.getTarget())) {
+            return returnObj;
+        }
         if (!(returnObj instanceof Set)) {
             return new Object[0];
         }
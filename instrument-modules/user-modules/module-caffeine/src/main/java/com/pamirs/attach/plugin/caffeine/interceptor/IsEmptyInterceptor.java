@@ -19,6 +19,7 @@ import java.util.concurrent.ConcurrentMap;
 
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.cache.ClusterTestCacheWrapperKey;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.pamirs.pradar.interceptor.ResultInterceptorAdaptor;
 import com.shulie.instrument.simulator.api.listener.ext.Advice;
 
@@ -32,6 +33,9 @@ public class IsEmptyInterceptor extends ResultInterceptorAdaptor {
     @Override
     protected Object getResult0(Advice advice) {
         Object returnObj = advice.getReturnObj();
+        if (ShadowCacheTwins.getInstance().isIsolated(advice.getTarget())) {
+            return returnObj;
+        }
         if (!(returnObj instanceof Boolean)) {
             return returnObj;
         }
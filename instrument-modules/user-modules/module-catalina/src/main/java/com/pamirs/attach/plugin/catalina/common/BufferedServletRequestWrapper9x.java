@@ -15,6 +15,8 @@
 package com.pamirs.attach.plugin.catalina.common;
 
 import com.pamirs.attach.plugin.common.web.IBufferedServletRequestWrapper;
+import com.pamirs.attach.plugin.common.web.RequestBodyCapture;
+import com.pamirs.attach.plugin.common.web.TeeServletInputStream;
 import org.apache.catalina.Context;
 import org.apache.catalina.Host;
 import org.apache.catalina.Session;
@@ -47,7 +49,9 @@ import java.util.Map;
  */
 public class BufferedServletRequestWrapper9x extends Request implements IBufferedServletRequestWrapper {
 
-    private byte[] buffer;
+    private final RequestBodyCapture capture = RequestBodyCapture.create();
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
     private final Request request;
     protected RequestFacade facade;
 
@@ -58,22 +62,6 @@ public class BufferedServletRequestWrapper9x extends Request implements IBuffere
         this.facade = new RequestFacade(this);
     }
 
-    private void initBuffer() {
-        try {
-            InputStream is = request.getInputStream();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte buff[] = new byte[1024];
-            int read;
-            while ((read = is.read(buff)) > 0) {
-                baos.write(buff, 0, read);
-            }
-            this.buffer = baos.toByteArray();
-        } catch (IOException e) {
-            //ignore
-        }
-    }
-
-
     @Override
     public void setAsyncSupported(boolean asyncSupported) {
         request.setAsyncSupported(asyncSupported);
@@ -691,30 +679,36 @@ public class BufferedServletRequestWrapper9x extends Request implements IBuffere
 
     @Override
     public ServletInputStream getInputStream() throws IOException {
-        if (this.buffer == null) {
-            initBuffer();
+        if (capture == null) {
+            return request.getInputStream();
+        }
+        if (inputStream == null) {
+            inputStream = new TeeServletInputStream(request.getInputStream(), capture);
         }
-        return new BufferedServletInputStream(this.buffer);
+        return inputStream;
     }
 
     @Override
     public BufferedReader getReader() throws IOException {
-        if (buffer == null) {
-            initBuffer();
+        if (capture == null) {
+            return request.getReader();
         }
-        String characterEncoding = request.getCharacterEncoding();
-        if (characterEncoding == null) {
-            characterEncoding = "ISO8859-1";
+        if (reader == null) {
+            String characterEncoding = request.getCharacterEncoding();
+            if (characterEncoding == null) {
+                characterEncoding = "ISO8859-1";
+            }
+            reader = new BufferedReaderWrapper(new InputStreamReader(getInputStream(), characterEncoding));
         }
-        return new BufferedReaderWrapper(new InputStreamReader(getInputStream(), characterEncoding));
+        return reader;
     }
 
     @Override
     public byte[] getBody() {
-        if (null == this.buffer) {
+        if (capture == null) {
             return null;
         }
-        return this.buffer;
+        return capture.toByteArray();
     }
 
     @Override
@@ -726,43 +720,4 @@ public class BufferedServletRequestWrapper9x extends Request implements IBuffere
     public <T extends HttpUpgradeHandler> T upgrade(Class<T> handlerClass) throws IOException, ServletException {
         return request.upgrade(handlerClass);
     }
-
-    static class BufferedServletInputStream extends ServletInputStream {
-        private ByteArrayInputStream inputStream;
-
-        public BufferedServletInputStream(byte[] buffer) {
-            this.inputStream = new ByteArrayInputStream(buffer);
-        }
-
-        @Override
-        public int available() throws IOException {
-            return inputStream.available();
-        }
-
-        @Override
-        public int read() throws IOException {
-            return inputStream.read();
-        }
-
-        @Override
-        public int read(byte[] b, int off, int len) throws IOException {
-            return inputStream.read(b, off, len);
-        }
-
-        @Override
-        public boolean isFinished() {
-            return false;
-        }
-
-        @Override
-        public boolean isReady() {
-            return false;
-        }
-
-        @Override
-        public void setReadListener(ReadListener readListener) {
-
-        }
-
-    }
 }
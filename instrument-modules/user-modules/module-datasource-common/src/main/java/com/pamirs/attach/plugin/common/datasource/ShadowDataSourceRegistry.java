@@ -0,0 +1,147 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.common.datasource;
+
+import java.lang.ref.WeakReference;
+
+import com.shulie.instrument.simulator.message.ConcurrentWeakHashMap;
+
+/**
+ * 业务数据源到影子数据源中介的注册表，供各个连接池插件共用
+ * <p>
+ * 以业务数据源对象本身(按照对象标识)作为 key，key 为弱引用，业务数据源被回收之后自动清除。
+ * 获取连接时不再每次都创建 {@link com.pamirs.pradar.pressurement.agent.shared.service.DataSourceMeta}
+ * 计算 url、用户名的 hash 去查找，最近一次命中的数据源单独缓存，只有一个业务数据源时只需要比较一次引用
+ * </p>
+ * <p>
+ * 压测开关关闭、影子库配置变更时由插件在关闭、移除影子数据源之后调用 {@link #clear()}，
+ * 下一次获取连接时重新初始化并注册。每次清空都会增加版本号，清空之前开始的查找不会再把旧的中介注册进来
+ * </p>
+ * <p>
+ * 没有对应中介的业务数据源(例如本身就是影子数据源、影子数据源初始化失败)同样会注册一个空标记，
+ * 通过 {@link #contains(Object)} 判断，避免每次获取连接都重新初始化；空标记同样在 {@link #clear()} 时清除，
+ * 影子库配置变更之后会重新初始化
+ * </p>
+ *
+ * @param <T> 业务数据源类型
+ * @param <M> 影子数据源中介类型
+ * @author agent|agent@local
+ * @since 2026/10/18 4:29 下午
+ */
+public class ShadowDataSourceRegistry<T, M> {
+
+    /**
+     * 没有对应中介时注册的空标记
+     */
+    private static final Object MISSING = new Object();
+
+    private final ConcurrentWeakHashMap<T, Object> mediators = new ConcurrentWeakHashMap<T, Object>(
+            new ConcurrentWeakHashMap.HashCodeGenerateFunction() {
+                @Override
+                public int hashcode(Object key) {
+                    return System.identityHashCode(key);
+                }
+            });
+
+    private volatile Entry<T, M> last;
+
+    private volatile long version;
+
+    /**
+     * 获取业务数据源对应的中介
+     *
+     * @param dataSource 业务数据源
+     * @return 没有注册或者注册的是空标记时返回 null
+     */
+    public M get(T dataSource) {
+        Entry<T, M> entry = lookup(dataSource);
+        return entry == null ? null : entry.mediator;
+    }
+
+    /**
+     * 业务数据源是否已经注册过，包括没有对应中介的空标记
+     *
+     * @param dataSource 业务数据源
+     * @return 注册过返回 true，此时 {@link #get(Object)} 返回 null 说明没有对应的中介，不需要重新初始化
+     */
+    public boolean contains(T dataSource) {
+        return lookup(dataSource) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Entry<T, M> lookup(T dataSource) {
+        Entry<T, M> entry = last;
+        if (entry != null && entry.get() == dataSource) {
+            return entry;
+        }
+        long version = this.version;
+        Object value = mediators.get(dataSource);
+        if (value == null) {
+            return null;
+        }
+        entry = new Entry<T, M>(dataSource, value == MISSING ? null : (M) value);
+        last = entry;
+        /**
+         * 设置期间被清空过，丢弃刚刚设置的缓存
+         */
+        if (version != this.version) {
+            last = null;
+        }
+        return entry;
+    }
+
+    /**
+     * 当前的版本号，在查找插件自身的数据源缓存之前获取，注册时传入
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * 注册业务数据源对应的中介，查找期间注册表被清空过时不注册
+     *
+     * @param dataSource 业务数据源
+     * @param mediator   中介，为 null 时注册空标记
+     * @param version    开始查找前通过 {@link #version()} 获取的版本号
+     */
+    public void register(T dataSource, M mediator, long version) {
+        if (dataSource == null) {
+            return;
+        }
+        synchronized (this) {
+            if (version != this.version) {
+                return;
+            }
+            mediators.put(dataSource, mediator == null ? MISSING : mediator);
+        }
+    }
+
+    public void clear() {
+        synchronized (this) {
+            version++;
+            last = null;
+            mediators.clear();
+        }
+    }
+
+    private static final class Entry<T, M> extends WeakReference<T> {
+        private final M mediator;
+
+        Entry(T dataSource, M mediator) {
+            super(dataSource);
+            this.mediator = mediator;
+        }
+    }
+}
@@ -0,0 +1,477 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.common.datasource.redisserver;
+
+import com.pamirs.pradar.Pradar;
+import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
+
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * redis 影子 key 的改写，jedis、lettuce、redisson 插件共用
+ * <p>
+ * key 白名单编译成前缀树，每次判断只需要沿着 key 走一遍，不再逐个 startsWith；白名单变更时重新编译。
+ * byte[] 类型的 key 直接在字节上判断白名单和压测前缀、拼接压测前缀，不再经过 String 来回转换，
+ * 只有在默认编码下字符串前缀与字节前缀不能一一对应时(非 UTF-8、ASCII、ISO-8859-1 编码，或者压测前缀不是 ASCII)
+ * 才按照原来的方式先转换成 String
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:05 下午
+ */
+public final class RedisShadowKeys {
+
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private static final String PREFIX = Pradar.CLUSTER_TEST_PREFIX;
+
+    private static final byte[] PREFIX_BYTES = PREFIX.getBytes(CHARSET);
+
+    /**
+     * 是否直接在字节上处理 byte[] 类型的 key
+     */
+    private static final boolean BYTE_LEVEL = isPrefixPreserving(CHARSET) && isAscii(PREFIX);
+
+    private static volatile WhiteList whiteList;
+
+    private RedisShadowKeys() {
+    }
+
+    /**
+     * 数组中哪些元素是 key，如 key,value,key,value... 这种组合的参数
+     */
+    public interface KeyArrayFilter {
+        /**
+         * 数组中的元素是否是 key
+         *
+         * @param object 数组元素
+         * @param index  下标
+         * @return 是否是 key
+         */
+        boolean isKey(Object object, int index);
+    }
+
+    private static boolean isPrefixPreserving(Charset charset) {
+        final String name = charset.name();
+        return "UTF-8".equals(name) || "US-ASCII".equals(name) || "ISO-8859-1".equals(name);
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0, len = value.length(); i < len; i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static WhiteList currentWhiteList() {
+        final Set<String> source = GlobalConfig.getInstance().getCacheKeyWhiteList();
+        WhiteList compiled = whiteList;
+        if (compiled == null || !compiled.isCompiledFrom(source)) {
+            compiled = new WhiteList(source);
+            whiteList = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * key 是否在白名单中，与逐个 key.startsWith(白名单) 一致
+     */
+    public static boolean isWhiteListed(String key) {
+        return key != null && currentWhiteList().matches(key);
+    }
+
+    public static boolean isWhiteListed(byte[] key) {
+        if (key == null) {
+            return false;
+        }
+        if (!BYTE_LEVEL) {
+            return currentWhiteList().matches(new String(key, CHARSET));
+        }
+        return currentWhiteList().matches(key);
+    }
+
+    /**
+     * key 是否已经带有压测前缀，与 {@link Pradar#isClusterTestPrefix(String)} 一致
+     */
+    public static boolean isShadowKey(byte[] key) {
+        if (key == null) {
+            return false;
+        }
+        if (!BYTE_LEVEL) {
+            return Pradar.isClusterTestPrefix(new String(key, CHARSET));
+        }
+        if (PREFIX_BYTES.length > key.length) {
+            return false;
+        }
+        for (int i = 0; i < PREFIX_BYTES.length; i++) {
+            if (toLowerCase(key[i]) != toLowerCase(PREFIX_BYTES[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isShadowKey(char[] key) {
+        if (PREFIX.length() > key.length) {
+            return false;
+        }
+        for (int i = 0, len = PREFIX.length(); i < len; i++) {
+            if (Character.toLowerCase(key[i]) != Character.toLowerCase(PREFIX.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+
+    /**
+     * key 是否全部是数字，与 StringUtils.isNumeric(new String(key)) 一致
+     */
+    public static boolean isNumeric(byte[] key) {
+        if (key == null) {
+            return false;
+        }
+        for (byte b : key) {
+            if (b < 0) {
+                return isNumeric(new String(key, CHARSET));
+            }
+            if (b < '0' || b > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static boolean isNumeric(String key) {
+        if (key == null) {
+            return false;
+        }
+        for (int i = 0, len = key.length(); i < len; i++) {
+            if (!Character.isDigit(key.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 转换成影子 key，白名单中的 key 以及已经带有压测前缀的 key 不变
+     */
+    public static String toShadowKey(String key) {
+        if (key == null || isWhiteListed(key) || Pradar.isClusterTestPrefix(key)) {
+            return key;
+        }
+        return Pradar.addClusterTestPrefix(key);
+    }
+
+    public static byte[] toShadowKey(byte[] key) {
+        if (key == null) {
+            return null;
+        }
+        if (!BYTE_LEVEL) {
+            String str = new String(key, CHARSET);
+            if (currentWhiteList().matches(str)) {
+                return key;
+            }
+            if (!Pradar.isClusterTestPrefix(str)) {
+                str = Pradar.addClusterTestPrefix(str);
+            }
+            return str.getBytes(CHARSET);
+        }
+        if (currentWhiteList().matches(key) || isShadowKey(key)) {
+            return key;
+        }
+        return addPrefix(key);
+    }
+
+    /**
+     * 不经过白名单，直接给还没有压测前缀的 key 加上压测前缀
+     */
+    public static byte[] addPrefixIfAbsent(byte[] key) {
+        if (key == null || isShadowKey(key)) {
+            return key;
+        }
+        if (!BYTE_LEVEL) {
+            return Pradar.addClusterTestPrefix(new String(key, CHARSET)).getBytes(CHARSET);
+        }
+        return addPrefix(key);
+    }
+
+    private static byte[] addPrefix(byte[] key) {
+        final byte[] shadowKey = new byte[PREFIX_BYTES.length + key.length];
+        System.arraycopy(PREFIX_BYTES, 0, shadowKey, 0, PREFIX_BYTES.length);
+        System.arraycopy(key, 0, shadowKey, PREFIX_BYTES.length, key.length);
+        return shadowKey;
+    }
+
+    public static char[] toShadowKey(char[] key) {
+        if (key == null || currentWhiteList().matches(key) || isShadowKey(key)) {
+            return key;
+        }
+        final char[] shadowKey = new char[PREFIX.length() + key.length];
+        PREFIX.getChars(0, PREFIX.length(), shadowKey, 0);
+        System.arraycopy(key, 0, shadowKey, PREFIX.length(), key.length);
+        return shadowKey;
+    }
+
+    /**
+     * 将数组中的 key 原地转换成影子 key
+     *
+     * @param keys        key 数组
+     * @param skipNumeric 是否跳过全部是数字的 key
+     */
+    public static String[] toShadowKeys(String[] keys, boolean skipNumeric) {
+        for (int i = 0, len = keys.length; i < len; i++) {
+            if (skipNumeric && isNumeric(keys[i])) {
+                continue;
+            }
+            keys[i] = toShadowKey(keys[i]);
+        }
+        return keys;
+    }
+
+    public static byte[][] toShadowKeys(byte[][] keys, boolean skipNumeric) {
+        for (int i = 0, len = keys.length; i < len; i++) {
+            if (skipNumeric && isNumeric(keys[i])) {
+                continue;
+            }
+            keys[i] = toShadowKey(keys[i]);
+        }
+        return keys;
+    }
+
+    public static char[][] toShadowKeys(char[][] keys) {
+        for (int i = 0, len = keys.length; i < len; i++) {
+            keys[i] = toShadowKey(keys[i]);
+        }
+        return keys;
+    }
+
+    /**
+     * 转换任意类型的 key，集合、数组、Map 中的每个 key 都会转换
+     */
+    public static Object toShadowKey(Object key) {
+        return toShadowKey(key, null);
+    }
+
+    /**
+     * 转换任意类型的 key，集合、数组、Map 中的每个 key 都会转换
+     *
+     * @param key    key
+     * @param filter Object[] 中哪些元素是 key，为 null 时全部都是 key
+     * @return 影子 key
+     */
+    public static Object toShadowKey(Object key, KeyArrayFilter filter) {
+        if (key == null) {
+            return null;
+        }
+        if (key instanceof byte[]) {
+            return toShadowKey((byte[]) key);
+        }
+
+        if (key instanceof byte[][]) {
+            return toShadowKeys((byte[][]) key, false);
+        }
+
+        if (key instanceof char[]) {
+            return toShadowKey((char[]) key);
+        }
+
+        if (key instanceof char[][]) {
+            return toShadowKeys((char[][]) key);
+        }
+
+        if (key instanceof String) {
+            return toShadowKey((String) key);
+        }
+
+        if (key instanceof List) {
+            List list = new ArrayList();
+            for (Object k : (List) key) {
+                list.add(toShadowKey(k, filter));
+            }
+            return list;
+        }
+
+        if (key instanceof Set) {
+            Set set = new HashSet();
+            for (Object k : (Set) key) {
+                set.add(toShadowKey(k, filter));
+            }
+            return set;
+        }
+
+        if (key instanceof Iterable) {
+            List list = new ArrayList();
+            Iterator it = ((Iterable) key).iterator();
+            while (it.hasNext()) {
+                list.add(toShadowKey(it.next(), filter));
+            }
+            return list;
+        }
+
+        if (key instanceof Map) {
+            Map map = (Map) key;
+            Map result = new HashMap();
+
+            final Set<Map.Entry<Object, Object>> set = map.entrySet();
+            for (Map.Entry<Object, Object> entry : set) {
+                result.put(toShadowKey(entry.getKey(), filter), entry.getValue());
+            }
+            return result;
+        }
+
+        if (key instanceof Iterator) {
+            List list = new ArrayList();
+            Iterator it = (Iterator) key;
+            while (it.hasNext()) {
+                list.add(toShadowKey(it.next(), filter));
+            }
+            return list;
+        }
+
+        if (key instanceof Object[]) {
+            Object[] keys = (Object[]) key;
+            for (int i = 0, len = keys.length; i < len; i++) {
+                if (filter == null || filter.isKey(keys[i], i)) {
+                    keys[i] = toShadowKey(keys[i], filter);
+                }
+            }
+            return keys;
+        }
+
+        return toShadowKey(key.toString());
+    }
+
+    /**
+     * 编译后的 key 白名单，字符串和字节各一棵前缀树
+     */
+    private static final class WhiteList {
+        private final Set<String> source;
+        private final int size;
+        private final Node charRoot = new Node();
+        private final Node byteRoot = new Node();
+        private final boolean empty;
+
+        WhiteList(Set<String> source) {
+            this.source = source;
+            this.size = source == null ? 0 : source.size();
+            boolean empty = true;
+            if (source != null) {
+                for (String white : source) {
+                    if (white == null) {
+                        continue;
+                    }
+                    Node node = charRoot;
+                    for (int i = 0, len = white.length(); i < len; i++) {
+                        node = node.getOrCreateChild(white.charAt(i));
+                    }
+                    node.terminal = true;
+                    node = byteRoot;
+                    for (byte b : white.getBytes(CHARSET)) {
+                        node = node.getOrCreateChild(b & 0xFF);
+                    }
+                    node.terminal = true;
+                    empty = false;
+                }
+            }
+            this.empty = empty;
+        }
+
+        boolean isCompiledFrom(Set<String> whiteList) {
+            return source == whiteList && (whiteList == null || size == whiteList.size());
+        }
+
+        boolean matches(String key) {
+            if (empty) {
+                return false;
+            }
+            Node node = charRoot;
+            for (int i = 0, len = key.length(); !node.terminal; i++) {
+                if (i == len || (node = node.getChild(key.charAt(i))) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean matches(char[] key) {
+            if (empty) {
+                return false;
+            }
+            Node node = charRoot;
+            for (int i = 0, len = key.length; !node.terminal; i++) {
+                if (i == len || (node = node.getChild(key[i])) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean matches(byte[] key) {
+            if (empty) {
+                return false;
+            }
+            Node node = byteRoot;
+            for (int i = 0, len = key.length; !node.terminal; i++) {
+                if (i == len || (node = node.getChild(key[i] & 0xFF)) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Node {
+        private int[] keys;
+        private Node[] children;
+        private int size;
+        private boolean terminal;
+
+        Node getChild(int c) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node getOrCreateChild(int c) {
+            Node child = getChild(c);
+            if (child != null) {
+                return child;
+            }
+            if (keys == null) {
+                keys = new int[2];
+                children = new Node[2];
+            } else if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size << 1);
+                children = Arrays.copyOf(children, size << 1);
+            }
+            child = new Node();
+            keys[size] = c;
+            children[size] = child;
+            size++;
+            return child;
+        }
+    }
+}
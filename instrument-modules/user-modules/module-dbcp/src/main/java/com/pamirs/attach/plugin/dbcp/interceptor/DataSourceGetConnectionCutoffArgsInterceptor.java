@@ -63,10 +63,9 @@ public class DataSourceGetConnectionCutoffArgsInterceptor extends CutoffIntercep
     public CutOffResult cutoff0(Advice advice) {
         Object target = advice.getTarget();
         BasicDataSource dataSource = (BasicDataSource) target;
-        DataSourceMeta<BasicDataSource> dataSourceMeta = new DataSourceMeta<BasicDataSource>(dataSource.getUrl(), dataSource.getUsername(), dataSource);
         ClusterTestUtils.validateClusterTest();
 
-        DataSourceWrapUtil.init(dataSourceMeta);
+        DbcpMediaDataSource mediatorDataSource = DataSourceWrapUtil.getMediator(dataSource);
 
         Connection connection = null;
 
@@ -75,26 +74,18 @@ public class DataSourceGetConnectionCutoffArgsInterceptor extends CutoffIntercep
          * 如果未找到配置情况下则当前流量为压测流量时返回null,非压测流量则执行业务连接池正常逻辑,此种情况可能由于数据源未配置的情况
          * 如果获取连接出错时如果流量为压测流量则返回null，非压测流量则执行业务连接池正常逻辑
          */
-        if (DataSourceWrapUtil.pressureDataSources.containsKey(dataSourceMeta)) {
-            DbcpMediaDataSource mediatorDataSource = DataSourceWrapUtil.pressureDataSources.get(dataSourceMeta);
-            if (mediatorDataSource != null) {
-                try {
-                    connection = mediatorDataSource.getConnection();
-                } catch (SQLException e) {
-                    throw new PressureMeasureError(e);
-                }
-            } else {
-                if (!Pradar.isClusterTest()) {
-                    return CutOffResult.passed();
-                }
+        if (mediatorDataSource != null) {
+            try {
+                connection = mediatorDataSource.getConnection();
+            } catch (SQLException e) {
+                throw new PressureMeasureError(e);
             }
             return CutOffResult.cutoff(connection);
-        } else {
-            if (!Pradar.isClusterTest()) {
-                return CutOffResult.passed();
-            }
-            return CutOffResult.cutoff(null);
         }
+        if (!Pradar.isClusterTest()) {
+            return CutOffResult.passed();
+        }
+        return CutOffResult.cutoff(null);
     }
 
     private void addListener() {
@@ -146,6 +137,7 @@ public class DataSourceGetConnectionCutoffArgsInterceptor extends CutoffIntercep
                     }
 
                 }
+                DataSourceWrapUtil.mediatorRegistry.clear();
                 return EventResult.success("module-dbcp: destroyed shadow table datasource success.");
             }
 
@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.dbcp.utils;
 
+import com.pamirs.attach.plugin.common.datasource.ShadowDataSourceRegistry;
 import com.pamirs.pradar.ConfigNames;
 import com.pamirs.pradar.ErrorTypeEnum;
 import com.pamirs.pradar.Throwables;
@@ -39,6 +40,11 @@ public class DataSourceWrapUtil {
 
     public static final ConcurrentHashMap<DataSourceMeta, DbcpMediaDataSource> pressureDataSources = new ConcurrentHashMap<DataSourceMeta, DbcpMediaDataSource>();
 
+    /**
+     * 业务数据源到中介的快速查找，获取连接时先从这里查找，找不到时再初始化
+     */
+    public static final ShadowDataSourceRegistry<BasicDataSource, DbcpMediaDataSource> mediatorRegistry = new ShadowDataSourceRegistry<BasicDataSource, DbcpMediaDataSource>();
+
     public static void destroy() {
         Iterator<Map.Entry<DataSourceMeta, DbcpMediaDataSource>> it = pressureDataSources.entrySet().iterator();
         while (it.hasNext()) {
@@ -47,6 +53,26 @@ public class DataSourceWrapUtil {
             entry.getValue().close();
         }
         pressureDataSources.clear();
+        mediatorRegistry.clear();
+    }
+
+    /**
+     * 获取业务数据源对应的中介，第一次获取或者注册表清空之后重新初始化
+     *
+     * @param dataSource 业务数据源
+     * @return 没有对应的中介时返回 null
+     */
+    public static DbcpMediaDataSource getMediator(BasicDataSource dataSource) {
+        DbcpMediaDataSource mediator = mediatorRegistry.get(dataSource);
+        if (mediator != null || mediatorRegistry.contains(dataSource)) {
+            return mediator;
+        }
+        long version = mediatorRegistry.version();
+        DataSourceMeta<BasicDataSource> dataSourceMeta = new DataSourceMeta<BasicDataSource>(dataSource.getUrl(), dataSource.getUsername(), dataSource);
+        init(dataSourceMeta);
+        mediator = pressureDataSources.get(dataSourceMeta);
+        mediatorRegistry.register(dataSource, mediator, version);
+        return mediator;
     }
 
     public static boolean validate(BasicDataSource sourceDataSource) {
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.ehcache;
+
+import java.lang.ref.WeakReference;
+
+import com.pamirs.pradar.Pradar;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
+import org.ehcache.Cache;
+import org.ehcache.CacheManager;
+import org.ehcache.config.CacheRuntimeConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.spi.service.ServiceConfiguration;
+
+/**
+ * Ehcache3 由 CacheManager 创建的缓存的影子缓存
+ * <p>
+ * 在同一个 CacheManager 中按照业务缓存的运行时配置创建一个带压测前缀的缓存，容量、过期策略与业务缓存相同；
+ * CacheLoaderWriter、write-behind 以及事件监听器只属于业务缓存，影子缓存不使用，避免压测数据写入业务的数据源。
+ * 压测开关关闭之后重新创建时先删除之前的影子缓存
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 5:58 下午
+ */
+public class Ehcache3TwinFactory implements ShadowCacheTwins.TwinFactory {
+
+    /**
+     * 只属于业务缓存的服务，按照服务的类名判断，兼容不同版本中配置类的位置
+     */
+    private final static String[] DETACHED_SERVICES = new String[]{"CacheLoaderWriterProvider", "WriteBehindProvider",
+        "CacheEventListenerProvider"};
+
+    /**
+     * CacheManager 持有业务缓存，只保留弱引用
+     */
+    private final WeakReference<CacheManager> cacheManager;
+    private final String alias;
+
+    public Ehcache3TwinFactory(CacheManager cacheManager, String alias) {
+        this.cacheManager = new WeakReference<CacheManager>(cacheManager);
+        this.alias = alias;
+    }
+
+    @Override
+    public Object create(Object cache) throws Throwable {
+        CacheManager manager = cacheManager.get();
+        if (manager == null) {
+            return null;
+        }
+        CacheRuntimeConfiguration configuration = ((Cache) cache).getRuntimeConfiguration();
+        CacheConfigurationBuilder builder = CacheConfigurationBuilder.newCacheConfigurationBuilder(configuration);
+        for (Object serviceConfiguration : configuration.getServiceConfigurations()) {
+            if (isDetached((ServiceConfiguration) serviceConfiguration)) {
+                builder = builder.remove((ServiceConfiguration) serviceConfiguration);
+            }
+        }
+        String twinAlias = Pradar.addClusterTestPrefix(alias);
+        manager.removeCache(twinAlias);
+        return manager.createCache(twinAlias, builder.build());
+    }
+
+    private static boolean isDetached(ServiceConfiguration serviceConfiguration) {
+        Class<?> serviceType = serviceConfiguration.getServiceType();
+        if (serviceType == null) {
+            return false;
+        }
+        for (String service : DETACHED_SERVICES) {
+            if (service.equals(serviceType.getSimpleName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
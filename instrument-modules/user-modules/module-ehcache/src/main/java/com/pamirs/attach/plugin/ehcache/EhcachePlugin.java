@@ -16,6 +16,7 @@ package com.pamirs.attach.plugin.ehcache;
 
 
 import com.pamirs.attach.plugin.ehcache.interceptor.*;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.shulie.instrument.simulator.api.ExtensionModule;
 import com.shulie.instrument.simulator.api.ModuleInfo;
 import com.shulie.instrument.simulator.api.ModuleLifecycleAdapter;
@@ -35,6 +36,10 @@ public class EhcachePlugin extends ModuleLifecycleAdapter implements ExtensionMo
     @Override
     public void onActive() throws Throwable {
 
+        if (ShadowCacheTwins.isEnabled()) {
+            addEhcache3Twin();
+        }
+
         enhanceTemplate.enhance(this, new EnhanceCallback() {
             @Override
             public void doEnhance(InstrumentClass target) {
@@ -129,4 +134,23 @@ public class EhcachePlugin extends ModuleLifecycleAdapter implements ExtensionMo
             }
         });
     }
+
+    /**
+     * 隔离模式下压测流量访问 Ehcache3 缓存对应的影子缓存，影子缓存由创建业务缓存的 CacheManager 创建
+     */
+    private void addEhcache3Twin() {
+        enhanceTemplate.enhance(this, "org.ehcache.core.EhcacheManager", new EnhanceCallback() {
+            @Override
+            public void doEnhance(InstrumentClass target) {
+                target.getDeclaredMethods("createCache").addInterceptor(Listeners.of(CacheManagerCreateCacheInterceptor.class));
+            }
+        });
+        enhanceTemplate.enhance(this, new EnhanceCallback() {
+            @Override
+            public void doEnhance(InstrumentClass target) {
+                target.getDeclaredMethods("get", "put", "putIfAbsent", "containsKey", "remove", "replace", "iterator",
+                        "getAll", "putAll", "removeAll", "clear").addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+            }
+        }, "org.ehcache.core.Ehcache", "org.ehcache.core.EhcacheWithLoaderWriter");
+    }
 }
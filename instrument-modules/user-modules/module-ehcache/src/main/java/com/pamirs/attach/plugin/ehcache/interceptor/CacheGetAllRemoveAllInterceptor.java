@@ -16,6 +16,7 @@ package com.pamirs.attach.plugin.ehcache.interceptor;
 
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.cache.ClusterTestCacheWrapperKey;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.pamirs.pradar.interceptor.AroundInterceptor;
 import com.shulie.instrument.simulator.api.ProcessController;
 import com.shulie.instrument.simulator.api.listener.ext.Advice;
@@ -35,6 +36,12 @@ public class CacheGetAllRemoveAllInterceptor extends AroundInterceptor {
         if (!Pradar.isClusterTest()) {
             return;
         }
+        /**
+         * 隔离模式下压测流量访问的是影子缓存，不需要包装 key
+         */
+        if (ShadowCacheTwins.getInstance().isIsolated(advice.getTarget())) {
+            return;
+        }
         Object[] args = advice.getParameterArray();
         if (ArrayUtils.isEmpty(args)) {
             return;
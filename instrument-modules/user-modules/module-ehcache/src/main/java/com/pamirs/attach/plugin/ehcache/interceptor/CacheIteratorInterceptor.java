@@ -16,6 +16,7 @@ package com.pamirs.attach.plugin.ehcache.interceptor;
 
 import com.pamirs.attach.plugin.ehcache.Iter;
 import com.pamirs.pradar.Pradar;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.pamirs.pradar.interceptor.ResultInterceptorAdaptor;
 import com.shulie.instrument.simulator.api.listener.ext.Advice;
 import org.ehcache.Cache;
@@ -35,6 +36,12 @@ public class CacheIteratorInterceptor extends ResultInterceptorAdaptor {
         if (!Pradar.isClusterTest()) {
             return result;
         }
+        /**
+         * 隔离模式下压测流量访问的是影子缓存，不需要包装 key
+         */
+        if (ShadowCacheTwins.getInstance().isIsolated(advice.getTarget())) {
+            return result;
+        }
         if (result instanceof Iter || !(result instanceof Iterator)) {
             return result;
         }
@@ -0,0 +1,47 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.ehcache.interceptor;
+
+import com.pamirs.attach.plugin.ehcache.Ehcache3TwinFactory;
+import com.pamirs.pradar.Pradar;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
+import com.pamirs.pradar.interceptor.AroundInterceptor;
+import com.shulie.instrument.simulator.api.listener.ext.Advice;
+import org.apache.commons.lang.ArrayUtils;
+import org.ehcache.CacheManager;
+
+/**
+ * 记录 Ehcache3 CacheManager 创建的缓存，包括初始化时按照配置创建的缓存，隔离模式下用于创建影子缓存
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 5:58 下午
+ */
+public class CacheManagerCreateCacheInterceptor extends AroundInterceptor {
+
+    @Override
+    public void doAfter(Advice advice) {
+        Object[] args = advice.getParameterArray();
+        if (ArrayUtils.isEmpty(args) || !(args[0] instanceof String) || advice.getReturnObj() == null
+            || !(advice.getTarget() instanceof CacheManager)) {
+            return;
+        }
+        String alias = (String) args[0];
+        if (Pradar.isClusterTestPrefix(alias)) {
+            return;
+        }
+        ShadowCacheTwins.getInstance().record(advice.getReturnObj(),
+            new Ehcache3TwinFactory((CacheManager) advice.getTarget(), alias));
+    }
+}
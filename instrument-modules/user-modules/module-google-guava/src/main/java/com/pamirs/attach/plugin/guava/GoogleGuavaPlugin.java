@@ -15,6 +15,7 @@
 package com.pamirs.attach.plugin.guava;
 
 import com.pamirs.attach.plugin.guava.interceptor.*;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.shulie.instrument.simulator.api.ExtensionModule;
 import com.shulie.instrument.simulator.api.ModuleInfo;
 import com.shulie.instrument.simulator.api.ModuleLifecycleAdapter;
@@ -60,6 +61,12 @@ public class GoogleGuavaPlugin extends ModuleLifecycleAdapter implements Extensi
         enhanceTemplate.enhance(this, "com.google.common.cache.LocalCache$LocalManualCache", new EnhanceCallback() {
             @Override
             public void doEnhance(InstrumentClass target) {
+                if (ShadowCacheTwins.isEnabled()) {
+                    target.getConstructor("com.google.common.cache.CacheBuilder")
+                        .addInterceptor(Listeners.of(CacheConstructorInterceptor.class));
+                    target.getDeclaredMethods(methods).addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+                    target.getDeclaredMethods("asMap").addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+                }
                 InstrumentMethod build = target.getDeclaredMethods(methods);
                 build.addInterceptor(Listeners.of(CacheOperationInterceptor.class));
                 InstrumentMethod declaredMethods = target.getDeclaredMethods("*");
@@ -74,6 +81,13 @@ public class GoogleGuavaPlugin extends ModuleLifecycleAdapter implements Extensi
         enhanceTemplate.enhance(this, "com.google.common.cache.LocalCache$LocalLoadingCache", new EnhanceCallback() {
             @Override
             public void doEnhance(InstrumentClass target) {
+                if (ShadowCacheTwins.isEnabled()) {
+                    target.getConstructor("com.google.common.cache.CacheBuilder",
+                        "com.google.common.cache.CacheLoader")
+                        .addInterceptor(Listeners.of(CacheConstructorInterceptor.class));
+                    target.getDeclaredMethods(methods).addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+                    target.getDeclaredMethods("asMap").addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+                }
                 InstrumentMethod build = target.getDeclaredMethods(methods);
                 build.addInterceptor(Listeners.of(CacheOperationInterceptor.class));
                 InstrumentMethod declaredMethods = target.getDeclaredMethods("*");
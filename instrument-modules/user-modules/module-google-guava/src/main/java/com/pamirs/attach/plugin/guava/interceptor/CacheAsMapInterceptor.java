@@ -19,6 +19,7 @@ import com.pamirs.pradar.AppNameUtils;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.PradarSwitcher;
 import com.pamirs.pradar.cache.ClusterTestCacheWrapperKey;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.pamirs.pradar.exception.PressureMeasureError;
 import com.pamirs.pradar.interceptor.ResultInterceptorAdaptor;
 import com.shulie.instrument.simulator.api.listener.ext.Advice;
@@ -44,6 +45,9 @@ public class CacheAsMapInterceptor extends ResultInterceptorAdaptor {
             }
             return advice.getReturnObj();
         }
+        if (ShadowCacheTwins.getInstance().isIsolated(advice.getTarget())) {
+            return advice.getReturnObj();
+        }
         boolean clusterTest = Pradar.isClusterTest();
         ConcurrentMap returnObj = (ConcurrentMap) advice.getReturnObj();
         Set<Map.Entry> set = returnObj.entrySet();
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.guava.interceptor;
+
+import com.pamirs.pradar.cache.ShadowCacheTwins;
+import com.pamirs.pradar.interceptor.AroundInterceptor;
+import com.shulie.instrument.simulator.api.listener.ext.Advice;
+
+/**
+ * 记录缓存的构造参数，隔离模式下用于创建影子缓存
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:34 下午
+ */
+public class CacheConstructorInterceptor extends AroundInterceptor {
+
+    /**
+     * 删除监听器只属于业务缓存，影子缓存不使用
+     */
+    private final static String[] DETACHED_FIELDS = new String[]{"removalListener"};
+
+    @Override
+    public void doAfter(Advice advice) {
+        ShadowCacheTwins.getInstance().record(advice.getTarget(), advice.getBehavior().getParameterTypes(), advice.getParameterArray(),
+                DETACHED_FIELDS);
+    }
+}
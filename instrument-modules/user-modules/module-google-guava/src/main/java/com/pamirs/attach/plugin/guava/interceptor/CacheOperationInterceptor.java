@@ -18,6 +18,7 @@ import com.pamirs.pradar.AppNameUtils;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.PradarSwitcher;
 import com.pamirs.pradar.cache.ClusterTestCacheWrapperKey;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.pamirs.pradar.exception.PressureMeasureError;
 import com.pamirs.pradar.interceptor.ParametersWrapperInterceptorAdaptor;
 import com.shulie.instrument.simulator.api.listener.ext.Advice;
@@ -49,6 +50,12 @@ public class CacheOperationInterceptor extends ParametersWrapperInterceptorAdapt
         if (parameterArray.length == 0) {
             return parameterArray;
         }
+        /**
+         * 隔离模式下压测流量访问的是影子缓存，不需要包装 key
+         */
+        if (ShadowCacheTwins.getInstance().isIsolated(advice.getTarget())) {
+            return parameterArray;
+        }
         if (parameterArray[0] instanceof Map) {
             Set<Map.Entry> set = ((Map) parameterArray[0]).entrySet();
             HashMap<Object, Object> objectObjectHashMap = new HashMap<Object, Object>();
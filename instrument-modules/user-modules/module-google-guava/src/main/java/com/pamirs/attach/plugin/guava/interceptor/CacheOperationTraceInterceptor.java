@@ -17,6 +17,7 @@ package com.pamirs.attach.plugin.guava.interceptor;
 import com.pamirs.attach.plugin.guava.GoogleGuavaConstants;
 import com.pamirs.pradar.MiddlewareType;
 import com.pamirs.pradar.ResultCode;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.pamirs.pradar.interceptor.SpanRecord;
 import com.pamirs.pradar.interceptor.TraceInterceptorAdaptor;
 import com.shulie.instrument.simulator.api.listener.ext.Advice;
@@ -38,9 +39,15 @@ public class CacheOperationTraceInterceptor extends TraceInterceptorAdaptor {
 
     @Override
     public SpanRecord beforeTrace(Advice advice) {
+        Object target = advice.getTarget();
+        /**
+         * 影子缓存上的调用由业务缓存转发过来，业务缓存上已经记录了调用
+         */
+        if (ShadowCacheTwins.getInstance().isTwin(target)) {
+            return null;
+        }
         Object[] args = advice.getParameterArray();
         String methodName = advice.getBehavior().getName();
-        Object target = advice.getTarget();
         SpanRecord record = new SpanRecord();
         record.setService(target.getClass().getName());
         record.setMethod(methodName);
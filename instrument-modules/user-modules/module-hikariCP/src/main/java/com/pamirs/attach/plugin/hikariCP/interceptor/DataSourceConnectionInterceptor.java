@@ -65,8 +65,7 @@ public class DataSourceConnectionInterceptor extends CutoffInterceptorAdaptor {
         ClusterTestUtils.validateClusterTest();
         HikariDataSource dataSource = (HikariDataSource) target;
 
-        DataSourceMeta<HikariDataSource> dataSourceMeta = new DataSourceMeta<HikariDataSource>(dataSource.getJdbcUrl(), dataSource.getUsername(), dataSource);
-        DataSourceWrapUtil.init(dataSourceMeta);
+        HikariMediaDataSource mediatorDataSource = DataSourceWrapUtil.getMediator(dataSource);
 
         Connection connection = null;
         /**
@@ -74,26 +73,18 @@ public class DataSourceConnectionInterceptor extends CutoffInterceptorAdaptor {
          * 如果未找到配置情况下则当前流量为压测流量时返回null,非压测流量则执行业务连接池正常逻辑,此种情况可能由于数据源未配置的情况
          * 如果获取连接出错时如果流量为压测流量则返回null，非压测流量则执行业务连接池正常逻辑
          */
-        if (DataSourceWrapUtil.pressureDataSources.containsKey(dataSourceMeta)) {
-            HikariMediaDataSource mediatorDataSource = DataSourceWrapUtil.pressureDataSources.get(dataSourceMeta);
-            if (mediatorDataSource != null) {
-                try {
-                    connection = mediatorDataSource.getConnection();
-                } catch (SQLException e) {
-                    throw new PressureMeasureError(e);
-                }
-            } else {
-                if (!Pradar.isClusterTest()) {
-                    return CutOffResult.passed();
-                }
+        if (mediatorDataSource != null) {
+            try {
+                connection = mediatorDataSource.getConnection();
+            } catch (SQLException e) {
+                throw new PressureMeasureError(e);
             }
             return CutOffResult.cutoff(connection);
-        } else {
-            if (!Pradar.isClusterTest()) {
-                return CutOffResult.passed();
-            }
-            return CutOffResult.cutoff(null);
         }
+        if (!Pradar.isClusterTest()) {
+            return CutOffResult.passed();
+        }
+        return CutOffResult.cutoff(null);
 
     }
 
@@ -146,6 +137,7 @@ public class DataSourceConnectionInterceptor extends CutoffInterceptorAdaptor {
                     }
 
                 }
+                DataSourceWrapUtil.mediatorRegistry.clear();
                 return EventResult.success("module-hikariCP: destroyed shadow table datasource success.");
             }
 
@@ -123,8 +123,11 @@ public class AsyncHttpClientv4MethodInterceptor extends AroundInterceptor {
             } catch (NumberFormatException e) {
             }
         }
+        /**
+         * 请求头只写入远程传输的字段，完整的上下文留给回调线程恢复
+         */
         final Map<String, String> context = Pradar.getInvokeContextMap();
-        for (Map.Entry<String, String> entry : context.entrySet()) {
+        for (Map.Entry<String, String> entry : Pradar.getInvokeContextTransformMap().entrySet()) {
             String key = entry.getKey();
             String value = entry.getValue();
             if (request.getHeaders(HeaderMark.DONT_MODIFY_HEADER) == null ||
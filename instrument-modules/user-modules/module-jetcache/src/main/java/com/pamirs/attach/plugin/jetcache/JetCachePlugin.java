@@ -16,7 +16,10 @@ package com.pamirs.attach.plugin.jetcache;
 
 
 import com.pamirs.attach.plugin.jetcache.interceptor.EmbeddedCacheBuildKeyInterceptor;
+import com.pamirs.attach.plugin.jetcache.interceptor.EmbeddedCacheConstructorInterceptor;
 import com.pamirs.attach.plugin.jetcache.interceptor.ExternalCacheBuildKeyInterceptor;
+import com.pamirs.attach.plugin.jetcache.interceptor.ShadowCacheRouteInterceptor;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.shulie.instrument.simulator.api.ExtensionModule;
 import com.shulie.instrument.simulator.api.ModuleInfo;
 import com.shulie.instrument.simulator.api.ModuleLifecycleAdapter;
@@ -42,6 +45,12 @@ public class JetCachePlugin extends ModuleLifecycleAdapter implements ExtensionM
             public void doEnhance(InstrumentClass target) {
                 InstrumentMethod buildKeyMethod = target.getDeclaredMethod("buildKey", "java.lang.Object");
                 buildKeyMethod.addInterceptor(Listeners.of(EmbeddedCacheBuildKeyInterceptor.class));
+                if (ShadowCacheTwins.isEnabled()) {
+                    target.getConstructor("com.alicp.jetcache.embedded.EmbeddedCacheConfig")
+                            .addInterceptor(Listeners.of(EmbeddedCacheConstructorInterceptor.class));
+                    target.getDeclaredMethods("do_GET", "do_GET_ALL", "do_PUT", "do_PUT_ALL", "do_REMOVE", "do_REMOVE_ALL", "do_PUT_IF_ABSENT")
+                            .addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+                }
             }
         });
 
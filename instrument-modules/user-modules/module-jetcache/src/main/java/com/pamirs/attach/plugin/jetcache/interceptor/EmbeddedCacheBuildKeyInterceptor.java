@@ -16,6 +16,7 @@ package com.pamirs.attach.plugin.jetcache.interceptor;
 
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.cache.ClusterTestCacheWrapperKey;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.pamirs.pradar.interceptor.ResultInterceptorAdaptor;
 import com.shulie.instrument.simulator.api.listener.ext.Advice;
 
@@ -31,6 +32,9 @@ public class EmbeddedCacheBuildKeyInterceptor extends ResultInterceptorAdaptor {
         if (!Pradar.isClusterTest()) {
             return advice.getReturnObj();
         }
+        if (ShadowCacheTwins.getInstance().isIsolated(advice.getTarget())) {
+            return advice.getReturnObj();
+        }
 
         if (advice.getReturnObj() instanceof ClusterTestCacheWrapperKey) {
             return advice.getReturnObj();
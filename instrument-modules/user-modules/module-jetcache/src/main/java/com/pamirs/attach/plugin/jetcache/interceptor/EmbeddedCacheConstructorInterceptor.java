@@ -0,0 +1,35 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.jetcache.interceptor;
+
+import com.pamirs.pradar.cache.ShadowCacheTwins;
+import com.pamirs.pradar.interceptor.AroundInterceptor;
+import com.shulie.instrument.simulator.api.listener.ext.Advice;
+
+/**
+ * 记录本地缓存的 EmbeddedCacheConfig，隔离模式下用于创建影子缓存。loader 只在外层的 computeIfAbsent 和刷新中使用，
+ * 复制时置为 null，影子缓存不会回源业务数据
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 6:05 下午
+ */
+public class EmbeddedCacheConstructorInterceptor extends AroundInterceptor {
+
+    @Override
+    public void doAfter(Advice advice) {
+        ShadowCacheTwins.getInstance().record(advice.getTarget(), advice.getBehavior().getParameterTypes(), advice.getParameterArray(),
+                "loader");
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.jetcache.interceptor;
+
+import java.lang.reflect.InvocationTargetException;
+
+import com.pamirs.pradar.CutOffResult;
+import com.pamirs.pradar.Pradar;
+import com.pamirs.pradar.PradarSwitcher;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
+import com.pamirs.pradar.interceptor.CutoffInterceptorAdaptor;
+import com.shulie.instrument.simulator.api.listener.ext.Advice;
+import com.shulie.instrument.simulator.api.listener.ext.Behavior;
+
+/**
+ * 隔离模式下把压测流量对缓存的访问转到影子缓存上执行
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 6:05 下午
+ */
+public class ShadowCacheRouteInterceptor extends CutoffInterceptorAdaptor {
+
+    @Override
+    public CutOffResult cutoff0(Advice advice) throws Throwable {
+        if (!Pradar.isClusterTest() || !PradarSwitcher.isClusterTestEnabled()) {
+            return CutOffResult.passed();
+        }
+        ShadowCacheTwins twins = ShadowCacheTwins.getInstance();
+        Object target = advice.getTarget();
+        if (twins.isTwin(target)) {
+            return CutOffResult.passed();
+        }
+        Object twin = twins.getTwin(target);
+        if (twin == null) {
+            return CutOffResult.passed();
+        }
+        Behavior behavior = advice.getBehavior();
+        if (!behavior.isAccessible()) {
+            behavior.setAccessible(true);
+        }
+        try {
+            return CutOffResult.cutoff(behavior.invoke(twin, advice.getParameterArray()));
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -100,6 +100,7 @@ public class LogDataPusherModule extends ModuleLifecycleAdapter implements Exten
         traceLogOptions.setDataType(DataType.TRACE_LOG);
         traceLogOptions.setVersion(Pradar.PRADAR_TARCE_LOG_VERSION);
         traceLogOptions.setMaxFailureSleepInterval(simulatorConfig.getIntProperty("max.push.log.failure.sleep.interval", 10000));
+        traceLogOptions.setWindowSize(simulatorConfig.getIntProperty("pradar.data.pusher.window.size", 1));
         logPusherOptionsList.add(traceLogOptions);
 
         LogPusherOptions monitorLogOptions = new LogPusherOptions();
@@ -107,6 +108,7 @@ public class LogDataPusherModule extends ModuleLifecycleAdapter implements Exten
         monitorLogOptions.setDataType(DataType.MONITOR_LOG);
         monitorLogOptions.setVersion(Pradar.PRADAR_MONITOR_LOG_VERSION);
         monitorLogOptions.setMaxFailureSleepInterval(simulatorConfig.getIntProperty("max.push.log.failure.sleep.interval", 10000));
+        monitorLogOptions.setWindowSize(simulatorConfig.getIntProperty("pradar.data.pusher.window.size", 1));
         logPusherOptionsList.add(monitorLogOptions);
         pusherOptions.setLogPusherOptions(logPusherOptionsList);
         return pusherOptions;
@@ -28,6 +28,7 @@ import java.io.*;
 import java.nio.channels.ClosedChannelException;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.LinkedList;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -44,9 +45,48 @@ class DefaultFileReader implements FileReader {
      * 默认连续推送失败时的最大休眠间隔时长
      */
     private final static int DEFAULT_MAX_FAILURE_SLEEP_INTERVAL = 10000;
+    /**
+     * 默认同时在途的推送块数量，为1时与逐块同步推送一致
+     */
+    private final static int DEFAULT_WINDOW_SIZE = 1;
+    /**
+     * 没有新内容时的休眠间隔，从最小值开始逐次翻倍，直到最大值
+     */
+    private final static int MIN_IDLE_SLEEP_INTERVAL = 50;
+    private final static int MAX_IDLE_SLEEP_INTERVAL = 1000;
+    /**
+     * 等待在途推送块确认的单次最长时间
+     */
+    private final static int ACK_WAIT_INTERVAL = 100;
+
+    /**
+     * 推送结果：立即继续推送
+     */
+    private final static int PUSH_MORE = 0;
+    /**
+     * 推送结果：暂时没有新内容或者新内容较少，短暂休眠后再推
+     */
+    private final static int PUSH_IDLE = 1;
+    /**
+     * 推送结果：推送失败，按照连续失败次数休眠
+     */
+    private final static int PUSH_FAILED = 2;
+    /**
+     * 推送结果：在途的推送块还没有确认，已经等待过确认，立即再推，不按空闲退避
+     */
+    private final static int PUSH_WAIT_ACK = 3;
+
     public static final long[] ZERO = {0L, 0L};
     private String path;
+    /**
+     * 已经确认推送成功的位点，保存到 idx 文件中
+     */
     private volatile long position = -1;
+    /**
+     * 下一个推送块的开始位点，同步推送时与 position 一致，
+     * 窗口推送时领先 position 在途推送块的长度
+     */
+    private volatile long readPosition = -1;
     /**
      * 回调信息
      */
@@ -90,6 +130,43 @@ class DefaultFileReader implements FileReader {
      */
     private int maxFailureSleepInterval;
 
+    /**
+     * 连续没有新内容时的休眠间隔
+     */
+    private int idleSleepInterval;
+
+    /**
+     * 同时在途的推送块数量
+     */
+    private final int windowSize;
+
+    /**
+     * 在途的推送块，按照位点顺序排列，队首确认之后 position 才会前进
+     */
+    private final LinkedList<Chunk> inFlightChunks = new LinkedList<Chunk>();
+
+    /**
+     * 还未返回结果的推送块数量
+     */
+    private int pendingChunks;
+
+    /**
+     * 在途的推送块中是否有推送失败的
+     */
+    private boolean chunkFailed;
+
+    /**
+     * 在途推送块的批次，重新打开文件句柄时加一，之前批次的推送块返回的结果直接丢弃
+     */
+    private int chunkEpoch;
+
+    private final Object windowLock = new Object();
+
+    /**
+     * 窗口推送时发送推送块的线程，窗口为1时不创建，直接在推送线程中发送
+     */
+    private ExecutorService senderService;
+
     /**
      * 推送日志线程使用单独的线程，避免公共线程池被占满时导致日志无法推送
      */
@@ -115,11 +192,16 @@ class DefaultFileReader implements FileReader {
     }
 
     public DefaultFileReader(byte dataType, int version, String path, LogCallback callback, int maxFailureSleepInterval) {
+        this(dataType, version, path, callback, maxFailureSleepInterval, DEFAULT_WINDOW_SIZE);
+    }
+
+    public DefaultFileReader(byte dataType, int version, String path, LogCallback callback, int maxFailureSleepInterval, int windowSize) {
         this.path = path;
         this.version = version;
         this.callback = callback;
         this.dataType = dataType;
         this.maxFailureSleepInterval = maxFailureSleepInterval;
+        this.windowSize = windowSize < 1 ? DEFAULT_WINDOW_SIZE : windowSize;
     }
 
     @Override
@@ -135,6 +217,16 @@ class DefaultFileReader implements FileReader {
         if (!isSuccess) {
             return false;
         }
+        if (windowSize > 1 && senderService == null) {
+            senderService = Executors.newFixedThreadPool(windowSize, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "Log-Data-Pusher-Sender");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
         /**
          * 将启动标识置成true
          */
@@ -144,8 +236,9 @@ class DefaultFileReader implements FileReader {
             public void run() {
                 if (isStarting) {
                     try {
-                        boolean isSuccess = push();
-                        if (!isSuccess) {
+                        int result = push();
+                        if (result == PUSH_FAILED) {
+                            idleSleepInterval = 0;
                             pushFailureCount.incrementAndGet();
                             int sleep = pushFailureCount.get() * 1000;
                             if (sleep > maxFailureSleepInterval) {
@@ -153,8 +246,18 @@ class DefaultFileReader implements FileReader {
                             }
                             //如果失败则休眠一会再进行下一次推送
                             future = service.schedule(this, sleep, TimeUnit.MILLISECONDS);
+                        } else if (result == PUSH_WAIT_ACK) {
+                            future = service.schedule(this, 0, TimeUnit.SECONDS);
+                        } else if (result == PUSH_IDLE) {
+                            pushFailureCount.set(0);
+                            /**
+                             * 没有新内容时不按失败处理，从较短的间隔开始逐次翻倍，文件增长之后能尽快推送
+                             */
+                            idleSleepInterval = idleSleepInterval == 0 ? MIN_IDLE_SLEEP_INTERVAL : Math.min(idleSleepInterval * 2, MAX_IDLE_SLEEP_INTERVAL);
+                            future = service.schedule(this, idleSleepInterval, TimeUnit.MILLISECONDS);
                         } else {
                             pushFailureCount.set(0);
+                            idleSleepInterval = 0;
                             future = service.schedule(this, 0, TimeUnit.SECONDS);
                         }
                     } catch (Throwable e) {
@@ -174,7 +277,7 @@ class DefaultFileReader implements FileReader {
     private boolean resetFileFetcher() {
         File target = new File(path);
         if (!target.exists() || !target.isFile()) {
-            target = getTarget(path, this.position);
+            target = getTarget(path, this.readPosition);
             if (target == null) {
                 return false;
             }
@@ -198,7 +301,7 @@ class DefaultFileReader implements FileReader {
             initPosition(idxFile);
             target = new File(path);
             if (!target.exists() || !target.isFile()) {
-                target = getTarget(path, this.position);
+                target = getTarget(path, this.readPosition);
                 if (target == null) {
                     return false;
                 }
@@ -225,116 +328,275 @@ class DefaultFileReader implements FileReader {
 
     /**
      * 推送数据
-     * 每两秒钟更新一次日志内容范围
+     * 每两秒钟更新一次日志内容范围，读到范围末尾时直接检查当前文件的大小，文件增长之后不需要等待范围更新
      *
-     * @return 返回是否下次不休眠继续推
+     * @return 推送结果 {@link #PUSH_MORE}、{@link #PUSH_IDLE}、{@link #PUSH_FAILED}、{@link #PUSH_WAIT_ACK}
      */
-    private boolean push() {
+    private int push() {
         try {
-            if (fileRange == null) {
-                this.fileRange = getFileRange();
-                lastTime = System.currentTimeMillis();
-            } else if (System.currentTimeMillis() - lastTime > 2000) {
-                this.fileRange = getFileRange();
-                lastTime = System.currentTimeMillis();
+            if (windowSize > 1) {
+                int result = awaitWindow();
+                if (result != PUSH_MORE) {
+                    return result;
+                }
+            }
+            if (!refreshFileRange()) {
+                return PUSH_FAILED;
             }
 
             /**
              * 如果位点比最小位点还小，重置读取的文件并且将位点置为当前最小位点,返回true则让其赶紧拉取
              */
-            if (this.position < fileRange[0]) {
-                this.position = fileRange[0];
+            if (this.readPosition < fileRange[0]) {
+                if (!awaitInFlightChunks()) {
+                    return PUSH_WAIT_ACK;
+                }
+                seek(fileRange[0]);
                 resetFileFetcher();
-                return true;
+                return PUSH_MORE;
             }
 
             /**
              * 如果位点已经超过了最大位点则将位点重置，并且重置读取的文件
              */
-            if (this.position > fileRange[1]) {
-                this.position = fileRange[1];
+            if (this.readPosition > fileRange[1]) {
+                if (!awaitInFlightChunks()) {
+                    return PUSH_WAIT_ACK;
+                }
+                seek(fileRange[1]);
                 resetFileFetcher();
-                return false;
+                return PUSH_IDLE;
             }
             /**
              * 没有新的内容则先不推
              */
-            if (position == fileRange[1]) {
-                return false;
-            }
-            /**
-             * 检查一下是否是开启状态
-             */
-            if (!this.fileFetcher.getFc().isOpen()) {
-                resetFileFetcher();
+            if (readPosition == fileRange[1]) {
+                return PUSH_IDLE;
             }
 
-            long length = this.fileFetcher.readAvailableLength(position, Pradar.PUSH_MAX_SIZE);
+            long length = this.fileFetcher.readAvailableLength(readPosition, Pradar.PUSH_MAX_SIZE);
             /**
              * 如果未读取内容
              */
             if (length == 0) {
-                /**
-                 * 如果位点比最小位点还小，重置读取的文件并且将位点置为当前最小位点,返回true则让其赶紧拉取
-                 */
-                if (this.position < fileRange[0]) {
-                    this.position = fileRange[0];
-                    resetFileFetcher();
-                    return true;
-                }
-                /**
-                 * 如果位点已经超过了最大位点则将位点重置，并且重置读取的文件
-                 */
-                if (this.position > fileRange[1]) {
-                    this.position = fileRange[1];
-                    resetFileFetcher();
-                    return false;
-                }
-
                 /**
                  * 如果位点还是在当前位点区间内,那可能是由于当前文件数据已经读取完了，则需要滚动到下一个文件
                  */
-                if (this.position > fileRange[0] && this.position < fileRange[1]) {
+                if (this.readPosition > fileRange[0] && this.readPosition < fileRange[1]) {
+                    if (!awaitInFlightChunks()) {
+                        return PUSH_WAIT_ACK;
+                    }
                     resetFileFetcher();
                 }
 
-                return false;
+                return PUSH_IDLE;
             } else {
                 if (this.callback != null) {
                     /**
                      * 当前文件的位点为 全局位点 - 当前文件开始的全局位点
                      */
-                    long begin = position - this.fileFetcher.getBegin();
+                    long begin = readPosition - this.fileFetcher.getBegin();
                     if (begin < 0) {
                         LOGGER.warn("push log data with a illegal start pos={}, file={}", begin, fileFetcher.getName());
-                        return false;
+                        return PUSH_FAILED;
                     }
-                    boolean isSuccess = this.callback.call(this.fileFetcher.getFc(), begin, length, dataType, version);
-                    if (isSuccess) {
+                    if (windowSize > 1) {
+                        sendChunk(new Chunk(this.fileFetcher.getFile(), readPosition, begin, length));
+                    } else {
+                        boolean isSuccess = this.callback.call(this.fileFetcher.getFc(), begin, length, dataType, version);
+                        if (!isSuccess) {
+                            return PUSH_FAILED;
+                        }
                         /**
                          * 位点前进
                          */
-                        position += length;
-                        /**
-                         * 如果推送不满最大推送字节数,则返回false,告诉外部调用可以休眠一会
-                         */
-                        if (length < ((Pradar.PUSH_MAX_SIZE * 2) / 3)) {
-                            return false;
-                        }
-                        return true;
+                        seek(readPosition + length);
                     }
-                    return false;
+                    /**
+                     * 如果推送不满最大推送字节数,则告诉外部调用可以休眠一会
+                     */
+                    if (length < ((Pradar.PUSH_MAX_SIZE * 2) / 3)) {
+                        return PUSH_IDLE;
+                    }
+                    return PUSH_MORE;
                 }
-                return false;
+                return PUSH_FAILED;
             }
         } catch (ClosedChannelException e) {
             try {
-                resetFileFetcher();
+                reopenFileFetcher();
             } catch (Throwable ex) {
             }
-            return false;
+            return PUSH_FAILED;
         } catch (Throwable e) {
-            return false;
+            return PUSH_FAILED;
+        }
+    }
+
+    /**
+     * 更新日志内容范围
+     * 目录每两秒钟扫描一次，读到范围末尾时再检查当前文件的大小，文件增长之后直接扩大范围
+     *
+     * @return 读取使用的文件句柄是否可用，不可用时本次不推送
+     */
+    private boolean refreshFileRange() throws IOException {
+        /**
+         * 先检查一下是否是开启状态，推送完成后文件句柄可能已经被关闭，关闭的句柄上不能再读取和计算范围
+         */
+        if (!this.fileFetcher.getFc().isOpen()) {
+            reopenFileFetcher();
+            if (!this.fileFetcher.getFc().isOpen()) {
+                return false;
+            }
+        }
+        if (fileRange == null || System.currentTimeMillis() - lastTime > 2000) {
+            this.fileRange = getFileRange();
+            lastTime = System.currentTimeMillis();
+        }
+        if (readPosition >= fileRange[1]) {
+            long end = this.fileFetcher.getBegin() + this.fileFetcher.getFc().size();
+            if (end > fileRange[1]) {
+                this.fileRange = new long[]{fileRange[0], end};
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读取使用的文件句柄被关闭之后重新打开
+     * 不等待在途的推送块，丢弃它们之后返回的结果，从确认位点开始重新推送，与推送失败之后的重推一致
+     */
+    private void reopenFileFetcher() {
+        synchronized (windowLock) {
+            chunkEpoch++;
+            inFlightChunks.clear();
+            pendingChunks = 0;
+            chunkFailed = false;
+            readPosition = position;
+            windowLock.notifyAll();
+        }
+        resetFileFetcher();
+    }
+
+    /**
+     * 同时移动确认位点和读取位点，调用前需要确保没有在途的推送块
+     *
+     * @param newPosition 新的位点
+     */
+    private void seek(long newPosition) {
+        this.position = newPosition;
+        this.readPosition = newPosition;
+    }
+
+    /**
+     * 等待窗口中有空闲的位置
+     * 如果在途的推送块中有失败的，等所有推送块返回之后从确认位点开始重新推送
+     *
+     * @return 有空闲位置时返回 {@link #PUSH_MORE}，推送失败时返回 {@link #PUSH_FAILED}，
+     * 仍然需要等待在途的推送块确认时返回 {@link #PUSH_WAIT_ACK}
+     */
+    private int awaitWindow() throws InterruptedException {
+        synchronized (windowLock) {
+            if (chunkFailed) {
+                if (pendingChunks > 0) {
+                    windowLock.wait(ACK_WAIT_INTERVAL);
+                    if (pendingChunks > 0) {
+                        return PUSH_WAIT_ACK;
+                    }
+                }
+                /**
+                 * 失败块之后已经确认的块也会重新推送一次，与同步推送超时重试时一致
+                 */
+                inFlightChunks.clear();
+                chunkFailed = false;
+                readPosition = position;
+                return PUSH_FAILED;
+            }
+            if (inFlightChunks.size() >= windowSize) {
+                windowLock.wait(ACK_WAIT_INTERVAL);
+            }
+            return inFlightChunks.size() >= windowSize ? PUSH_WAIT_ACK : PUSH_MORE;
+        }
+    }
+
+    /**
+     * 等待所有在途的推送块确认，位点跳转或者切换文件之前需要先等待
+     *
+     * @return 是否已经没有在途的推送块
+     */
+    private boolean awaitInFlightChunks() throws InterruptedException {
+        if (windowSize <= 1) {
+            return true;
+        }
+        synchronized (windowLock) {
+            if (!inFlightChunks.isEmpty()) {
+                windowLock.wait(ACK_WAIT_INTERVAL);
+            }
+            return inFlightChunks.isEmpty();
+        }
+    }
+
+    /**
+     * 异步发送推送块，每个推送块使用单独打开的文件句柄，发送完成后会被关闭，不影响读取使用的句柄
+     *
+     * @param chunk 推送块
+     */
+    private void sendChunk(final Chunk chunk) {
+        synchronized (windowLock) {
+            chunk.epoch = chunkEpoch;
+            inFlightChunks.addLast(chunk);
+            pendingChunks++;
+        }
+        readPosition = chunk.position + chunk.length;
+        try {
+            senderService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    boolean isSuccess = false;
+                    RandomAccessFile file = null;
+                    try {
+                        file = new RandomAccessFile(chunk.file, "r");
+                        isSuccess = callback.call(file.getChannel(), chunk.begin, chunk.length, dataType, version);
+                    } catch (Throwable e) {
+                        LOGGER.warn("push log data chunk err! file={}, pos={}", chunk.file.getName(), chunk.begin, e);
+                    } finally {
+                        if (file != null) {
+                            try {
+                                file.close();
+                            } catch (IOException e) {
+                            }
+                        }
+                        ackChunk(chunk, isSuccess);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            ackChunk(chunk, false);
+        }
+    }
+
+    /**
+     * 推送块返回结果，队首连续已确认的推送块出队并且前进确认位点
+     *
+     * @param chunk     推送块
+     * @param isSuccess 是否推送成功
+     */
+    private void ackChunk(Chunk chunk, boolean isSuccess) {
+        synchronized (windowLock) {
+            if (chunk.epoch != chunkEpoch) {
+                return;
+            }
+            pendingChunks--;
+            if (isSuccess) {
+                chunk.acked = true;
+            } else {
+                chunkFailed = true;
+            }
+            while (!inFlightChunks.isEmpty() && inFlightChunks.getFirst().acked) {
+                Chunk first = inFlightChunks.removeFirst();
+                position = first.position + first.length;
+            }
+            windowLock.notifyAll();
         }
     }
 
@@ -424,6 +686,7 @@ class DefaultFileReader implements FileReader {
         if (this.position < positionRange[0] || this.position > positionRange[1]) {
             this.position = positionRange[0];
         }
+        this.readPosition = this.position;
     }
 
     @Override
@@ -433,6 +696,9 @@ class DefaultFileReader implements FileReader {
             future.cancel(true);
         }
         service.shutdownNow();
+        if (senderService != null) {
+            senderService.shutdownNow();
+        }
         try {
             this.fileFetcher.close();
         } catch (IOException e) {
@@ -574,6 +840,40 @@ class DefaultFileReader implements FileReader {
         }
     }
 
+    /**
+     * 窗口推送时的推送块
+     */
+    private static class Chunk {
+        /**
+         * 所在的文件
+         */
+        private final File file;
+        /**
+         * 全局位点
+         */
+        private final long position;
+        /**
+         * 在所在文件中的开始位置
+         */
+        private final long begin;
+        private final long length;
+        /**
+         * 是否已经确认推送成功
+         */
+        private boolean acked;
+        /**
+         * 发送时的批次
+         */
+        private int epoch;
+
+        Chunk(File file, long position, long begin, long length) {
+            this.file = file;
+            this.position = position;
+            this.begin = begin;
+            this.length = length;
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
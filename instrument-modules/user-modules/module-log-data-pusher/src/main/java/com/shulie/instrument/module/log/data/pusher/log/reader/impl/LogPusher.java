@@ -50,7 +50,8 @@ public class LogPusher {
         int idx = 0;
         for (LogPusherOptions logPusherOptions : options) {
             fileReaders[idx++] = new DefaultFileReader(logPusherOptions.getDataType(), logPusherOptions.getVersion(),
-                    logPusherOptions.getPath(), logPusherOptions.getLogCallback(), logPusherOptions.getMaxFailureSleepInterval());
+                    logPusherOptions.getPath(), logPusherOptions.getLogCallback(), logPusherOptions.getMaxFailureSleepInterval(),
+                    logPusherOptions.getWindowSize());
         }
 
     }
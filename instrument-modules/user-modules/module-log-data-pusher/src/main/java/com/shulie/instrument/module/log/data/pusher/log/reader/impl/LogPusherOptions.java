@@ -32,6 +32,19 @@ public class LogPusherOptions {
      */
     private int maxFailureSleepInterval;
 
+    /**
+     * 每个文件同时在途的推送块数量,为1时逐块同步推送
+     */
+    private int windowSize = 1;
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
     public int getMaxFailureSleepInterval() {
         return maxFailureSleepInterval;
     }
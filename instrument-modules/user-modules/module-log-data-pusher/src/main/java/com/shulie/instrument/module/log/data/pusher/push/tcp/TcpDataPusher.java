@@ -49,7 +49,7 @@ public class TcpDataPusher implements DataPusher {
      */
     private RemotingClient client;
     private ServerAddrProvider provider;
-    private ConnectInfo currentConnectInfo;
+    private volatile ConnectInfo currentConnectInfo;
 
     public TcpDataPusher() {
     }
@@ -85,16 +85,16 @@ public class TcpDataPusher implements DataPusher {
     @Override
     public LogCallback buildLogCallback() {
         return new LogCallback() {
-            /**
-             * 请求参数可以复用,因为这个不存在并发的问题，可以减少一些请求对象的产生
-             */
-            private RemotingCommand requestCommand = new RemotingCommand();
-
             @Override
             public boolean call(FileChannel fc, long position, long length, byte dataType, int version) {
                 if (!isStarted.get()) {
                     return false;
                 }
+                /**
+                 * 窗口推送时会并发调用，每次使用新的请求对象
+                 */
+                RemotingCommand requestCommand = new RemotingCommand();
+                ConnectInfo connectInfo = currentConnectInfo;
                 try {
                     requestCommand.refreshOpaque();
                     requestCommand.setCode(CommandCode.SUCCESS);
@@ -106,23 +106,16 @@ public class TcpDataPusher implements DataPusher {
                     requestCommand.setEncodeType(EncoderType.of(Pradar.DEFAULT_CHARSET.name()).getEncoderType());
                     requestCommand.setLength((int) length);
                     requestCommand.setFile(new DefaultFileRegion(fc, position, length));
-                    RemotingCommand responseCommand = client.invokeSync(currentConnectInfo.getAddr(), requestCommand, serverOptions.getTimeout());
+                    RemotingCommand responseCommand = client.invokeSync(connectInfo.getAddr(), requestCommand, serverOptions.getTimeout());
                     if (responseCommand.getCode() == CommandCode.SUCCESS) {
                         return true;
                     } else if (responseCommand.getCode() == CommandCode.SYSTEM_ERROR) {
                         return false;
                     } else if (responseCommand.getCode() == CommandCode.SYSTEM_BUSY) {
-                        provider.errorConnectInfo(currentConnectInfo);
-                        if (LOGGER.isInfoEnabled()) {
-                            LOGGER.info("log server is busy {}. attempt to choose another log server.", currentConnectInfo.getAddr());
-                        }
-                        ConnectInfo c = provider.selectConnectInfo();
-                        if (c != null) {
-                            currentConnectInfo = c;
-                        }
                         if (LOGGER.isInfoEnabled()) {
-                            LOGGER.info("log server changed to connect host {}.", currentConnectInfo.getAddr());
+                            LOGGER.info("log server is busy {}. attempt to choose another log server.", connectInfo.getAddr());
                         }
+                        changeConnectInfo(connectInfo);
                         return false;
                     } else if (responseCommand.getCode() == CommandCode.COMMAND_CODE_NOT_SUPPORTED) {
                         return false;
@@ -131,42 +124,21 @@ public class TcpDataPusher implements DataPusher {
                     return false;
                 } catch (RemotingConnectException e) {
                     if (LOGGER.isInfoEnabled()) {
-                        LOGGER.info("client send request to log server {} ,can't connect to server. attempt to choose another log server.", currentConnectInfo.getAddr(), e);
-                    }
-                    provider.errorConnectInfo(currentConnectInfo);
-                    ConnectInfo connectInfo = provider.selectConnectInfo();
-                    if (connectInfo != null) {
-                        currentConnectInfo = connectInfo;
-                    }
-                    if (LOGGER.isInfoEnabled()) {
-                        LOGGER.info("log server changed to connect host {}.", currentConnectInfo.getAddr());
+                        LOGGER.info("client send request to log server {} ,can't connect to server. attempt to choose another log server.", connectInfo.getAddr(), e);
                     }
+                    changeConnectInfo(connectInfo);
                     return false;
                 } catch (RemotingSendRequestException e) {
                     if (LOGGER.isInfoEnabled()) {
-                        LOGGER.info("client send request to log server {} occur RemotingSendRequestException. attempt to choose another log server.", currentConnectInfo.getAddr(), e);
-                    }
-                    provider.errorConnectInfo(currentConnectInfo);
-                    ConnectInfo connectInfo = provider.selectConnectInfo();
-                    if (connectInfo != null) {
-                        currentConnectInfo = connectInfo;
-                    }
-                    if (LOGGER.isInfoEnabled()) {
-                        LOGGER.info("log server changed to connect host {}.", currentConnectInfo.getAddr());
+                        LOGGER.info("client send request to log server {} occur RemotingSendRequestException. attempt to choose another log server.", connectInfo.getAddr(), e);
                     }
+                    changeConnectInfo(connectInfo);
                     return false;
                 } catch (RemotingTimeoutException e) {
                     if (LOGGER.isInfoEnabled()) {
-                        LOGGER.info("client send request to log server {} timeout. attempt to choose another log server.", currentConnectInfo.getAddr(), e);
-                    }
-                    provider.errorConnectInfo(currentConnectInfo);
-                    ConnectInfo connectInfo = provider.selectConnectInfo();
-                    if (connectInfo != null) {
-                        currentConnectInfo = connectInfo;
-                    }
-                    if (LOGGER.isInfoEnabled()) {
-                        LOGGER.info("log server changed to connect host {}.", currentConnectInfo.getAddr());
+                        LOGGER.info("client send request to log server {} timeout. attempt to choose another log server.", connectInfo.getAddr(), e);
                     }
+                    changeConnectInfo(connectInfo);
                     return false;
                 } finally {
                     requestCommand.setFile(null);
@@ -177,6 +149,26 @@ public class TcpDataPusher implements DataPusher {
         };
     }
 
+    /**
+     * 切换日志服务器，同一个失败的服务器只切换一次
+     * 窗口推送时多个在途请求会同时失败，避免每个请求都切换一次
+     *
+     * @param failConnectInfo 请求失败的服务器
+     */
+    private synchronized void changeConnectInfo(ConnectInfo failConnectInfo) {
+        if (failConnectInfo != currentConnectInfo) {
+            return;
+        }
+        provider.errorConnectInfo(failConnectInfo);
+        ConnectInfo connectInfo = provider.selectConnectInfo();
+        if (connectInfo != null) {
+            currentConnectInfo = connectInfo;
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("log server changed to connect host {}.", currentConnectInfo.getAddr());
+        }
+    }
+
     @Override
     public boolean start() {
         if (!isStarted.compareAndSet(false, true)) {
@@ -102,8 +102,9 @@ public class HttpEncoderInterceptor extends TraceInterceptorAdaptor {
         final HttpMessage httpMessage = (HttpMessage) args[1];
         final ChannelHandlerContext channelHandlerContext = (ChannelHandlerContext) args[0];
         Map<String, String> context = manager.getDynamicField(httpMessage, NettyConstants.DYNAMIC_FIELD_ASYNC_CONTEXT);
+        final boolean client = Pradar.hasInvokeContext(context) || Pradar.hasInvokeContext();
         if (!Pradar.hasInvokeContext(context)) {
-            context = Pradar.getInvokeContextMap();
+            context = Pradar.getInvokeContextTransformMap();
         }
 
         /**
@@ -116,7 +117,7 @@ public class HttpEncoderInterceptor extends TraceInterceptorAdaptor {
         spanRecord.setPort(getPort(channelHandlerContext));
         spanRecord.setService(getUrl(httpMessage));
         spanRecord.setMethod(getMethod(httpMessage));
-        if (!Pradar.hasInvokeContext(context)) {
+        if (!client) {
             spanRecord.setClusterTest(isClusterTestRequest(httpMessage));
             Map<String, String> ctx = new HashMap<String, String>();
             for (String key : Pradar.getInvokeContextTransformKeys()) {
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.oscache;
+
+import com.opensymphony.oscache.base.Cache;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
+
+/**
+ * oscache Cache 的影子缓存，使用与业务缓存相同的构造参数创建。持久化监听器在构造之后设置，影子缓存不带持久化，
+ * 压测数据不会写入业务的磁盘缓存
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 6:12 下午
+ */
+public class CacheTwinFactory implements ShadowCacheTwins.TwinFactory {
+    private final boolean useMemoryCaching;
+    private final boolean unlimitedDiskCache;
+    private final boolean overflowPersistence;
+    private final boolean blocking;
+    private final String algorithmClass;
+    private final int capacity;
+
+    public CacheTwinFactory(boolean useMemoryCaching, boolean unlimitedDiskCache, boolean overflowPersistence,
+                            boolean blocking, String algorithmClass, int capacity) {
+        this.useMemoryCaching = useMemoryCaching;
+        this.unlimitedDiskCache = unlimitedDiskCache;
+        this.overflowPersistence = overflowPersistence;
+        this.blocking = blocking;
+        this.algorithmClass = algorithmClass;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public Object create(Object cache) throws Throwable {
+        return new Cache(useMemoryCaching, unlimitedDiskCache, overflowPersistence, blocking, algorithmClass, capacity);
+    }
+}
@@ -15,7 +15,10 @@
 package com.pamirs.attach.plugin.oscache;
 
 
+import com.pamirs.attach.plugin.oscache.interceptor.CacheConstructorInterceptor;
 import com.pamirs.attach.plugin.oscache.interceptor.CacheKeyInterceptor;
+import com.pamirs.attach.plugin.oscache.interceptor.ShadowCacheRouteInterceptor;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.shulie.instrument.simulator.api.ExtensionModule;
 import com.shulie.instrument.simulator.api.ModuleInfo;
 import com.shulie.instrument.simulator.api.ModuleLifecycleAdapter;
@@ -55,6 +58,40 @@ public class OscachePlugin extends ModuleLifecycleAdapter implements ExtensionMo
             }
         });
 
+        if (ShadowCacheTwins.isEnabled()) {
+            addCacheTwin();
+        }
+    }
 
+    /**
+     * 隔离模式下压测流量访问 Cache 对应的影子缓存，参数较少的重载方法在业务缓存上委托给下面的方法，
+     * 3 个参数的构造方法同样委托给 6 个参数的构造方法
+     */
+    private void addCacheTwin() {
+        enhanceTemplate.enhance(this, "com.opensymphony.oscache.base.Cache", new EnhanceCallback() {
+            @Override
+            public void doEnhance(InstrumentClass target) {
+                target.getConstructor("boolean", "boolean", "boolean", "boolean", "java.lang.String", "int")
+                        .addInterceptor(Listeners.of(CacheConstructorInterceptor.class));
+                target.getDeclaredMethod("getFromCache", "java.lang.String", "int", "java.lang.String")
+                        .addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+                target.getDeclaredMethod("cancelUpdate", "java.lang.String")
+                        .addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+                target.getDeclaredMethod("getCacheEntry", "java.lang.String", "com.opensymphony.oscache.base.EntryRefreshPolicy", "java.lang.String")
+                        .addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+                target.getDeclaredMethod("putInCache", "java.lang.String", "java.lang.Object", "java.lang.String[]", "com.opensymphony.oscache.base.EntryRefreshPolicy", "java.lang.String")
+                        .addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+                target.getDeclaredMethod("removeEntry", "java.lang.String", "java.lang.String")
+                        .addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+                target.getDeclaredMethod("flushEntry", "java.lang.String", "java.lang.String")
+                        .addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+                target.getDeclaredMethod("flushGroup", "java.lang.String", "java.lang.String")
+                        .addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+                target.getDeclaredMethod("flushPattern", "java.lang.String", "java.lang.String")
+                        .addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+                target.getDeclaredMethod("flushAll", "java.util.Date", "java.lang.String")
+                        .addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+            }
+        });
     }
 }
@@ -0,0 +1,41 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.oscache.interceptor;
+
+import com.opensymphony.oscache.base.Cache;
+import com.pamirs.attach.plugin.oscache.CacheTwinFactory;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
+import com.pamirs.pradar.interceptor.AroundInterceptor;
+import com.shulie.instrument.simulator.api.listener.ext.Advice;
+
+/**
+ * 记录 Cache 的构造参数，隔离模式下用于创建影子缓存。子类的构造和行为可能不同，只记录 Cache 本身
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 6:12 下午
+ */
+public class CacheConstructorInterceptor extends AroundInterceptor {
+
+    @Override
+    public void doAfter(Advice advice) {
+        Object target = advice.getTarget();
+        if (target == null || target.getClass() != Cache.class) {
+            return;
+        }
+        Object[] args = advice.getParameterArray();
+        ShadowCacheTwins.getInstance().record(target, new CacheTwinFactory((Boolean) args[0], (Boolean) args[1],
+                (Boolean) args[2], (Boolean) args[3], (String) args[4], (Integer) args[5]));
+    }
+}
@@ -15,6 +15,7 @@
 package com.pamirs.attach.plugin.oscache.interceptor;
 
 import com.pamirs.pradar.Pradar;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.pamirs.pradar.interceptor.ParametersWrapperInterceptorAdaptor;
 import com.shulie.instrument.simulator.api.listener.ext.Advice;
 import com.shulie.instrument.simulator.api.util.ArrayUtils;
@@ -32,6 +33,9 @@ public class CacheKeyInterceptor extends ParametersWrapperInterceptorAdaptor {
         if (!Pradar.isClusterTest()) {
             return args;
         }
+        if (ShadowCacheTwins.getInstance().isIsolated(advice.getTarget())) {
+            return args;
+        }
         if (ArrayUtils.isEmpty(args)) {
             return args;
         }
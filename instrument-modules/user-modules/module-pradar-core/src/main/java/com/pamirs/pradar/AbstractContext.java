@@ -199,6 +199,38 @@ abstract class AbstractContext extends BaseContext {
         }
     }
 
+    /**
+     * 与 {@link #logContextData(StringBuilder)} 输出的内容一致，直接写入日志字节缓冲区
+     */
+    void logContextData(TraceLogBuffer buffer) {
+        final boolean appendAttributes = this.attributes != null && !this.attributes.isEmpty();
+        final boolean appendLocalAttributes = this.localAttributes != null && !this.localAttributes.isEmpty();
+        if (!appendAttributes && !appendLocalAttributes) {
+            return;
+        }
+        buffer.append('|').append('@');
+        if (appendAttributes) {
+            for (Entry<String, String> entry : attributes.entrySet()) {
+                String key = entry.getKey();
+                String value = entry.getValue();
+                if (PradarCoreUtils.isNotBlank(key) && value != null) {
+                    buffer.append(key).append('@').appendSafe(value).append('@');
+                }
+            }
+        }
+        buffer.append('|').append('@');
+        if (appendLocalAttributes) {
+            for (Entry<String, String> entry : localAttributes.entrySet()) {
+                String key = entry.getKey();
+                String value = entry.getValue();
+                if (PradarCoreUtils.isNotBlank(key) && value != null) {
+                    buffer.append('@').appendSafe(key).append(Pradar.KV_SEPARATOR2).appendSafe(value)
+                            .append(Pradar.ENTRY_SEPARATOR);
+                }
+            }
+        }
+    }
+
     protected void doAppendUserData(StringBuilder appender, int startLen) {
         for (Entry<String, String> entry : attributes.entrySet()) {
             String key = entry.getKey();
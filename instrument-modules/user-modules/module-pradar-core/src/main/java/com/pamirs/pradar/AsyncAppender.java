@@ -44,6 +44,11 @@ class AsyncAppender extends PradarAppender {
      * 用于内部控制刷新日志的命令
      */
     static final Object EVENT_LOG_FLUSH = new Object();
+
+    /**
+     * 持续有日志写入时，两次批量刷新之间的最大间隔
+     */
+    private static final long GROUP_COMMIT_INTERVAL = 100L;
     /**
      * 用于内部控制滚动日志的命令
      */
@@ -332,6 +337,7 @@ class AsyncAppender extends PradarAppender {
             // 输出丢弃的日志数
             final long outputSpan = TimeUnit.MINUTES.toMillis(1);
             long lastOutputTime = System.currentTimeMillis();
+            long nextCommitTime = 0L;
             long now;
 
             while (isRunning) {
@@ -364,8 +370,12 @@ class AsyncAppender extends PradarAppender {
                             lastOutputTime = now;
                         }
 
-                        // 写完一批日志之后，做一次刷新
-                        parent.appender.flush();
+                        // 写完一批日志之后，如果队列里已经有新的日志并且距离上一次刷新没有超过提交间隔，
+                        // 则继续处理下一批，多个批次合并成一次刷新；队列写空时立即刷新
+                        if (putIndex.get() == take || (now = System.currentTimeMillis()) >= nextCommitTime) {
+                            parent.appender.flush();
+                            nextCommitTime = System.currentTimeMillis() + GROUP_COMMIT_INTERVAL;
+                        }
                     } else {
                         if (lock.tryLock()) {
                             try {
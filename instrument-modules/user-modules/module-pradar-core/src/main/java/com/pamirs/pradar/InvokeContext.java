@@ -649,6 +649,7 @@ public final class InvokeContext extends AbstractContext implements Cloneable {
      * @return
      */
     static InvokeContext fromMap(Map<String, String> map, InvokeContext parent) {
+        map = InvokeContextCodec.expand(map);
         String traceId = map.get(PradarService.PRADAR_TRACE_ID_KEY);
         String traceAppName = map.get(PradarService.PRADAR_TRACE_APPNAME_KEY);
         String invokeId = map.get(PradarService.PRADAR_INVOKE_ID_KEY);
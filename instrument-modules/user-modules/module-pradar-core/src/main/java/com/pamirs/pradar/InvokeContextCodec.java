@@ -0,0 +1,271 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 紧凑格式的上下文编解码
+ * <p>
+ * 将需要远程传输的上下文字段编码成一个 ASCII 字符串，放在 {@link PradarService#PRADAR_CONTEXT_KEY} 中传输，
+ * 替代原来每个字段一个 header/attachment 的传输方式，格式为：
+ * <pre>
+ * 版本;标记;traceId;invokeId;traceAppName;应用名;ip;userData
+ * </pre>
+ * 标记为 16 进制数字，按位表示压测、debug、白名单校验以及是否有上下文；
+ * 字段中的 ';'、'%' 以及非可见 ASCII 字符按照 UTF-8 编码为 %XX
+ * </p>
+ * <p>
+ * 接收方同时兼容原来多个字段的格式；压测标仍然会单独传输一份，很多插件(如消息的影子消费)直接根据压测标判断。
+ * 发送方默认仍然使用原来的格式，所有应用都升级到支持该格式的版本之后通过 -Dpradar.context.compact=true 开启
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:11 下午
+ */
+public final class InvokeContextCodec {
+
+    private static final boolean ENABLED = Pradar.getBooleanProperty("pradar.context.compact", false);
+
+    private static final char VERSION = '1';
+    private static final char SEPARATOR = ';';
+    private static final char ESCAPE = '%';
+    private static final int FIELD_COUNT = 8;
+
+    private static final int FLAG_CLUSTER_TEST = 1;
+    private static final int FLAG_DEBUG = 1 << 1;
+    private static final int FLAG_PASS_CHECK = 1 << 2;
+    private static final int FLAG_HAS_CONTEXT = 1 << 3;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private InvokeContextCodec() {
+    }
+
+    /**
+     * 发送方是否使用紧凑格式
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * 构建需要远程传输的上下文，与 {@link Pradar#getInvokeContextTransformMap()} 传输的内容一致
+     *
+     * @param ctx 当前的上下文，可以为 null
+     * @return 需要传输的上下文，没有需要传输的内容时返回空的 Map
+     */
+    static Map<String, String> toTransformMap(InvokeContext ctx) {
+        final Map<String, String> transformMap = new HashMap<String, String>(4);
+        final boolean isClusterTest;
+        final String value;
+        if (ctx == null) {
+            isClusterTest = Pradar.isClusterTest();
+            final boolean isDebug = Pradar.isDebug();
+            if (!isClusterTest && !isDebug) {
+                return transformMap;
+            }
+            value = encode((isClusterTest ? FLAG_CLUSTER_TEST : 0) | (isDebug ? FLAG_DEBUG : 0),
+                    null, null, null, AppNameUtils.appName(), PradarCoreUtils.getLocalAddress(), null);
+        } else {
+            isClusterTest = ctx.isClusterTest();
+            final int flags = FLAG_HAS_CONTEXT
+                    | (isClusterTest ? FLAG_CLUSTER_TEST : 0)
+                    | (ctx.isDebug() ? FLAG_DEBUG : 0)
+                    | (ctx.isPassCheck() ? FLAG_PASS_CHECK : 0);
+            value = encode(flags, ctx.getTraceId(), ctx.getInvokeId(),
+                    ctx.getTraceAppName() == null ? AppNameUtils.appName() : ctx.getTraceAppName(),
+                    AppNameUtils.appName(), PradarCoreUtils.getLocalAddress(), ctx.exportUserData());
+        }
+        transformMap.put(PradarService.PRADAR_CONTEXT_KEY, value);
+        if (isClusterTest) {
+            transformMap.put(PradarService.PRADAR_CLUSTER_TEST_KEY, Pradar.PRADAR_CLUSTER_TEST_ON);
+        }
+        return transformMap;
+    }
+
+    private static String encode(int flags, String traceId, String invokeId, String traceAppName,
+                                 String appName, String ip, String userData) {
+        final StringBuilder builder = new StringBuilder(128);
+        builder.append(VERSION).append(SEPARATOR).append(HEX_DIGITS[flags]);
+        appendField(builder, traceId);
+        appendField(builder, invokeId);
+        appendField(builder, traceAppName);
+        appendField(builder, appName);
+        appendField(builder, ip);
+        appendField(builder, userData);
+        return builder.toString();
+    }
+
+    private static void appendField(StringBuilder builder, String value) {
+        builder.append(SEPARATOR);
+        if (value == null) {
+            return;
+        }
+        for (int i = 0, len = value.length(); i < len; i++) {
+            final char c = value.charAt(i);
+            if (c > ' ' && c < 0x7F && c != SEPARATOR && c != ESCAPE) {
+                builder.append(c);
+            } else {
+                appendEscaped(builder, value, i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 从第一个需要转义的字符开始，剩余部分按照 UTF-8 编码
+     */
+    private static void appendEscaped(StringBuilder builder, String value, int start) {
+        final byte[] bytes;
+        try {
+            bytes = value.substring(start).getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return;
+        }
+        for (byte b : bytes) {
+            final int c = b & 0xFF;
+            if (c > ' ' && c < 0x7F && c != SEPARATOR && c != ESCAPE) {
+                builder.append((char) c);
+            } else {
+                builder.append(ESCAPE).append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+            }
+        }
+    }
+
+    /**
+     * 解码成原来多个字段格式的上下文
+     *
+     * @param value 紧凑格式的上下文
+     * @return 上下文，格式不正确或者版本不支持时返回 null
+     */
+    public static Map<String, String> decode(String value) {
+        if (value == null || value.length() < 3 || value.charAt(0) != VERSION || value.charAt(1) != SEPARATOR) {
+            return null;
+        }
+        final String[] fields = new String[FIELD_COUNT];
+        int index = 0;
+        int start = 0;
+        for (int i = 0, len = value.length(); i <= len && index < FIELD_COUNT; i++) {
+            if (i == len || value.charAt(i) == SEPARATOR) {
+                fields[index++] = unescape(value, start, i);
+                start = i + 1;
+            }
+        }
+        if (index != FIELD_COUNT || fields[1].length() != 1) {
+            return null;
+        }
+        final int flags = Character.digit(fields[1].charAt(0), 16);
+        if (flags < 0) {
+            return null;
+        }
+        final Map<String, String> context = new HashMap<String, String>(16);
+        final boolean hasContext = (flags & FLAG_HAS_CONTEXT) != 0;
+        final boolean isClusterTest = (flags & FLAG_CLUSTER_TEST) != 0;
+        final boolean isDebug = (flags & FLAG_DEBUG) != 0;
+        putIfNotEmpty(context, PradarService.PRADAR_TRACE_ID_KEY, fields[2]);
+        putIfNotEmpty(context, PradarService.PRADAR_INVOKE_ID_KEY, fields[3]);
+        putIfNotEmpty(context, PradarService.PRADAR_TRACE_APPNAME_KEY, fields[4]);
+        putIfNotEmpty(context, PradarService.PRADAR_REMOTE_APPNAME_KEY, fields[5]);
+        putIfNotEmpty(context, PradarService.PRADAR_UPSTREAM_APPNAME_KEY, fields[5]);
+        putIfNotEmpty(context, PradarService.PRADAR_REMOTE_IP, fields[6]);
+        putIfNotEmpty(context, PradarService.PRADAR_USER_DATA_KEY, fields[7]);
+        if (hasContext) {
+            context.put(PradarService.PRADAR_CLUSTER_TEST_KEY,
+                    isClusterTest ? Pradar.PRADAR_CLUSTER_TEST_ON : Pradar.PRADAR_CLUSTER_TEST_OFF);
+            context.put(PradarService.PRADAR_DEBUG_KEY, isDebug ? Pradar.PRADAR_DEBUG_ON : Pradar.PRADAR_DEBUG_OFF);
+            context.put(PradarService.PRADAR_WHITE_LIST_CHECK, String.valueOf((flags & FLAG_PASS_CHECK) != 0));
+        } else {
+            if (isClusterTest) {
+                context.put(PradarService.PRADAR_CLUSTER_TEST_KEY, Pradar.PRADAR_CLUSTER_TEST_ON);
+            }
+            if (isDebug) {
+                context.put(PradarService.PRADAR_DEBUG_KEY, Pradar.PRADAR_DEBUG_ON);
+            }
+        }
+        return context;
+    }
+
+    private static void putIfNotEmpty(Map<String, String> context, String key, String value) {
+        if (value.length() != 0) {
+            context.put(key, value);
+        }
+    }
+
+    private static String unescape(String value, int start, int end) {
+        final int escape = value.indexOf(ESCAPE, start);
+        if (escape == -1 || escape >= end) {
+            return value.substring(start, end);
+        }
+        final byte[] bytes = new byte[end - start];
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            final char c = value.charAt(i);
+            if (c == ESCAPE && i + 2 < end) {
+                final int hi = Character.digit(value.charAt(i + 1), 16);
+                final int lo = Character.digit(value.charAt(i + 2), 16);
+                if (hi >= 0 && lo >= 0) {
+                    bytes[count++] = (byte) ((hi << 4) | lo);
+                    i += 2;
+                    continue;
+                }
+            }
+            bytes[count++] = (byte) c;
+        }
+        try {
+            return new String(bytes, 0, count, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return value.substring(start, end);
+        }
+    }
+
+    /**
+     * 如果上下文中带有紧凑格式的上下文，则展开成原来多个字段的格式，单独传输的字段优先
+     *
+     * @param ctxObj 上下文
+     * @return 展开后的上下文，不需要展开时返回原来的对象
+     */
+    @SuppressWarnings("unchecked")
+    public static Object expand(Object ctxObj) {
+        if (!(ctxObj instanceof Map)) {
+            return ctxObj;
+        }
+        return expand((Map<String, String>) ctxObj);
+    }
+
+    public static Map<String, String> expand(Map<String, String> ctx) {
+        if (ctx == null) {
+            return null;
+        }
+        final String value = ctx.get(PradarService.PRADAR_CONTEXT_KEY);
+        if (StringUtils.isEmpty(value)) {
+            return ctx;
+        }
+        final Map<String, String> context = decode(value);
+        if (context == null) {
+            return ctx;
+        }
+        for (Map.Entry<String, String> entry : ctx.entrySet()) {
+            if (!PradarService.PRADAR_CONTEXT_KEY.equals(entry.getKey())) {
+                context.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return context;
+    }
+}
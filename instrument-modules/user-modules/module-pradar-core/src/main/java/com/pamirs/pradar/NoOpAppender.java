@@ -14,12 +14,18 @@
  */
 package com.pamirs.pradar;
 
+import java.nio.ByteBuffer;
+
 class NoOpAppender extends PradarAppender {
 
     @Override
     public void append(String log) {
     }
 
+    @Override
+    public void append(ByteBuffer log) {
+    }
+
     @Override
     public void flush() {
     }
@@ -20,10 +20,12 @@ import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.pamirs.pradar.common.PropertyPlaceholderHelper;
@@ -157,6 +159,11 @@ public final class Pradar {
      */
     static AsyncAppender rpcAppender;
 
+    /**
+     * Invoke 日志的尾部采样，未开启时为 null
+     */
+    static final TraceTailSampler traceTailSampler = TraceTailSampler.create();
+
     /**
      * 服务器指标信息 日志输出
      */
@@ -220,6 +227,27 @@ public final class Pradar {
      */
     static public final String MONITOR_QUEUE_SIZE = "pradar.monitor.queue.size";
 
+    /**
+     * trace 和 monitor 日志的编码方式，text 为字符串编码，bytes 为直接写入字节缓冲区
+     */
+    static public final String TRACE_ENCODER = "pradar.trace.encoder";
+
+    static public final String TRACE_ENCODER_BYTES = "bytes";
+
+    /**
+     * trace 和 monitor 日志文件的输出方式，stream 为 BufferedOutputStream 输出，channel 为 FileChannel 输出
+     */
+    static public final String LOG_FILE_OUTPUT = "pradar.log.file.output";
+
+    static public final String LOG_FILE_OUTPUT_CHANNEL = "channel";
+
+    /**
+     * FileChannel 输出时的缓冲区大小
+     */
+    static public final String LOG_FILE_CHANNEL_BUFFER_SIZE = "pradar.log.file.channel.buffer.size";
+
+    static public final int DEFAULT_LOG_FILE_CHANNEL_BUFFER_SIZE = 64 * 1024;
+
     /**
      * 是否影子库里用影子表模式
      */
@@ -274,6 +302,7 @@ public final class Pradar {
     private final static Logger LOGGER = LoggerFactory.getLogger(Pradar.class);
 
     private final static List<String> RPC_TRANSFORM_KEYS = Arrays.asList(
+        PradarService.PRADAR_CONTEXT_KEY,
         PradarService.PRADAR_TRACE_ID_KEY,
         PradarService.PRADAR_TRACE_APPNAME_KEY,
         PradarService.PRADAR_INVOKE_ID_KEY,
@@ -287,6 +316,8 @@ public final class Pradar {
         PradarService.PRADAR_WHITE_LIST_CHECK
     );
 
+    private final static Set<String> RPC_TRANSFORM_KEY_SET = new HashSet<String>(RPC_TRANSFORM_KEYS);
+
     /**
      * 获取是否需要打印拦截器耗时
      *
@@ -382,6 +413,43 @@ public final class Pradar {
         return DEFAULT_TRACE_QUEUE_SIZE;
     }
 
+    /**
+     * 获取 trace 和 monitor 日志的编码器，配置了 {@link #TRACE_ENCODER_BYTES} 并且输出字符集兼容 ASCII 时
+     * 使用字节编码器，否则使用默认的字符串编码器
+     *
+     * @return 日志编码器
+     */
+    static TraceEncoder createTraceInvokeContextEncoder() {
+        String value = System.getProperty(TRACE_ENCODER);
+        if (TRACE_ENCODER_BYTES.equalsIgnoreCase(StringUtils.trim(value))
+                && TraceLogBuffer.isAsciiCompatible(DEFAULT_CHARSET)) {
+            return new TraceInvokeContextByteEncoder(DEFAULT_CHARSET);
+        }
+        return new TraceInvokeContextEncoder();
+    }
+
+    /**
+     * 是否使用 FileChannel 输出 trace 和 monitor 日志
+     *
+     * @return 配置了 {@link #LOG_FILE_OUTPUT_CHANNEL} 时返回 true
+     */
+    static boolean isLogFileChannelOutput() {
+        return LOG_FILE_OUTPUT_CHANNEL.equalsIgnoreCase(StringUtils.trim(System.getProperty(LOG_FILE_OUTPUT)));
+    }
+
+    /**
+     * 获取 FileChannel 输出时的缓冲区大小
+     *
+     * @return 默认返回 {@link #DEFAULT_LOG_FILE_CHANNEL_BUFFER_SIZE}
+     */
+    static int getLogFileChannelBufferSize() {
+        String value = System.getProperty(LOG_FILE_CHANNEL_BUFFER_SIZE);
+        if (NumberUtils.isDigits(value)) {
+            return Integer.valueOf(value);
+        }
+        return DEFAULT_LOG_FILE_CHANNEL_BUFFER_SIZE;
+    }
+
     /**
      * 获取 monitor 的列队的大小
      *
@@ -935,8 +1003,9 @@ public final class Pradar {
         rpcAppender = new AsyncAppender(getTraceQueueSize(), 0);
 
         PradarRollingFileAppender rpcLogger = new PradarRollingFileAppender(
-            PRADAR_INVOKE_LOG_FILE, Pradar.MAX_RPC_LOG_FILE_SIZE, false);
-        rpcAppender.start(rpcLogger, new TraceInvokeContextEncoder(), "RpcLog");
+            PRADAR_INVOKE_LOG_FILE, Pradar.MAX_RPC_LOG_FILE_SIZE, false,
+            isLogFileChannelOutput(), getLogFileChannelBufferSize());
+        rpcAppender.start(rpcLogger, createTraceInvokeContextEncoder(), "RpcLog");
         PradarLogDaemon.watch(rpcAppender);
         return rpcLogger;
 
@@ -948,8 +1017,9 @@ public final class Pradar {
         serverMonitorAppender = new AsyncAppender(getMonitorQueueSize(), 0);
 
         PradarRollingFileAppender rpcLogger = new PradarRollingFileAppender(
-            PRADAR_MONITOR_LOG_FILE, Pradar.MAX_MONITOR_LOG_FILE_SIZE, false);
-        serverMonitorAppender.start(rpcLogger, new TraceInvokeContextEncoder(), "MonitorLog");
+            PRADAR_MONITOR_LOG_FILE, Pradar.MAX_MONITOR_LOG_FILE_SIZE, false,
+            isLogFileChannelOutput(), getLogFileChannelBufferSize());
+        serverMonitorAppender.start(rpcLogger, createTraceInvokeContextEncoder(), "MonitorLog");
         PradarLogDaemon.watch(serverMonitorAppender);
         return rpcLogger;
     }
@@ -1323,11 +1393,14 @@ public final class Pradar {
      * @return
      */
     static public Map<String, String> getInvokeContextTransformMap() {
+        if (InvokeContextCodec.isEnabled()) {
+            return InvokeContextCodec.toTransformMap(InvokeContext.get());
+        }
         Map<String, String> ctx = getInvokeContextMap();
         Iterator<Map.Entry<String, String>> it = ctx.entrySet().iterator();
         while (it.hasNext()) {
             Map.Entry<String, String> entry = it.next();
-            if (!getInvokeContextTransformKeys().contains(entry.getKey())) {
+            if (!RPC_TRANSFORM_KEY_SET.contains(entry.getKey())) {
                 it.remove();
             }
         }
@@ -1354,6 +1427,7 @@ public final class Pradar {
      */
     static public void setInvokeContextWithParent(Object rpcCtx) {
         try {
+            rpcCtx = InvokeContextCodec.expand(rpcCtx);
             InvokeContext ctx = null;
             if (rpcCtx instanceof Map) {
                 final Map<String, String> context = (Map<String, String>)rpcCtx;
@@ -1401,6 +1475,7 @@ public final class Pradar {
     @SuppressWarnings("unchecked")
     static public void setInvokeContext(Object invokeCtx) {
         try {
+            invokeCtx = InvokeContextCodec.expand(invokeCtx);
             InvokeContext ctx = null;
             Boolean isClusterTest = null;
             Boolean isDebug = null;
@@ -1773,6 +1848,7 @@ public final class Pradar {
      */
     static public void startServerInvoke(String service, String method, String remoteAppName, Object ctxObj) {
         try {
+            ctxObj = InvokeContextCodec.expand(ctxObj);
             /**
              * 修改原有方式，防止在rpc接收之前会经过其他中间件的埋点导致出错
              */
@@ -2306,7 +2382,14 @@ public final class Pradar {
      * 提交调用上下文，生成日志。这是一个为了提高中间件埋点性能而特别设置的内部方法， 在不依赖 ThreadLocal 的场景使用。
      */
     static public void commitInvokeContext(InvokeContext ctx) {
-        if (((ctx.logType >= 0 && !PradarSwitcher.isRpcOff() && PradarSwitcher.isTraceEnabled() && ctx.isTraceSampled())
+        final TraceTailSampler traceTailSampler = Pradar.traceTailSampler;
+        if (traceTailSampler != null) {
+            if (ctx.isDebug() && !ctx.isEmpty()) {
+                rpcAppender.append(ctx);
+            } else if (ctx.logType >= 0 && !PradarSwitcher.isRpcOff() && PradarSwitcher.isTraceEnabled() && !ctx.isEmpty()) {
+                traceTailSampler.commit(ctx, ctx.isTraceSampled(), rpcAppender);
+            }
+        } else if (((ctx.logType >= 0 && !PradarSwitcher.isRpcOff() && PradarSwitcher.isTraceEnabled() && ctx.isTraceSampled())
             || ctx.isDebug()) && !ctx.isEmpty()) {
             rpcAppender.append(ctx);
         }
@@ -14,6 +14,7 @@
  */
 package com.pamirs.pradar;
 
+import java.nio.ByteBuffer;
 
 public abstract class PradarAppender {
     /**
@@ -23,6 +24,17 @@ public abstract class PradarAppender {
      */
     public abstract void append(String log);
 
+    /**
+     * 写已经按照 {@link Pradar#DEFAULT_CHARSET} 编码好的日志，写入的内容为 buffer 中
+     * position 到 limit 之间的字节，buffer 只在调用期间有效，实现方不能持有。
+     * 默认解码成字符串后写入，能够直接写字节的实现需要覆盖此方法
+     *
+     * @param log 追加的日志
+     */
+    public void append(ByteBuffer log) {
+        append(Pradar.DEFAULT_CHARSET.decode(log).toString());
+    }
+
     /**
      * 刷新输出缓冲区
      */
@@ -20,6 +20,8 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.math.NumberUtils;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -28,6 +30,12 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * 支持多进程文件滚动的实现。注意：这个类的实现没有做并发保护，
  * 使用时必须保证单线程操作。一般搭配 {@link SyncAppender} 或者 {@link AsyncAppender}
  * 使用。一般配合 {@link PradarLogDaemon} 使用。
+ * <p>
+ * 支持两种输出方式：默认通过 BufferedOutputStream 输出；channel 方式通过 FileChannel 加堆外缓冲区输出，
+ * 堆外的日志缓冲区直接写入 FileChannel，缓冲区更大，且不在每次写日志时检查刷新时间，
+ * 刷新由 {@link AsyncAppender} 的批量提交以及 {@link PradarLogDaemon} 驱动。
+ * 两种方式的文件命名、滚动规则完全一致
+ * </p>
  */
 class PradarRollingFileAppender extends PradarAppender {
 
@@ -44,6 +52,8 @@ class PradarRollingFileAppender extends PradarAppender {
      */
     private static final int DEFAULT_BUFFER_SIZE = 4 * 1024; // 4KB
 
+    private static final int MAX_RETAINED_WRITE_BUFFER_SIZE = 64 * 1024; // 64KB
+
     /**
      * 最大备份数
      */
@@ -63,7 +73,24 @@ class PradarRollingFileAppender extends PradarAppender {
 
     private final AtomicBoolean isRolling = new AtomicBoolean(false);
 
-    private BufferedOutputStream bos = null;
+    private LogFileOutput output = null;
+
+    /**
+     * 是否使用 FileChannel 输出
+     */
+    private final boolean channelOutput;
+
+    /**
+     * FileChannel 输出时的缓冲区大小
+     */
+    private final int channelBufferSize;
+
+    private ByteBuffer channelBuffer;
+
+    /**
+     * 写字节日志时复用的临时空间，超过 {@link #MAX_RETAINED_WRITE_BUFFER_SIZE} 的不保留
+     */
+    private byte[] writeBuffer = new byte[DEFAULT_BUFFER_SIZE];
 
     private long nextFlushTime = 0L;
 
@@ -93,10 +120,21 @@ class PradarRollingFileAppender extends PradarAppender {
     }
 
     public PradarRollingFileAppender(String filePath, long maxFileSize, boolean selfLogEnabled) {
+        this(filePath, maxFileSize, selfLogEnabled, false, 0);
+    }
+
+    /**
+     * @param channelOutput     是否使用 FileChannel 输出
+     * @param channelBufferSize FileChannel 输出时的缓冲区大小，小于 {@link #DEFAULT_BUFFER_SIZE} 时使用 {@link #DEFAULT_BUFFER_SIZE}
+     */
+    public PradarRollingFileAppender(String filePath, long maxFileSize, boolean selfLogEnabled,
+                                     boolean channelOutput, int channelBufferSize) {
         initCurrentSize(filePath);
         this.filePath = filePath;
         this.maxFileSize = maxFileSize;
         this.selfLogEnabled = selfLogEnabled;
+        this.channelOutput = channelOutput;
+        this.channelBufferSize = Math.max(channelBufferSize, DEFAULT_BUFFER_SIZE);
         setFile();
     }
 
@@ -207,7 +245,19 @@ class PradarRollingFileAppender extends PradarAppender {
                 return;
             }
             FileOutputStream ostream = new FileOutputStream(logFile, true); // 必须 true 保证 O_APPEND
-            this.bos = new BufferedOutputStream(ostream, bufferSize);
+            if (channelOutput) {
+                // 缓冲区在滚动前后复用，滚动时旧文件关闭前已经将缓冲区写完
+                if (channelBuffer == null) {
+                    channelBuffer = ByteBuffer.allocateDirect(channelBufferSize);
+                }
+                ChannelLogFileOutput channelLogFileOutput = new ChannelLogFileOutput(ostream, channelBuffer);
+                if (multiProcessDetected) {
+                    channelLogFileOutput.setMaxWriteSize(DEFAULT_BUFFER_SIZE);
+                }
+                this.output = channelLogFileOutput;
+            } else {
+                this.output = new StreamLogFileOutput(new BufferedOutputStream(ostream, bufferSize));
+            }
             this.outputByteSize = logFile.length();
         } catch (Throwable e) {
             doSelfLog("[ERROR] Fail to create file to write: " + filePath + ", error=" + e.getMessage());
@@ -216,28 +266,44 @@ class PradarRollingFileAppender extends PradarAppender {
 
     @Override
     public void append(String log) {
-        BufferedOutputStream bos = this.bos;
-        if (bos != null) {
+        LogFileOutput output = this.output;
+        if (output != null) {
             try {
                 waitUntilRollFinish();
 
                 byte[] bytes = log.getBytes(Pradar.DEFAULT_CHARSET);
-                int len = bytes.length;
-                if (len > DEFAULT_BUFFER_SIZE && this.multiProcessDetected) {
-                    len = DEFAULT_BUFFER_SIZE;
-                    bytes[len - 1] = '\n';
-                }
-                bos.write(bytes, 0, len);
-                outputByteSize += len;
+                write(output, bytes, bytes.length);
+            } catch (Exception e) {
+                doSelfLog("[ERROR] fail to write log to file " + filePath + ", error=" + e.getMessage());
+                close();
+                setFile();
+            }
+        }
+    }
 
-                if (outputByteSize >= maxFileSize) {
-                    rollOver();
-                } else {
-                    // 超过指定刷新时间没刷新，就刷新一次
-                    if (System.currentTimeMillis() >= nextFlushTime) {
-                        flush();
+    @Override
+    public void append(ByteBuffer log) {
+        LogFileOutput output = this.output;
+        if (output != null) {
+            try {
+                waitUntilRollFinish();
+
+                int len = log.remaining();
+                if (output instanceof ChannelLogFileOutput && !(len > DEFAULT_BUFFER_SIZE && this.multiProcessDetected)) {
+                    // 直接写入，不经过堆内复制
+                    output.write(log);
+                    afterWrite(len);
+                    return;
+                }
+                byte[] bytes = this.writeBuffer;
+                if (bytes.length < len) {
+                    bytes = new byte[Math.max(len, bytes.length << 1)];
+                    if (bytes.length <= MAX_RETAINED_WRITE_BUFFER_SIZE) {
+                        this.writeBuffer = bytes;
                     }
                 }
+                log.get(bytes, 0, len);
+                write(output, bytes, len);
             } catch (Exception e) {
                 doSelfLog("[ERROR] fail to write log to file " + filePath + ", error=" + e.getMessage());
                 close();
@@ -246,12 +312,34 @@ class PradarRollingFileAppender extends PradarAppender {
         }
     }
 
+    private void write(LogFileOutput output, byte[] bytes, int len) throws IOException {
+        if (len > DEFAULT_BUFFER_SIZE && this.multiProcessDetected) {
+            len = DEFAULT_BUFFER_SIZE;
+            bytes[len - 1] = '\n';
+        }
+        output.write(bytes, 0, len);
+        afterWrite(len);
+    }
+
+    private void afterWrite(int len) {
+        outputByteSize += len;
+
+        if (outputByteSize >= maxFileSize) {
+            rollOver();
+        } else if (!channelOutput) {
+            // 超过指定刷新时间没刷新，就刷新一次
+            if (System.currentTimeMillis() >= nextFlushTime) {
+                flush();
+            }
+        }
+    }
+
     @Override
     public void flush() {
-        final BufferedOutputStream bos = this.bos;
-        if (bos != null) {
+        final LogFileOutput output = this.output;
+        if (output != null) {
             try {
-                bos.flush();
+                output.flush();
                 nextFlushTime = System.currentTimeMillis() + LOG_FLUSH_INTERVAL;
             } catch (Throwable e) {
                 doSelfLog("[WARN] Fail to flush OutputStream: " + filePath + ", " + e.getMessage());
@@ -325,14 +413,14 @@ class PradarRollingFileAppender extends PradarAppender {
 
     @Override
     public void close() {
-        BufferedOutputStream bos = this.bos;
-        if (bos != null) {
+        LogFileOutput output = this.output;
+        if (output != null) {
             try {
-                bos.close();
+                output.close();
             } catch (IOException e) {
                 doSelfLog("[WARN] Fail to close OutputStream: " + e.getMessage());
             }
-            this.bos = null;
+            this.output = null;
         }
     }
 
@@ -344,7 +432,7 @@ class PradarRollingFileAppender extends PradarAppender {
         flush();
         File logFile = new File(filePath + '.' + lastFileSuffix);
         long fileSize = logFile.length();
-        if (this.bos == null || fileSize < outputByteSize) {
+        if (this.output == null || fileSize < outputByteSize) {
             // 可以判断文件已经滚动，或已删除
             doSelfLog("[INFO] Log file rolled over by outside: " + filePath + ", force reload");
             close();
@@ -356,6 +444,10 @@ class PradarRollingFileAppender extends PradarAppender {
             this.outputByteSize = fileSize;
             if (!this.multiProcessDetected) {
                 this.multiProcessDetected = true;
+                // 多进程写时每次写入不能超过 4KB
+                if (this.output instanceof ChannelLogFileOutput) {
+                    ((ChannelLogFileOutput) this.output).setMaxWriteSize(DEFAULT_BUFFER_SIZE);
+                }
                 if (selfLogEnabled) {
                     doSelfLog("[WARN] Multi-process file write detected: " + filePath);
                 }
@@ -438,4 +530,137 @@ class PradarRollingFileAppender extends PradarAppender {
         return "PradarRollingFileAppender [filePath=" + filePath + "]";
     }
 
+    /**
+     * 日志文件输出
+     */
+    interface LogFileOutput {
+
+        void write(byte[] bytes, int off, int len) throws IOException;
+
+        void write(ByteBuffer buffer) throws IOException;
+
+        void flush() throws IOException;
+
+        void close() throws IOException;
+    }
+
+    /**
+     * 通过 BufferedOutputStream 输出
+     */
+    static class StreamLogFileOutput implements LogFileOutput {
+
+        private final BufferedOutputStream bos;
+
+        StreamLogFileOutput(BufferedOutputStream bos) {
+            this.bos = bos;
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            bos.write(bytes, off, len);
+        }
+
+        @Override
+        public void write(ByteBuffer buffer) throws IOException {
+            if (buffer.hasArray()) {
+                bos.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                buffer.position(buffer.limit());
+                return;
+            }
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            bos.write(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            bos.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            bos.close();
+        }
+    }
+
+    /**
+     * 通过 FileChannel 输出，日志先写入堆外缓冲区，缓冲区满或者刷新时一次性写入文件，
+     * 超过缓冲区大小的日志直接写入文件。堆外缓冲区写入 FileChannel 时不需要再复制到临时的堆外缓冲区
+     */
+    static class ChannelLogFileOutput implements LogFileOutput {
+
+        private final FileOutputStream fos;
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        /**
+         * 单次写入文件的最大字节数，多进程写同一个文件时需要限制在 4KB 以内
+         */
+        private int maxWriteSize;
+
+        ChannelLogFileOutput(FileOutputStream fos, ByteBuffer buffer) {
+            this.fos = fos;
+            this.channel = fos.getChannel();
+            this.buffer = buffer;
+            this.buffer.clear();
+            this.maxWriteSize = buffer.capacity();
+        }
+
+        void setMaxWriteSize(int maxWriteSize) {
+            this.maxWriteSize = Math.min(maxWriteSize, buffer.capacity());
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            if (buffer.position() + len > maxWriteSize) {
+                flush();
+            }
+            if (len > maxWriteSize) {
+                writeFully(ByteBuffer.wrap(bytes, off, len));
+            } else {
+                buffer.put(bytes, off, len);
+            }
+        }
+
+        @Override
+        public void write(ByteBuffer src) throws IOException {
+            final int len = src.remaining();
+            if (buffer.position() + len > maxWriteSize) {
+                flush();
+            }
+            if (len > maxWriteSize) {
+                writeFully(src);
+            } else {
+                buffer.put(src);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (buffer.position() == 0) {
+                return;
+            }
+            buffer.flip();
+            try {
+                writeFully(buffer);
+            } finally {
+                buffer.clear();
+            }
+        }
+
+        private void writeFully(ByteBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                channel.write(src);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                fos.close();
+            }
+        }
+    }
 }
@@ -14,6 +14,8 @@
  */
 package com.pamirs.pradar;
 
+import java.nio.ByteBuffer;
+
 /**
  * 给 Appender 的所有操作加上同步
  */
@@ -30,6 +32,11 @@ class SyncAppender extends PradarAppender {
         delegate.append(log);
     }
 
+    @Override
+    public synchronized void append(ByteBuffer log) {
+        delegate.append(log);
+    }
+
     @Override
     public synchronized void flush() {
         delegate.flush();
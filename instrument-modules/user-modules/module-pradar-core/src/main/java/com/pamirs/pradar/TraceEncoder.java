@@ -18,6 +18,7 @@ package com.pamirs.pradar;
 import com.pamirs.pradar.json.ResultSerializer;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 
 /**
  * @Auther: vernon
@@ -85,6 +86,67 @@ class TraceInvokeContextEncoder extends TraceEncoder {
 }
 
 
+/**
+ * Pradar RPC 日志的字节输出，输出的内容与 {@link TraceInvokeContextEncoder} 完全一致，
+ * 区别是各个字段在过滤的同时直接按照输出字符集编码写入可复用的堆外缓冲区，再整体交给 appender 写出，
+ * 省去了 StringBuilder 扩容、toString 以及 getBytes 产生的中间对象。
+ * 只能用于兼容 ASCII 的输出字符集
+ */
+class TraceInvokeContextByteEncoder extends TraceEncoder {
+
+    private final TraceLogBuffer buffer;
+
+    TraceInvokeContextByteEncoder(Charset charset) {
+        this.buffer = new TraceLogBuffer(charset);
+    }
+
+    @Override
+    public void encode(BaseContext base, PradarAppender eea) throws IOException {
+        AbstractContext ctx;
+        if (base instanceof AbstractContext) {
+            ctx = (AbstractContext) base;
+        } else {
+            return;
+        }
+
+        TraceLogBuffer buffer = this.buffer.clear();
+        buffer.append(ctx.getTraceId()).append('|')
+                .append(ctx.getStartTime()).append('|')
+                .append(Pradar.AGENT_ID).append('|')
+                .append(ctx.getInvokeId()).append('|')
+                .append(ctx.getInvokeType()).append('|')
+                .appendSafe(AppNameUtils.appName()).append('|')
+                .append(ctx.getLogTime() - ctx.getStartTime()).append('|')
+                .appendSafe(ctx.getMiddlewareName()).append('|')
+                .appendSafe(ctx.getServiceName()).append('|')
+                .appendSafe(ctx.getMethodName()).append('|')
+                .append(ctx.getResultCode()).append('|')
+                .appendSafe(ResultSerializer.serializeRequest(ctx.getRequest() == null ? "" : ctx.getRequest(), Pradar.getPluginRequestSize())).append('|')
+                .appendSafe(ResultSerializer.serializeRequest(ctx.getResponse() == null ? "" : ctx.getResponse(), Pradar.getPluginRequestSize())).append('|')
+                // 与 TraceCoreUtils.combineString 一致，以 ~ 分隔
+                .append(ctx.isClusterTest()).append('~')
+                .append(ctx.isDebug()).append('~')
+                .append("0".equals(ctx.invokeId)).append('~')
+                .append(TraceCoreUtils.isServer(ctx)).append('|')
+                .appendSafe(ctx.getCallBackMsg());
+        buffer.append('|').append('#').append(PradarSwitcher.getSamplingInterval());
+        buffer.append('|').append('@')
+                .appendSafe(ctx.traceAppName).append('~')
+                .appendSafe(ctx.traceServiceName).append('~')
+                .appendSafe(ctx.traceMethod)
+                .append('|').append('@')
+                .appendSafe(ctx.upAppName).append('~')
+                .appendSafe(ctx.remoteIp).append('~')
+                .appendSafe(ctx.getPort()).append('~')
+                .append(ctx.requestSize).append('~')
+                .append(ctx.responseSize);
+        ctx.logContextData(buffer);
+        buffer.append(PradarCoreUtils.NEWLINE);
+        eea.append(buffer.flip());
+        ctx.destroy();
+    }
+}
+
 /**
  * 业务跟踪日志的输出
  */
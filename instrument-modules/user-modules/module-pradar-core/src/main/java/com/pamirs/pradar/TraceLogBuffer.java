@@ -0,0 +1,228 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * 日志字节缓冲区，直接将日志内容按照输出字符集编码写入可复用的堆外缓冲区，
+ * 不再经过 StringBuilder、String 以及 byte[] 的多次复制。
+ * <p>
+ * ASCII 字符直接写入，非 ASCII 字符交给字符集编码器编码，因此只支持兼容 ASCII 的字符集，
+ * 见 {@link #isAsciiCompatible(Charset)}。注意：这个类没有做并发保护，必须保证单线程使用
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 3:35 下午
+ */
+class TraceLogBuffer {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * 超过这个大小的缓冲区在下一次使用时会被释放，避免单条超长日志长期占用堆外内存
+     */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final byte[] DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9'};
+
+    private final CharsetEncoder encoder;
+
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(DEFAULT_CAPACITY);
+
+    /**
+     * long 转字符时使用的临时空间
+     */
+    private final byte[] numberBuffer = new byte[20];
+
+    TraceLogBuffer(Charset charset) {
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * 判断字符集是否兼容 ASCII，即所有 ASCII 字符都编码成同样的单字节
+     *
+     * @param charset 字符集
+     * @return 是否兼容 ASCII
+     */
+    static boolean isAsciiCompatible(Charset charset) {
+        try {
+            if (!charset.canEncode()) {
+                return false;
+            }
+            char[] chars = new char[128];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = (char) i;
+            }
+            byte[] bytes = new String(chars).getBytes(charset);
+            if (bytes.length != chars.length) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] != i) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * 清空缓冲区，准备写入下一条日志
+     */
+    TraceLogBuffer clear() {
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer = ByteBuffer.allocateDirect(DEFAULT_CAPACITY);
+        }
+        buffer.clear();
+        return this;
+    }
+
+    /**
+     * 结束写入，返回可读的缓冲区，缓冲区在下一次 {@link #clear()} 之前有效
+     */
+    ByteBuffer flip() {
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 写入一个 ASCII 字符
+     */
+    TraceLogBuffer append(char c) {
+        if (c >= 0x80) {
+            return append(String.valueOf(c));
+        }
+        ensureCapacity(1);
+        buffer.put((byte) c);
+        return this;
+    }
+
+    TraceLogBuffer append(boolean b) {
+        return append(b ? "true" : "false");
+    }
+
+    TraceLogBuffer append(int i) {
+        return append((long) i);
+    }
+
+    TraceLogBuffer append(long l) {
+        if (l == Long.MIN_VALUE) {
+            return append(String.valueOf(l));
+        }
+        ensureCapacity(20);
+        if (l < 0) {
+            buffer.put((byte) '-');
+            l = -l;
+        }
+        final byte[] numberBuffer = this.numberBuffer;
+        int pos = numberBuffer.length;
+        do {
+            numberBuffer[--pos] = DIGITS[(int) (l % 10)];
+            l /= 10;
+        } while (l != 0);
+        buffer.put(numberBuffer, pos, numberBuffer.length - pos);
+        return this;
+    }
+
+    /**
+     * 原样写入字符串，null 写入空字符串
+     */
+    TraceLogBuffer append(String s) {
+        if (s == null) {
+            return this;
+        }
+        return write(s, false);
+    }
+
+    /**
+     * 写入字符串并做日志过滤，与 {@link PradarCoreUtils#makeLogSafe(String)} 的结果一致：
+     * 换行替换成 \t，| 替换成 \，null 写入空字符串
+     */
+    TraceLogBuffer appendSafe(String s) {
+        if (s == null) {
+            return this;
+        }
+        return write(s, true);
+    }
+
+    private TraceLogBuffer write(String s, boolean escape) {
+        final int len = s.length();
+        ensureCapacity(len);
+        int nonAsciiStart = -1;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                if (nonAsciiStart == -1) {
+                    nonAsciiStart = i;
+                }
+                continue;
+            }
+            if (nonAsciiStart != -1) {
+                encode(s, nonAsciiStart, i);
+                nonAsciiStart = -1;
+            }
+            if (escape) {
+                if (c == '\r' && i + 1 < len && s.charAt(i + 1) == '\n') {
+                    c = '\t';
+                    i++;
+                } else if (c == '\n') {
+                    c = '\t';
+                } else if (c == '|') {
+                    c = '\\';
+                }
+            }
+            if (!buffer.hasRemaining()) {
+                ensureCapacity(len - i);
+            }
+            buffer.put((byte) c);
+        }
+        if (nonAsciiStart != -1) {
+            encode(s, nonAsciiStart, len);
+        }
+        return this;
+    }
+
+    private void encode(String s, int start, int end) {
+        final CharBuffer in = CharBuffer.wrap(s, start, end);
+        final CharsetEncoder encoder = this.encoder;
+        encoder.reset();
+        while (encoder.encode(in, buffer, true).isOverflow()) {
+            ensureCapacity((int) ((in.remaining() + 1) * encoder.maxBytesPerChar()));
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            ensureCapacity((int) encoder.maxBytesPerChar() + 1);
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (buffer.remaining() >= required) {
+            return;
+        }
+        final int newCapacity = Math.max(buffer.capacity() << 1, buffer.position() + required);
+        final ByteBuffer newBuffer = ByteBuffer.allocateDirect(newCapacity);
+        buffer.flip();
+        newBuffer.put(buffer);
+        buffer = newBuffer;
+    }
+}
@@ -0,0 +1,304 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar;
+
+import org.apache.commons.lang.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * trace 尾部采样
+ * <p>
+ * 头部采样({@link AbstractContext#isTraceSampled()})只根据 traceId 决定是否输出，慢调用和错误调用会和正常调用一样被丢弃。
+ * 开启尾部采样后，未被头部采样的非根节点调用先按 traceId 缓存起来，等到本进程内的根节点
+ * (没有父上下文的 endServerInvoke 或者 endTrace 调用)提交时，
+ * 根据头部采样结果、是否有错误、根节点耗时是否超过阈值决定整条链路是输出还是丢弃。
+ * </p>
+ * <p>
+ * 缓存按照 traceId 分段加锁，总的缓存调用数、单条链路的缓存调用数以及缓存时间都有上限，
+ * 超出上限时淘汰最早的链路，被淘汰的链路中有错误的会输出，其余丢弃；
+ * 根节点提交后才到达的调用(如异步线程)按照最近的决策结果处理
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 3:39 下午
+ */
+class TraceTailSampler {
+    private final static Logger LOGGER = LoggerFactory.getLogger(TraceTailSampler.class);
+
+    /**
+     * 是否开启尾部采样
+     */
+    static final String TAIL_SAMPLING_ENABLED = "pradar.trace.tail.sampling";
+    /**
+     * 慢调用阈值，单位毫秒，根节点耗时超过此阈值的链路全部输出
+     */
+    static final String TAIL_SAMPLING_SLOW_THRESHOLD = "pradar.trace.tail.sampling.slow.threshold";
+    /**
+     * 最多缓存的调用数
+     */
+    static final String TAIL_SAMPLING_MAX_SPANS = "pradar.trace.tail.sampling.max.spans";
+    /**
+     * 单条链路最多缓存的调用数
+     */
+    static final String TAIL_SAMPLING_MAX_TRACE_SPANS = "pradar.trace.tail.sampling.max.trace.spans";
+    /**
+     * 链路最长的缓存时间，单位毫秒
+     */
+    static final String TAIL_SAMPLING_MAX_AGE = "pradar.trace.tail.sampling.max.age";
+
+    private static final long DEFAULT_SLOW_THRESHOLD = 1000L;
+    private static final int DEFAULT_MAX_SPANS = 10000;
+    private static final int DEFAULT_MAX_TRACE_SPANS = 256;
+    private static final long DEFAULT_MAX_AGE = 60000L;
+
+    private static final int SEGMENT_COUNT = 16;
+    /**
+     * 每个分段保留的最近决策数
+     */
+    private static final int MAX_DECISIONS_PER_SEGMENT = 256;
+
+    private final long slowThreshold;
+    private final int maxSpans;
+    private final int maxTraceSpans;
+    private final long maxAge;
+
+    private final Segment[] segments;
+
+    /**
+     * 当前缓存的调用数
+     */
+    private final AtomicInteger bufferedSpans = new AtomicInteger();
+
+    /**
+     * 因超出上限被丢弃的调用数
+     */
+    private final AtomicLong discardCount = new AtomicLong();
+
+    TraceTailSampler(long slowThreshold, int maxSpans, int maxTraceSpans, long maxAge) {
+        this.slowThreshold = slowThreshold;
+        this.maxSpans = maxSpans;
+        this.maxTraceSpans = maxTraceSpans;
+        this.maxAge = maxAge;
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * 根据系统参数创建尾部采样，未开启时返回 null
+     *
+     * @return 尾部采样
+     */
+    static TraceTailSampler create() {
+        if (!Boolean.valueOf(System.getProperty(TAIL_SAMPLING_ENABLED))) {
+            return null;
+        }
+        long slowThreshold = getLong(TAIL_SAMPLING_SLOW_THRESHOLD, DEFAULT_SLOW_THRESHOLD);
+        int maxSpans = (int) getLong(TAIL_SAMPLING_MAX_SPANS, DEFAULT_MAX_SPANS);
+        int maxTraceSpans = (int) getLong(TAIL_SAMPLING_MAX_TRACE_SPANS, DEFAULT_MAX_TRACE_SPANS);
+        long maxAge = getLong(TAIL_SAMPLING_MAX_AGE, DEFAULT_MAX_AGE);
+        LOGGER.info("{}=true, slowThreshold={}ms, maxSpans={}, maxTraceSpans={}, maxAge={}ms",
+                TAIL_SAMPLING_ENABLED, slowThreshold, maxSpans, maxTraceSpans, maxAge);
+        return new TraceTailSampler(slowThreshold, maxSpans, maxTraceSpans, maxAge);
+    }
+
+    private static long getLong(String key, long defaultValue) {
+        String value = System.getProperty(key);
+        if (NumberUtils.isDigits(value)) {
+            return Long.valueOf(value);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * 提交调用上下文
+     *
+     * @param ctx      调用上下文
+     * @param sampled  是否被头部采样
+     * @param appender 日志输出
+     */
+    void commit(InvokeContext ctx, boolean sampled, AsyncAppender appender) {
+        final String traceId = ctx.getTraceId();
+        if (traceId == null) {
+            return;
+        }
+        final Segment segment = segmentFor(traceId);
+        if (isRoot(ctx)) {
+            commitRoot(segment, ctx, sampled, appender);
+            return;
+        }
+        if (sampled) {
+            appender.append(ctx);
+            return;
+        }
+
+        final boolean error = isError(ctx);
+        final List<Trace> evicted;
+        final Boolean decision;
+        synchronized (segment) {
+            decision = segment.decisions.get(traceId);
+            evicted = decision == null ? buffer(segment, traceId, ctx, error) : null;
+        }
+        if (decision != null) {
+            // 根节点已经提交，按照根节点的决策处理
+            if (decision || error) {
+                appender.append(ctx);
+            }
+            return;
+        }
+        if (evicted != null) {
+            for (Trace trace : evicted) {
+                if (trace.hasError) {
+                    trace.appendTo(appender);
+                }
+            }
+        }
+    }
+
+    private void commitRoot(Segment segment, InvokeContext ctx, boolean sampled, AsyncAppender appender) {
+        final String traceId = ctx.getTraceId();
+        final Trace trace;
+        synchronized (segment) {
+            trace = segment.traces.remove(traceId);
+            if (trace != null) {
+                bufferedSpans.addAndGet(-trace.spans.size());
+            }
+        }
+        final boolean keep = sampled || isError(ctx) || isSlow(ctx) || (trace != null && trace.hasError);
+        synchronized (segment) {
+            segment.decisions.put(traceId, keep);
+        }
+        if (keep) {
+            if (trace != null) {
+                trace.appendTo(appender);
+            }
+            appender.append(ctx);
+        }
+    }
+
+    /**
+     * 缓存调用，返回因超出上限而被淘汰的链路，必须在分段锁内调用
+     */
+    private List<Trace> buffer(Segment segment, String traceId, InvokeContext ctx, boolean error) {
+        final long now = System.currentTimeMillis();
+        List<Trace> evicted = null;
+        final Iterator<Trace> it = segment.traces.values().iterator();
+        while (it.hasNext()) {
+            final Trace eldest = it.next();
+            if (now - eldest.createTime < maxAge && bufferedSpans.get() < maxSpans) {
+                break;
+            }
+            it.remove();
+            bufferedSpans.addAndGet(-eldest.spans.size());
+            if (evicted == null) {
+                evicted = new ArrayList<Trace>(1);
+            }
+            evicted.add(eldest);
+        }
+
+        Trace trace = segment.traces.get(traceId);
+        if (bufferedSpans.get() >= maxSpans || (trace != null && trace.spans.size() >= maxTraceSpans)) {
+            // 超出上限的调用直接丢弃，有错误的调用不能丢
+            if (error && trace != null) {
+                trace.hasError = true;
+            }
+            discard();
+            return evicted;
+        }
+        if (trace == null) {
+            trace = new Trace(now);
+            segment.traces.put(traceId, trace);
+        }
+        trace.spans.add(ctx);
+        trace.hasError |= error;
+        bufferedSpans.incrementAndGet();
+        return evicted;
+    }
+
+    private void discard() {
+        if (discardCount.incrementAndGet() % 10000 == 1) {
+            LOGGER.warn("trace tail sampling buffer is full, discarded {} spans, maxSpans={}, maxTraceSpans={}",
+                    discardCount.get(), maxSpans, maxTraceSpans);
+        }
+    }
+
+    /**
+     * 是否是本进程内的根节点
+     * <p>
+     * 异步的客户端调用(如异步 http、消息发送)在 {@link Pradar#popInvokeContext()} 时父上下文会被置空，
+     * 不能只根据父上下文判断，只有服务端调用和 trace 入口才可能是根节点
+     * </p>
+     */
+    private boolean isRoot(InvokeContext ctx) {
+        return ctx.parentInvokeContext == null
+                && (ctx.logType == Pradar.LOG_TYPE_INVOKE_SERVER || ctx.logType == Pradar.LOG_TYPE_TRACE);
+    }
+
+    private boolean isError(InvokeContext ctx) {
+        return ctx.hasError || !ResultCode.isOk(ctx.getResultCode());
+    }
+
+    private boolean isSlow(InvokeContext ctx) {
+        return ctx.getLogTime() - ctx.getStartTime() >= slowThreshold;
+    }
+
+    private Segment segmentFor(String traceId) {
+        int h = traceId.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * 缓存的链路
+     */
+    private static final class Trace {
+        private final long createTime;
+        private final List<InvokeContext> spans = new ArrayList<InvokeContext>(4);
+        private boolean hasError;
+
+        Trace(long createTime) {
+            this.createTime = createTime;
+        }
+
+        void appendTo(AsyncAppender appender) {
+            for (InvokeContext span : spans) {
+                appender.append(span);
+            }
+        }
+    }
+
+    /**
+     * 分段，按插入顺序保存链路，最早的链路最先被淘汰
+     */
+    private static final class Segment {
+        private final LinkedHashMap<String, Trace> traces = new LinkedHashMap<String, Trace>();
+        private final Map<String, Boolean> decisions = new LinkedHashMap<String, Boolean>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > MAX_DECISIONS_PER_SEGMENT;
+            }
+        };
+    }
+}
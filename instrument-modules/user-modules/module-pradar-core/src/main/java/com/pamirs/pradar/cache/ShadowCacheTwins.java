@@ -0,0 +1,364 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.cache;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.pamirs.pradar.pressurement.agent.event.IEvent;
+import com.pamirs.pradar.pressurement.agent.event.impl.ClusterTestSwitchOffEvent;
+import com.pamirs.pradar.pressurement.agent.listener.EventResult;
+import com.pamirs.pradar.pressurement.agent.listener.PradarEventListener;
+import com.pamirs.pradar.pressurement.agent.shared.service.EventRouter;
+import com.shulie.instrument.simulator.message.ConcurrentWeakHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 本地缓存的影子缓存
+ * <p>
+ * 默认压测流量的 key 包装成 {@link ClusterTestCacheWrapperKey} 与业务数据放在同一个缓存中，
+ * 会和业务数据争抢同一份容量，压测时把业务数据淘汰出去。通过 -Dpradar.cache.shadow.isolated=true
+ * 开启隔离模式之后，每个业务缓存在第一次有压测流量访问时使用与业务缓存相同的构造参数(同一个 builder)
+ * 再创建一个影子缓存，压测流量直接访问影子缓存，容量、过期策略与业务缓存相同但是相互独立
+ * </p>
+ * <p>
+ * 只有记录了构造参数的缓存才能创建影子缓存，记录之前就已经创建的缓存仍然使用包装 key 的方式。
+ * 不是通过 builder 构造的缓存(例如 Spring 的 ConcurrentMapCache、Ehcache3 由 CacheManager 创建的缓存)
+ * 记录一个 {@link TwinFactory}，由插件按照业务缓存的配置创建影子缓存。压测开关关闭时丢弃所有的影子缓存
+ * </p>
+ * <p>
+ * 记录的构造参数不会强引用业务缓存：builder 在记录时复制一份，去掉删除监听器、CacheWriter、executor
+ * 这类不能与影子缓存共用的字段，其余的对象字段以及 CacheLoader 等参数都只保留弱引用，
+ * 这些对象本身被业务缓存持有，业务缓存存活期间不会被回收
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:34 下午
+ */
+public final class ShadowCacheTwins {
+    private final static Logger LOGGER = LoggerFactory.getLogger(ShadowCacheTwins.class);
+
+    private final static boolean ISOLATED = Boolean.valueOf(System.getProperty("pradar.cache.shadow.isolated", "false"));
+
+    private final static ShadowCacheTwins INSTANCE = new ShadowCacheTwins();
+
+    private final static Object PRESENT = new Object();
+
+    private final static ConcurrentWeakHashMap.HashCodeGenerateFunction IDENTITY = new ConcurrentWeakHashMap.HashCodeGenerateFunction() {
+        @Override
+        public int hashcode(Object key) {
+            return System.identityHashCode(key);
+        }
+    };
+
+    /**
+     * 业务缓存 -> 构造参数
+     */
+    private final ConcurrentWeakHashMap<Object, TwinFactory> specs = new ConcurrentWeakHashMap<Object, TwinFactory>(IDENTITY);
+    /**
+     * 业务缓存 -> 影子缓存
+     */
+    private final ConcurrentWeakHashMap<Object, Object> twins = new ConcurrentWeakHashMap<Object, Object>(IDENTITY);
+    /**
+     * 所有的影子缓存
+     */
+    private final ConcurrentWeakHashMap<Object, Object> twinSet = new ConcurrentWeakHashMap<Object, Object>(IDENTITY);
+
+    /**
+     * 当前线程正在创建影子缓存，创建过程中的构造方法不需要再记录
+     */
+    private final ThreadLocal<Boolean> creating = new ThreadLocal<Boolean>();
+
+    private final AtomicBoolean listening = new AtomicBoolean(false);
+
+    private ShadowCacheTwins() {
+    }
+
+    public static ShadowCacheTwins getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 是否开启了影子缓存隔离模式
+     */
+    public static boolean isEnabled() {
+        return ISOLATED;
+    }
+
+    /**
+     * 记录缓存的构造参数，在构造方法执行之后调用
+     *
+     * @param cache          缓存
+     * @param parameterTypes 构造方法的参数类型，缓存的实际类型需要有相同参数的构造方法，第一个参数为 builder
+     * @param args           构造方法的参数
+     * @param detachedFields builder 中不能与影子缓存共用的字段，复制 builder 时置为 null
+     */
+    public void record(Object cache, Class<?>[] parameterTypes, Object[] args, String... detachedFields) {
+        if (!ISOLATED || cache == null || creating.get() != null) {
+            return;
+        }
+        listenSwitchOff();
+        try {
+            specs.put(cache, new Spec(parameterTypes, args == null ? new Object[0] : args, detachedFields));
+        } catch (Throwable e) {
+            LOGGER.error("record shadow cache spec for {} fail, use wrapped key instead.", cache.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * 记录创建影子缓存的方式，用于不是通过 builder 构造的缓存
+     *
+     * @param cache   缓存
+     * @param factory 影子缓存的创建方式，不能强引用业务缓存
+     */
+    public void record(Object cache, TwinFactory factory) {
+        if (!ISOLATED || cache == null || factory == null || creating.get() != null) {
+            return;
+        }
+        listenSwitchOff();
+        specs.put(cache, factory);
+    }
+
+    /**
+     * 缓存是否按照隔离模式处理，是影子缓存或者可以创建影子缓存时都不再包装 key
+     */
+    public boolean isIsolated(Object cache) {
+        return ISOLATED && cache != null && (twinSet.containsKey(cache) || specs.containsKey(cache));
+    }
+
+    public boolean isTwin(Object cache) {
+        return ISOLATED && cache != null && twinSet.containsKey(cache);
+    }
+
+    /**
+     * 获取业务缓存对应的影子缓存，不存在时创建
+     *
+     * @param cache 业务缓存
+     * @return 没有记录构造参数或者创建失败时返回 null
+     */
+    public Object getTwin(Object cache) {
+        Object twin = twins.get(cache);
+        if (twin != null) {
+            return twin;
+        }
+        TwinFactory factory = specs.get(cache);
+        if (factory == null) {
+            return null;
+        }
+        synchronized (factory) {
+            twin = twins.get(cache);
+            if (twin != null) {
+                return twin;
+            }
+            creating.set(Boolean.TRUE);
+            try {
+                twin = factory.create(cache);
+                if (twin == null) {
+                    LOGGER.error("create shadow cache for {} fail, spec has been collected, use wrapped key instead.", cache.getClass().getName());
+                    specs.remove(cache);
+                    return null;
+                }
+            } catch (Throwable e) {
+                LOGGER.error("create shadow cache for {} fail, use wrapped key instead.", cache.getClass().getName(), e);
+                specs.remove(cache);
+                return null;
+            } finally {
+                creating.remove();
+            }
+            twinSet.put(twin, PRESENT);
+            twins.put(cache, twin);
+            return twin;
+        }
+    }
+
+    /**
+     * 丢弃所有的影子缓存，下次压测流量访问时重新创建
+     */
+    public void clear() {
+        twins.clear();
+        twinSet.clear();
+    }
+
+    private void listenSwitchOff() {
+        if (!listening.compareAndSet(false, true)) {
+            return;
+        }
+        EventRouter.router().addListener(ClusterTestSwitchOffEvent.class, new PradarEventListener() {
+            @Override
+            public EventResult onEvent(IEvent event) {
+                clear();
+                return EventResult.success("shadow-cache-twins");
+            }
+
+            @Override
+            public int order() {
+                return 9;
+            }
+        });
+    }
+
+    /**
+     * 影子缓存的创建方式
+     */
+    public interface TwinFactory {
+        /**
+         * 创建业务缓存对应的影子缓存
+         *
+         * @param cache 业务缓存
+         * @return 创建需要的对象已经被回收时返回 null
+         */
+        Object create(Object cache) throws Throwable;
+    }
+
+    /**
+     * 不可变的值直接保留，其他对象只保留弱引用
+     */
+    private static Object hold(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean || value instanceof Character
+                || value instanceof Class || value instanceof Enum
+                || (value instanceof Number && value.getClass().getClassLoader() == null)) {
+            return value;
+        }
+        return new Weak(value);
+    }
+
+    private static final class Weak extends WeakReference<Object> {
+        Weak(Object referent) {
+            super(referent);
+        }
+    }
+
+    /**
+     * 缓存的构造参数，第一个参数为 builder，复制之后保存，其余参数只保留弱引用
+     */
+    private static class Spec implements TwinFactory {
+        private final Class<?>[] parameterTypes;
+        private final Template builder;
+        private final Object[] args;
+
+        Spec(Class<?>[] parameterTypes, Object[] args, String[] detachedFields) throws Exception {
+            this.parameterTypes = parameterTypes;
+            this.builder = args.length == 0 || args[0] == null ? null : new Template(args[0], detachedFields);
+            this.args = new Object[args.length];
+            for (int i = builder == null ? 0 : 1; i < args.length; i++) {
+                this.args[i] = hold(args[i]);
+            }
+        }
+
+        @Override
+        public Object create(Object cache) throws Throwable {
+            Object[] args = args();
+            if (args == null) {
+                return null;
+            }
+            Constructor<?> constructor = cache.getClass().getDeclaredConstructor(parameterTypes);
+            if (!constructor.isAccessible()) {
+                constructor.setAccessible(true);
+            }
+            return constructor.newInstance(args);
+        }
+
+        /**
+         * @return 弱引用的参数已经被回收时返回 null
+         */
+        private Object[] args() throws Exception {
+            Object[] result = new Object[args.length];
+            for (int i = 0; i < args.length; i++) {
+                Object arg = args[i];
+                if (arg instanceof Weak) {
+                    arg = ((Weak) arg).get();
+                    if (arg == null) {
+                        return null;
+                    }
+                }
+                result[i] = arg;
+            }
+            if (builder != null) {
+                result[0] = builder.newInstance();
+                if (result[0] == null) {
+                    return null;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * builder 的副本，需要时通过无参构造方法重新创建并还原字段
+     */
+    private static class Template {
+        private final Constructor<?> constructor;
+        private final Field[] fields;
+        private final Object[] values;
+
+        Template(Object builder, String[] detachedFields) throws Exception {
+            this.constructor = builder.getClass().getDeclaredConstructor();
+            if (!constructor.isAccessible()) {
+                constructor.setAccessible(true);
+            }
+            List<String> detached = detachedFields == null ? new ArrayList<String>() : Arrays.asList(detachedFields);
+            List<Field> fields = new ArrayList<Field>();
+            List<Object> values = new ArrayList<Object>();
+            for (Class<?> clazz = builder.getClass(); clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+                for (Field field : clazz.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    if (!field.isAccessible()) {
+                        field.setAccessible(true);
+                    }
+                    fields.add(field);
+                    if (detached.contains(field.getName())) {
+                        values.add(null);
+                    } else if (field.getType().isPrimitive()) {
+                        values.add(field.get(builder));
+                    } else {
+                        values.add(hold(field.get(builder)));
+                    }
+                }
+            }
+            this.fields = fields.toArray(new Field[fields.size()]);
+            this.values = values.toArray();
+        }
+
+        /**
+         * @return 弱引用的字段已经被回收时返回 null
+         */
+        Object newInstance() throws Exception {
+            Object builder = constructor.newInstance();
+            for (int i = 0; i < fields.length; i++) {
+                Object value = values[i];
+                if (value instanceof Weak) {
+                    value = ((Weak) value).get();
+                    if (value == null) {
+                        return null;
+                    }
+                }
+                if (Modifier.isFinal(fields[i].getModifiers())) {
+                    continue;
+                }
+                fields[i].set(builder, value);
+            }
+            return builder;
+        }
+    }
+}
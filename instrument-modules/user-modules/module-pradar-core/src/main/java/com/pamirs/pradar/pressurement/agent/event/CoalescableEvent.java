@@ -0,0 +1,36 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.pressurement.agent.event;
+
+/**
+ * 可以合并的事件
+ * <p>
+ * 发布事件时如果队列中最后一个还没有分发的事件是同一个类型，则与它合并成一个事件，
+ * 配置频繁变更时监听器只需要处理一次。只与队尾的事件合并，不会改变与其他事件之间的先后顺序
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:37 下午
+ */
+public interface CoalescableEvent extends IEvent {
+
+    /**
+     * 与之前发布但还没有分发的同类型事件合并
+     *
+     * @param previous 之前发布的事件，与当前事件的类型相同
+     * @return 合并后的事件，后发布的内容优先
+     */
+    IEvent coalesce(IEvent previous);
+}
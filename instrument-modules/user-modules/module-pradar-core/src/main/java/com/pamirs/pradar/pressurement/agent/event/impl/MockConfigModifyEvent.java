@@ -15,15 +15,19 @@
 package com.pamirs.pradar.pressurement.agent.event.impl;
 
 import com.pamirs.pradar.internal.config.MockConfig;
+import com.pamirs.pradar.pressurement.agent.event.CoalescableEvent;
 import com.pamirs.pradar.pressurement.agent.event.IEvent;
 
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * @author xiaobin.zfb|xiaobin@shulie.io
  * @since 2020/10/24 6:39 下午
  */
-public class MockConfigModifyEvent implements IEvent {
+public class MockConfigModifyEvent implements CoalescableEvent {
     private Set<MockConfig> mockConfig;
 
     public MockConfigModifyEvent(Set<MockConfig> mockConfig) {
@@ -34,4 +38,24 @@ public class MockConfigModifyEvent implements IEvent {
     public Set<MockConfig> getTarget() {
         return mockConfig;
     }
+
+    /**
+     * 同一个 key 的配置以后修改的为准
+     */
+    @Override
+    public IEvent coalesce(IEvent previous) {
+        Map<String, MockConfig> merged = new LinkedHashMap<String, MockConfig>();
+        Set<MockConfig> previousConfigs = ((MockConfigModifyEvent) previous).getTarget();
+        if (previousConfigs != null) {
+            for (MockConfig config : previousConfigs) {
+                merged.put(config.getKey(), config);
+            }
+        }
+        if (mockConfig != null) {
+            for (MockConfig config : mockConfig) {
+                merged.put(config.getKey(), config);
+            }
+        }
+        return new MockConfigModifyEvent(new HashSet<MockConfig>(merged.values()));
+    }
 }
@@ -15,8 +15,10 @@
 package com.pamirs.pradar.pressurement.agent.event.impl;
 
 import com.pamirs.pradar.internal.config.ShadowDatabaseConfig;
+import com.pamirs.pradar.pressurement.agent.event.CoalescableEvent;
 import com.pamirs.pradar.pressurement.agent.event.IEvent;
 
+import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -25,7 +27,7 @@ import java.util.Set;
  * @Date: 2020/12/22 10:20
  * @Description:
  */
-public class ShadowDataSourceConfigModifyEvent implements IEvent {
+public class ShadowDataSourceConfigModifyEvent implements CoalescableEvent {
 
     private Set<ShadowDatabaseConfig> closedDatasources;
 
@@ -37,4 +39,20 @@ public class ShadowDataSourceConfigModifyEvent implements IEvent {
     public Set<ShadowDatabaseConfig> getTarget() {
         return this.closedDatasources;
     }
+
+    /**
+     * 两次变更需要关闭的影子数据源都需要关闭，合并后取并集
+     */
+    @Override
+    public IEvent coalesce(IEvent previous) {
+        Set<ShadowDatabaseConfig> merged = new HashSet<ShadowDatabaseConfig>();
+        Set<ShadowDatabaseConfig> previousDatasources = ((ShadowDataSourceConfigModifyEvent) previous).getTarget();
+        if (previousDatasources != null) {
+            merged.addAll(previousDatasources);
+        }
+        if (closedDatasources != null) {
+            merged.addAll(closedDatasources);
+        }
+        return new ShadowDataSourceConfigModifyEvent(merged);
+    }
 }
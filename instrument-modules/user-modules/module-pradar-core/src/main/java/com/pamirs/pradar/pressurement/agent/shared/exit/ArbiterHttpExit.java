@@ -15,15 +15,11 @@
 package com.pamirs.pradar.pressurement.agent.shared.exit;
 
 import java.net.URI;
-import java.net.URISyntaxException;
-import java.util.Iterator;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.pamirs.pradar.PradarSwitcher;
 import com.pamirs.pradar.internal.config.MatchConfig;
 import com.pamirs.pradar.pressurement.agent.shared.custominterfacebase.Exit;
@@ -42,64 +38,58 @@ public class ArbiterHttpExit implements Exit {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ArbiterHttpExit.class);
 
-    private static LoadingCache<String, MatchConfig> patternCache = CacheBuilder.newBuilder()
-            .maximumSize(300).expireAfterAccess(5 * 60, TimeUnit.SECONDS).build(
-                    new CacheLoader<String, MatchConfig>() {
-                        @Override
-                        public MatchConfig load(String name) throws Exception {
-                            Set<MatchConfig> urlWhiteList = GlobalConfig.getInstance().getUrlWhiteList();
-                            if (urlWhiteList != null) {
-                                for (MatchConfig matchConfig : urlWhiteList) {
-                                    MatchConfig matching = matching(name, matchConfig);
-                                    if (null != matching && matching.isSuccess()) {
-                                        return matching;
-                                    }
-                                }
-                            }
-                            return failure();
-                        }
-                    }
-            );
+    /**
+     * 按白名单编译的匹配器，白名单变更时重新编译
+     */
+    private static volatile HttpWhiteListMatcher httpMatcher;
 
-    private static LoadingCache<String, MatchConfig> httpMatchResult = CacheBuilder.newBuilder()
-            .maximumSize(300).expireAfterAccess(5 * 60, TimeUnit.SECONDS).build(
-                    new CacheLoader<String, MatchConfig>() {
-                        @Override
-                        public MatchConfig load(String url) throws Exception {
-                            return shallWePassHttpStringCache(url);
-                        }
-                    }
-            );
+    private static volatile RpcWhiteListMatcher rpcMatcher;
 
-    private static LoadingCache<String, MatchConfig> rpcMatchResult = CacheBuilder.newBuilder()
-            .maximumSize(100).expireAfterAccess(5 * 60, TimeUnit.SECONDS).build(
-                    new CacheLoader<String, MatchConfig>() {
-                        @Override
-                        public MatchConfig load(String name) throws Exception {
-                            return getRpcPassedCache(name);
-                        }
-                    }
-            );
+    /**
+     * 最近输出过告警的 url，避免同一个 url 重复告警
+     */
+    private static final Cache<String, Boolean> deniedUrls = CacheBuilder.newBuilder()
+            .maximumSize(300).expireAfterWrite(5 * 60, TimeUnit.SECONDS).build();
 
     public static void release() {
-        patternCache.invalidateAll();
-        httpMatchResult.invalidateAll();
-        rpcMatchResult.invalidateAll();
+        httpMatcher = null;
+        rpcMatcher = null;
+        deniedUrls.invalidateAll();
     }
 
     public static void clearRpcMatch() {
-        rpcMatchResult.invalidateAll();
+        rpcMatcher = null;
     }
 
     public static void clearHttpMatch() {
-        httpMatchResult.invalidateAll();
-        patternCache.invalidateAll();
+        httpMatcher = null;
+        deniedUrls.invalidateAll();
     }
 
     public static MatchConfig failure() {
         return MatchConfig.failure(new WhiteListStrategy());
     }
 
+    private static HttpWhiteListMatcher getHttpMatcher() {
+        final Set<MatchConfig> urlWhiteList = GlobalConfig.getInstance().getUrlWhiteList();
+        HttpWhiteListMatcher matcher = httpMatcher;
+        if (matcher == null || !matcher.isCompiledFrom(urlWhiteList)) {
+            matcher = HttpWhiteListMatcher.compile(urlWhiteList, failure());
+            httpMatcher = matcher;
+        }
+        return matcher;
+    }
+
+    private static RpcWhiteListMatcher getRpcMatcher() {
+        final Set<MatchConfig> rpcNameWhiteList = GlobalConfig.getInstance().getRpcNameWhiteList();
+        RpcWhiteListMatcher matcher = rpcMatcher;
+        if (matcher == null || !matcher.isCompiledFrom(rpcNameWhiteList)) {
+            matcher = RpcWhiteListMatcher.compile(rpcNameWhiteList, failure());
+            rpcMatcher = matcher;
+        }
+        return matcher;
+    }
+
     /**
      * 判断是否可以通过此 rpc 调用
      * 只支持单独类名
@@ -110,7 +100,10 @@ public class ArbiterHttpExit implements Exit {
         if (!PradarSwitcher.whiteListSwitchOn()) {
             return MatchConfig.success(new WhiteListStrategy());
         }
-        return rpcMatchResult.getUnchecked(className);
+        if (StringUtils.isBlank(className)) {
+            return failure();
+        }
+        return getRpcMatcher().match(className);
     }
 
     /**
@@ -121,160 +114,80 @@ public class ArbiterHttpExit implements Exit {
      * @param methodName 方法名
      */
     public static MatchConfig shallWePassRpc(String className, String methodName) {
+        if (StringUtils.isBlank(methodName)) {
+            return shallWePassRpc(className);
+        }
         if (!PradarSwitcher.whiteListSwitchOn()) {
             return MatchConfig.success(new WhiteListStrategy());
         }
-        if (StringUtils.isBlank(methodName)) {
-            return rpcMatchResult.getUnchecked(className);
-        }
-        return rpcMatchResult.getUnchecked(className + '#' + methodName);
+        return getRpcMatcher().match(className, methodName);
     }
 
-    private static MatchConfig getRpcPassedCache(String name) {
+    /**
+     * 判断压测数据是否能通过这道门
+     */
+    public static MatchConfig shallWePassHttpString(String url) {
         if (!PradarSwitcher.whiteListSwitchOn()) {
             return MatchConfig.success(new WhiteListStrategy());
         }
-        if (StringUtils.isBlank(name)) {
+        //如果列表为空，同样是无法调用的
+        if (url == null) {
             return failure();
         }
-
-        MatchConfig config = new MatchConfig();
-        config.setUrl(name);
-
-        Set<MatchConfig> rpcNameList = GlobalConfig.getInstance().getRpcNameWhiteList();
-        if (rpcNameList == null) {
-            return failure();
+        if (url.indexOf("&#47;") != -1) {
+            url = url.replace("&#47;", "/");
         }
-        Iterator<MatchConfig> iterator = rpcNameList.iterator();
-        while (iterator.hasNext()) {
-            MatchConfig next = iterator.next();
-            if (next.equals(config)) {
-                return next;
-            }
+        final HttpWhiteListMatcher matcher = getHttpMatcher();
+        String path = url;
+        int start = HttpWhiteListMatcher.pathStart(url);
+        int end = HttpWhiteListMatcher.pathEnd(url, start);
+        final int percent = url.indexOf('%', start);
+        if (percent != -1 && percent < end) {
+            // 路径中有编码的字符时按照解码后的路径匹配
+            path = decodePath(url, start, end);
+            start = 0;
+            end = path.length();
         }
-
-        if (StringUtils.indexOf(name, '#') != -1) {
-            return failure();
+        final MatchConfig config;
+        if (isRootPath(path, start, end)) {
+            /**
+             * 如果 url 为空或者是/没有其他值，则使用原 url 匹配一次
+             */
+            config = matcher.match(url, 0, url.length());
         } else {
-            for (MatchConfig matchConfig : rpcNameList) {
-                String value = matchConfig.getUrl();
-                final int index = StringUtils.indexOf(value, '#');
-                if (index == -1) {
-                    if (StringUtils.equals(value, name)) {
-                        return matchConfig;
-                    }
-                } else {
-                    // 如果白名单包含 # ，则取出类名进行比较
-                    String className = StringUtils.substring(value, index);
-                    if (StringUtils.equals(value, className)) {
-                        return matchConfig;
-                    }
-                }
+            config = matcher.match(path, start, end);
+        }
+        if (!config.isSuccess()) {
+            final String deniedPath = path.substring(start, end);
+            if (deniedUrls.asMap().putIfAbsent(deniedPath, Boolean.TRUE) == null) {
+                LOGGER.warn("WhiteListError: url is not allowed:" + deniedPath);
             }
         }
-        return failure();
+        return config;
     }
 
-    /**
-     * 判断压测数据是否能通过这道门
-     */
-    public static MatchConfig shallWePassHttpString(String url) {
+    private static String decodePath(String url, int start, int end) {
         try {
-            if (!PradarSwitcher.whiteListSwitchOn()) {
-                return MatchConfig.success(new WhiteListStrategy());
+            final String path = URI.create(url).getPath();
+            if (path != null) {
+                return path;
             }
-            return httpMatchResult.get(url);
-        } catch (ExecutionException e) {
-            LOGGER.warn("WhiteListError: shallWePassHttpString cache exception!", e);
-            return failure();
+        } catch (Throwable e) {
+            //如果不是一个正常的uri则直接使用未解码的路径
         }
+        return url.substring(start, end);
     }
 
-    public static void main(String[] args) {
-        MatchConfig matchConfig = shallWePassHttpStringCache("http://pt-agent-test-oss3-1627285144888.oss-cn-hangzhou.aliyuncs.com/");
-    }
-
-    private static MatchConfig shallWePassHttpStringCache(String url) {
-        if (url != null) {
-            final int index = url.indexOf("&#47;");
-            if (index != -1) {
-                url = url.replace("&#47;", "/");
-            }
+    private static boolean isRootPath(String path, int start, int end) {
+        if (end - start == 1 && path.charAt(start) == '/') {
+            return true;
         }
-        MatchConfig config = null;
-        String orgUrl = url;
-        //如果列表为空，同样是无法调用的
-        if (url != null) {
-            try {
-                URI uri = URI.create(url);
-                if (uri.getHost().startsWith("pt")) {
-                    try {
-                        String substring = uri.getHost().substring(2);
-                        if (substring.startsWith("-")) {
-                            substring = substring.substring(1);
-                        }
-                        url = new URI(uri.getScheme(),
-                                uri.getUserInfo(),
-                                substring,
-                                uri.getPort(),
-                                uri.getPath(),
-                                uri.getQuery(),
-                                uri.getFragment())
-                                .getPath();
-                    } catch (URISyntaxException e) {
-                    }
-                } else {
-                    url = uri.getPath();
-                }
-            } catch (Throwable e) {
-                if (url.startsWith("http://")) {
-                    url = url.substring(7);
-                    int index = url.indexOf("/");
-                    if (index != -1) {
-                        url = url.substring(index + 1);
-                    } else {
-                        url = "/";
-                    }
-                } else if (url.startsWith("https://")) {
-                    url = url.substring(8);
-                    int index = url.indexOf("/");
-                    if (index != -1) {
-                        url = url.substring(index + 1);
-                    } else {
-                        url = "/";
-                    }
-                }
-                final int indexOfQuestion = url.indexOf('?');
-                if (indexOfQuestion != -1) {
-                    url = url.substring(0, indexOfQuestion);
-                }
-                final int indexOfx = url.indexOf('#');
-                if (indexOfx != -1) {
-                    url = url.substring(0, indexOfx);
-                }
-                //如果不是一个正常的uri则直接忽略这一步
-            }
-
-            if (StringUtils.isBlank(url) || "/".equals(url)) {
-                /**
-                 * 如果 url 为空或者是/没有其他值，则使用原 url 匹配一次
-                 */
-                config = patternCache.getUnchecked(orgUrl);
-                if (null != config) {
-                    return config;
-                }
-            }
-            config = patternCache.getUnchecked(url);
-            if (null != config) {
-                return config;
-            }
-            if (null != PradarSwitcher.httpPassPrefix.get()
-                    && url.startsWith(PradarSwitcher.httpPassPrefix.get())) {
-                return config;
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(path.charAt(i))) {
+                return false;
             }
-            LOGGER.warn("WhiteListError: url is not allowed:" + url);
         }
-        return failure();
+        return true;
     }
 
     /**
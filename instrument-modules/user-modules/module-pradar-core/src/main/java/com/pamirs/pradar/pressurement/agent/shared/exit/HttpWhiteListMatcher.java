@@ -0,0 +1,396 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.pressurement.agent.shared.exit;
+
+import com.pamirs.pradar.internal.config.MatchConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 预编译的 http 白名单匹配器
+ * <p>
+ * 白名单按 / 切分成路径段组成前缀树，不含通配符的段逐段精确匹配，整段为 {var} 的段匹配任意一个非空的段；
+ * 从第一个含通配符(* ? \)的段开始，剩余部分按照 {@link ArbiterHttpExit#matching(String, MatchConfig)}
+ * 相同的通配符规则匹配，* 可以跨越 /。多个白名单同时匹配时返回编译时遍历顺序最靠前的一个，
+ * 与逐个遍历白名单的结果一致
+ * </p>
+ * <p>
+ * 编译后不可变，白名单变更时重新编译；匹配时直接在原字符串的区间上进行，不会产生新的对象
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 3:48 下午
+ */
+final class HttpWhiteListMatcher {
+
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private static final int MATCHED = 1;
+
+    /**
+     * 目标字符串已经结束，通配符表达式还有剩余
+     */
+    private static final int EXHAUSTED = 0;
+
+    private static final int MISMATCHED = -1;
+
+    /**
+     * 编译来源，用于判断白名单是否变更
+     */
+    private final Set<MatchConfig> source;
+
+    /**
+     * 白名单，下标即编译时的遍历顺序
+     */
+    private final MatchConfig[] configs;
+
+    private final Node root = new Node();
+
+    private final MatchConfig failure;
+
+    private HttpWhiteListMatcher(Set<MatchConfig> source, MatchConfig failure) {
+        this.source = source;
+        this.failure = failure;
+        List<MatchConfig> list = new ArrayList<MatchConfig>();
+        if (source != null) {
+            for (MatchConfig config : source) {
+                if (config != null && config.getUrl() != null) {
+                    add(config.getUrl(), list.size());
+                    list.add(config);
+                }
+            }
+        }
+        this.configs = list.toArray(new MatchConfig[list.size()]);
+    }
+
+    /**
+     * 编译白名单
+     *
+     * @param whiteList 白名单
+     * @param failure   未匹配时返回的结果
+     * @return 匹配器
+     */
+    static HttpWhiteListMatcher compile(Set<MatchConfig> whiteList, MatchConfig failure) {
+        return new HttpWhiteListMatcher(whiteList, failure);
+    }
+
+    /**
+     * 是否由此白名单编译而来
+     */
+    boolean isCompiledFrom(Set<MatchConfig> whiteList) {
+        return source == whiteList;
+    }
+
+    private void add(String url, int ordinal) {
+        Node node = root;
+        int segmentStart = 0;
+        while (true) {
+            final int slash = url.indexOf('/', segmentStart);
+            final int segmentEnd = slash == -1 ? url.length() : slash;
+            if (hasWildcard(url, segmentStart, segmentEnd)) {
+                node.tails.add(new Tail(ordinal, url, segmentStart));
+                return;
+            }
+            if (isVariable(url, segmentStart, segmentEnd)) {
+                if (node.variableChild == null) {
+                    node.variableChild = new Node();
+                }
+                node = node.variableChild;
+            } else {
+                node = node.getOrCreateChild(url.substring(segmentStart, segmentEnd));
+            }
+            if (slash == -1) {
+                node.terminal = Math.min(node.terminal, ordinal);
+                return;
+            }
+            segmentStart = slash + 1;
+        }
+    }
+
+    /**
+     * 匹配字符串的 [start, end) 区间
+     *
+     * @param s     字符串
+     * @param start 开始位置
+     * @param end   结束位置
+     * @return 匹配到的白名单，未匹配时返回失败结果
+     */
+    MatchConfig match(String s, int start, int end) {
+        final int ordinal = match(root, s, start, end, NONE);
+        return ordinal == NONE ? failure : configs[ordinal];
+    }
+
+    /**
+     * @param pos 当前段的开始位置，大于 end 时表示所有段都已经匹配完
+     */
+    private static int match(Node node, String s, int pos, int end, int best) {
+        if (pos > end) {
+            return Math.min(best, node.terminal);
+        }
+        final List<Tail> tails = node.tails;
+        for (int i = 0, size = tails.size(); i < size; i++) {
+            final Tail tail = tails.get(i);
+            if (tail.ordinal < best && tail.matches(s, pos, end)) {
+                best = tail.ordinal;
+            }
+        }
+        int segmentEnd = s.indexOf('/', pos);
+        if (segmentEnd == -1 || segmentEnd > end) {
+            segmentEnd = end;
+        }
+        final Node child = node.getChild(s, pos, segmentEnd);
+        if (child != null) {
+            best = match(child, s, segmentEnd + 1, end, best);
+        }
+        if (node.variableChild != null && segmentEnd > pos) {
+            best = match(node.variableChild, s, segmentEnd + 1, end, best);
+        }
+        return best;
+    }
+
+    /**
+     * 不经过 {@link java.net.URI} 解析，返回 url 中路径的开始位置。
+     * 带 scheme 和 authority 的 url(如 http://host:port/path) 返回 authority 之后的位置，
+     * 其他的 url(相对路径或者 mailto:xxx 之类) 整个作为路径，返回 0
+     *
+     * @param url url
+     * @return 路径的开始位置
+     */
+    static int pathStart(String url) {
+        final int len = url.length();
+        int colon = -1;
+        for (int i = 0; i < len; i++) {
+            final char c = url.charAt(i);
+            if (c == ':') {
+                colon = i;
+                break;
+            }
+            final boolean schemeChar = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                    || (i > 0 && ((c >= '0' && c <= '9') || c == '+' || c == '-' || c == '.'));
+            if (!schemeChar) {
+                return 0;
+            }
+        }
+        if (colon <= 0 || !url.startsWith("//", colon + 1)) {
+            return 0;
+        }
+        for (int i = colon + 3; i < len; i++) {
+            final char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return len;
+    }
+
+    /**
+     * 返回 url 中路径的结束位置，即 ? 或者 # 的位置
+     *
+     * @param url   url
+     * @param start 路径的开始位置
+     * @return 路径的结束位置
+     */
+    static int pathEnd(String url, int start) {
+        for (int i = start, len = url.length(); i < len; i++) {
+            final char c = url.charAt(i);
+            if (c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return url.length();
+    }
+
+    private static boolean hasWildcard(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c == '*' || c == '?' || c == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isVariable(String s, int start, int end) {
+        return end - start > 2 && s.charAt(start) == '{' && s.charAt(end - 1) == '}';
+    }
+
+    /**
+     * 通配符匹配，规则与 {@link ArbiterHttpExit#matching(String, MatchConfig)} 一致：
+     * * 匹配任意字符串，? 匹配任意一个字符，\ 转义下一个字符
+     */
+    static boolean wildcardMatch(String pattern, int patternStart, String s, int start, int end) {
+        return wildcardMatch0(pattern, patternStart, s, start, end) == MATCHED;
+    }
+
+    private static int wildcardMatch0(String pattern, int patternStart, String s, int start, int end) {
+        final int patternLen = pattern.length();
+        int p = patternStart;
+        int i = start;
+        boolean escaped = false;
+        while (true) {
+            if (i >= end) {
+                while (p < patternLen && pattern.charAt(p) == '*') {
+                    p++;
+                }
+                return p >= patternLen ? MATCHED : EXHAUSTED;
+            }
+            if (p >= patternLen) {
+                return MISMATCHED;
+            }
+            final char c = pattern.charAt(p);
+            if (!escaped) {
+                if (c == '\\') {
+                    p++;
+                    escaped = true;
+                    continue;
+                }
+                if (c == '?') {
+                    p++;
+                    i++;
+                    continue;
+                }
+                if (c == '*') {
+                    while (p + 1 < patternLen && pattern.charAt(p + 1) == '*') {
+                        p++;
+                    }
+                    p++;
+                    // 与 ArbiterHttpExit#matching 一致，* 之后只要剩余部分不是在目标字符串结束时才中断即视为匹配
+                    for (int k = end; k >= i; k--) {
+                        if (wildcardMatch0(pattern, p, s, k, end) != EXHAUSTED) {
+                            return MATCHED;
+                        }
+                    }
+                    return MISMATCHED;
+                }
+            } else {
+                escaped = false;
+            }
+            if (c != s.charAt(i)) {
+                return MISMATCHED;
+            }
+            p++;
+            i++;
+        }
+    }
+
+    private static int hash(String s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 从第一个含通配符的段开始的剩余部分
+     */
+    private static final class Tail {
+        private final int ordinal;
+        private final String pattern;
+        private final int patternStart;
+        /**
+         * 不含 * 的白名单同时支持全文精确匹配，与 {@link ArbiterHttpExit#matching(String, MatchConfig)} 一致
+         */
+        private final boolean exact;
+
+        Tail(int ordinal, String pattern, int patternStart) {
+            this.ordinal = ordinal;
+            this.pattern = pattern;
+            this.patternStart = patternStart;
+            this.exact = pattern.indexOf('*') == -1;
+        }
+
+        boolean matches(String s, int start, int end) {
+            if (exact && pattern.length() - patternStart == end - start
+                    && pattern.regionMatches(patternStart, s, start, end - start)) {
+                return true;
+            }
+            return wildcardMatch(pattern, patternStart, s, start, end);
+        }
+    }
+
+    /**
+     * 前缀树节点，子节点使用开放寻址的哈希表，按照字符串区间查找
+     */
+    private static final class Node {
+        private String[] keys;
+        private Node[] children;
+        private int size;
+        private Node variableChild;
+        private final List<Tail> tails = new ArrayList<Tail>(0);
+        /**
+         * 在此结束的白名单中最靠前的下标
+         */
+        private int terminal = NONE;
+
+        Node getChild(String s, int start, int end) {
+            if (size == 0) {
+                return null;
+            }
+            final int length = end - start;
+            final int mask = keys.length - 1;
+            for (int i = hash(s, start, end) & mask; ; i = (i + 1) & mask) {
+                final String key = keys[i];
+                if (key == null) {
+                    return null;
+                }
+                if (key.length() == length && key.regionMatches(0, s, start, length)) {
+                    return children[i];
+                }
+            }
+        }
+
+        Node getOrCreateChild(String key) {
+            Node child = getChild(key, 0, key.length());
+            if (child != null) {
+                return child;
+            }
+            if (keys == null || (size + 1) * 2 > keys.length) {
+                resize();
+            }
+            child = new Node();
+            put(keys, children, key, child);
+            size++;
+            return child;
+        }
+
+        private void resize() {
+            final int capacity = keys == null ? 4 : keys.length << 1;
+            final String[] newKeys = new String[capacity];
+            final Node[] newChildren = new Node[capacity];
+            if (keys != null) {
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != null) {
+                        put(newKeys, newChildren, keys[i], children[i]);
+                    }
+                }
+            }
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        private static void put(String[] keys, Node[] children, String key, Node child) {
+            final int mask = keys.length - 1;
+            int i = hash(key, 0, key.length()) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            children[i] = child;
+        }
+    }
+}
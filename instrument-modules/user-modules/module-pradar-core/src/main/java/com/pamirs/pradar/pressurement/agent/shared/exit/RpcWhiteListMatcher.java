@@ -0,0 +1,124 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.pressurement.agent.shared.exit;
+
+import com.pamirs.pradar.internal.config.MatchConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 预编译的 rpc 白名单匹配器
+ * <p>
+ * 白名单为类名或者 类名#方法名，按全名建立索引，同时按 类名 -> 方法名 建立二级索引，
+ * 按类名和方法名查找时不需要拼接字符串。编译后不可变，白名单变更时重新编译
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 3:48 下午
+ */
+final class RpcWhiteListMatcher {
+
+    /**
+     * 编译来源，用于判断白名单是否变更
+     */
+    private final Set<MatchConfig> source;
+
+    private final Map<String, MatchConfig> names = new HashMap<String, MatchConfig>();
+
+    private final Map<String, Map<String, MatchConfig>> methods = new HashMap<String, Map<String, MatchConfig>>();
+
+    private final MatchConfig failure;
+
+    private RpcWhiteListMatcher(Set<MatchConfig> source, MatchConfig failure) {
+        this.source = source;
+        this.failure = failure;
+        if (source == null) {
+            return;
+        }
+        for (MatchConfig config : source) {
+            if (config == null || config.getUrl() == null) {
+                continue;
+            }
+            final String name = config.getUrl();
+            if (!names.containsKey(name)) {
+                names.put(name, config);
+            }
+            final int index = name.indexOf('#');
+            if (index == -1) {
+                continue;
+            }
+            final String className = name.substring(0, index);
+            Map<String, MatchConfig> classMethods = methods.get(className);
+            if (classMethods == null) {
+                classMethods = new HashMap<String, MatchConfig>();
+                methods.put(className, classMethods);
+            }
+            final String methodName = name.substring(index + 1);
+            if (!classMethods.containsKey(methodName)) {
+                classMethods.put(methodName, config);
+            }
+        }
+    }
+
+    /**
+     * 编译白名单
+     *
+     * @param whiteList 白名单
+     * @param failure   未匹配时返回的结果
+     * @return 匹配器
+     */
+    static RpcWhiteListMatcher compile(Set<MatchConfig> whiteList, MatchConfig failure) {
+        return new RpcWhiteListMatcher(whiteList, failure);
+    }
+
+    /**
+     * 是否由此白名单编译而来
+     */
+    boolean isCompiledFrom(Set<MatchConfig> whiteList) {
+        return source == whiteList;
+    }
+
+    /**
+     * 按全名匹配
+     *
+     * @param name 类名或者 类名#方法名
+     * @return 匹配到的白名单，未匹配时返回失败结果
+     */
+    MatchConfig match(String name) {
+        final MatchConfig config = name == null ? null : names.get(name);
+        return config == null ? failure : config;
+    }
+
+    /**
+     * 按类名和方法名匹配，与按 类名#方法名 匹配的结果一致
+     *
+     * @param className  类名
+     * @param methodName 方法名
+     * @return 匹配到的白名单，未匹配时返回失败结果
+     */
+    MatchConfig match(String className, String methodName) {
+        if (className == null) {
+            return failure;
+        }
+        if (className.indexOf('#') != -1) {
+            return match(className + '#' + methodName);
+        }
+        final Map<String, MatchConfig> classMethods = methods.get(className);
+        final MatchConfig config = classMethods == null ? null : classMethods.get(methodName);
+        return config == null ? failure : config;
+    }
+}
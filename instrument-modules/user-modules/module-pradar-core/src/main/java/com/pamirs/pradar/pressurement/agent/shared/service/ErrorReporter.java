@@ -14,10 +14,13 @@
  */
 package com.pamirs.pradar.pressurement.agent.shared.service;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.pamirs.pradar.ConfigNames;
 import com.pamirs.pradar.ErrorTypeEnum;
@@ -31,6 +34,11 @@ import org.slf4j.LoggerFactory;
 
 /**
  * 用于错误信息汇报
+ * <p>
+ * 上报时只按照错误的特征(类型、编码、简要信息以及去掉数字之后的细节)累加统计，
+ * 同一类错误无论发生多少次都只占用一条统计；生成上报的内容推迟到读取 {@link #getErrors()} 时，
+ * 由上传的线程完成，压测流量反复触发同一个错误时不会在业务线程中反复格式化时间和拼接内容
+ * </p>
  *
  * @author xiaobin.zfb | xiaobin@shulie.io
  * @since 2020/7/9 1:30 下午
@@ -44,6 +52,34 @@ public class ErrorReporter {
      */
     private Map<String, Object> pradarSwitchAndAccessErrorMap = new ConcurrentHashMap<String, Object>();
 
+    /**
+     * 最多统计的错误种类，超过之后新的错误只计数
+     */
+    private static final int MAX_STATISTICS = 512;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * 错误特征 -> 错误统计
+     */
+    private final ConcurrentHashMap<Long, ErrorStatistic> statistics = new ConcurrentHashMap<Long, ErrorStatistic>();
+
+    /**
+     * 超出统计种类上限而没有记录的错误次数
+     */
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    /**
+     * 上次生成上报内容时的超出次数，只在上报的线程中访问
+     */
+    private long reportedOverflowCount;
+
+    /**
+     * 上次上传成功的时间，只在上报的线程中访问
+     */
+    private long lastUploadTime;
+
     private static ErrorReporter INSTANCE;
 
     public static ErrorReporter getInstance() {
@@ -67,13 +103,33 @@ public class ErrorReporter {
     }
 
     public Map<String, Object> getErrors() {
+        flush();
         return Collections.unmodifiableMap(this.pradarSwitchAndAccessErrorMap);
     }
 
+    /**
+     * 获取所有错误的统计，发生的频率在上传成功时计算
+     */
+    public List<ErrorStatistic> getStatistics() {
+        return new ArrayList<ErrorStatistic>(statistics.values());
+    }
+
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
     public void clear() {
         this.pradarSwitchAndAccessErrorMap.clear();
+        this.statistics.clear();
+        this.overflowCount.set(0);
+        this.reportedOverflowCount = 0;
+        this.lastUploadTime = 0;
     }
 
+    /**
+     * 上传成功之后清除已经上传的内容，同时重新计算每类错误发生的频率，
+     * 上次上传之后没有再发生过的错误移除统计，不再占用统计的种类
+     */
     public void clear(Map<String, Object> clear) {
         if (null == clear) {
             return;
@@ -81,12 +137,115 @@ public class ErrorReporter {
         for (String s : clear.keySet()) {
             this.pradarSwitchAndAccessErrorMap.remove(s);
         }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, ErrorStatistic> entry : statistics.entrySet()) {
+            ErrorStatistic statistic = entry.getValue();
+            if (statistic.getLastTime() < lastUploadTime && !statistic.isDirty()) {
+                statistics.remove(entry.getKey(), statistic);
+            } else {
+                statistic.sample(now);
+            }
+        }
+        lastUploadTime = now;
     }
 
     public static Error buildError() {
         return new Error();
     }
 
+    private void record(Error error, long now) {
+        long fingerprint = fingerprint(error);
+        Long key = fingerprint;
+        ErrorStatistic statistic = statistics.get(key);
+        if (statistic == null) {
+            if (statistics.size() >= MAX_STATISTICS) {
+                overflowCount.incrementAndGet();
+                return;
+            }
+            statistic = new ErrorStatistic(fingerprint, error.errorType, error.errorCode, error.message, now);
+            ErrorStatistic old = statistics.putIfAbsent(key, statistic);
+            if (old != null) {
+                statistic = old;
+            }
+        }
+        statistic.record(error.detail, now);
+    }
+
+    /**
+     * 将上次读取之后又发生过的错误生成上报内容
+     */
+    private void flush() {
+        for (ErrorStatistic statistic : statistics.values()) {
+            if (!statistic.markReported()) {
+                continue;
+            }
+            long fingerprint = statistic.getFingerprint();
+            String occurTime = FormatUtils.formatTimeRange(new Date(statistic.getLastTime()));
+            String type = statistic.getErrorType() == null ? "" : statistic.getErrorType().getErrorCnDesc();
+            this.pradarSwitchAndAccessErrorMap.put(type + ":" + (int) (fingerprint ^ (fingerprint >>> 32)),
+                toJson(statistic.getErrorCode(), statistic.getMessage(), statistic.getDetail(), occurTime));
+        }
+        /**
+         * 超出统计种类上限的错误没有单独的统计，只上报累计的次数
+         */
+        long overflow = overflowCount.get();
+        if (overflow != reportedOverflowCount) {
+            reportedOverflowCount = overflow;
+            this.pradarSwitchAndAccessErrorMap.put(ErrorTypeEnum.AgentError.getErrorCnDesc() + ":overflow",
+                toJson("agent-0011", "错误种类超过统计上限" + MAX_STATISTICS + "，超出的错误没有单独统计",
+                    "未统计的错误次数: " + overflow, FormatUtils.formatTimeRange(new Date())));
+        }
+    }
+
+    /**
+     * 错误的特征值，细节中连续的数字视为同一个字符，避免 id、端口、耗时等不同导致同一类错误被当成不同的错误
+     */
+    private static long fingerprint(Error error) {
+        long hash = FNV_OFFSET;
+        hash = (hash ^ (error.errorType == null ? -1 : error.errorType.ordinal())) * FNV_PRIME;
+        hash = hash(hash, error.errorCode);
+        hash = hash(hash, error.message);
+        String detail = error.detail;
+        if (detail != null) {
+            boolean digit = false;
+            for (int i = 0, len = detail.length(); i < len; i++) {
+                char c = detail.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    if (digit) {
+                        continue;
+                    }
+                    digit = true;
+                    c = '#';
+                } else {
+                    digit = false;
+                }
+                hash = (hash ^ c) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, String value) {
+        if (value != null) {
+            for (int i = 0, len = value.length(); i < len; i++) {
+                hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+            }
+        }
+        /**
+         * 分隔相邻的字段
+         */
+        return (hash ^ 0xff) * FNV_PRIME;
+    }
+
+    private static String toJson(String errorCode, String message, String detail, String occurTime) {
+        return "{"
+            + "\"errorCode\":" + "\"" + errorCode + "\","
+            + "\"message\":" + "\"" + message + "\","
+            + "\"detail\":" + "\"" + detail + "\","
+            + "\"occurTime\":" + "\"" + occurTime + "\""
+            + "}";
+    }
+
     public static class Error {
 
         /**
@@ -114,6 +273,11 @@ public class ErrorReporter {
          */
         private String occurTime;
 
+        /**
+         * 发生时间，需要时再格式化
+         */
+        private long occurTimeMillis;
+
         /**
          * 是否关闭压测全局开关
          */
@@ -169,25 +333,22 @@ public class ErrorReporter {
         }
 
         public String getOccurTime() {
+            if (occurTime == null && occurTimeMillis > 0) {
+                occurTime = FormatUtils.formatTimeRange(new Date(occurTimeMillis));
+            }
             return occurTime;
         }
 
         @Override
         public String toString() {
-            return "{"
-                + "\"errorCode\":" + "\"" + errorCode + "\","
-                + "\"message\":" + "\"" + message + "\","
-                + "\"detail\":" + "\"" + detail + "\","
-                + "\"occurTime\":" + "\"" + occurTime + "\""
-                + "}";
+            return toJson(errorCode, message, detail, getOccurTime());
         }
 
         public void report() {
             PradarSwitcher.setErrorCode(this.errorCode);
             PradarSwitcher.setErrorMsg(message);
-            this.occurTime = FormatUtils.formatTimeRange(new Date());
-            ErrorReporter.getInstance()
-                .addError(this.errorType.getErrorCnDesc() + ":" + this.toString().hashCode(), this.toString());
+            this.occurTimeMillis = System.currentTimeMillis();
+            ErrorReporter.getInstance().record(this, occurTimeMillis);
             if (this.isClosePradar) {
                 LOGGER.error("close cluster switch!error msg:{}", this.toString());
                 // 需要关闭全局压测开关
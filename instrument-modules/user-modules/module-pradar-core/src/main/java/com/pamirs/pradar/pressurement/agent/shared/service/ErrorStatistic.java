@@ -0,0 +1,194 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.pressurement.agent.shared.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.pamirs.pradar.ErrorTypeEnum;
+
+/**
+ * 同一类错误的统计
+ * <p>
+ * 错误类型、错误编码、简要信息以及去掉数字之后的错误细节相同的错误视为同一类错误，
+ * 只记录次数、首次和最近一次发生的时间以及有限的几个错误样例；次数按线程分段累加，
+ * 高频上报时不会都竞争同一个计数器
+ * </p>
+ * <p>
+ * 错误样例只在细节与上一次不同时加锁记录，已经记录过的细节不重复记录，达到上限之后不再记录，
+ * 之后的上报都不需要加锁
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:39 下午
+ */
+public final class ErrorStatistic {
+
+    /**
+     * 最多保留的错误样例数
+     */
+    private final static int MAX_EXEMPLARS = 4;
+
+    /**
+     * 每个分段占用一个缓存行，避免相邻分段的伪共享
+     */
+    private final static int STRIPE_LENGTH = 8;
+
+    private final static int STRIPES = stripes();
+
+    private final long fingerprint;
+    private final ErrorTypeEnum errorType;
+    private final String errorCode;
+    private final String message;
+    private final long firstTime;
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * STRIPE_LENGTH);
+    private final List<String> exemplars = new ArrayList<String>(MAX_EXEMPLARS);
+    private volatile boolean exemplarsFull;
+    private volatile long lastTime;
+    private volatile String lastDetail;
+    /**
+     * 上次生成上报内容之后是否又发生过
+     */
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    private long lastSampleCount;
+    private long lastSampleTime;
+    private volatile double rate;
+
+    ErrorStatistic(long fingerprint, ErrorTypeEnum errorType, String errorCode, String message, long now) {
+        this.fingerprint = fingerprint;
+        this.errorType = errorType;
+        this.errorCode = errorCode;
+        this.message = message;
+        this.firstTime = now;
+        this.lastTime = now;
+        this.lastSampleTime = now;
+    }
+
+    private static int stripes() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = 1;
+        while (stripes < processors && stripes < 8) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    void record(String detail, long now) {
+        counts.incrementAndGet(((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_LENGTH);
+        lastTime = now;
+        String previous = lastDetail;
+        lastDetail = detail;
+        if (!exemplarsFull && !(detail == null ? previous == null : detail.equals(previous))) {
+            addExemplar(detail);
+        }
+        if (!dirty.get()) {
+            dirty.set(true);
+        }
+    }
+
+    private synchronized void addExemplar(String detail) {
+        if (exemplarsFull) {
+            return;
+        }
+        if (exemplars.contains(detail)) {
+            return;
+        }
+        exemplars.add(detail);
+        exemplarsFull = exemplars.size() >= MAX_EXEMPLARS;
+    }
+
+    /**
+     * 是否有新发生的错误需要上报，调用之后清除标记
+     */
+    boolean markReported() {
+        return dirty.get() && dirty.compareAndSet(true, false);
+    }
+
+    /**
+     * 是否有还没有生成上报内容的错误
+     */
+    boolean isDirty() {
+        return dirty.get();
+    }
+
+    /**
+     * 重新计算发生的频率，只在上传成功之后调用
+     */
+    synchronized void sample(long now) {
+        long count = getCount();
+        if (now > lastSampleTime) {
+            rate = (count - lastSampleCount) * 1000.0 / (now - lastSampleTime);
+            lastSampleCount = count;
+            lastSampleTime = now;
+        }
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public ErrorTypeEnum getErrorType() {
+        return errorType;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * 最近一次发生时的错误细节
+     */
+    public String getDetail() {
+        return lastDetail;
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            count += counts.get(i * STRIPE_LENGTH);
+        }
+        return count;
+    }
+
+    /**
+     * 最近两次上传之间每秒发生的次数
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public long getFirstTime() {
+        return firstTime;
+    }
+
+    public long getLastTime() {
+        return lastTime;
+    }
+
+    /**
+     * 最先发生的几个不同的错误细节
+     */
+    public synchronized List<String> getExemplars() {
+        return Collections.unmodifiableList(new ArrayList<String>(exemplars));
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.pressurement.agent.shared.service;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件发布的结果，可以等待所有监听器执行完成
+ * <p>
+ * 合并到之前事件中的发布与之前的发布共用同一个结果
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:37 下午
+ */
+public final class EventFuture {
+
+    /**
+     * 事件队列已满或者已经关闭时返回的结果
+     */
+    static final EventFuture REJECTED = new EventFuture(false);
+
+    private final boolean accepted;
+    private final CountDownLatch latch;
+    private volatile boolean success = true;
+
+    EventFuture(boolean accepted) {
+        this.accepted = accepted;
+        this.latch = new CountDownLatch(accepted ? 1 : 0);
+        if (!accepted) {
+            this.success = false;
+        }
+    }
+
+    /**
+     * 事件是否已经进入队列
+     */
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    /**
+     * 所有监听器是否已经执行完成
+     */
+    public boolean isDone() {
+        return latch.getCount() == 0;
+    }
+
+    /**
+     * 所有监听器是否都执行成功，执行完成之前为 true
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * 等待所有监听器执行完成
+     *
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @return 是否在超时之前执行完成
+     * @throws InterruptedException
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return latch.await(timeout, unit);
+    }
+
+    void fail() {
+        this.success = false;
+    }
+
+    void done() {
+        latch.countDown();
+    }
+}
@@ -15,18 +15,41 @@
 package com.pamirs.pradar.pressurement.agent.shared.service;
 
 import com.pamirs.pradar.ErrorTypeEnum;
+import com.pamirs.pradar.pressurement.agent.event.CoalescableEvent;
 import com.pamirs.pradar.pressurement.agent.event.IEvent;
 import com.pamirs.pradar.pressurement.agent.listener.EventResult;
 import com.pamirs.pradar.pressurement.agent.listener.PradarEventListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Comparator;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * 事件路由
+ * <p>
+ * 监听器可以只订阅某一类事件，分发时只通知订阅了该类型(或者父类型)的监听器，
+ * 不订阅类型的监听器与之前一样接收所有的事件
+ * </p>
+ * <p>
+ * 监听器按照 {@link PradarEventListener#order()} 从小到大分批执行，order 不同的监听器仍然严格按照顺序执行；
+ * order 相同的监听器按照所在的类加载器(即所属的模块)分组，不同模块的监听器并行执行，同一个模块内按照注册顺序执行，
+ * 插件很多时开关压测不需要再逐个等待每个插件关闭影子资源
+ * </p>
+ * <p>
+ * order 相同的监听器都会保留，之前按照 order 去重时只有最先注册的一个会生效
+ * </p>
+ * <p>
+ * 实现了 {@link CoalescableEvent} 的事件在队列中还没有分发时会与之后发布的同类型事件合并
+ * </p>
+ *
  * @Description
  * @Author xiaobin.zfb
  * @mail xiaobin@shulie.io
@@ -37,26 +60,42 @@ public final class EventRouter {
     /**
      * 同时支撑1000个事件的发布
      */
-    private BlockingQueue<IEvent> queue = new LinkedBlockingQueue<IEvent>(1000);
+    private final static int CAPACITY = 1000;
+
+    private final static Object BOOTSTRAP_GROUP = new Object();
+
+    private final ArrayDeque<PendingEvent> queue = new ArrayDeque<PendingEvent>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
 
     private Future future;
     private ExecutorService service;
-    private boolean isRunning;
+    private ExecutorService workers;
+    private volatile boolean isRunning;
+
+    /**
+     * 按照 order 排序的订阅，order 相同时按照注册顺序，修改时整体替换
+     */
+    private volatile Subscription[] subscriptions = new Subscription[0];
+    /**
+     * 事件类型 -> 分发计划
+     */
+    private final ConcurrentHashMap<Class<?>, DispatchPlan> plans = new ConcurrentHashMap<Class<?>, DispatchPlan>();
 
     private EventRouter() {
         this.isRunning = true;
         this.service = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
             @Override
             public Thread newThread(Runnable r) {
-                Thread t = new Thread(r, "Simulator-Event-Router-Service");
-                t.setDaemon(true);
-                t.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
-                    @Override
-                    public void uncaughtException(Thread t, Throwable e) {
-                        LOGGER.error("Thread {} caught a unknow exception with UncaughtExceptionHandler", t.getName(), e);
-                    }
-                });
-                return t;
+                return newDaemonThread(r, "Simulator-Event-Router-Service");
+            }
+        });
+        this.workers = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return newDaemonThread(r, "Simulator-Event-Router-Worker-" + index.incrementAndGet());
             }
         });
         /**
@@ -66,60 +105,37 @@ public final class EventRouter {
             @Override
             public void run() {
                 while (isRunning) {
-                    IEvent event = null;
+                    PendingEvent pending = null;
                     try {
-                        event = queue.take();
+                        pending = take();
                     } catch (InterruptedException e) {
                         continue;
                     }
-                    if (event == null) {
-                        continue;
-                    }
-                    for (PradarEventListener listener : listeners) {
-                        try {
-                            EventResult result = listener.onEvent(event);
-                            if (result == null) {
-                                ErrorReporter.buildError()
-                                        .setErrorType(ErrorTypeEnum.AgentError)
-                                        .setErrorCode("agent-0002")
-                                        .setMessage("开启监听器执行失败")
-                                        .setDetail(listener.getClass().getName())
-                                        .report();
-                                continue;
-                            }
-                            if (result == EventResult.IGNORE) {
-                                continue;
-                            }
-                            if (!result.getSuccess()) {
-                                String uniqueKey = result.getTarget() == null ? listener.getClass().getName() : result.getTarget().toString();
-                                if (null != uniqueKey && null != result.getErrorMsg()) {
-                                    ErrorReporter.Error error = ErrorReporter.buildError()
-                                            .setErrorType(ErrorTypeEnum.AgentError)
-                                            .setErrorCode("agent-0003")
-                                            .setMessage("监听器执行失败")
-                                            .setDetail(uniqueKey + "||" + result.getErrorMsg());
-                                    if (result.getClosePradar()) {
-                                        error.closePradar(result.getConfigName());
-                                    }
-                                    error.report();
-                                }
-                            }
-                        } catch (Throwable e) {
-                            LOGGER.warn("", e);
-                            ErrorReporter.buildError()
-                                    .setErrorType(ErrorTypeEnum.AgentError)
-                                    .setErrorCode("agent-0002")
-                                    .setMessage("开启监听器执行失败")
-                                    .setDetail(listener.getClass().getName() + "||" + e.getMessage())
-                                    .report();
-                        }
-
+                    try {
+                        dispatch(pending.event, pending.future);
+                    } catch (Throwable e) {
+                        pending.future.fail();
+                        LOGGER.error("dispatch event {} fail!", pending.event.getClass().getName(), e);
+                    } finally {
+                        pending.future.done();
                     }
                 }
             }
         });
     }
 
+    private static Thread newDaemonThread(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        t.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                LOGGER.error("Thread {} caught a unknow exception with UncaughtExceptionHandler", t.getName(), e);
+            }
+        });
+        return t;
+    }
+
     private static EventRouter INSTANCE;
 
     public static EventRouter router() {
@@ -133,24 +149,150 @@ public final class EventRouter {
         return INSTANCE;
     }
 
-    private Set<PradarEventListener> listeners = new TreeSet<PradarEventListener>(new Comparator<PradarEventListener>() {
-        @Override
-        public int compare(PradarEventListener o1, PradarEventListener o2) {
-            int r = o1.order() - o2.order() > 0 ? 1 : (o1.order() - o2.order() < 0 ? -1 : 0);
-            if (r == 0) {
-                LOGGER.warn("listener order 一致 o1 is :{}, o2 is :{}", o1.getClass().getName(), o2.getClass().getName());
+    private PendingEvent take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                notEmpty.await();
+            }
+            return queue.pollFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch(IEvent event, EventFuture eventFuture) {
+        DispatchPlan plan = getPlan(event.getClass());
+        for (Subscription[][] batch : plan.batches) {
+            if (batch.length == 1) {
+                invokeGroup(batch[0], event, eventFuture);
+                continue;
+            }
+            /**
+             * 其他分组交给工作线程，第一个分组在当前线程执行
+             */
+            CountDownLatch latch = new CountDownLatch(batch.length - 1);
+            for (int i = 1; i < batch.length; i++) {
+                GroupTask task = new GroupTask(batch[i], event, eventFuture, latch);
+                try {
+                    workers.execute(task);
+                } catch (RejectedExecutionException e) {
+                    task.run();
+                }
+            }
+            invokeGroup(batch[0], event, eventFuture);
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void invokeGroup(Subscription[] group, IEvent event, EventFuture eventFuture) {
+        for (Subscription subscription : group) {
+            if (!invoke(subscription.listener, event)) {
+                eventFuture.fail();
             }
-            return r;
         }
-    });
+    }
 
     /**
-     * 添加事件监听器
+     * 执行监听器并上报执行失败的结果
+     *
+     * @return 是否执行成功
+     */
+    private boolean invoke(PradarEventListener listener, IEvent event) {
+        try {
+            EventResult result = listener.onEvent(event);
+            if (result == null) {
+                ErrorReporter.buildError()
+                        .setErrorType(ErrorTypeEnum.AgentError)
+                        .setErrorCode("agent-0002")
+                        .setMessage("开启监听器执行失败")
+                        .setDetail(listener.getClass().getName())
+                        .report();
+                return false;
+            }
+            if (result == EventResult.IGNORE) {
+                return true;
+            }
+            if (!result.getSuccess()) {
+                String uniqueKey = result.getTarget() == null ? listener.getClass().getName() : result.getTarget().toString();
+                if (null != uniqueKey && null != result.getErrorMsg()) {
+                    ErrorReporter.Error error = ErrorReporter.buildError()
+                            .setErrorType(ErrorTypeEnum.AgentError)
+                            .setErrorCode("agent-0003")
+                            .setMessage("监听器执行失败")
+                            .setDetail(uniqueKey + "||" + result.getErrorMsg());
+                    if (result.getClosePradar()) {
+                        error.closePradar(result.getConfigName());
+                    }
+                    error.report();
+                }
+                return false;
+            }
+            return true;
+        } catch (Throwable e) {
+            LOGGER.warn("", e);
+            ErrorReporter.buildError()
+                    .setErrorType(ErrorTypeEnum.AgentError)
+                    .setErrorCode("agent-0002")
+                    .setMessage("开启监听器执行失败")
+                    .setDetail(listener.getClass().getName() + "||" + e.getMessage())
+                    .report();
+            return false;
+        }
+    }
+
+    private DispatchPlan getPlan(Class<?> eventClass) {
+        Subscription[] current = this.subscriptions;
+        DispatchPlan plan = plans.get(eventClass);
+        if (plan != null && plan.source == current) {
+            return plan;
+        }
+        plan = new DispatchPlan(current, eventClass);
+        plans.put(eventClass, plan);
+        return plan;
+    }
+
+    /**
+     * 添加事件监听器，接收所有的事件
      *
      * @param listener
      */
-    public synchronized EventRouter addListener(PradarEventListener listener) {
-        this.listeners.add(listener);
+    public EventRouter addListener(PradarEventListener listener) {
+        return addListener(IEvent.class, listener);
+    }
+
+    /**
+     * 添加事件监听器，只接收指定类型的事件
+     *
+     * @param eventType 事件类型，包括子类型
+     * @param listener
+     */
+    public synchronized EventRouter addListener(Class<? extends IEvent> eventType, PradarEventListener listener) {
+        if (eventType == null || listener == null) {
+            return this;
+        }
+        Subscription[] current = this.subscriptions;
+        int order = listener.order();
+        int index = current.length;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].listener == listener && current[i].eventType == eventType) {
+                return this;
+            }
+            if (index == current.length && current[i].order > order) {
+                index = i;
+            }
+        }
+        Subscription[] newSubscriptions = new Subscription[current.length + 1];
+        System.arraycopy(current, 0, newSubscriptions, 0, index);
+        newSubscriptions[index] = new Subscription(eventType, listener, order);
+        System.arraycopy(current, index, newSubscriptions, index + 1, current.length - index);
+        this.subscriptions = newSubscriptions;
+        this.plans.clear();
         return this;
     }
 
@@ -161,7 +303,17 @@ public final class EventRouter {
      * @return
      */
     public synchronized EventRouter removeListener(PradarEventListener listener) {
-        this.listeners.remove(listener);
+        Subscription[] current = this.subscriptions;
+        List<Subscription> retained = new ArrayList<Subscription>(current.length);
+        for (Subscription subscription : current) {
+            if (subscription.listener != listener) {
+                retained.add(subscription);
+            }
+        }
+        if (retained.size() != current.length) {
+            this.subscriptions = retained.toArray(new Subscription[retained.size()]);
+            this.plans.clear();
+        }
         return this;
     }
 
@@ -169,9 +321,41 @@ public final class EventRouter {
      * 发布事件
      *
      * @param event
+     * @return 是否进入了事件队列
      */
     public boolean publish(IEvent event) {
-        return queue.offer(event);
+        return submit(event).isAccepted();
+    }
+
+    /**
+     * 发布事件，返回的结果可以等待所有监听器执行完成
+     *
+     * @param event
+     * @return 发布结果
+     */
+    public EventFuture submit(IEvent event) {
+        if (event == null || !isRunning) {
+            return EventFuture.REJECTED;
+        }
+        lock.lock();
+        try {
+            if (event instanceof CoalescableEvent) {
+                PendingEvent tail = queue.peekLast();
+                if (tail != null && tail.event.getClass() == event.getClass()) {
+                    tail.event = ((CoalescableEvent) event).coalesce(tail.event);
+                    return tail.future;
+                }
+            }
+            if (queue.size() >= CAPACITY) {
+                return EventFuture.REJECTED;
+            }
+            PendingEvent pending = new PendingEvent(event);
+            queue.addLast(pending);
+            notEmpty.signal();
+            return pending.future;
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void shutdown() {
@@ -180,7 +364,112 @@ public final class EventRouter {
             future.cancel(true);
         }
         this.service.shutdownNow();
-        this.listeners.clear();
-        this.queue.clear();
+        this.workers.shutdownNow();
+        synchronized (this) {
+            this.subscriptions = new Subscription[0];
+        }
+        this.plans.clear();
+        lock.lock();
+        try {
+            PendingEvent pending;
+            while ((pending = queue.pollFirst()) != null) {
+                pending.future.fail();
+                pending.future.done();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Subscription {
+        private final Class<? extends IEvent> eventType;
+        private final PradarEventListener listener;
+        private final int order;
+        private final Object group;
+
+        Subscription(Class<? extends IEvent> eventType, PradarEventListener listener, int order) {
+            this.eventType = eventType;
+            this.listener = listener;
+            this.order = order;
+            ClassLoader classLoader = listener.getClass().getClassLoader();
+            this.group = classLoader == null ? BOOTSTRAP_GROUP : classLoader;
+        }
+    }
+
+    /**
+     * 某一类事件的分发计划，按照 order 分批，每批内按照模块分组
+     */
+    private static class DispatchPlan {
+        private final Subscription[] source;
+        private final Subscription[][][] batches;
+
+        DispatchPlan(Subscription[] source, Class<?> eventClass) {
+            this.source = source;
+            List<Subscription[][]> batchList = new ArrayList<Subscription[][]>();
+            Map<Object, List<Subscription>> groups = new LinkedHashMap<Object, List<Subscription>>();
+            int order = 0;
+            for (Subscription subscription : source) {
+                if (!subscription.eventType.isAssignableFrom(eventClass)) {
+                    continue;
+                }
+                if (!groups.isEmpty() && subscription.order != order) {
+                    batchList.add(toBatch(groups));
+                    groups.clear();
+                }
+                order = subscription.order;
+                List<Subscription> group = groups.get(subscription.group);
+                if (group == null) {
+                    group = new ArrayList<Subscription>();
+                    groups.put(subscription.group, group);
+                }
+                group.add(subscription);
+            }
+            if (!groups.isEmpty()) {
+                batchList.add(toBatch(groups));
+            }
+            this.batches = batchList.toArray(new Subscription[batchList.size()][][]);
+        }
+
+        private static Subscription[][] toBatch(Map<Object, List<Subscription>> groups) {
+            Subscription[][] batch = new Subscription[groups.size()][];
+            int i = 0;
+            for (List<Subscription> group : groups.values()) {
+                batch[i++] = group.toArray(new Subscription[group.size()]);
+            }
+            return batch;
+        }
+    }
+
+    private static class PendingEvent {
+        private IEvent event;
+        private final EventFuture future;
+
+        PendingEvent(IEvent event) {
+            this.event = event;
+            this.future = new EventFuture(true);
+        }
+    }
+
+    private class GroupTask implements Runnable {
+        private final Subscription[] group;
+        private final IEvent event;
+        private final EventFuture eventFuture;
+        private final CountDownLatch latch;
+
+        GroupTask(Subscription[] group, IEvent event, EventFuture eventFuture, CountDownLatch latch) {
+            this.group = group;
+            this.event = event;
+            this.eventFuture = eventFuture;
+            this.latch = latch;
+        }
+
+        @Override
+        public void run() {
+            try {
+                invokeGroup(group, event, eventFuture);
+            } finally {
+                latch.countDown();
+            }
+        }
     }
 }
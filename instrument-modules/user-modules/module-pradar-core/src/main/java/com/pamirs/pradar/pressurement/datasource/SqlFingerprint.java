@@ -0,0 +1,391 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.pressurement.datasource;
+
+import com.shulie.druid.sql.parser.SQLParserUtils;
+import com.shulie.druid.util.JdbcUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * SQL 指纹
+ * <p>
+ * 将 SQL 中的字符串、数字常量以及 IN 列表替换成带序号的占位常量，只是常量不同的 SQL 得到相同的指纹，
+ * 影子表/影子库的改写结果可以按照指纹缓存成模板，再将原始常量按序号替换回模板得到最终的 SQL。
+ * 占位使用字符串常量而不是 ?，改写时 SQL 会被重新输出，子句的顺序可能变化(如 LIMIT ... OFFSET ...)，
+ * 按序号替换不受顺序影响
+ * </p>
+ * <p>
+ * 注释、带引号的标识符、带前缀的字符串常量(如 N'abc')原样保留在指纹中；无法识别的 SQL 不生成指纹
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 3:44 下午
+ */
+final class SqlFingerprint {
+
+    private static final String PARAM_PREFIX = "'__PRADAR_SQL_PARAM_";
+    private static final String PARAM_SUFFIX = "__'";
+
+    /**
+     * 各数据库类型的字符串常量是否支持反斜杠转义，与 druid 词法解析保持一致
+     */
+    private static final ConcurrentMap<String, Boolean> BACKSLASH_ESCAPES = new ConcurrentHashMap<String, Boolean>();
+
+    /**
+     * 指纹
+     */
+    private final String sql;
+
+    /**
+     * 占位对应的原始常量，按序号排列
+     */
+    private final String[] params;
+
+    private SqlFingerprint(String sql, String[] params) {
+        this.sql = sql;
+        this.params = params;
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    /**
+     * 生成 SQL 指纹
+     *
+     * @param sql    SQL
+     * @param dbType 数据库类型
+     * @return 指纹，无法识别时返回 null
+     */
+    static SqlFingerprint of(String sql, String dbType) {
+        if (sql == null || sql.indexOf(PARAM_PREFIX) != -1) {
+            return null;
+        }
+        final boolean backslashEscape = isBackslashEscape(dbType);
+        final boolean mysql = JdbcUtils.isMysqlDbType(dbType);
+        final int len = sql.length();
+        final StringBuilder builder = new StringBuilder(len);
+        final List<String> params = new ArrayList<String>();
+        int i = 0;
+        while (i < len) {
+            final char c = sql.charAt(i);
+            if (c == '\'') {
+                final int end = skipQuoted(sql, i, '\'', backslashEscape);
+                if (end == -1) {
+                    return null;
+                }
+                // 带前缀的字符串常量，如 N'abc'、X'0F'，原样保留
+                if (i > 0 && isIdentifierPart(sql.charAt(i - 1))) {
+                    builder.append(sql, i, end);
+                } else {
+                    appendParam(builder, params, sql.substring(i, end));
+                }
+                i = end;
+            } else if (c == '"' || c == '`') {
+                final int end = skipQuoted(sql, i, c, c == '"' && mysql && backslashEscape);
+                if (end == -1) {
+                    return null;
+                }
+                builder.append(sql, i, end);
+                i = end;
+            } else if (c == '-' && i + 1 < len && sql.charAt(i + 1) == '-' || c == '#' && mysql) {
+                final int end = skipLine(sql, i);
+                builder.append(sql, i, end);
+                i = end;
+            } else if (c == '/' && i + 1 < len && sql.charAt(i + 1) == '*') {
+                final int end = sql.indexOf("*/", i + 2);
+                if (end == -1) {
+                    return null;
+                }
+                builder.append(sql, i, end + 2);
+                i = end + 2;
+            } else if (c >= '0' && c <= '9') {
+                final int end = skipNumber(sql, i);
+                if (end < len && isIdentifierPart(sql.charAt(end))) {
+                    // 数字开头的标识符
+                    final int wordEnd = skipWord(sql, end);
+                    builder.append(sql, i, wordEnd);
+                    i = wordEnd;
+                } else {
+                    // 一元的正负号作为常量的一部分，如 (-1, +2)
+                    final int signStart = isUnarySign(builder) ? i - 1 : i;
+                    builder.setLength(builder.length() - (i - signStart));
+                    appendParam(builder, params, sql.substring(signStart, end));
+                    i = end;
+                }
+            } else if (isIdentifierPart(c)) {
+                final int end = skipWord(sql, i);
+                builder.append(sql, i, end);
+                if (end - i == 2 && (c == 'i' || c == 'I') && (sql.charAt(i + 1) == 'n' || sql.charAt(i + 1) == 'N')) {
+                    i = appendInList(sql, end, builder, params, backslashEscape);
+                } else {
+                    i = end;
+                }
+            } else {
+                builder.append(c);
+                i++;
+            }
+        }
+        return new SqlFingerprint(builder.toString(), params.toArray(new String[params.size()]));
+    }
+
+    /**
+     * 将原始常量替换回改写后的模板
+     *
+     * @param template 以指纹改写后的 SQL
+     * @return 最终的 SQL，模板中的占位与指纹不一致时返回 null
+     */
+    String apply(String template) {
+        if (params.length == 0) {
+            return template;
+        }
+        final StringBuilder builder = new StringBuilder(template.length() + 16 * params.length);
+        final boolean[] applied = new boolean[params.length];
+        int count = 0;
+        int from = 0;
+        int start;
+        while ((start = template.indexOf(PARAM_PREFIX, from)) != -1) {
+            final int indexStart = start + PARAM_PREFIX.length();
+            final int end = template.indexOf(PARAM_SUFFIX, indexStart);
+            if (end == -1) {
+                return null;
+            }
+            final int index = parseIndex(template, indexStart, end);
+            if (index < 0 || index >= params.length || applied[index]) {
+                return null;
+            }
+            applied[index] = true;
+            count++;
+            builder.append(template, from, start).append(params[index]);
+            from = end + PARAM_SUFFIX.length();
+        }
+        if (count != params.length) {
+            return null;
+        }
+        builder.append(template, from, template.length());
+        return builder.toString();
+    }
+
+    /**
+     * 判断模板中的占位是否与指纹完全一致
+     */
+    boolean isTemplate(String template) {
+        return template != null && apply(template) != null;
+    }
+
+    /**
+     * 当前已经输出的内容是否以一元的正负号结尾，即正负号前面是 ( , = < > 或者没有内容
+     */
+    private static boolean isUnarySign(StringBuilder builder) {
+        int i = builder.length() - 1;
+        if (i < 0 || (builder.charAt(i) != '-' && builder.charAt(i) != '+')) {
+            return false;
+        }
+        i--;
+        while (i >= 0 && Character.isWhitespace(builder.charAt(i))) {
+            i--;
+        }
+        if (i < 0) {
+            return true;
+        }
+        final char c = builder.charAt(i);
+        return c == '(' || c == ',' || c == '=' || c == '<' || c == '>';
+    }
+
+    private static boolean isBackslashEscape(String dbType) {
+        if (dbType == null) {
+            return false;
+        }
+        Boolean escape = BACKSLASH_ESCAPES.get(dbType);
+        if (escape == null) {
+            try {
+                SQLParserUtils.createSQLStatementParser("select 'a\\'b' from t", dbType).parseStatementList();
+                escape = Boolean.TRUE;
+            } catch (Throwable e) {
+                escape = Boolean.FALSE;
+            }
+            BACKSLASH_ESCAPES.put(dbType, escape);
+        }
+        return escape;
+    }
+
+    private static void appendParam(StringBuilder builder, List<String> params, String param) {
+        builder.append(PARAM_PREFIX).append(params.size()).append(PARAM_SUFFIX);
+        params.add(param);
+    }
+
+    /**
+     * IN 列表中只有常量和 ? 时，整个列表替换成一个占位，列表长度不同的 SQL 得到相同的指纹
+     *
+     * @return 处理完之后的位置
+     */
+    private static int appendInList(String sql, int from, StringBuilder builder, List<String> params, boolean backslashEscape) {
+        final int len = sql.length();
+        int i = skipWhitespace(sql, from);
+        if (i >= len || sql.charAt(i) != '(') {
+            return from;
+        }
+        final int listStart = i + 1;
+        i = listStart;
+        boolean expectItem = true;
+        int items = 0;
+        while (i < len) {
+            i = skipWhitespace(sql, i);
+            if (i >= len) {
+                return from;
+            }
+            final char c = sql.charAt(i);
+            if (expectItem) {
+                if (c == '\'') {
+                    i = skipQuoted(sql, i, '\'', backslashEscape);
+                    if (i == -1) {
+                        return from;
+                    }
+                } else if (c == '?') {
+                    i++;
+                } else {
+                    int start = i;
+                    if (c == '-' || c == '+') {
+                        start = i + 1;
+                    }
+                    if (start >= len || sql.charAt(start) < '0' || sql.charAt(start) > '9') {
+                        return from;
+                    }
+                    i = skipNumber(sql, start);
+                    if (i < len && isIdentifierPart(sql.charAt(i))) {
+                        return from;
+                    }
+                }
+                items++;
+                expectItem = false;
+            } else if (c == ',') {
+                expectItem = true;
+                i++;
+            } else if (c == ')') {
+                break;
+            } else {
+                return from;
+            }
+        }
+        if (i >= len || expectItem || items == 0) {
+            return from;
+        }
+        builder.append(sql, from, listStart);
+        appendParam(builder, params, sql.substring(listStart, i));
+        builder.append(')');
+        return i + 1;
+    }
+
+    /**
+     * @return 引号结束后的位置，没有结束引号时返回 -1
+     */
+    private static int skipQuoted(String sql, int start, char quote, boolean backslashEscape) {
+        final int len = sql.length();
+        int i = start + 1;
+        while (i < len) {
+            final char c = sql.charAt(i);
+            if (backslashEscape && c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                if (i + 1 < len && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipLine(String sql, int start) {
+        final int end = sql.indexOf('\n', start);
+        return end == -1 ? sql.length() : end;
+    }
+
+    private static int skipNumber(String sql, int start) {
+        final int len = sql.length();
+        int i = start;
+        if (i + 1 < len && sql.charAt(i) == '0' && (sql.charAt(i + 1) == 'x' || sql.charAt(i + 1) == 'X')) {
+            i += 2;
+            while (i < len && Character.digit(sql.charAt(i), 16) != -1) {
+                i++;
+            }
+            return i;
+        }
+        i = skipDigits(sql, i);
+        if (i < len && sql.charAt(i) == '.') {
+            i = skipDigits(sql, i + 1);
+        }
+        if (i < len && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+            int j = i + 1;
+            if (j < len && (sql.charAt(j) == '+' || sql.charAt(j) == '-')) {
+                j++;
+            }
+            if (j < len && sql.charAt(j) >= '0' && sql.charAt(j) <= '9') {
+                i = skipDigits(sql, j);
+            }
+        }
+        return i;
+    }
+
+    private static int skipDigits(String sql, int start) {
+        int i = start;
+        while (i < sql.length() && sql.charAt(i) >= '0' && sql.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWord(String sql, int start) {
+        int i = start;
+        while (i < sql.length() && isIdentifierPart(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(String sql, int start) {
+        int i = start;
+        while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return c == '_' || c == '$' || Character.isLetterOrDigit(c);
+    }
+
+    private static int parseIndex(String s, int start, int end) {
+        if (start == end || end - start > 9) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+}
@@ -19,14 +19,19 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import com.pamirs.pradar.ConfigNames;
 import com.pamirs.pradar.ErrorTypeEnum;
@@ -67,17 +72,24 @@ import org.slf4j.LoggerFactory;
 public class SqlParser {
     private final static Logger LOGGER = LoggerFactory.getLogger(SqlParser.class);
     public static String lowerCase;
-    private static LoadingCache<String, TableParserResult> cacheSqlTablesBuilder = CacheBuilder.newBuilder()
+    /**
+     * 指纹缓存的最大数量，指纹只与 SQL 结构有关，数量远小于原始 SQL
+     */
+    private static final int MAX_FINGERPRINT_CACHE_SIZE = 1000;
+
+    /**
+     * 无法使用指纹模板的标记，这类 SQL 按原始 SQL 解析
+     */
+    private static final String NOT_TEMPLATABLE = new String("NOT_TEMPLATABLE");
+
+    private static LoadingCache<SqlCacheKey, TableParserResult> cacheSqlTablesBuilder = CacheBuilder.newBuilder()
             .maximumSize(300).expireAfterAccess(5 * 60, TimeUnit.SECONDS).build(
 
-                    new CacheLoader<String, TableParserResult>() {
+                    new CacheLoader<SqlCacheKey, TableParserResult>() {
                         @Override
-                        public TableParserResult load(String name) throws Exception {
+                        public TableParserResult load(SqlCacheKey key) throws Exception {
                             try {
-                                String[] args = StringUtils.split(name, "$$$$");
-                                String sql = args[0];
-                                String dbType = args[1];
-                                return parseTables(sql, dbType);
+                                return parseTables(key.sql, key.dbType);
                             } catch (SQLException e) {
                                 return TableParserResult.EMPTY;
                             }
@@ -85,66 +97,143 @@ public class SqlParser {
                     }
 
             );
-    private static LoadingCache<String, String> cacheTableModeBuilder = CacheBuilder.newBuilder()
+    private static LoadingCache<SqlCacheKey, String> cacheTableModeBuilder = CacheBuilder.newBuilder()
             .maximumSize(300).expireAfterAccess(5 * 60, TimeUnit.SECONDS).build(
 
-                    new CacheLoader<String, String>() {
+                    new CacheLoader<SqlCacheKey, String>() {
                         @Override
-                        public String load(String name) throws Exception {
-                            String[] args = StringUtils.split(name, "$$$$");
-                            String sql = args[0];
-                            String key = args[1];
-                            String dbType = args[2];
-                            return parseAndReplaceTableNames(sql, key, dbType);
+                        public String load(SqlCacheKey key) throws Exception {
+                            return parseAndReplaceTableNames(key.sql, key.key, key.dbType);
                         }
                     }
 
             );
-    private static LoadingCache<String, String> cacheSchemaModeBuilder = CacheBuilder.newBuilder()
+    private static LoadingCache<SqlCacheKey, String> cacheSchemaModeBuilder = CacheBuilder.newBuilder()
             .maximumSize(300).expireAfterAccess(5 * 60, TimeUnit.SECONDS).build(
 
-                    new CacheLoader<String, String>() {
+                    new CacheLoader<SqlCacheKey, String>() {
                         @Override
-                        public String load(String name) throws Exception {
-                            String[] args = StringUtils.split(name, "$$$$");
-                            String sql = args[0];
-                            String key = args[1];
-                            String dbType = args[2];
-                            return parseAndReplaceSchema(sql, key, dbType);
+                        public String load(SqlCacheKey key) throws Exception {
+                            return parseAndReplaceSchema(key.sql, key.key, key.dbType);
                         }
                     }
 
             );
 
+    /**
+     * 按 SQL 指纹缓存的解析结果及改写模板
+     */
+    private static Cache<SqlCacheKey, TableParserResult> fingerprintTablesCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_FINGERPRINT_CACHE_SIZE).expireAfterAccess(5 * 60, TimeUnit.SECONDS).build();
+    private static Cache<SqlCacheKey, String> fingerprintTableModeCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_FINGERPRINT_CACHE_SIZE).expireAfterAccess(5 * 60, TimeUnit.SECONDS).build();
+    private static Cache<SqlCacheKey, String> fingerprintSchemaModeCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_FINGERPRINT_CACHE_SIZE).expireAfterAccess(5 * 60, TimeUnit.SECONDS).build();
+
     public static void clear() {
         cacheSchemaModeBuilder.invalidateAll();
         cacheTableModeBuilder.invalidateAll();
+        fingerprintSchemaModeCache.invalidateAll();
+        fingerprintTableModeCache.invalidateAll();
     }
 
     public static void release() {
         cacheSchemaModeBuilder.invalidateAll();
         cacheTableModeBuilder.invalidateAll();
         cacheSqlTablesBuilder.invalidateAll();
+        fingerprintSchemaModeCache.invalidateAll();
+        fingerprintTableModeCache.invalidateAll();
+        fingerprintTablesCache.invalidateAll();
     }
 
-    public static TableParserResult getTables(String sql, String dbType) {
-        String innerDbtype = dbType;
+    /**
+     * 获取 SQL 解析缓存的统计信息
+     *
+     * @return 缓存名称与统计信息
+     */
+    public static Map<String, CacheStats> getCacheStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<String, CacheStats>();
+        stats.put("fingerprintTables", fingerprintTablesCache.stats());
+        stats.put("fingerprintTableMode", fingerprintTableModeCache.stats());
+        stats.put("fingerprintSchemaMode", fingerprintSchemaModeCache.stats());
+        stats.put("tables", cacheSqlTablesBuilder.stats());
+        stats.put("tableMode", cacheTableModeBuilder.stats());
+        stats.put("schemaMode", cacheSchemaModeBuilder.stats());
+        return stats;
+    }
+
+    public static TableParserResult getTables(final String sql, String dbType) {
+        final String innerDbtype = dbType;
         //影子表压测
         try {
-            return cacheSqlTablesBuilder.get(sql + "$$$$" + innerDbtype);
+            final SqlFingerprint fingerprint = SqlFingerprint.of(sql, innerDbtype);
+            if (fingerprint != null) {
+                // 表名与常量无关，直接按指纹缓存
+                final String fingerprintSql = fingerprint.getSql();
+                return fingerprintTablesCache.get(new SqlCacheKey(fingerprintSql, null, innerDbtype), new Callable<TableParserResult>() {
+                    @Override
+                    public TableParserResult call() throws Exception {
+                        try {
+                            return parseTables(fingerprintSql, innerDbtype, false);
+                        } catch (SQLException e) {
+                            // 指纹无法解析时按原始 SQL 解析
+                            return cacheSqlTablesBuilder.get(new SqlCacheKey(sql, null, innerDbtype));
+                        }
+                    }
+                });
+            }
+            return cacheSqlTablesBuilder.get(new SqlCacheKey(sql, null, innerDbtype));
         } catch (Throwable e) {
             LOGGER.error("parse sql tables error. sql={}, dbType={}", sql, dbType, e);
             return TableParserResult.EMPTY;
         }
     }
 
+    /**
+     * 按照指纹模板改写 SQL
+     *
+     * @return 改写后的 SQL，无法使用指纹模板时返回 null
+     */
+    private static String replaceByFingerprint(Cache<SqlCacheKey, String> cache, final String sql, final String key,
+                                               final String dbType, final boolean schemaMode) throws ExecutionException {
+        final SqlFingerprint fingerprint = SqlFingerprint.of(sql, dbType);
+        if (fingerprint == null) {
+            return null;
+        }
+        final String template = cache.get(new SqlCacheKey(fingerprint.getSql(), key, dbType), new Callable<String>() {
+            @Override
+            public String call() {
+                try {
+                    final String template = schemaMode
+                            ? parseAndReplaceSchema(fingerprint.getSql(), key, dbType, false)
+                            : parseAndReplaceTableNames(fingerprint.getSql(), key, dbType, false);
+                    return fingerprint.isTemplate(template) ? template : NOT_TEMPLATABLE;
+                } catch (Throwable e) {
+                    // 指纹无法解析或者改写失败时都按原始 SQL 处理，由原始 SQL 决定是否报错
+                    return NOT_TEMPLATABLE;
+                }
+            }
+        });
+        if (template == NOT_TEMPLATABLE) {
+            return null;
+        }
+        return fingerprint.apply(template);
+    }
+
     private static TableParserResult parseTables(String sql, String dbTypeName) throws SQLException {
+        return parseTables(sql, dbTypeName, true);
+    }
+
+    /**
+     * @param reportWrongSql 解析失败时是否记录到错误 SQL 中，解析指纹失败时会再解析原始 SQL，由原始 SQL 决定是否记录
+     */
+    private static TableParserResult parseTables(String sql, String dbTypeName, boolean reportWrongSql) throws SQLException {
         DbType dbType = DbType.of(dbTypeName);
         boolean isSelect = true;
         List<String> tables = new ArrayList<String>();
         SQLStatementParser parser = SQLParserUtils.createSQLStatementParser(sql, dbTypeName);
         if (parser == null) {
-            if (GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
+            if (reportWrongSql && GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
                 GlobalConfig.getInstance().addWrongSqlDetail(StringUtils.substring("dbType not support dbType" + dbTypeName + " sql" + sql, 0, 1995));
             }
             throw new SQLException("dbType not support dbType" + dbTypeName + " sql" + sql);
@@ -182,7 +271,7 @@ public class SqlParser {
                 sqlStatement.accept(visitor);
             }
         } catch (Throwable e) {
-            if (GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
+            if (reportWrongSql && GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
                 GlobalConfig.getInstance().addWrongSqlDetail(StringUtils.substring(("Exception:" + e + " sql" + sql), 0, 1995));
             }
             throw new SQLException("Wrong sql:" + sql, e);
@@ -198,7 +287,11 @@ public class SqlParser {
         String innerDbtype = dbType;
         //影子表压测
         try {
-            return cacheTableModeBuilder.get(sql + "$$$$" + key + "$$$$" + innerDbtype);
+            String result = replaceByFingerprint(fingerprintTableModeCache, sql, key, innerDbtype, false);
+            if (result != null) {
+                return result;
+            }
+            return cacheTableModeBuilder.get(new SqlCacheKey(sql, key, innerDbtype));
         } catch (Throwable e) {
             LOGGER.error("replace table to shadow table error. sql={}, key={}, dbType={}", sql, dbConnectionKey, dbType, e);
             if (GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
@@ -225,7 +318,11 @@ public class SqlParser {
         String innerDbtype = dbType;
         //影子表压测
         try {
-            return cacheSchemaModeBuilder.get(sql + "$$$$" + key + "$$$$" + innerDbtype);
+            String result = replaceByFingerprint(fingerprintSchemaModeCache, sql, key, innerDbtype, true);
+            if (result != null) {
+                return result;
+            }
+            return cacheSchemaModeBuilder.get(new SqlCacheKey(sql, key, innerDbtype));
         } catch (Throwable e) {
             LOGGER.error("replace schema to shadow schema error. sql={}, key={}, dbType={}", sql, dbConnectionKey, dbType, e);
             if (GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
@@ -343,6 +440,10 @@ public class SqlParser {
      * @throws SQLException
      */
     public static String parseAndReplaceSchema(String sql, String key, String dbTypeName) throws SQLException {
+        return parseAndReplaceSchema(sql, key, dbTypeName, true);
+    }
+
+    private static String parseAndReplaceSchema(String sql, String key, String dbTypeName, boolean reportWrongSql) throws SQLException {
         ShadowDatabaseConfig config = GlobalConfig.getInstance().getShadowDatabaseConfig(key);
         if (config == null) {
             return sql;
@@ -351,7 +452,7 @@ public class SqlParser {
         // new MySQL Parser
         SQLStatementParser parser = SQLParserUtils.createSQLStatementParser(sql, dbTypeName);
         if (parser == null) {
-            if (GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
+            if (reportWrongSql && GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
                 GlobalConfig.getInstance().addWrongSqlDetail(StringUtils.substring("dbType not support" + key + " dbType" + dbTypeName + " sql" + sql, 0, 1995));
             }
             throw new SQLException("dbType not support" + key + " dbType" + dbTypeName + " sql" + sql);
@@ -398,7 +499,7 @@ public class SqlParser {
                 sqlStatement.accept(visitor);
             }
         } catch (Throwable e) {
-            if (GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
+            if (reportWrongSql && GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
                 GlobalConfig.getInstance().addWrongSqlDetail(StringUtils.substring(("Exception:" + e + " sql" + sql), 0, 1995));
             }
             throw new SQLException("Wrong sql:" + sql, e);
@@ -408,6 +509,10 @@ public class SqlParser {
     }
 
     public static String parseAndReplaceTableNames(String sql, String key, String dbTypeName) throws SQLException {
+        return parseAndReplaceTableNames(sql, key, dbTypeName, true);
+    }
+
+    private static String parseAndReplaceTableNames(String sql, String key, String dbTypeName, boolean reportWrongSql) throws SQLException {
         DbType dbType = DbType.of(dbTypeName);
         Map<String, String> mappingTable = getMappingTables(key);
         if (SqlParser.lowerCase != null && "Y".equals(SqlParser.lowerCase)) {
@@ -424,7 +529,7 @@ public class SqlParser {
         // new MySQL Parser
         SQLStatementParser parser = SQLParserUtils.createSQLStatementParser(sql, dbTypeName);
         if (parser == null) {
-            if (GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
+            if (reportWrongSql && GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
                 GlobalConfig.getInstance().addWrongSqlDetail(StringUtils.substring("dbType not support" + key + " dbType" + dbTypeName + " sql" + sql, 0, 1995));
             }
             throw new SQLException("dbType not support" + key + " dbType" + dbTypeName + " sql" + sql);
@@ -497,7 +602,7 @@ public class SqlParser {
                 sqlStatement.accept(visitor);
             }
         } catch (Throwable e) {
-            if (GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
+            if (reportWrongSql && GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
                 GlobalConfig.getInstance().addWrongSqlDetail(StringUtils.substring(("Exception:" + e + " sql" + sql), 0, 1995));
             }
             throw new SQLException("Wrong sql:" + sql, e);
@@ -537,7 +642,7 @@ public class SqlParser {
                     }
 
                     if (!passThisTable) {
-                        if (GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
+                        if (reportWrongSql && GlobalConfig.getInstance().getWrongSqlDetail().size() < 10) {
                             GlobalConfig.getInstance().addWrongSqlDetail(StringUtils.substring(sql, 0, 1995));
                         }
                         String url = key;
@@ -577,4 +682,44 @@ public class SqlParser {
             return "unknow";
         }
     }
+
+    /**
+     * SQL 解析缓存的 key
+     */
+    private static final class SqlCacheKey {
+        private final String sql;
+        private final String key;
+        private final String dbType;
+        private final int hashCode;
+
+        SqlCacheKey(String sql, String key, String dbType) {
+            this.sql = sql;
+            this.key = key;
+            this.dbType = dbType;
+            int h = sql == null ? 0 : sql.hashCode();
+            h = 31 * h + (key == null ? 0 : key.hashCode());
+            h = 31 * h + (dbType == null ? 0 : dbType.hashCode());
+            this.hashCode = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SqlCacheKey)) {
+                return false;
+            }
+            SqlCacheKey that = (SqlCacheKey) o;
+            return hashCode == that.hashCode
+                    && StringUtils.equals(sql, that.sql)
+                    && StringUtils.equals(key, that.key)
+                    && StringUtils.equals(dbType, that.dbType);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
 }
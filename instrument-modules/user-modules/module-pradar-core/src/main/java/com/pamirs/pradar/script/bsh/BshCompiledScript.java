@@ -0,0 +1,201 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.script.bsh;
+
+import bsh.CallStack;
+import bsh.EvalError;
+import bsh.Interpreter;
+import bsh.NameSpace;
+import bsh.Parser;
+import bsh.Primitive;
+import bsh.TokenMgrError;
+import bsh.UtilEvalError;
+
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 预先解析好的 bsh 脚本，执行时会修改语法树节点的状态，同一时间只能被一个线程执行
+ * <p>
+ * 脚本只解析一次，保存语法树，每次执行时在解析所用的 {@link Interpreter} 下新建一个命名空间放入本次调用的参数，
+ * 再依次执行语法树，执行过程与 {@link Interpreter#eval(java.io.Reader)} 一致。
+ * bsh 的语法树节点不是公开的类，需要通过反射执行，当前 bsh 版本不支持时 {@link #isSupported()} 返回 false
+ * </p>
+ * <p>
+ * 只返回常量的脚本(如 return "ok";)执行一次后直接缓存结果，不再经过 bsh
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 3:51 下午
+ */
+final class BshCompiledScript {
+
+    /**
+     * 只返回常量的脚本：字符串、数字、布尔值或者 null
+     */
+    private static final Pattern CONSTANT_SCRIPT = Pattern.compile(
+            "\\s*(return\\s+)?(\"([^\"\\\\\\r\\n]|\\\\.)*\"|-?[0-9]+(\\.[0-9]+)?[lLfFdD]?|true|false|null)\\s*;?\\s*");
+
+    private static final Method EVAL_METHOD;
+    private static final Class<?> RETURN_CONTROL_CLASS;
+    private static final Field RETURN_VALUE_FIELD;
+
+    static {
+        Method evalMethod = null;
+        Class<?> returnControlClass = null;
+        Field returnValueField = null;
+        try {
+            evalMethod = Class.forName("bsh.SimpleNode").getMethod("eval", CallStack.class, Interpreter.class);
+            evalMethod.setAccessible(true);
+            returnControlClass = Class.forName("bsh.ReturnControl");
+            returnValueField = returnControlClass.getField("value");
+            returnValueField.setAccessible(true);
+        } catch (Throwable e) {
+            evalMethod = null;
+        }
+        EVAL_METHOD = evalMethod;
+        RETURN_CONTROL_CLASS = returnControlClass;
+        RETURN_VALUE_FIELD = returnValueField;
+    }
+
+    private final String script;
+
+    /**
+     * 语法树，每个元素是一个 bsh.SimpleNode
+     */
+    private final Object[] nodes;
+
+    private final boolean constant;
+
+    private Object constantValue;
+
+    private BshCompiledScript(String script, Object[] nodes, boolean constant) {
+        this.script = script;
+        this.nodes = nodes;
+        this.constant = constant;
+    }
+
+    /**
+     * 当前的 bsh 版本是否支持预先解析
+     */
+    static boolean isSupported() {
+        return EVAL_METHOD != null;
+    }
+
+    /**
+     * 解析脚本
+     *
+     * @param interpreter       执行脚本的解释器
+     * @param script            脚本
+     * @param optimizeConstants 是否直接缓存只返回常量的脚本的结果
+     * @return 解析后的脚本
+     * @throws EvalError 脚本语法错误
+     */
+    static BshCompiledScript compile(Interpreter interpreter, String script, boolean optimizeConstants) throws EvalError {
+        final Parser parser = new Parser(new StringReader(script));
+        final List<Object> nodes = new ArrayList<Object>();
+        boolean eof = false;
+        try {
+            while (!eof) {
+                eof = parser.Line();
+                final Object node = parser.popNode();
+                if (node != null) {
+                    nodes.add(node);
+                }
+            }
+        } catch (TokenMgrError e) {
+            throw tokenParsingError(e);
+        }
+        final boolean constant = optimizeConstants && CONSTANT_SCRIPT.matcher(script).matches();
+        final BshCompiledScript compiledScript = new BshCompiledScript(script, nodes.toArray(), constant);
+        if (constant) {
+            compiledScript.constantValue = compiledScript.doEval(interpreter, null);
+        }
+        return compiledScript;
+    }
+
+    /**
+     * 执行脚本
+     *
+     * @param interpreter 解释器，提供类加载器以及全局命名空间
+     * @param arguments   本次调用的参数
+     * @return 脚本的返回值
+     * @throws EvalError 脚本执行错误
+     */
+    Object eval(Interpreter interpreter, Map<String, Object> arguments) throws EvalError {
+        if (constant) {
+            return constantValue;
+        }
+        return doEval(interpreter, arguments);
+    }
+
+    private Object doEval(Interpreter interpreter, Map<String, Object> arguments) throws EvalError {
+        final NameSpace nameSpace = new NameSpace(interpreter.getNameSpace(), "script");
+        if (arguments != null) {
+            for (Map.Entry<String, Object> entry : arguments.entrySet()) {
+                try {
+                    nameSpace.setVariable(entry.getKey(), entry.getValue() == null ? Primitive.NULL : entry.getValue(), false);
+                } catch (UtilEvalError e) {
+                    throw new EvalError(e.getMessage(), null, null);
+                }
+            }
+        }
+        final CallStack callStack = new CallStack(nameSpace);
+        Object retVal = null;
+        for (Object node : nodes) {
+            try {
+                retVal = EVAL_METHOD.invoke(node, callStack, interpreter);
+            } catch (InvocationTargetException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof EvalError) {
+                    throw (EvalError) cause;
+                }
+                if (cause instanceof TokenMgrError) {
+                    throw tokenParsingError((TokenMgrError) cause);
+                }
+                throw new RuntimeException(script, cause);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(script, e);
+            } finally {
+                if (callStack.depth() > 1) {
+                    callStack.clear();
+                    callStack.push(nameSpace);
+                }
+            }
+            if (RETURN_CONTROL_CLASS.isInstance(retVal)) {
+                try {
+                    retVal = RETURN_VALUE_FIELD.get(retVal);
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException(script, e);
+                }
+                break;
+            }
+        }
+        return Primitive.unwrap(retVal);
+    }
+
+    /**
+     * 词法错误是 Error，与 {@link Interpreter#eval(java.io.Reader)} 一样转换成 EvalError
+     */
+    private static EvalError tokenParsingError(TokenMgrError e) {
+        return new EvalError("Sourced file: eval stream Token Parsing Error: " + e.getMessage(), null, null);
+    }
+}
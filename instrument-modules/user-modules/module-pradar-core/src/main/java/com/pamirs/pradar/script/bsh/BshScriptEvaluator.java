@@ -16,16 +16,49 @@ package com.pamirs.pradar.script.bsh;
 
 import bsh.EvalError;
 import bsh.Interpreter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.pamirs.pradar.script.ScriptEvaluator;
 
 import java.io.StringReader;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * 脚本按类加载器缓存解释器以及解析结果，见 {@link BshCompiledScript}，当前 bsh 版本不支持时每次新建 {@link Interpreter} 执行
+ *
  * @author xiaobin.zfb|xiaobin@shulie.io
  * @since 2021/6/18 2:35 下午
  */
 public class BshScriptEvaluator implements ScriptEvaluator {
+    /**
+     * 是否直接缓存只返回常量的脚本的结果，默认开启
+     */
+    private static final String OPTIMIZE_CONSTANTS = "pradar.script.bsh.constant.optimize";
+
+    /**
+     * 每个解释器缓存的脚本数
+     */
+    private static final int MAX_SCRIPTS_PER_CLASSLOADER = 256;
+
+    private final boolean optimizeConstants = !"false".equals(System.getProperty(OPTIMIZE_CONSTANTS));
+
+    /**
+     * 类加载器对应的脚本缓存，解释器持有类加载器，长时间不使用后移除，避免类加载器无法回收
+     */
+    private final Cache<ClassLoader, ScriptCache> scriptCaches = CacheBuilder.newBuilder()
+            .weakKeys().expireAfterAccess(10, TimeUnit.MINUTES).build();
+
+    /**
+     * 类加载器为 null 时使用的脚本缓存
+     */
+    private volatile ScriptCache defaultScriptCache;
+
     private ClassLoader classLoader;
 
     /**
@@ -61,33 +94,131 @@ public class BshScriptEvaluator implements ScriptEvaluator {
 
     @Override
     public Object evaluate(String script, Map<String, Object> arguments) {
+        return evaluate(this.classLoader, script, arguments);
+    }
+
+    @Override
+    public Object evaluate(ClassLoader classLoader, String script, Map<String, Object> arguments) {
         try {
-            Interpreter interpreter = new Interpreter();
-            interpreter.setClassLoader(this.classLoader);
-            if (arguments != null) {
-                for (Map.Entry<String, Object> entry : arguments.entrySet()) {
-                    interpreter.set(entry.getKey(), entry.getValue());
-                }
+            if (!BshCompiledScript.isSupported()) {
+                return evaluateByInterpreter(classLoader, script, arguments);
             }
-            return interpreter.eval(new StringReader(script));
+            return getScriptCache(classLoader).eval(script, arguments);
         } catch (EvalError ex) {
             throw new RuntimeException(script, ex);
         }
     }
 
-    @Override
-    public Object evaluate(ClassLoader classLoader, String script, Map<String, Object> arguments) {
+    private Object evaluateByInterpreter(ClassLoader classLoader, String script, Map<String, Object> arguments) throws EvalError {
+        Interpreter interpreter = new Interpreter();
+        interpreter.setClassLoader(classLoader);
+        if (arguments != null) {
+            for (Map.Entry<String, Object> entry : arguments.entrySet()) {
+                interpreter.set(entry.getKey(), entry.getValue());
+            }
+        }
+        return interpreter.eval(new StringReader(script));
+    }
+
+    private ScriptCache getScriptCache(final ClassLoader classLoader) {
+        if (classLoader == null) {
+            ScriptCache scriptCache = defaultScriptCache;
+            if (scriptCache == null) {
+                synchronized (this) {
+                    scriptCache = defaultScriptCache;
+                    if (scriptCache == null) {
+                        scriptCache = new ScriptCache(null, optimizeConstants);
+                        defaultScriptCache = scriptCache;
+                    }
+                }
+            }
+            return scriptCache;
+        }
+        ScriptCache scriptCache = scriptCaches.getIfPresent(classLoader);
+        if (scriptCache != null) {
+            return scriptCache;
+        }
         try {
-            Interpreter interpreter = new Interpreter();
-            interpreter.setClassLoader(classLoader);
-            if (arguments != null) {
-                for (Map.Entry<String, Object> entry : arguments.entrySet()) {
-                    interpreter.set(entry.getKey(), entry.getValue());
+            return scriptCaches.get(classLoader, new Callable<ScriptCache>() {
+                @Override
+                public ScriptCache call() throws Exception {
+                    return new ScriptCache(classLoader, optimizeConstants);
                 }
+            });
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * 同一个类加载器下的解释器以及解析好的脚本
+     * <p>
+     * bsh 的解释器和语法树在执行时都会修改自身的状态，不能被多个线程同时使用。每次执行从池中独占一个
+     * {@link Evaluator}，每个 Evaluator 有自己的解释器和解析好的脚本，执行完成后放回池中。
+     * 池随类加载器对应的缓存一起回收，不会像 ThreadLocal 一样让业务线程一直持有类加载器
+     * </p>
+     */
+    private static final class ScriptCache {
+        /**
+         * 池中最多保留的空闲 Evaluator 数，超出的执行完后直接丢弃
+         */
+        private static final int MAX_IDLE = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+        private final ClassLoader classLoader;
+        private final boolean optimizeConstants;
+        private final ConcurrentLinkedQueue<Evaluator> idle = new ConcurrentLinkedQueue<Evaluator>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        ScriptCache(ClassLoader classLoader, boolean optimizeConstants) {
+            this.classLoader = classLoader;
+            this.optimizeConstants = optimizeConstants;
+        }
+
+        Object eval(String script, Map<String, Object> arguments) throws EvalError {
+            Evaluator evaluator = idle.poll();
+            if (evaluator != null) {
+                idleCount.decrementAndGet();
+            } else {
+                evaluator = new Evaluator(classLoader, optimizeConstants);
             }
-            return interpreter.eval(new StringReader(script));
-        } catch (EvalError ex) {
-            throw new RuntimeException(script, ex);
+            try {
+                return evaluator.eval(script, arguments);
+            } finally {
+                if (idleCount.incrementAndGet() <= MAX_IDLE) {
+                    idle.offer(evaluator);
+                } else {
+                    idleCount.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * 一个解释器以及在其上解析好的脚本，同一时间只被一个线程使用
+     */
+    private static final class Evaluator {
+        private final Interpreter interpreter;
+        private final boolean optimizeConstants;
+        private final Map<String, BshCompiledScript> scripts = new LinkedHashMap<String, BshCompiledScript>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BshCompiledScript> eldest) {
+                return size() > MAX_SCRIPTS_PER_CLASSLOADER;
+            }
+        };
+
+        Evaluator(ClassLoader classLoader, boolean optimizeConstants) {
+            this.interpreter = new Interpreter();
+            this.interpreter.setClassLoader(classLoader);
+            this.optimizeConstants = optimizeConstants;
+        }
+
+        Object eval(String script, Map<String, Object> arguments) throws EvalError {
+            BshCompiledScript compiledScript = scripts.get(script);
+            if (compiledScript == null) {
+                compiledScript = BshCompiledScript.compile(interpreter, script, optimizeConstants);
+                scripts.put(script, compiledScript);
+            }
+            return compiledScript.eval(interpreter, arguments);
         }
     }
 }
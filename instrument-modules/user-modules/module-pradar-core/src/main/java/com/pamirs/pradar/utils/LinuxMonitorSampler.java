@@ -0,0 +1,515 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Linux 下直接读取 procfs、cgroup 文件的服务器指标采集
+ * <p>
+ * /proc/stat、/proc/loadavg、/proc/meminfo、/proc/diskstats 以及 cgroup 的文件在创建时打开并一直持有，
+ * 每次采集时回到文件开头重新读取即可拿到内核最新的数据。cpu 使用率用本次与上一次采集之间的差值计算，
+ * 不再需要在采集线程中休眠等待两次采样
+ * </p>
+ * <p>
+ * 在设置了 cpu、内存限制的容器中，cpu 使用率、cpu 核数、内存总量和可用内存按照 cgroup 的限制计算，
+ * 同时兼容 cgroup v1 与 v2
+ * </p>
+ * <p>
+ * 非线程安全，只能在采集任务中使用
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:24 下午
+ */
+class LinuxMonitorSampler {
+
+    private static final String CGROUP_ROOT = "/sys/fs/cgroup";
+
+    /**
+     * /proc/diskstats 中的扇区固定为 512 字节
+     */
+    private static final int SECTOR_SIZE = 512;
+
+    /**
+     * cgroup v1 没有限制内存时的值是一个接近 Long.MAX_VALUE 的数
+     */
+    private static final long UNLIMITED = Long.MAX_VALUE / 2;
+
+    private final ProcFile stat;
+    private final ProcFile loadavg;
+    private final ProcFile meminfo;
+    private final ProcFile diskstats;
+
+    /**
+     * cgroup v2 的 cpu.max，v1 为 cpu.cfs_quota_us 与 cpu.cfs_period_us
+     */
+    private ProcFile cpuMax;
+    private ProcFile cpuQuota;
+    private ProcFile cpuPeriod;
+    /**
+     * cgroup v2 的 cpu.stat(usage_usec)，v1 为 cpuacct.usage(纳秒)
+     */
+    private ProcFile cpuStat;
+    private ProcFile cpuacctUsage;
+    /**
+     * cgroup v2 的 memory.max、memory.current，v1 为 memory.limit_in_bytes、memory.usage_in_bytes
+     */
+    private ProcFile memoryLimit;
+    private ProcFile memoryUsage;
+    private ProcFile memoryStat;
+    private String inactiveFileKey;
+
+    /**
+     * 整块磁盘的设备名，分区的读写已经算在所在的磁盘上
+     */
+    private final Set<String> disks;
+
+    private final int hostCpus;
+
+    private long lastTotalTicks = -1;
+    private long lastIdleTicks;
+    private long lastIowaitTicks;
+    private long lastCgroupCpuUsage = -1;
+    private long lastSampleNanos;
+
+    private double cpuUsage;
+    private double ioWait;
+    private final double[] load = new double[3];
+    private final long[] ticks = new long[7];
+    private final long[] diskFields = new long[7];
+    private long memTotal;
+    private long memAvailable;
+    private int cpuNum;
+    private long diskReadBytes;
+    private long diskWriteBytes;
+
+    LinuxMonitorSampler(int hostCpus) throws IOException {
+        this.hostCpus = hostCpus;
+        this.stat = new ProcFile("/proc/stat");
+        this.loadavg = new ProcFile("/proc/loadavg");
+        this.meminfo = new ProcFile("/proc/meminfo");
+        this.diskstats = ProcFile.openIfExists("/proc/diskstats");
+        this.disks = listDisks();
+        openCgroupFiles();
+    }
+
+    /**
+     * 是否可以使用 procfs 采集
+     */
+    static boolean isSupported() {
+        String osName = System.getProperty("os.name");
+        return osName != null && osName.toLowerCase().startsWith("linux")
+                && new File("/proc/stat").canRead()
+                && new File("/proc/meminfo").canRead()
+                && new File("/proc/loadavg").canRead();
+    }
+
+    private void openCgroupFiles() {
+        if (new File(CGROUP_ROOT, "cgroup.controllers").exists()) {
+            cpuMax = ProcFile.openIfExists(CGROUP_ROOT + "/cpu.max");
+            cpuStat = ProcFile.openIfExists(CGROUP_ROOT + "/cpu.stat");
+            memoryLimit = ProcFile.openIfExists(CGROUP_ROOT + "/memory.max");
+            memoryUsage = ProcFile.openIfExists(CGROUP_ROOT + "/memory.current");
+            memoryStat = ProcFile.openIfExists(CGROUP_ROOT + "/memory.stat");
+            inactiveFileKey = "inactive_file";
+        } else {
+            cpuQuota = ProcFile.openIfExists(CGROUP_ROOT + "/cpu/cpu.cfs_quota_us");
+            cpuPeriod = ProcFile.openIfExists(CGROUP_ROOT + "/cpu/cpu.cfs_period_us");
+            cpuacctUsage = ProcFile.openIfExists(CGROUP_ROOT + "/cpuacct/cpuacct.usage");
+            memoryLimit = ProcFile.openIfExists(CGROUP_ROOT + "/memory/memory.limit_in_bytes");
+            memoryUsage = ProcFile.openIfExists(CGROUP_ROOT + "/memory/memory.usage_in_bytes");
+            memoryStat = ProcFile.openIfExists(CGROUP_ROOT + "/memory/memory.stat");
+            inactiveFileKey = "total_inactive_file";
+        }
+    }
+
+    private static Set<String> listDisks() {
+        Set<String> disks = new HashSet<String>();
+        String[] names = new File("/sys/block").list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith("loop") || name.startsWith("ram") || name.startsWith("zram")) {
+                    continue;
+                }
+                disks.add(name);
+            }
+        }
+        return disks;
+    }
+
+    /**
+     * 采集一次，第一次采集时 cpu 使用率按照开机以来的累计值计算
+     */
+    void sample() throws IOException {
+        long now = System.nanoTime();
+        long elapsedNanos = lastSampleNanos == 0 ? 0 : now - lastSampleNanos;
+        lastSampleNanos = now;
+
+        sampleHostCpu();
+        double cpuLimit = readCpuLimit();
+        cpuNum = cpuLimit > 0 ? (int) Math.ceil(cpuLimit) : hostCpus;
+        if (cpuLimit > 0) {
+            long usage = readCgroupCpuUsageNanos();
+            if (usage >= 0) {
+                if (lastCgroupCpuUsage >= 0 && elapsedNanos > 0) {
+                    cpuUsage = (usage - lastCgroupCpuUsage) * 100d / (elapsedNanos * cpuLimit);
+                }
+                lastCgroupCpuUsage = usage;
+            }
+        }
+
+        sampleLoad();
+        sampleMemory();
+        sampleDisks();
+    }
+
+    private void sampleHostCpu() throws IOException {
+        int len = stat.read();
+        byte[] buf = stat.buf;
+        /**
+         * 第一行: cpu user nice system idle iowait irq softirq steal ...
+         */
+        int pos = skipToken(buf, 0, len);
+        long[] ticks = this.ticks;
+        for (int i = 0; i < ticks.length && pos < len; i++) {
+            pos = skipSpaces(buf, pos, len);
+            ticks[i] = parseLong(buf, pos, len);
+            pos = skipToken(buf, pos, len);
+        }
+        long total = 0;
+        for (long tick : ticks) {
+            total += tick;
+        }
+        long idle = ticks[3];
+        long iowait = ticks[4];
+        long totalDelta = lastTotalTicks < 0 ? total : total - lastTotalTicks;
+        long idleDelta = lastTotalTicks < 0 ? idle : idle - lastIdleTicks;
+        long iowaitDelta = lastTotalTicks < 0 ? iowait : iowait - lastIowaitTicks;
+        lastTotalTicks = total;
+        lastIdleTicks = idle;
+        lastIowaitTicks = iowait;
+        if (totalDelta > 0) {
+            cpuUsage = (totalDelta - idleDelta) * 100d / totalDelta;
+            ioWait = iowaitDelta * 100d / totalDelta;
+        } else {
+            cpuUsage = 0;
+            ioWait = 0;
+        }
+    }
+
+    /**
+     * @return 可以使用的 cpu 核数，没有限制时返回 -1
+     */
+    private double readCpuLimit() throws IOException {
+        if (cpuMax != null) {
+            int len = cpuMax.read();
+            byte[] buf = cpuMax.buf;
+            int pos = skipSpaces(buf, 0, len);
+            if (pos >= len || buf[pos] == 'm') {
+                return -1;
+            }
+            long quota = parseLong(buf, pos, len);
+            pos = skipSpaces(buf, skipToken(buf, pos, len), len);
+            long period = parseLong(buf, pos, len);
+            return quota > 0 && period > 0 ? (double) quota / period : -1;
+        }
+        if (cpuQuota != null && cpuPeriod != null) {
+            long quota = cpuQuota.readLong();
+            long period = cpuPeriod.readLong();
+            return quota > 0 && period > 0 ? (double) quota / period : -1;
+        }
+        return -1;
+    }
+
+    private long readCgroupCpuUsageNanos() throws IOException {
+        if (cpuStat != null) {
+            long usec = cpuStat.readValue("usage_usec");
+            return usec < 0 ? -1 : usec * 1000L;
+        }
+        if (cpuacctUsage != null) {
+            return cpuacctUsage.readLong();
+        }
+        return -1;
+    }
+
+    private void sampleLoad() throws IOException {
+        int len = loadavg.read();
+        byte[] buf = loadavg.buf;
+        int pos = 0;
+        for (int i = 0; i < load.length; i++) {
+            pos = skipSpaces(buf, pos, len);
+            load[i] = parseDecimal(buf, pos, len);
+            pos = skipToken(buf, pos, len);
+        }
+    }
+
+    private void sampleMemory() throws IOException {
+        long total = meminfo.readValue("MemTotal:") * 1024L;
+        long available = meminfo.readValue("MemAvailable:") * 1024L;
+        if (memoryLimit != null && memoryUsage != null) {
+            long limit = memoryLimit.readLong();
+            if (limit > 0 && limit < UNLIMITED && limit < total) {
+                long used = memoryUsage.readLong();
+                if (memoryStat != null) {
+                    long inactiveFile = memoryStat.readValue(inactiveFileKey);
+                    if (inactiveFile > 0 && inactiveFile < used) {
+                        used -= inactiveFile;
+                    }
+                }
+                total = limit;
+                available = Math.max(0, limit - used);
+            }
+        }
+        memTotal = total;
+        memAvailable = available;
+    }
+
+    private void sampleDisks() throws IOException {
+        if (diskstats == null) {
+            return;
+        }
+        int len = diskstats.read();
+        byte[] buf = diskstats.buf;
+        long read = 0;
+        long write = 0;
+        int pos = 0;
+        while (pos < len) {
+            int lineEnd = pos;
+            while (lineEnd < len && buf[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            /**
+             * major minor name reads merged sectors_read ms writes merged sectors_written ...
+             */
+            int p = skipSpaces(buf, pos, lineEnd);
+            p = skipSpaces(buf, skipToken(buf, p, lineEnd), lineEnd);
+            p = skipSpaces(buf, skipToken(buf, p, lineEnd), lineEnd);
+            int nameEnd = skipToken(buf, p, lineEnd);
+            if (nameEnd > p && disks.contains(new String(buf, p, nameEnd - p, "ISO-8859-1"))) {
+                long[] fields = this.diskFields;
+                p = nameEnd;
+                for (int i = 0; i < fields.length && p < lineEnd; i++) {
+                    p = skipSpaces(buf, p, lineEnd);
+                    fields[i] = parseLong(buf, p, lineEnd);
+                    p = skipToken(buf, p, lineEnd);
+                }
+                read += fields[2];
+                write += fields[6];
+            }
+            pos = lineEnd + 1;
+        }
+        diskReadBytes = read * SECTOR_SIZE;
+        diskWriteBytes = write * SECTOR_SIZE;
+    }
+
+    double getCpuUsage() {
+        return cpuUsage;
+    }
+
+    double getIoWait() {
+        return ioWait;
+    }
+
+    double[] getLoad() {
+        return load;
+    }
+
+    long getMemTotal() {
+        return memTotal;
+    }
+
+    long getMemAvailable() {
+        return memAvailable;
+    }
+
+    int getCpuNum() {
+        return cpuNum;
+    }
+
+    long getDiskReadBytes() {
+        return diskReadBytes;
+    }
+
+    long getDiskWriteBytes() {
+        return diskWriteBytes;
+    }
+
+    void close() {
+        ProcFile.close(stat);
+        ProcFile.close(loadavg);
+        ProcFile.close(meminfo);
+        ProcFile.close(diskstats);
+        ProcFile.close(cpuMax);
+        ProcFile.close(cpuQuota);
+        ProcFile.close(cpuPeriod);
+        ProcFile.close(cpuStat);
+        ProcFile.close(cpuacctUsage);
+        ProcFile.close(memoryLimit);
+        ProcFile.close(memoryUsage);
+        ProcFile.close(memoryStat);
+    }
+
+    private static int skipSpaces(byte[] buf, int pos, int end) {
+        while (pos < end && (buf[pos] == ' ' || buf[pos] == '\t')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipToken(byte[] buf, int pos, int end) {
+        while (pos < end && buf[pos] != ' ' && buf[pos] != '\t' && buf[pos] != '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static long parseLong(byte[] buf, int pos, int end) {
+        boolean negative = false;
+        if (pos < end && buf[pos] == '-') {
+            negative = true;
+            pos++;
+        }
+        long value = 0;
+        while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+            value = value * 10 + (buf[pos] - '0');
+            pos++;
+        }
+        return negative ? -value : value;
+    }
+
+    private static double parseDecimal(byte[] buf, int pos, int end) {
+        long integer = 0;
+        while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+            integer = integer * 10 + (buf[pos] - '0');
+            pos++;
+        }
+        double fraction = 0;
+        if (pos < end && buf[pos] == '.') {
+            pos++;
+            double scale = 0.1;
+            while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+                fraction += (buf[pos] - '0') * scale;
+                scale /= 10;
+                pos++;
+            }
+        }
+        return integer + fraction;
+    }
+
+    /**
+     * 一直打开的 procfs、cgroup 文件，读取时回到文件开头，内核每次都会重新生成内容
+     */
+    private static final class ProcFile {
+        private final RandomAccessFile file;
+        private byte[] buf = new byte[4096];
+
+        ProcFile(String path) throws IOException {
+            this.file = new RandomAccessFile(path, "r");
+        }
+
+        static ProcFile openIfExists(String path) {
+            if (!new File(path).canRead()) {
+                return null;
+            }
+            try {
+                return new ProcFile(path);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        static void close(ProcFile procFile) {
+            if (procFile != null) {
+                try {
+                    procFile.file.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+
+        /**
+         * 读取整个文件到缓冲区中
+         *
+         * @return 读取到的长度
+         */
+        int read() throws IOException {
+            file.seek(0);
+            int len = 0;
+            while (true) {
+                if (len == buf.length) {
+                    byte[] newBuf = new byte[buf.length << 1];
+                    System.arraycopy(buf, 0, newBuf, 0, len);
+                    buf = newBuf;
+                }
+                int n = file.read(buf, len, buf.length - len);
+                if (n <= 0) {
+                    return len;
+                }
+                len += n;
+            }
+        }
+
+        /**
+         * 读取只有一个数字的文件，内容不是数字(如 max)时返回 -1
+         */
+        long readLong() throws IOException {
+            int len = read();
+            int pos = skipSpaces(buf, 0, len);
+            if (pos >= len || (buf[pos] != '-' && (buf[pos] < '0' || buf[pos] > '9'))) {
+                return -1;
+            }
+            return parseLong(buf, pos, len);
+        }
+
+        /**
+         * 读取 key value 格式的文件中指定 key 的值
+         *
+         * @return 找不到时返回 -1
+         */
+        long readValue(String key) throws IOException {
+            int len = read();
+            int keyLen = key.length();
+            int pos = 0;
+            while (pos < len) {
+                if (matches(key, keyLen, pos, len) && pos + keyLen < len
+                        && (buf[pos + keyLen] == ' ' || buf[pos + keyLen] == '\t')) {
+                    return parseLong(buf, skipSpaces(buf, pos + keyLen, len), len);
+                }
+                while (pos < len && buf[pos] != '\n') {
+                    pos++;
+                }
+                pos++;
+            }
+            return -1;
+        }
+
+        private boolean matches(String key, int keyLen, int pos, int len) {
+            if (pos + keyLen > len) {
+                return false;
+            }
+            for (int i = 0; i < keyLen; i++) {
+                if (buf[pos + i] != key.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -60,8 +60,16 @@ public class MonitorCollector {
     private static long lastErrorTime;
     private static MonitorCollector INSTANCE;
     public SystemInfo si;
+    /**
+     * 磁盘容量的采集间隔
+     */
+    private static final long FILE_SYSTEM_INTERVAL = 60000L;
     private int printLogCount = 2;
     private ScheduledFuture future;
+    private LinuxMonitorSampler procfsSampler;
+    private final StringBuilder logBuilder = new StringBuilder(256);
+    private long[] fileSystemUses;
+    private long nextFileSystemTime;
 
     private MonitorCollector() {
         si = new SystemInfo();
@@ -86,6 +94,7 @@ public class MonitorCollector {
      * 初始化 monitor 数据收集任务
      */
     public void start() {
+        final LinuxMonitorSampler sampler = createSampler();
         future = ExecutorServiceFactory.getFactory().scheduleAtFixedRate(new Runnable() {
             @Override
             public void run() {
@@ -93,6 +102,10 @@ public class MonitorCollector {
                     return;
                 }
                 try {
+                    if (sampler != null) {
+                        collectByProcfs(sampler);
+                        return;
+                    }
                     long timeStamp = System.currentTimeMillis() / 1000;
                     String appName = AppNameUtils.appName();
                     StringBuilder stringBuilder = new StringBuilder();
@@ -136,6 +149,85 @@ public class MonitorCollector {
 
     }
 
+    /**
+     * Linux 下使用直接读取 procfs、cgroup 的采集方式，可以通过 -Dpradar.monitor.procfs.enabled=false 关闭，
+     * 关闭或者初始化失败时仍然使用 oshi 采集
+     */
+    private LinuxMonitorSampler createSampler() {
+        if (!Boolean.valueOf(System.getProperty("pradar.monitor.procfs.enabled", "true"))
+                || !LinuxMonitorSampler.isSupported()) {
+            return null;
+        }
+        try {
+            procfsSampler = new LinuxMonitorSampler(getCpus(si.getHardware().getProcessor()));
+            return procfsSampler;
+        } catch (Throwable e) {
+            logger.warn("init procfs monitor sampler fail, use oshi instead.", e);
+            return null;
+        }
+    }
+
+    private void collectByProcfs(LinuxMonitorSampler sampler) throws IOException {
+        sampler.sample();
+        long now = System.currentTimeMillis();
+        /**
+         * 磁盘容量变化很慢，不需要每秒都遍历一次所有的挂载点
+         */
+        if (fileSystemUses == null || now >= nextFileSystemTime) {
+            long[] diskUses = getFileSystem();
+            if (diskUses != null) {
+                fileSystemUses = diskUses;
+            }
+            nextFileSystemTime = now + FILE_SYSTEM_INTERVAL;
+        }
+        long memTotal = sampler.getMemTotal();
+        long memAvailable = sampler.getMemAvailable();
+        double[] load = sampler.getLoad();
+        StringBuilder stringBuilder = logBuilder;
+        stringBuilder.setLength(0);
+        stringBuilder.append(AppNameUtils.appName()).append('|')
+                .append(now / 1000).append('|')
+                .append(Pradar.AGENT_ID).append('|');
+        appendDecimal(stringBuilder, sampler.getCpuUsage()).append('|');
+        appendDecimal(stringBuilder, load[0]).append('|');
+        appendDecimal(stringBuilder, load[1]).append('|');
+        appendDecimal(stringBuilder, load[2]).append('|');
+        appendDecimal(stringBuilder, memTotal > 0 ? (memTotal - memAvailable) * 100d / memTotal : 0).append('|')
+                .append(memTotal).append('|')
+                .append(memAvailable).append('|');
+        appendDecimal(stringBuilder, sampler.getIoWait()).append('|')
+                .append(0).append('|')
+                .append(0).append('|')
+                .append(sampler.getCpuNum()).append('|')
+                .append(fileSystemUses != null ? fileSystemUses[0] : 0).append('|')
+                .append(fileSystemUses != null ? fileSystemUses[1] : 0).append('|')
+                .append(sampler.getDiskReadBytes()).append('|')
+                .append(sampler.getDiskWriteBytes()).append('|')
+                .append(Pradar.PRADAR_MONITOR_LOG_VERSION)
+                .append(PradarCoreUtils.NEWLINE);
+        Pradar.commitMonitorLog(stringBuilder.toString());
+    }
+
+    /**
+     * 输出四舍五入保留两位小数的值，格式与 DecimalFormat("0.00") 一致，不需要每次都创建字符串
+     */
+    static StringBuilder appendDecimal(StringBuilder builder, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            value = 0;
+        }
+        long scaled = Math.round(value * 100);
+        if (scaled < 0) {
+            builder.append('-');
+            scaled = -scaled;
+        }
+        long fraction = scaled % 100;
+        builder.append(scaled / 100).append('.');
+        if (fraction < 10) {
+            builder.append('0');
+        }
+        return builder.append(fraction);
+    }
+
     public long[] getFileSystem() {
         try {
             FileSystem fileSystem = si.getOperatingSystem().getFileSystem();
@@ -360,5 +452,9 @@ public class MonitorCollector {
         if (future != null && !future.isCancelled() && !future.isDone()) {
             future.cancel(true);
         }
+        if (procfsSampler != null) {
+            procfsSampler.close();
+            procfsSampler = null;
+        }
     }
 }
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InvokeContextCodecTest {
+
+    private static InvokeContext newContext(String traceId) {
+        InvokeContext ctx = new InvokeContext(traceId, "trace-app", "0.1");
+        ctx.setClusterTest(true);
+        ctx.setPassCheck(true);
+        return ctx;
+    }
+
+    private static String encode(InvokeContext ctx) {
+        return InvokeContextCodec.toTransformMap(ctx).get(PradarService.PRADAR_CONTEXT_KEY);
+    }
+
+    @Test
+    public void roundTrip() {
+        InvokeContext ctx = newContext("0a1b2c3d");
+        Map<String, String> transformMap = InvokeContextCodec.toTransformMap(ctx);
+        Assert.assertEquals(Pradar.PRADAR_CLUSTER_TEST_ON, transformMap.get(PradarService.PRADAR_CLUSTER_TEST_KEY));
+
+        Map<String, String> decoded = InvokeContextCodec.decode(transformMap.get(PradarService.PRADAR_CONTEXT_KEY));
+        Assert.assertNotNull(decoded);
+        Assert.assertEquals("0a1b2c3d", decoded.get(PradarService.PRADAR_TRACE_ID_KEY));
+        Assert.assertEquals("0.1", decoded.get(PradarService.PRADAR_INVOKE_ID_KEY));
+        Assert.assertEquals("trace-app", decoded.get(PradarService.PRADAR_TRACE_APPNAME_KEY));
+        Assert.assertEquals(Pradar.PRADAR_CLUSTER_TEST_ON, decoded.get(PradarService.PRADAR_CLUSTER_TEST_KEY));
+        Assert.assertEquals(Pradar.PRADAR_DEBUG_OFF, decoded.get(PradarService.PRADAR_DEBUG_KEY));
+        Assert.assertEquals("true", decoded.get(PradarService.PRADAR_WHITE_LIST_CHECK));
+        Assert.assertNull(decoded.get(PradarService.PRADAR_USER_DATA_KEY));
+    }
+
+    @Test
+    public void separatorAndEscapeAreEscaped() {
+        InvokeContext ctx = newContext("a;b%c;%41");
+        String value = encode(ctx);
+        Assert.assertEquals(7, count(value, ';'));
+        Assert.assertEquals("a;b%c;%41", InvokeContextCodec.decode(value).get(PradarService.PRADAR_TRACE_ID_KEY));
+    }
+
+    @Test
+    public void nonAsciiUserData() {
+        InvokeContext ctx = newContext("0a1b2c3d");
+        ctx.putUserData("name", "压测 流量;%");
+        ctx.putUserData("k", "v");
+        String value = encode(ctx);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            Assert.assertTrue("not printable ascii: " + value, c > ' ' && c < 0x7F);
+        }
+        Map<String, String> decoded = InvokeContextCodec.decode(value);
+        Assert.assertEquals(ctx.exportUserData(), decoded.get(PradarService.PRADAR_USER_DATA_KEY));
+    }
+
+    @Test
+    public void truncatedInput() {
+        InvokeContext ctx = newContext("0a1b2c3d");
+        ctx.putUserData("name", "压测");
+        String value = encode(ctx);
+        int lastSeparator = value.lastIndexOf(';');
+        for (int i = 0; i < value.length(); i++) {
+            Map<String, String> decoded = InvokeContextCodec.decode(value.substring(0, i));
+            if (i <= lastSeparator) {
+                Assert.assertNull(value.substring(0, i), decoded);
+            } else {
+                // 只截断了最后一个字段，不完整的转义按原样保留
+                Assert.assertNotNull(value.substring(0, i), decoded);
+                Assert.assertEquals("0a1b2c3d", decoded.get(PradarService.PRADAR_TRACE_ID_KEY));
+            }
+        }
+        Assert.assertEquals("a%4", InvokeContextCodec.decode("1;9;t;;;;;a%4").get(PradarService.PRADAR_USER_DATA_KEY));
+    }
+
+    @Test
+    public void invalidInput() {
+        Assert.assertNull(InvokeContextCodec.decode(null));
+        Assert.assertNull(InvokeContextCodec.decode(""));
+        Assert.assertNull(InvokeContextCodec.decode("2;9;t;;;;;"));
+        Assert.assertNull(InvokeContextCodec.decode("1;G;t;;;;;"));
+        Assert.assertNull(InvokeContextCodec.decode("1;19;t;;;;;"));
+    }
+
+    @Test
+    public void explicitKeysTakePrecedence() {
+        Map<String, String> ctx = new HashMap<String, String>();
+        ctx.put(PradarService.PRADAR_CONTEXT_KEY, encode(newContext("0a1b2c3d")));
+        ctx.put(PradarService.PRADAR_TRACE_ID_KEY, "explicit");
+        Map<String, String> expanded = InvokeContextCodec.expand(ctx);
+        Assert.assertEquals("explicit", expanded.get(PradarService.PRADAR_TRACE_ID_KEY));
+        Assert.assertEquals("0.1", expanded.get(PradarService.PRADAR_INVOKE_ID_KEY));
+        Assert.assertFalse(expanded.containsKey(PradarService.PRADAR_CONTEXT_KEY));
+    }
+
+    private static int count(String s, char c) {
+        int count = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == c) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.pressurement.agent.shared.exit;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.pamirs.pradar.internal.config.MatchConfig;
+import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
+import com.pamirs.pradar.pressurement.mock.WhiteListStrategy;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HttpWhiteListMatcherTest {
+
+    private Set<MatchConfig> previous;
+
+    @Before
+    public void setUp() {
+        previous = GlobalConfig.getInstance().getUrlWhiteList();
+        Set<MatchConfig> whiteList = new LinkedHashSet<MatchConfig>();
+        whiteList.add(config("/api/users"));
+        whiteList.add(config("/api/{id}/detail"));
+        whiteList.add(config("http://10.0.0.1:*"));
+        whiteList.add(config("http://[::1]:*"));
+        whiteList.add(config("http://[2001:db8::1]:8080"));
+        GlobalConfig.getInstance().setUrlWhiteList(whiteList);
+        ArbiterHttpExit.clearHttpMatch();
+    }
+
+    @After
+    public void tearDown() {
+        GlobalConfig.getInstance().setUrlWhiteList(previous);
+        ArbiterHttpExit.clearHttpMatch();
+    }
+
+    private static MatchConfig config(String url) {
+        MatchConfig config = MatchConfig.success(new WhiteListStrategy());
+        config.setUrl(url);
+        return config;
+    }
+
+    private static boolean pass(String url) {
+        return ArbiterHttpExit.shallWePassHttpString(url).isSuccess();
+    }
+
+    @Test
+    public void pathIgnoresHostAndPort() {
+        Assert.assertTrue(pass("http://example.com/api/users"));
+        Assert.assertTrue(pass("http://example.com:8080/api/users"));
+        Assert.assertTrue(pass("https://user@example.com:8443/api/users?name=a#top"));
+        Assert.assertTrue(pass("http://my_host:8080/api/users"));
+        Assert.assertTrue(pass("http://example.com/api/42/detail"));
+        Assert.assertFalse(pass("http://example.com:8080/api/orders"));
+        Assert.assertFalse(pass("http://example.com/api//detail"));
+    }
+
+    @Test
+    public void ipv6Literals() {
+        Assert.assertTrue(pass("http://[::1]/api/users"));
+        Assert.assertTrue(pass("http://[::1]:8080/api/users"));
+        Assert.assertTrue(pass("http://[2001:db8::1]:8080/api/users?x=1"));
+        Assert.assertTrue(pass("http://[fe80::1%25eth0]:8080/api/users"));
+        Assert.assertFalse(pass("http://[2001:db8::1]:8080/api/orders"));
+    }
+
+    @Test
+    public void wildcardPortOnRootUrls() {
+        Assert.assertTrue(pass("http://10.0.0.1:8080"));
+        Assert.assertTrue(pass("http://10.0.0.1:8080/"));
+        Assert.assertTrue(pass("http://10.0.0.1:1"));
+        Assert.assertFalse(pass("http://10.0.0.2:8080"));
+        Assert.assertTrue(pass("http://[::1]:9090"));
+        Assert.assertTrue(pass("http://[2001:db8::1]:8080"));
+        Assert.assertFalse(pass("http://[2001:db8::1]:8081"));
+    }
+
+    @Test
+    public void missingPortDoesNotMatchPortPattern() {
+        Assert.assertFalse(pass("http://10.0.0.1"));
+        Assert.assertFalse(pass("http://10.0.0.1/"));
+        Assert.assertFalse(pass("http://[2001:db8::1]"));
+    }
+
+    @Test
+    public void pathStart() {
+        Assert.assertEquals(17, HttpWhiteListMatcher.pathStart("http://[::1]:8080/a"));
+        Assert.assertEquals(12, HttpWhiteListMatcher.pathStart("http://[::1]"));
+        Assert.assertEquals(16, HttpWhiteListMatcher.pathStart("http://host:8080?a=1"));
+        Assert.assertEquals(11, HttpWhiteListMatcher.pathStart("http://host#a"));
+        Assert.assertEquals(0, HttpWhiteListMatcher.pathStart("host:8080/api/users"));
+        Assert.assertEquals(0, HttpWhiteListMatcher.pathStart("/api/users"));
+        Assert.assertEquals(0, HttpWhiteListMatcher.pathStart("//host:8080/api/users"));
+    }
+}
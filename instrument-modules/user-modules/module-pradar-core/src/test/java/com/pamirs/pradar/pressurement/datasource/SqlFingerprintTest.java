@@ -0,0 +1,126 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.pressurement.datasource;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SqlFingerprintTest {
+
+    private static final String MYSQL = "mysql";
+
+    private static final String ORACLE = "oracle";
+
+    @Test
+    public void literalsShareFingerprint() {
+        SqlFingerprint a = SqlFingerprint.of("select * from t where a = 'x' and b = 12 and c = -3.5", MYSQL);
+        SqlFingerprint b = SqlFingerprint.of("select * from t where a = 'yy' and b = 7 and c = 1e3", MYSQL);
+        Assert.assertNotNull(a);
+        Assert.assertNotNull(b);
+        Assert.assertEquals(a.getSql(), b.getSql());
+        Assert.assertEquals("select * from t where a = 'x' and b = 12 and c = -3.5", a.apply(a.getSql()));
+        Assert.assertEquals("select * from t where a = 'yy' and b = 7 and c = 1e3", b.apply(a.getSql()));
+    }
+
+    @Test
+    public void binaryMinusIsNotPartOfLiteral() {
+        SqlFingerprint fingerprint = SqlFingerprint.of("select a - 1 from t", MYSQL);
+        Assert.assertTrue(fingerprint.getSql().startsWith("select a - '"));
+        Assert.assertEquals("select a - 1 from t", fingerprint.apply(fingerprint.getSql()));
+    }
+
+    @Test
+    public void escapedQuotes() {
+        String sql = "select * from t where a = 'it''s' and b = 'a\\'b'";
+        SqlFingerprint fingerprint = SqlFingerprint.of(sql, MYSQL);
+        Assert.assertNotNull(fingerprint);
+        Assert.assertFalse(fingerprint.getSql().contains("it"));
+        Assert.assertFalse(fingerprint.getSql().contains("a\\'b"));
+        Assert.assertEquals(sql, fingerprint.apply(fingerprint.getSql()));
+    }
+
+    @Test
+    public void backslashIsNotAnEscapeWithoutDialectSupport() {
+        String sql = "select * from t where a = 'c:\\' and b = 1";
+        SqlFingerprint fingerprint = SqlFingerprint.of(sql, ORACLE);
+        Assert.assertNotNull(fingerprint);
+        Assert.assertEquals(sql, fingerprint.apply(fingerprint.getSql()));
+        Assert.assertTrue(fingerprint.getSql().contains("and b = '"));
+    }
+
+    @Test
+    public void unterminatedLiteralHasNoFingerprint() {
+        Assert.assertNull(SqlFingerprint.of("select * from t where a = 'x", MYSQL));
+        Assert.assertNull(SqlFingerprint.of("select * from t /* comment", MYSQL));
+    }
+
+    @Test
+    public void commentsAreKept() {
+        String sql = "select /* 1 'a' */ a -- 'b' 2\n from t # 'c' 3\n where b = 4";
+        SqlFingerprint fingerprint = SqlFingerprint.of(sql, MYSQL);
+        Assert.assertTrue(fingerprint.getSql().contains("/* 1 'a' */"));
+        Assert.assertTrue(fingerprint.getSql().contains("-- 'b' 2\n"));
+        Assert.assertTrue(fingerprint.getSql().contains("# 'c' 3\n"));
+        Assert.assertFalse(fingerprint.getSql().endsWith("4"));
+        Assert.assertEquals(sql, fingerprint.apply(fingerprint.getSql()));
+    }
+
+    @Test
+    public void quotedIdentifiersAreKept() {
+        String sql = "select `1col`, \"t 2\" from `db`.`t3` where `a` = 5";
+        SqlFingerprint fingerprint = SqlFingerprint.of(sql, MYSQL);
+        Assert.assertTrue(fingerprint.getSql().startsWith("select `1col`, \"t 2\" from `db`.`t3` where `a` = '"));
+        Assert.assertEquals(sql, fingerprint.apply(fingerprint.getSql()));
+    }
+
+    @Test
+    public void prefixedStringsAndNumericIdentifiersAreKept() {
+        String sql = "select N'abc', X'0F' from 1t where a = 2";
+        SqlFingerprint fingerprint = SqlFingerprint.of(sql, MYSQL);
+        Assert.assertTrue(fingerprint.getSql().startsWith("select N'abc', X'0F' from 1t where a = '"));
+        Assert.assertEquals(sql, fingerprint.apply(fingerprint.getSql()));
+    }
+
+    @Test
+    public void inListsOfDifferentLengthShareFingerprint() {
+        SqlFingerprint a = SqlFingerprint.of("select * from t where id in (1, 2, 3) and name IN ('a','b')", MYSQL);
+        SqlFingerprint b = SqlFingerprint.of("select * from t where id in (4) and name IN ('c', ?, -5)", MYSQL);
+        Assert.assertEquals(a.getSql(), b.getSql());
+        Assert.assertEquals("select * from t where id in (4) and name IN ('c', ?, -5)", b.apply(a.getSql()));
+    }
+
+    @Test
+    public void inListsWithExpressionsAreNotCollapsed() {
+        SqlFingerprint a = SqlFingerprint.of("select * from t where id in (1, b)", MYSQL);
+        SqlFingerprint b = SqlFingerprint.of("select * from t where id in (select id from t2 where c = 1)", MYSQL);
+        Assert.assertTrue(a.getSql().contains(", b)"));
+        Assert.assertTrue(b.getSql().contains("in (select id from t2 where c = '"));
+    }
+
+    @Test
+    public void templateMustUseEveryPlaceholderOnce() {
+        SqlFingerprint fingerprint = SqlFingerprint.of("select * from t where a = 1 and b = 2", MYSQL);
+        String sql = fingerprint.getSql();
+        String first = sql.substring(0, sql.indexOf(" and "));
+        Assert.assertFalse(fingerprint.isTemplate(first));
+        Assert.assertTrue(fingerprint.isTemplate(sql.replace("from t ", "from pt_t ")));
+        Assert.assertEquals("select * from pt_t where a = 1 and b = 2", fingerprint.apply(sql.replace("from t ", "from pt_t ")));
+    }
+
+    @Test
+    public void sqlContainingPlaceholderHasNoFingerprint() {
+        Assert.assertNull(SqlFingerprint.of("select '__PRADAR_SQL_PARAM_0__' from t", MYSQL));
+    }
+}
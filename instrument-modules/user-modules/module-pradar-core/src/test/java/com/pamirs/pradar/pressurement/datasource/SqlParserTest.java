@@ -0,0 +1,33 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.pressurement.datasource;
+
+import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SqlParserTest {
+
+    @Test
+    public void fingerprintParseFailureIsNotReported() {
+        GlobalConfig.getInstance().getWrongSqlDetail().clear();
+        String sql = "select * from t where a = 'x' and and b = 1";
+        Assert.assertTrue(SqlParser.getTables(sql, "mysql").getTables().isEmpty());
+        Assert.assertEquals(1, GlobalConfig.getInstance().getWrongSqlDetail().size());
+        String detail = GlobalConfig.getInstance().getWrongSqlDetail().iterator().next();
+        Assert.assertTrue(detail, detail.contains(sql));
+        Assert.assertFalse(detail, detail.contains("__PRADAR_SQL_PARAM_"));
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.script.bsh;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import bsh.EvalError;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BshScriptEvaluatorTest {
+
+    private final BshScriptEvaluator evaluator = new BshScriptEvaluator(BshScriptEvaluatorTest.class.getClassLoader());
+
+    private static Map<String, Object> arguments(String name, Object value) {
+        Map<String, Object> arguments = new HashMap<String, Object>();
+        arguments.put(name, value);
+        return arguments;
+    }
+
+    @Test
+    public void cachedScriptUsesEachCallsArguments() {
+        String script = "return name + \"-\" + name.length();";
+        Assert.assertEquals("a-1", evaluator.evaluate(script, arguments("name", "a")));
+        Assert.assertEquals("bb-2", evaluator.evaluate(script, arguments("name", "bb")));
+    }
+
+    @Test
+    public void concurrentEvaluation() throws Exception {
+        final String script = "int[][] arr = new int[n.intValue()][n.intValue() + 1]; return arr.length * 100 + arr[0].length;";
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int wrong = 0;
+                        for (int i = 0; i < 500; i++) {
+                            int n = 1 + (thread * 7 + i) % 32;
+                            if (!Integer.valueOf(n * 100 + n + 1).equals(evaluator.evaluate(script, arguments("n", n)))) {
+                                wrong++;
+                            }
+                        }
+                        return wrong;
+                    }
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                Assert.assertEquals(Integer.valueOf(0), future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void lexicalErrorIsEvalError() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                evaluator.evaluate("return \"abc;", null);
+                Assert.fail();
+            } catch (RuntimeException e) {
+                Assert.assertTrue(e.getCause() instanceof EvalError);
+                Assert.assertTrue(e.getCause().getMessage().contains("Token Parsing Error"));
+            }
+        }
+    }
+}
@@ -64,11 +64,9 @@ public class DataSourceGetConnectionCutoffInterceptor extends CutoffInterceptorA
     public CutOffResult cutoff0(Advice advice) {
         Object target = advice.getTarget();
         ProxoolDataSource dataSource = (ProxoolDataSource) target;
-        DataSourceMeta<ProxoolDataSource> dataSourceMeta = new DataSourceMeta<ProxoolDataSource>(
-                dataSource.getDriverUrl(), dataSource.getUser(), dataSource);
         ClusterTestUtils.validateClusterTest();
 
-        DataSourceWrapUtil.init(dataSourceMeta);
+        ProxoolMediaDataSource mediatorDataSource = DataSourceWrapUtil.getMediator(dataSource);
 
         Connection connection = null;
 
@@ -79,26 +77,18 @@ public class DataSourceGetConnectionCutoffInterceptor extends CutoffInterceptorA
          *
          * 如果配置初始化异常或者没有对应配置
          */
-        if (DataSourceWrapUtil.pressureDataSources.containsKey(dataSourceMeta)) {
-            ProxoolMediaDataSource mediatorDataSource = DataSourceWrapUtil.pressureDataSources.get(dataSourceMeta);
-            if (mediatorDataSource != null) {
-                try {
-                    connection = mediatorDataSource.getConnection();
-                } catch (SQLException e) {
-                    throw new PressureMeasureError(e);
-                }
-            } else {
-                if (!Pradar.isClusterTest()) {
-                    return CutOffResult.passed();
-                }
+        if (mediatorDataSource != null) {
+            try {
+                connection = mediatorDataSource.getConnection();
+            } catch (SQLException e) {
+                throw new PressureMeasureError(e);
             }
             return CutOffResult.cutoff(connection);
-        } else {
-            if (!Pradar.isClusterTest()) {
-                return CutOffResult.passed();
-            }
-            return CutOffResult.cutoff(null);
         }
+        if (!Pradar.isClusterTest()) {
+            return CutOffResult.passed();
+        }
+        return CutOffResult.cutoff(null);
     }
 
     private void addListener() {
@@ -156,6 +146,7 @@ public class DataSourceGetConnectionCutoffInterceptor extends CutoffInterceptorA
                     }
 
                 }
+                DataSourceWrapUtil.mediatorRegistry.clear();
                 return EventResult.success("module-proxool: destroyed shadow table datasource success.");
             }
 
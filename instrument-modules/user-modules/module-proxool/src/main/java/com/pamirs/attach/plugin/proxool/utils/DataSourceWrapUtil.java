@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.proxool.utils;
 
+import com.pamirs.attach.plugin.common.datasource.ShadowDataSourceRegistry;
 import com.pamirs.pradar.ConfigNames;
 import com.pamirs.pradar.ErrorTypeEnum;
 import com.pamirs.pradar.Pradar;
@@ -45,6 +46,11 @@ public class DataSourceWrapUtil {
     public static final ConcurrentHashMap<DataSourceMeta, ProxoolMediaDataSource> pressureDataSources
             = new ConcurrentHashMap<DataSourceMeta, ProxoolMediaDataSource>();
 
+    /**
+     * 业务数据源到中介的快速查找，获取连接时先从这里查找，找不到时再初始化
+     */
+    public static final ShadowDataSourceRegistry<ProxoolDataSource, ProxoolMediaDataSource> mediatorRegistry = new ShadowDataSourceRegistry<ProxoolDataSource, ProxoolMediaDataSource>();
+
     public static void destroy() {
         Iterator<Map.Entry<DataSourceMeta, ProxoolMediaDataSource>> it = pressureDataSources.entrySet().iterator();
         while (it.hasNext()) {
@@ -53,6 +59,26 @@ public class DataSourceWrapUtil {
             entry.getValue().close();
         }
         pressureDataSources.clear();
+        mediatorRegistry.clear();
+    }
+
+    /**
+     * 获取业务数据源对应的中介，第一次获取或者注册表清空之后重新初始化
+     *
+     * @param dataSource 业务数据源
+     * @return 没有对应的中介时返回 null
+     */
+    public static ProxoolMediaDataSource getMediator(ProxoolDataSource dataSource) {
+        ProxoolMediaDataSource mediator = mediatorRegistry.get(dataSource);
+        if (mediator != null || mediatorRegistry.contains(dataSource)) {
+            return mediator;
+        }
+        long version = mediatorRegistry.version();
+        DataSourceMeta<ProxoolDataSource> dataSourceMeta = new DataSourceMeta<ProxoolDataSource>(dataSource.getDriverUrl(), dataSource.getUser(), dataSource);
+        init(dataSourceMeta);
+        mediator = pressureDataSources.get(dataSourceMeta);
+        mediatorRegistry.register(dataSource, mediator, version);
+        return mediator;
     }
 
     public static boolean validate(ProxoolDataSource sourceDataSource) {
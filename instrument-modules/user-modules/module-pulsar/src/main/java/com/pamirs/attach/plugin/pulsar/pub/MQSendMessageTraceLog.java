@@ -42,7 +42,8 @@ public class MQSendMessageTraceLog {
         Pradar.startClientInvoke(serviceName, methodName);
 
         MQTraceBean traceBean = ctx.getTraceBeans().get(0);
-        traceBean.setContext(Pradar.getInvokeContextMap());
+        // 上下文会写入消息属性发送给消费端，只传输需要远程传输的字段
+        traceBean.setContext(Pradar.getInvokeContextTransformMap());
         if (CollectionUtils.isNotEmpty(ctx.getTraceBeans())) {
             Pradar.remoteIp(ctx.getTraceBeans().get(0).getStoreHost());
             Pradar.remotePort(ctx.getTraceBeans().get(0).getPort());
@@ -54,8 +55,7 @@ public class MQSendMessageTraceLog {
         // 如果采用异步的方式提交消息，需要将Pradar的context在不同线程中进行传递（默认Pradar的context是存放在
         // ThreadLocal 中）
         if (ctx.isAsync()) {
-            ctx.setRpcContextInner(Pradar.getInvokeContextMap());
-            Pradar.popInvokeContext();
+            ctx.setRpcContextInner(Pradar.popInvokeContext());
         }
     }
 
@@ -15,23 +15,30 @@
 package com.pamirs.attach.plugin.jedis.interceptor;
 
 import com.pamirs.attach.plugin.common.datasource.redisserver.RedisClientMediator;
+import com.pamirs.attach.plugin.common.datasource.redisserver.RedisShadowKeys;
 import com.pamirs.attach.plugin.jedis.destroy.JedisDestroyed;
 import com.pamirs.attach.plugin.jedis.util.RedisUtils;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.exception.PressureMeasureError;
 import com.pamirs.pradar.interceptor.ParametersWrapperInterceptorAdaptor;
 import com.pamirs.pradar.pressurement.ClusterTestUtils;
-import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
 import com.shulie.instrument.simulator.api.annotation.Destroyable;
 import com.shulie.instrument.simulator.api.listener.ext.Advice;
 import org.apache.commons.lang.ObjectUtils;
-import org.apache.commons.lang.StringUtils;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Destroyable(JedisDestroyed.class)
 public class MJedisInterceptor extends ParametersWrapperInterceptorAdaptor {
 
+    /**
+     * 每个方法的 key 处理方式，第一次调用时根据方法名确定，之后直接取
+     */
+    private final ConcurrentHashMap<String, KeyPlan> keyPlans = new ConcurrentHashMap<String, KeyPlan>();
+
     @Override
     public Object[] getParameter0(Advice advice) {
 
@@ -50,56 +57,51 @@ public class MJedisInterceptor extends ParametersWrapperInterceptorAdaptor {
             return args;
         }
 
-        String methodName = advice.getBehavior().getName();
-
-        if (RedisUtils.IGNORE_NAME.contains(methodName)) {
-            return args;
-        }
-
-        Collection<String> whiteList = GlobalConfig.getInstance().getCacheKeyWhiteList();
-
-        if (RedisUtils.EVAL_METHOD_NAME.contains(methodName)) {
-            return processEvalMethodName(args, whiteList);
-        }
-
-        //String methodSign = getMethodSign(methodName,args);
-        if (RedisUtils.METHOD_MORE_KEYS.containsKey(methodName)) {
-            return processMoreKeys(methodName, args, whiteList);
-        }
-
-        //jedis db非0时候选择不做处理
-        if ("select".equals(advice.getBehavior().getName())) {
-            return args;
-        }
-
-        if ("xread".equals(advice.getBehavior().getName())) {
-            return processXRead(args, whiteList);
-        }
-
-        if ("xreadGroup".equals(advice.getBehavior().getName())) {
-            return processXReadGroup(args, whiteList);
+        final KeyPlan plan = getKeyPlan(advice.getBehavior().getName());
+        switch (plan.type) {
+            case KeyPlan.IGNORE:
+            case KeyPlan.SELECT:
+                //jedis db非0时候选择不做处理
+                return args;
+            case KeyPlan.EVAL:
+                return processEvalMethodName(args);
+            case KeyPlan.MORE_KEYS:
+                return processMoreKeys(plan.keyIndexes, args);
+            case KeyPlan.XREAD:
+                return processXRead(args);
+            case KeyPlan.XREAD_GROUP:
+                return processXReadGroup(args);
+            case KeyPlan.MSET:
+                return processMset(args);
+            default:
+                return process(args);
         }
+    }
 
-        if ("mset".equals(advice.getBehavior().getName())||"msetnx".equals(advice.getBehavior().getName())) {
-            return processMset(args, whiteList);
+    private KeyPlan getKeyPlan(String methodName) {
+        KeyPlan plan = keyPlans.get(methodName);
+        if (plan == null) {
+            plan = KeyPlan.of(methodName);
+            KeyPlan old = keyPlans.putIfAbsent(methodName, plan);
+            if (old != null) {
+                plan = old;
+            }
         }
-
-        return process(args, whiteList);
+        return plan;
     }
 
-    private Object[] processMset(Object[] args, Collection<String> whiteList) {
+    private Object[] processMset(Object[] args) {
         Object params = args[0];
         if (params instanceof String[]) {
             String[] data = (String[]) params;
-            for (int i = 0; i < data.length; i=i+2) {
-                data[i] = fetchKeyString(data[i], whiteList);
+            for (int i = 0; i < data.length; i = i + 2) {
+                data[i] = RedisShadowKeys.toShadowKey(data[i]);
             }
             return args;
         } else if (params instanceof byte[][]) {
             byte[][] data = (byte[][]) params;
             for (int i = 0; i < data.length; i = i + 2) {
-                String key = fetchKeyString(new String(data[i]), whiteList);
-                data[i] = key.getBytes();
+                data[i] = RedisShadowKeys.toShadowKey(data[i]);
             }
             return args;
         }
@@ -107,7 +109,7 @@ public class MJedisInterceptor extends ParametersWrapperInterceptorAdaptor {
         throw new PressureMeasureError("Jedis not support mset key deserialize !");
     }
 
-    private Object[] processXRead(Object[] args, Collection<String> whiteList) {
+    private Object[] processXRead(Object[] args) {
         if (args.length != 3) {
             return args;
         }
@@ -151,7 +153,7 @@ public class MJedisInterceptor extends ParametersWrapperInterceptorAdaptor {
         return args;
     }
 
-    private Object[] processXReadGroup(Object[] args, Collection<String> whiteList) {
+    private Object[] processXReadGroup(Object[] args) {
         if (args.length != 6) {
             return args;
         }
@@ -195,111 +197,53 @@ public class MJedisInterceptor extends ParametersWrapperInterceptorAdaptor {
         return args;
     }
 
-    private Object[] process(Object[] args, Collection<String> whiteList) {
+    private Object[] process(Object[] args) {
         //遍历顺序获取一下几个类型值
         for (int i = 0; i < args.length; i++) {
-            if (args[i] instanceof String) {
-                return processKeyString(args, whiteList, i);
-            } else if (args[i] instanceof String[]) {
-                return processKeyStringArray(args, whiteList, i);
-            } else if (args[i] instanceof byte[]) {
-                return processKeyByte(args, whiteList, i);
-            } else if (args[i] instanceof byte[][]) {
-                return processKeyByteArray(args, whiteList, i);
+            if (args[i] instanceof String || args[i] instanceof String[]
+                    || args[i] instanceof byte[] || args[i] instanceof byte[][]) {
+                return processIndex(args, i);
             }
         }
 
         throw new PressureMeasureError("Jedis not support key deserialize !");
     }
 
-    private Object[] processIndex(Object[] args, Collection<String> whiteList, int keyIndex) {
-        if (args[keyIndex] instanceof String) {
-            return processKeyString(args, whiteList, keyIndex);
-        } else if (args[keyIndex] instanceof String[]) {
-            return processKeyStringArray(args, whiteList, keyIndex);
-        } else if (args[keyIndex] instanceof byte[]) {
-            return processKeyByte(args, whiteList, keyIndex);
-        } else if (args[keyIndex] instanceof byte[][]) {
-            return processKeyByteArray(args, whiteList, keyIndex);
+    private Object[] processIndex(Object[] args, int keyIndex) {
+        final Object key = args[keyIndex];
+        if (key instanceof String) {
+            args[keyIndex] = RedisShadowKeys.toShadowKey((String) key);
+        } else if (key instanceof String[]) {
+            RedisShadowKeys.toShadowKeys((String[]) key, true);
+        } else if (key instanceof byte[]) {
+            args[keyIndex] = RedisShadowKeys.toShadowKey((byte[]) key);
+        } else if (key instanceof byte[][]) {
+            RedisShadowKeys.toShadowKeys((byte[][]) key, true);
         } else {
             throw new PressureMeasureError("Jedis not support key deserialize !");
         }
-    }
-
-    private Object[] processKeyStringArray(Object[] args, Collection<String> whiteList, int keyIndex) {
-        int keysIndex = keyIndex;
-        String[] keys = (String[]) args[keysIndex];
-        for (int i = 0; i < keys.length; i++) {
-            String key = keys[i];
-
-            if (isNumeric(key)) {
-                continue;
-            }
-
-            //白名单 忽略
-            if (whiteListValidate(whiteList, key)) {
-                continue;
-            }
-            if (!Pradar.isClusterTestPrefix(key)) {
-                key = Pradar.addClusterTestPrefix(key);
-                keys[i] = key;
-            }
-        }
-
-        args[keysIndex] = keys;
         return args;
     }
 
     public boolean isNumeric(String key) {
-        boolean numeric = StringUtils.isNumeric(key);
-        if (numeric) {
-            return true;
-        }
-        return false;
+        return RedisShadowKeys.isNumeric(key);
     }
 
-    private Object[] processMoreKeys(String methodName, Object[] args, Collection<String> whiteList) {
-        List<Integer> keyIndexes = RedisUtils.METHOD_MORE_KEYS.get(methodName);
+    private Object[] processMoreKeys(int[] keyIndexes, Object[] args) {
         //如果出现枚举的值比方法参数数量大的，则进行判断单个key逻辑处理
-        for (int i = 0; i < keyIndexes.size(); i++) {
-            if (args.length < (keyIndexes.get(i) + 1)) {
-                return process(args, whiteList);
+        for (int keyIndex : keyIndexes) {
+            if (args.length < keyIndex + 1) {
+                return process(args);
             }
         }
 
-        for (int i = 0; i < keyIndexes.size(); i++) {
-            processIndex(args, whiteList, keyIndexes.get(i));
+        for (int keyIndex : keyIndexes) {
+            processIndex(args, keyIndex);
         }
         return args;
     }
 
-    private Object[] processKeyString(Object[] args, Collection<String> whiteList, int keyIndex) {
-        String key = (String) args[keyIndex];
-        args[keyIndex] = fetchKeyString(key, whiteList);
-        return args;
-    }
-
-    private String fetchKeyString(String key, Collection<String> whiteList) {
-        if (whiteListValidate(whiteList, key)) {
-            return key;
-        }
-
-        if (!Pradar.isClusterTestPrefix(key)) {
-            return Pradar.addClusterTestPrefix(key);
-        }
-        return key;
-    }
-
-    private boolean whiteListValidate(Collection<String> whiteList, String key) {
-        for (String white : whiteList) {
-            if (key.startsWith(white)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private Object[] processEvalMethodName(Object[] args, Collection<String> whiteList) {
+    private Object[] processEvalMethodName(Object[] args) {
         if (args.length != 3) {
             return args;
         }
@@ -310,34 +254,16 @@ public class MJedisInterceptor extends ParametersWrapperInterceptorAdaptor {
             if (keyCount <= params.length) {
                 for (int i = 0; i < keyCount; i++) {
                     Object data = params[i];
-                    String key;
                     if (data instanceof String) {
-                        key = (String) data;
+                        if (!RedisUtils.IGNORE_NAME.contains(data)) {
+                            params[i] = RedisShadowKeys.toShadowKey((String) data);
+                        }
                     } else if (data instanceof byte[]) {
-                        key = new String((byte[]) data);
-                    } else {
-                        throw new PressureMeasureError("redis lua not support type " + data.getClass().getName());
-                    }
-                    if (RedisUtils.IGNORE_NAME.contains(key)) {
-                        continue;
-                    }
-                    boolean contains = false;
-                    for (String white : whiteList) {
-                        if (key.startsWith(white)) {
-                            contains = true;
-                            break;
+                        if (!RedisUtils.IGNORE_NAME.contains(new String((byte[]) data))) {
+                            params[i] = RedisShadowKeys.toShadowKey((byte[]) data);
                         }
-                    }
-                    if (contains) {
-                        continue;
-                    }
-                    if (Pradar.isClusterTestPrefix(key)) {
-                        continue;
-                    }
-                    if (params[i] instanceof String) {
-                        params[i] = Pradar.addClusterTestPrefix(key);
                     } else {
-                        params[i] = (Pradar.addClusterTestPrefix(key)).getBytes();
+                        throw new PressureMeasureError("redis lua not support type " + data.getClass().getName());
                     }
                 }
             }
@@ -351,47 +277,25 @@ public class MJedisInterceptor extends ParametersWrapperInterceptorAdaptor {
             byte[][] params = (byte[][]) args[2];
             if (keyCount <= params.length) {
                 for (int i = 0; i < keyCount; i++) {
-                    byte[] data = params[i];
-                    String key = new String((byte[]) data);
-                    if (RedisUtils.IGNORE_NAME.contains(key)) {
-                        continue;
-                    }
-                    boolean contains = false;
-                    for (String white : whiteList) {
-                        if (key.startsWith(white)) {
-                            contains = true;
-                            break;
-                        }
-                    }
-                    if (contains) {
-                        continue;
+                    if (!RedisUtils.IGNORE_NAME.contains(new String(params[i]))) {
+                        params[i] = RedisShadowKeys.toShadowKey(params[i]);
                     }
-                    if (Pradar.isClusterTestPrefix(key)) {
-                        continue;
-                    }
-                    params[i] = (Pradar.addClusterTestPrefix(key)).getBytes();
                 }
             }
         } else if (args[1] instanceof java.util.List) {
             List<Object> list = (List<Object>) args[1];
-            List<Object> ptList = new ArrayList<Object>();
+            List<Object> ptList = new ArrayList<Object>(list.size());
 
             for (Object o : list) {
-                String key;
                 if (o instanceof String) {
-                    key = (String) o;
+                    String key = (String) o;
                     if (!key.startsWith(Pradar.CLUSTER_TEST_PREFIX)) {
                         ptList.add((Pradar.addClusterTestPrefix(key)));
                     } else {
                         ptList.add(key);
                     }
                 } else if (o instanceof byte[]) {
-                    key = new String((byte[]) o);
-                    if (!Pradar.isClusterTestPrefix(key)) {
-                        ptList.add((Pradar.addClusterTestPrefix(key)).getBytes());
-                    } else {
-                        ptList.add(key.getBytes());
-                    }
+                    ptList.add(RedisShadowKeys.addPrefixIfAbsent((byte[]) o));
                 } else {
                     throw new PressureMeasureError("redis lua not support type " + o.getClass().getName());
                 }
@@ -401,219 +305,59 @@ public class MJedisInterceptor extends ParametersWrapperInterceptorAdaptor {
         return args;
     }
 
-    private Object[] processKeyByte(Object[] args, Collection<String> whiteList, int keyIndex) {
-        int keysIndex = keyIndex;
-        String key = new String((byte[]) args[keysIndex]);
-
-        //白名单 忽略
-        if (ignore(whiteList, key)) {
-            return args;
-        }
-
-        if (!Pradar.isClusterTestPrefix(key)) {
-            key = Pradar.addClusterTestPrefix(key);
-            args[keysIndex] = key.getBytes();
-            return args;
-        }
-
-        return args;
-    }
-
-    private Object[] processKeyByteArray(Object[] args, Collection<String> whiteList, int keyIndex) {
-        int keysIndex = keyIndex;
-        byte[][] keyBytes = (byte[][]) args[keysIndex];
-
-        for (int i = 0; i < keyBytes.length; i++) {
-            String key = new String(keyBytes[i]);
-
-            if (isNumeric(key)) {
-                continue;
-            }
-
-            //白名单 忽略
-            if (whiteListValidate(whiteList, key)) {
-                continue;
-            }
-            if (!Pradar.isClusterTestPrefix(key)) {
-                key = Pradar.addClusterTestPrefix(key);
-                keyBytes[i] = key.getBytes();
-            }
-        }
-
-        args[keysIndex] = keyBytes;
-        return args;
-    }
-
     private Object toClusterTestKey(Object key) {
-        if (key == null) {
-            return null;
-        }
-        if (key instanceof byte[]) {
-            return getBytes((byte[]) key);
-        }
-
-        if (key instanceof byte[][]) {
-            return getBytesArray((byte[][]) key);
-        }
-
-        if (key instanceof char[]) {
-            return getChars((char[]) key);
-        }
-
-        if (key instanceof char[][]) {
-            return getCharsArray((char[][]) key);
-        }
-
-        if (key instanceof String) {
-            return getString((String) key);
-        }
-
-        if (key instanceof List) {
-            List list = new ArrayList();
-            for (Object k : (List) key) {
-                list.add(toClusterTestKey(k));
-            }
-            return list;
-        }
-
-        if (key instanceof Set) {
-            Set set = new HashSet();
-            for (Object k : (Set) key) {
-                set.add(toClusterTestKey(k));
-            }
-            return set;
-        }
-
-        if (key instanceof Iterable) {
-            List list = new ArrayList();
-            Iterator it = ((Iterable) key).iterator();
-            while (it.hasNext()) {
-                Object k = it.next();
-                list.add(toClusterTestKey(k));
-            }
-            return list;
-        }
-
-        if (key instanceof Map) {
-            Map map = (Map) key;
-            Map result = new HashMap();
-
-            final Set<Map.Entry<Object, Object>> set = map.entrySet();
-            for (Map.Entry<Object, Object> entry : set) {
-                Object k = entry.getKey();
-                result.put(toClusterTestKey(k), entry.getValue());
-            }
-            return result;
-        }
+        return RedisShadowKeys.toShadowKey(key);
+    }
 
-        if (key instanceof Iterator) {
-            List list = new ArrayList();
-            Iterator it = (Iterator) key;
-            while (it.hasNext()) {
-                Object k = it.next();
-                list.add(toClusterTestKey(k));
+    /**
+     * 方法的 key 处理方式，判断顺序与之前逐个匹配方法名的顺序一致
+     */
+    private static final class KeyPlan {
+        static final int DEFAULT = 0;
+        static final int IGNORE = 1;
+        static final int EVAL = 2;
+        static final int MORE_KEYS = 3;
+        static final int SELECT = 4;
+        static final int XREAD = 5;
+        static final int XREAD_GROUP = 6;
+        static final int MSET = 7;
+
+        final int type;
+        final int[] keyIndexes;
+
+        private KeyPlan(int type, int[] keyIndexes) {
+            this.type = type;
+            this.keyIndexes = keyIndexes;
+        }
+
+        static KeyPlan of(String methodName) {
+            if (RedisUtils.IGNORE_NAME.contains(methodName)) {
+                return new KeyPlan(IGNORE, null);
             }
-            return list;
-        }
-
-        if (key instanceof Object[]) {
-            Object[] keys = (Object[]) key;
-            for (int i = 0, len = keys.length; i < len; i++) {
-                Object k = toClusterTestKey(keys[i]);
-                keys[i] = k;
+            if (RedisUtils.EVAL_METHOD_NAME.contains(methodName)) {
+                return new KeyPlan(EVAL, null);
             }
-            return keys;
-        }
-
-        String str = key.toString();
-        Collection<String> whiteList = GlobalConfig.getInstance().getCacheKeyWhiteList();
-        if (ignore(whiteList, str)) {
-            return str;
-        }
-        if (!Pradar.isClusterTestPrefix(str)) {
-            str = Pradar.addClusterTestPrefix(str);
-        }
-        return str;
-
-    }
-
-    private String getString(String key) {
-        Collection<String> whiteList = GlobalConfig.getInstance().getCacheKeyWhiteList();
-        if (ignore(whiteList, key)) {
-            return key;
-        }
-        String str = key;
-        if (!Pradar.isClusterTestPrefix(str)) {
-            str = Pradar.addClusterTestPrefix(str);
-        }
-        return str;
-    }
-
-    private char[][] getCharsArray(char[][] key) {
-        char[][] datas = key;
-        for (int i = 0, len = datas.length; i < len; i++) {
-            String str = new String(datas[i]);
-            Collection<String> whiteList = GlobalConfig.getInstance().getCacheKeyWhiteList();
-            if (ignore(whiteList, str)) {
-                continue;
+            final List<Integer> moreKeys = RedisUtils.METHOD_MORE_KEYS.get(methodName);
+            if (moreKeys != null) {
+                final int[] keyIndexes = new int[moreKeys.size()];
+                for (int i = 0; i < keyIndexes.length; i++) {
+                    keyIndexes[i] = moreKeys.get(i);
+                }
+                return new KeyPlan(MORE_KEYS, keyIndexes);
             }
-            if (!Pradar.isClusterTestPrefix(str)) {
-                str = Pradar.addClusterTestPrefix(str);
+            if ("select".equals(methodName)) {
+                return new KeyPlan(SELECT, null);
             }
-            datas[i] = str.toCharArray();
-        }
-        return datas;
-    }
-
-    private char[] getChars(char[] key) {
-        String str = new String(key);
-        Collection<String> whiteList = GlobalConfig.getInstance().getCacheKeyWhiteList();
-        if (ignore(whiteList, str)) {
-            return key;
-        }
-        if (!Pradar.isClusterTestPrefix(str)) {
-            str = Pradar.addClusterTestPrefix(str);
-        }
-        return str.toCharArray();
-    }
-
-    private byte[][] getBytesArray(byte[][] key) {
-        Collection<String> whiteList = GlobalConfig.getInstance().getCacheKeyWhiteList();
-        byte[][] datas = key;
-        for (int i = 0, len = datas.length; i < len; i++) {
-            String str = new String(datas[i]);
-            if (ignore(whiteList, str)) {
-                continue;
+            if ("xread".equals(methodName)) {
+                return new KeyPlan(XREAD, null);
             }
-            if (!Pradar.isClusterTestPrefix(str)) {
-                str = Pradar.addClusterTestPrefix(str);
+            if ("xreadGroup".equals(methodName)) {
+                return new KeyPlan(XREAD_GROUP, null);
             }
-            datas[i] = str.getBytes();
-        }
-        return datas;
-    }
-
-    private boolean ignore(Collection<String> whiteList, String key) {
-        //白名单 忽略
-        for (String white : whiteList) {
-            if (key.startsWith(white)) {
-                return true;
+            if ("mset".equals(methodName) || "msetnx".equals(methodName)) {
+                return new KeyPlan(MSET, null);
             }
+            return new KeyPlan(DEFAULT, null);
         }
-        return false;
-    }
-
-    private byte[] getBytes(byte[] key) {
-        String str = new String(key);
-
-        Collection<String> whiteList = GlobalConfig.getInstance().getCacheKeyWhiteList();
-        if (ignore(whiteList, str)) {
-            return key;
-        }
-
-        if (!Pradar.isClusterTestPrefix(str)) {
-            str = Pradar.addClusterTestPrefix(str);
-        }
-        return str.getBytes();
     }
 }
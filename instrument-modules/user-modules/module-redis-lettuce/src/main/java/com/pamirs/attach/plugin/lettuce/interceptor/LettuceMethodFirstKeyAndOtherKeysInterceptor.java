@@ -15,15 +15,14 @@
 package com.pamirs.attach.plugin.lettuce.interceptor;
 
 import com.pamirs.attach.plugin.common.datasource.redisserver.RedisClientMediator;
+import com.pamirs.attach.plugin.common.datasource.redisserver.RedisShadowKeys;
 import com.pamirs.attach.plugin.lettuce.destroy.LettuceDestroy;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.interceptor.ParametersWrapperInterceptorAdaptor;
 import com.pamirs.pradar.pressurement.ClusterTestUtils;
-import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
 import com.shulie.instrument.simulator.api.annotation.Destroyable;
 import com.shulie.instrument.simulator.api.listener.ext.Advice;
 
-import java.util.*;
 
 /**
  * 第一个参数是 K类型，第二参数或者第三个参数是 K 数组类型
@@ -31,6 +30,13 @@ import java.util.*;
 @Destroyable(LettuceDestroy.class)
 public class LettuceMethodFirstKeyAndOtherKeysInterceptor extends ParametersWrapperInterceptorAdaptor {
 
+    private final RedisShadowKeys.KeyArrayFilter keyArrayFilter = new RedisShadowKeys.KeyArrayFilter() {
+        @Override
+        public boolean isKey(Object object, int index) {
+            return isKeyArrayIndex(object, index);
+        }
+    };
+
     @Override
     protected Object[] getParameter0(Advice advice) {
         Object[] args = advice.getParameterArray();
@@ -85,178 +91,6 @@ public class LettuceMethodFirstKeyAndOtherKeysInterceptor extends ParametersWrap
     }
 
     private Object toClusterTestKey(Object key) {
-        if (key == null) {
-            return null;
-        }
-        if (key instanceof byte[]) {
-            return getBytes((byte[]) key);
-        }
-
-        if (key instanceof byte[][]) {
-            return getBytesArray((byte[][]) key);
-        }
-
-        if (key instanceof char[]) {
-            return getChars((char[]) key);
-        }
-
-        if (key instanceof char[][]) {
-            return getCharsArray((char[][]) key);
-        }
-
-        if (key instanceof String) {
-            return getString((String) key);
-        }
-
-        if (key instanceof List) {
-            List list = new ArrayList();
-            for (Object k : (List) key) {
-                list.add(toClusterTestKey(k));
-            }
-            return list;
-        }
-
-        if (key instanceof Set) {
-            Set set = new HashSet();
-            for (Object k : (Set) key) {
-                set.add(toClusterTestKey(k));
-            }
-            return set;
-        }
-
-        if (key instanceof Iterable) {
-            List list = new ArrayList();
-            Iterator it = ((Iterable) key).iterator();
-            while (it.hasNext()) {
-                Object k = it.next();
-                list.add(toClusterTestKey(k));
-            }
-            return list;
-        }
-
-        if (key instanceof Map) {
-            Map map = (Map) key;
-            Map result = new HashMap();
-
-            final Set<Map.Entry<Object, Object>> set = map.entrySet();
-            for (Map.Entry<Object, Object> entry : set) {
-                Object k = entry.getKey();
-                result.put(toClusterTestKey(k), entry.getValue());
-            }
-            return result;
-        }
-
-        if (key instanceof Iterator) {
-            List list = new ArrayList();
-            Iterator it = (Iterator) key;
-            while (it.hasNext()) {
-                Object k = it.next();
-                list.add(toClusterTestKey(k));
-            }
-            return list;
-        }
-
-        if (key instanceof Object[]) {
-            Object[] keys = (Object[]) key;
-            for (int i = 0, len = keys.length; i < len; i++) {
-                boolean isKeyArrayIndex = isKeyArrayIndex(keys[i], i);
-                if (isKeyArrayIndex) {
-                    Object k = toClusterTestKey(keys[i]);
-                    keys[i] = k;
-                }
-            }
-            return keys;
-        }
-
-        String str = key.toString();
-        Collection<String> whiteList = GlobalConfig.getInstance().getCacheKeyWhiteList();
-        if (ignore(whiteList, str)) {
-            return str;
-        }
-        if (!Pradar.isClusterTestPrefix(str)) {
-            str = Pradar.addClusterTestPrefix(str);
-        }
-        return str;
-
-    }
-
-    private String getString(String key) {
-        Collection<String> whiteList = GlobalConfig.getInstance().getCacheKeyWhiteList();
-        if (ignore(whiteList, key)) {
-            return key;
-        }
-        String str = key;
-        if (!Pradar.isClusterTestPrefix(str)) {
-            str = Pradar.addClusterTestPrefix(str);
-        }
-        return str;
-    }
-
-    private char[][] getCharsArray(char[][] key) {
-        char[][] datas = key;
-        for (int i = 0, len = datas.length; i < len; i++) {
-            String str = new String(datas[i]);
-            Collection<String> whiteList = GlobalConfig.getInstance().getCacheKeyWhiteList();
-            if (ignore(whiteList, str)) {
-                continue;
-            }
-            if (!Pradar.isClusterTestPrefix(str)) {
-                str = Pradar.addClusterTestPrefix(str);
-            }
-            datas[i] = str.toCharArray();
-        }
-        return datas;
-    }
-
-    private char[] getChars(char[] key) {
-        String str = new String(key);
-        Collection<String> whiteList = GlobalConfig.getInstance().getCacheKeyWhiteList();
-        if (ignore(whiteList, str)) {
-            return key;
-        }
-        if (!Pradar.isClusterTestPrefix(str)) {
-            str = Pradar.addClusterTestPrefix(str);
-        }
-        return str.toCharArray();
-    }
-
-    private byte[][] getBytesArray(byte[][] key) {
-        Collection<String> whiteList = GlobalConfig.getInstance().getCacheKeyWhiteList();
-        byte[][] datas = key;
-        for (int i = 0, len = datas.length; i < len; i++) {
-            String str = new String(datas[i]);
-            if (ignore(whiteList, str)) {
-                continue;
-            }
-            if (!Pradar.isClusterTestPrefix(str)) {
-                str = Pradar.addClusterTestPrefix(str);
-            }
-            datas[i] = str.getBytes();
-        }
-        return datas;
-    }
-
-    private boolean ignore(Collection<String> whiteList, String key) {
-        //白名单 忽略
-        for (String white : whiteList) {
-            if (key.startsWith(white)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private byte[] getBytes(byte[] key) {
-        String str = new String(key);
-
-        Collection<String> whiteList = GlobalConfig.getInstance().getCacheKeyWhiteList();
-        if (ignore(whiteList, str)) {
-            return key;
-        }
-
-        if (!Pradar.isClusterTestPrefix(str)) {
-            str = Pradar.addClusterTestPrefix(str);
-        }
-        return str.getBytes();
+        return RedisShadowKeys.toShadowKey(key, keyArrayFilter);
     }
 }
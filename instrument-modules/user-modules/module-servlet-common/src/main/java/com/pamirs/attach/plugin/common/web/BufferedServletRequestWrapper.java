@@ -14,7 +14,6 @@
  */
 package com.pamirs.attach.plugin.common.web;
 
-import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
@@ -30,7 +29,9 @@ import java.io.*;
  */
 public class BufferedServletRequestWrapper extends HttpServletRequestWrapper implements IBufferedServletRequestWrapper {
 
-    private byte[] buffer;
+    private final RequestBodyCapture capture = RequestBodyCapture.create();
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
     private HttpServletRequest request;
 
     public BufferedServletRequestWrapper(HttpServletRequest request) {
@@ -38,85 +39,37 @@ public class BufferedServletRequestWrapper extends HttpServletRequestWrapper imp
         this.request = request;
     }
 
-    private void initBuffer() {
-        try {
-            InputStream is = request.getInputStream();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte buff[] = new byte[1024];
-            int read;
-            while ((read = is.read(buff)) > 0) {
-                baos.write(buff, 0, read);
-            }
-            this.buffer = baos.toByteArray();
-        } catch (IOException e) {
-            //ignore
-        }
-    }
-
     @Override
     public ServletInputStream getInputStream() throws IOException {
-        if (this.buffer == null) {
-            initBuffer();
+        if (capture == null) {
+            return request.getInputStream();
+        }
+        if (inputStream == null) {
+            inputStream = new TeeServletInputStream(request.getInputStream(), capture);
         }
-        return new BufferedServletInputStream(this.buffer);
+        return inputStream;
     }
 
     @Override
     public BufferedReader getReader() throws IOException {
-        if (this.buffer == null) {
-            initBuffer();
+        if (capture == null) {
+            return request.getReader();
         }
-        String characterEncoding = request.getCharacterEncoding();
-        if (characterEncoding == null) {
-            characterEncoding = "ISO8859-1";
+        if (reader == null) {
+            String characterEncoding = request.getCharacterEncoding();
+            if (characterEncoding == null) {
+                characterEncoding = "ISO8859-1";
+            }
+            reader = new BufferedReader(new InputStreamReader(getInputStream(), characterEncoding));
         }
-        return new BufferedReader(new InputStreamReader(getInputStream(), characterEncoding));
+        return reader;
     }
 
     @Override
     public byte[] getBody() {
-        if (null == this.buffer) {
+        if (capture == null) {
             return null;
         }
-        return this.buffer;
-    }
-
-    static class BufferedServletInputStream extends ServletInputStream {
-        private ByteArrayInputStream inputStream;
-
-        public BufferedServletInputStream(byte[] buffer) {
-            this.inputStream = new ByteArrayInputStream(buffer);
-        }
-
-        @Override
-        public int available() throws IOException {
-            return inputStream.available();
-        }
-
-        @Override
-        public int read() throws IOException {
-            return inputStream.read();
-        }
-
-        @Override
-        public int read(byte[] b, int off, int len) throws IOException {
-            return inputStream.read(b, off, len);
-        }
-
-        @Override
-        public boolean isFinished() {
-            return false;
-        }
-
-        @Override
-        public boolean isReady() {
-            return false;
-        }
-
-        @Override
-        public void setReadListener(ReadListener readListener) {
-
-        }
-
+        return capture.toByteArray();
     }
 }
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.common.web;
+
+import com.pamirs.pradar.Pradar;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 请求体的截取，只保留业务读取到的前 N 个字节，N 为 {@link Pradar#getPluginRequestSize()}
+ * <p>
+ * 截取使用的缓冲区从池中获取，在取走请求体 {@link #toByteArray()} 时归还，
+ * 大请求体(如文件上传)不再整个放在内存中
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:07 下午
+ */
+public final class RequestBodyCapture {
+
+    private static final int MAX_POOL_SIZE = 64;
+
+    private static final ConcurrentLinkedQueue<byte[]> POOL = new ConcurrentLinkedQueue<byte[]>();
+    private static final AtomicInteger POOL_SIZE = new AtomicInteger();
+
+    private final int limit;
+    private byte[] buffer;
+    private int count;
+    private boolean finished;
+    private byte[] body;
+
+    private RequestBodyCapture(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * 创建请求体的截取，请求日志关闭时返回 null，不截取请求体
+     */
+    public static RequestBodyCapture create() {
+        if (!Pradar.isRequestOn()) {
+            return null;
+        }
+        final Integer limit = Pradar.getPluginRequestSize();
+        if (limit == null || limit <= 0) {
+            return null;
+        }
+        return new RequestBodyCapture(limit);
+    }
+
+    public synchronized void write(int b) {
+        if (!ensureBuffer()) {
+            return;
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    public synchronized void write(byte[] b, int off, int len) {
+        if (len <= 0 || !ensureBuffer()) {
+            return;
+        }
+        final int size = Math.min(len, limit - count);
+        System.arraycopy(b, off, buffer, count, size);
+        count += size;
+    }
+
+    private boolean ensureBuffer() {
+        if (finished || count >= limit) {
+            return false;
+        }
+        if (buffer == null) {
+            buffer = borrow(limit);
+        }
+        return true;
+    }
+
+    /**
+     * 取走截取到的请求体，之后不再截取，缓冲区归还到池中
+     *
+     * @return 截取到的请求体，业务没有读取请求体时返回 null
+     */
+    public synchronized byte[] toByteArray() {
+        if (!finished) {
+            finished = true;
+            if (buffer != null) {
+                body = new byte[count];
+                System.arraycopy(buffer, 0, body, 0, count);
+                release(buffer);
+                buffer = null;
+            }
+        }
+        return body;
+    }
+
+    private static byte[] borrow(int limit) {
+        byte[] buffer;
+        while ((buffer = POOL.poll()) != null) {
+            POOL_SIZE.decrementAndGet();
+            /**
+             * 配置的长度发生变化之后，池中旧长度的缓冲区直接丢弃
+             */
+            if (buffer.length == limit) {
+                return buffer;
+            }
+        }
+        return new byte[limit];
+    }
+
+    private static void release(byte[] buffer) {
+        if (POOL_SIZE.incrementAndGet() > MAX_POOL_SIZE) {
+            POOL_SIZE.decrementAndGet();
+            return;
+        }
+        POOL.offer(buffer);
+    }
+}
@@ -267,6 +267,9 @@ public abstract class RequestTracer<REQ, RESP> {
     private Map<String, String> getContext(REQ request) {
         Map<String, String> context = null;
         for (String key : Pradar.getInvokeContextTransformKeys()) {
+            if (PradarService.PRADAR_CONTEXT_KEY.equals(key)) {
+                continue;
+            }
             String value = getProperty(request, key);
             if (StringUtils.isNotBlank(value)) {
                 if (context == null) {
@@ -278,6 +281,13 @@ public abstract class RequestTracer<REQ, RESP> {
         return context;
     }
 
+    /**
+     * 获取紧凑格式的上下文，上游没有使用紧凑格式时返回 null
+     */
+    private Map<String, String> getCompactContext(REQ request) {
+        return InvokeContextCodec.decode(getProperty(request, PradarService.PRADAR_CONTEXT_KEY));
+    }
+
     /**
      * 开始调用链，注意，开始之后，不管后续处理是否正常，都需要调用。
      */
@@ -290,7 +300,11 @@ public abstract class RequestTracer<REQ, RESP> {
         if (!PradarSwitcher.USE_LOCAL_IP) {
             ip = getRemoteAddress(request);
         }
+        final Map<String, String> compactContext = getCompactContext(request);
         String traceId = getTraceId(request);
+        if (StringUtils.isBlank(traceId) && compactContext != null) {
+            traceId = compactContext.get(PradarService.PRADAR_TRACE_ID_KEY);
+        }
         boolean isTraceIdBlank = false;
         if (StringUtils.isBlank(traceId)) {
             traceId = TraceIdGenerator.generate(ip);
@@ -301,6 +315,11 @@ public abstract class RequestTracer<REQ, RESP> {
 
         boolean isClusterTestRequest = isClusterTestRequest(request);
         boolean isDebug = isDebugRequest(request);
+        if (compactContext != null) {
+            isClusterTestRequest = isClusterTestRequest
+                    || ClusterTestUtils.isClusterTestRequest(compactContext.get(PradarService.PRADAR_CLUSTER_TEST_KEY));
+            isDebug = isDebug || ClusterTestUtils.isDebugRequest(compactContext.get(PradarService.PRADAR_DEBUG_KEY));
+        }
 
 
         ClusterTestUtils.validateClusterTest(isClusterTestRequest);
@@ -324,7 +343,7 @@ public abstract class RequestTracer<REQ, RESP> {
         }
 
         if (!isTraceIdBlank) {
-            Map<String, String> context = getContext(request);
+            Map<String, String> context = compactContext != null ? compactContext : getContext(request);
             if (context != null) {
                 context.put(PradarService.PRADAR_TRACE_ID_KEY, traceId);
                 context.put(PradarService.PRADAR_CLUSTER_TEST_KEY, String.valueOf(isClusterTestRequest));
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.common.web;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import java.io.IOException;
+
+/**
+ * 业务读取请求体时原样返回读取的内容，同时将读到的内容写入 {@link RequestBodyCapture}
+ * <p>
+ * 不会提前读取请求体，也不会改变业务读取的行为，业务没有读取的部分不会被截取
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:07 下午
+ */
+public class TeeServletInputStream extends ServletInputStream {
+
+    private final ServletInputStream delegate;
+    private final RequestBodyCapture capture;
+
+    public TeeServletInputStream(ServletInputStream delegate, RequestBodyCapture capture) {
+        this.delegate = delegate;
+        this.capture = capture;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = delegate.read();
+        if (b != -1) {
+            capture.write(b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        return read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final int read = delegate.read(b, off, len);
+        if (read > 0) {
+            capture.write(b, off, read);
+        }
+        return read;
+    }
+
+    @Override
+    public int readLine(byte[] b, int off, int len) throws IOException {
+        final int read = delegate.readLine(b, off, len);
+        if (read > 0) {
+            capture.write(b, off, read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        return delegate.skip(n);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return delegate.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    /**
+     * 低版本的 Servlet 容器中没有以下方法，调用时忽略
+     */
+    @Override
+    public boolean isFinished() {
+        try {
+            return delegate.isFinished();
+        } catch (AbstractMethodError e) {
+            return false;
+        } catch (NoSuchMethodError e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        try {
+            return delegate.isReady();
+        } catch (AbstractMethodError e) {
+            return false;
+        } catch (NoSuchMethodError e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void setReadListener(ReadListener readListener) {
+        try {
+            delegate.setReadListener(readListener);
+        } catch (AbstractMethodError e) {
+            //ignore
+        } catch (NoSuchMethodError e) {
+            //ignore
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.spring.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.pamirs.pradar.cache.ShadowCacheTwins;
+import com.shulie.instrument.simulator.api.reflect.Reflect;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+/**
+ * ConcurrentMapCache 的影子缓存，名称、是否允许 null 值以及按值存储时的序列化方式与业务缓存相同，
+ * 使用独立的存储。ConcurrentMapCacheManager.getCache 创建的缓存同样经过构造方法记录
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 5:52 下午
+ */
+public class ConcurrentMapCacheTwinFactory implements ShadowCacheTwins.TwinFactory {
+
+    public final static ConcurrentMapCacheTwinFactory INSTANCE = new ConcurrentMapCacheTwinFactory();
+
+    private ConcurrentMapCacheTwinFactory() {
+    }
+
+    @Override
+    public Object create(Object cache) throws Throwable {
+        ConcurrentMapCache business = (ConcurrentMapCache) cache;
+        ConcurrentMap<Object, Object> store = new ConcurrentHashMap<Object, Object>(256);
+        Reflect reflect = Reflect.on(business);
+        /**
+         * 4.3 开始按值存储的缓存带有序列化方式，只能通过 protected 的构造方法传入
+         */
+        if (reflect.existsField("serialization")) {
+            Object serialization = reflect.get("serialization");
+            if (serialization != null) {
+                return Reflect.on(ConcurrentMapCache.class)
+                    .create(business.getName(), store, business.isAllowNullValues(), serialization).get();
+            }
+        }
+        return new ConcurrentMapCache(business.getName(), store, business.isAllowNullValues());
+    }
+}
@@ -15,6 +15,9 @@
 package com.pamirs.attach.plugin.spring.cache;
 
 import com.pamirs.attach.plugin.spring.cache.interceptor.ClusterTestCacheInterceptor;
+import com.pamirs.attach.plugin.spring.cache.interceptor.ConcurrentMapCacheConstructorInterceptor;
+import com.pamirs.attach.plugin.spring.cache.interceptor.ShadowCacheRouteInterceptor;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.pamirs.pradar.interceptor.Interceptors;
 import com.shulie.instrument.simulator.api.ExtensionModule;
 import com.shulie.instrument.simulator.api.ModuleInfo;
@@ -45,6 +48,27 @@ public class SpringCachePlugin extends ModuleLifecycleAdapter implements Extensi
         addCacheClusterTestKeyWrapper("org.springframework.cache.guava.GuavaCache");
         addCacheClusterTestKeyWrapper("org.springframework.cache.jcache.JCacheCache");
 
+        if (ShadowCacheTwins.isEnabled()) {
+            addConcurrentMapCacheTwin();
+        }
+    }
+
+    /**
+     * 隔离模式下压测流量访问 ConcurrentMapCache 对应的影子缓存，4.3 开始 get 方法在父类中通过 lookup 读取
+     */
+    private void addConcurrentMapCacheTwin() {
+        this.enhanceTemplate.enhance(this, "org.springframework.cache.concurrent.ConcurrentMapCache", new EnhanceCallback() {
+            @Override
+            public void doEnhance(InstrumentClass target) {
+                target.getConstructor("java.lang.String", "java.util.concurrent.ConcurrentMap", "boolean")
+                        .addInterceptor(Listeners.of(ConcurrentMapCacheConstructorInterceptor.class));
+                target.getConstructor("java.lang.String", "java.util.concurrent.ConcurrentMap", "boolean",
+                        "org.springframework.core.serializer.support.SerializationDelegate")
+                        .addInterceptor(Listeners.of(ConcurrentMapCacheConstructorInterceptor.class));
+                target.getDeclaredMethods("get", "lookup", "put", "putIfAbsent", "evict", "clear", "getNativeCache")
+                        .addInterceptor(Listeners.of(ShadowCacheRouteInterceptor.class));
+            }
+        });
     }
 
     private void addCacheClusterTestKeyWrapper(String className) {
@@ -16,6 +16,7 @@ package com.pamirs.attach.plugin.spring.cache.interceptor;
 
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.cache.ClusterTestCacheWrapperKey;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
 import com.pamirs.pradar.interceptor.ParametersWrapperInterceptorAdaptor;
 import com.pamirs.pradar.pressurement.ClusterTestUtils;
 import com.shulie.instrument.simulator.api.listener.ext.Advice;
@@ -38,6 +39,12 @@ public class ClusterTestCacheInterceptor extends ParametersWrapperInterceptorAda
         if (!Pradar.isClusterTest()) {
             return args;
         }
+        /**
+         * 隔离模式下压测流量访问的是影子缓存，不需要包装 key
+         */
+        if (ShadowCacheTwins.getInstance().isIsolated(advice.getTarget())) {
+            return args;
+        }
         try {
             Object arg = args[0];
             /**
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.spring.cache.interceptor;
+
+import com.pamirs.attach.plugin.spring.cache.ConcurrentMapCacheTwinFactory;
+import com.pamirs.pradar.cache.ShadowCacheTwins;
+import com.pamirs.pradar.interceptor.AroundInterceptor;
+import com.shulie.instrument.simulator.api.listener.ext.Advice;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+/**
+ * 记录 ConcurrentMapCache，隔离模式下用于创建影子缓存。子类的构造和行为可能不同，只记录 ConcurrentMapCache 本身
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 5:52 下午
+ */
+public class ConcurrentMapCacheConstructorInterceptor extends AroundInterceptor {
+
+    @Override
+    public void doAfter(Advice advice) {
+        Object target = advice.getTarget();
+        if (target != null && target.getClass() == ConcurrentMapCache.class) {
+            ShadowCacheTwins.getInstance().record(target, ConcurrentMapCacheTwinFactory.INSTANCE);
+        }
+    }
+}
@@ -89,6 +89,39 @@ public class BeforeEvent extends InvokeEvent {
         this.argumentArray = argumentArray;
     }
 
+    /**
+     * 重置调用BEFORE事件，供容器复用已经销毁的事件对象，事件处理器不应该调用
+     *
+     * @param processId       调用过程ID
+     * @param invokeId        调用ID
+     * @param javaClassLoader 触发调用事件的ClassLoader
+     * @param clazz           触发调用事件的类名称
+     * @param javaMethodName  触发调用事件的方法名称
+     * @param javaMethodDesc  触发调用事件的方法签名
+     * @param target          触发调用事件的对象(静态方法为null)
+     * @param argumentArray   触发调用事件的方法参数
+     * @return this
+     */
+    public BeforeEvent reset(final int processId,
+                             final int invokeId,
+                             final ClassLoader javaClassLoader,
+                             final Class clazz,
+                             final String javaMethodName,
+                             final String javaMethodDesc,
+                             final Object target,
+                             final Object[] argumentArray) {
+        reset(processId, invokeId);
+        if (javaClassLoader != null) {
+            this.javaClassLoader = new WeakReference<ClassLoader>(javaClassLoader);
+        }
+        this.clazz = clazz;
+        this.javaMethodName = javaMethodName;
+        this.javaMethodDesc = javaMethodDesc;
+        this.target = target;
+        this.argumentArray = argumentArray;
+        return this;
+    }
+
     /**
      * 改变方法入参
      *
@@ -69,6 +69,22 @@ public class ReturnEvent extends InvokeEvent {
 
     }
 
+    /**
+     * 重置调用RETURN事件，供容器复用已经销毁的事件对象，事件处理器不应该调用
+     *
+     * @param processId 调用过程ID
+     * @param invokeId  调用ID
+     * @param returnObj 调用返回值(void方法返回值为null)
+     * @return this
+     */
+    public ReturnEvent reset(final int processId,
+                             final int invokeId,
+                             final Object returnObj) {
+        reset(processId, invokeId);
+        this.returnObj = returnObj;
+        return this;
+    }
+
     public Object getReturnObj() {
         return returnObj;
     }
@@ -69,6 +69,22 @@ public class ThrowsEvent extends InvokeEvent {
 
     }
 
+    /**
+     * 重置异常/错误抛出调用事件，供容器复用已经销毁的事件对象，事件处理器不应该调用
+     *
+     * @param processId 调用过程ID
+     * @param invokeId  调用ID
+     * @param throwable 抛出的异常/错误信息
+     * @return this
+     */
+    public ThrowsEvent reset(final int processId,
+                             final int invokeId,
+                             final Throwable throwable) {
+        reset(processId, invokeId);
+        this.throwable = throwable;
+        return this;
+    }
+
     public Throwable getThrowable() {
         return throwable;
     }
@@ -0,0 +1,258 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.api.filter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static com.shulie.instrument.simulator.api.listener.ext.PatternType.REGEX;
+import static com.shulie.instrument.simulator.api.listener.ext.PatternType.WILDCARD;
+
+/**
+ * 类索引描述
+ * <p>
+ * 描述一个过滤器可能匹配到的类的范围: 类名全匹配、包名前缀、直接父类以及实现的接口。
+ * 一个类只有满足其中任意一项时才有可能被该过滤器匹配，容器在类加载时据此快速筛选出候选的过滤器，
+ * 无法描述匹配范围的过滤器不应该提供类索引
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 3:22 下午
+ */
+public final class ClassIndex {
+    /**
+     * 全匹配的类名
+     */
+    private final Set<String> classNames;
+    /**
+     * 包名前缀,均以 . 结尾
+     */
+    private final Set<String> packagePrefixes;
+    /**
+     * 直接父类名称
+     */
+    private final Set<String> superClassNames;
+    /**
+     * 实现的接口名称,包含从父类继承的接口
+     */
+    private final Set<String> interfaceNames;
+
+    private ClassIndex(Set<String> classNames, Set<String> packagePrefixes, Set<String> superClassNames, Set<String> interfaceNames) {
+        this.classNames = Collections.unmodifiableSet(classNames);
+        this.packagePrefixes = Collections.unmodifiableSet(packagePrefixes);
+        this.superClassNames = Collections.unmodifiableSet(superClassNames);
+        this.interfaceNames = Collections.unmodifiableSet(interfaceNames);
+    }
+
+    /**
+     * 根据类名集合构建类索引
+     *
+     * @param classNames 类名集合
+     * @return 类索引
+     */
+    public static ClassIndex ofClassNames(Collection<String> classNames) {
+        Set<String> names = new HashSet<String>();
+        if (classNames != null) {
+            names.addAll(classNames);
+        }
+        return new ClassIndex(names, Collections.<String>emptySet(), Collections.<String>emptySet(), Collections.<String>emptySet());
+    }
+
+    /**
+     * 根据类名匹配模式构建类索引
+     *
+     * @param patternType 匹配模式
+     * @param patterns    类名匹配模版
+     * @return 类索引, 如果任意一个模版无法被索引则返回 null
+     */
+    public static ClassIndex ofPatterns(int patternType, String... patterns) {
+        if (patterns == null || patterns.length == 0) {
+            return null;
+        }
+        Set<String> classNames = new HashSet<String>();
+        Set<String> packagePrefixes = new HashSet<String>();
+        for (String pattern : patterns) {
+            if (!addPattern(patternType, pattern, classNames, packagePrefixes)) {
+                return null;
+            }
+        }
+        return new ClassIndex(classNames, packagePrefixes, Collections.<String>emptySet(), Collections.<String>emptySet());
+    }
+
+    /**
+     * 根据直接父类的匹配模式构建类索引
+     *
+     * @param patternType 匹配模式
+     * @param patterns    父类匹配模版
+     * @return 类索引, 如果任意一个模版不是确定的类名则返回 null
+     */
+    public static ClassIndex ofSuperClasses(int patternType, String... patterns) {
+        Set<String> superClassNames = toExactNames(patternType, patterns);
+        if (superClassNames == null) {
+            return null;
+        }
+        return new ClassIndex(Collections.<String>emptySet(), Collections.<String>emptySet(), superClassNames, Collections.<String>emptySet());
+    }
+
+    /**
+     * 根据接口名称构建类索引
+     *
+     * @param interfaceNames 接口名称, 类实现其中任意一个接口即有可能被匹配
+     * @return 类索引
+     */
+    public static ClassIndex ofInterfaces(Collection<String> interfaceNames) {
+        if (interfaceNames == null || interfaceNames.isEmpty()) {
+            return null;
+        }
+        return new ClassIndex(Collections.<String>emptySet(), Collections.<String>emptySet(), Collections.<String>emptySet(), new HashSet<String>(interfaceNames));
+    }
+
+    /**
+     * 合并多个类索引, 合并后的索引匹配范围为所有索引的并集
+     *
+     * @param indexes 类索引
+     * @return 合并后的类索引, 如果任意一个类索引为 null 则返回 null
+     */
+    public static ClassIndex merge(ClassIndex... indexes) {
+        if (indexes == null || indexes.length == 0) {
+            return null;
+        }
+        if (indexes.length == 1) {
+            return indexes[0];
+        }
+        Set<String> classNames = new HashSet<String>();
+        Set<String> packagePrefixes = new HashSet<String>();
+        Set<String> superClassNames = new HashSet<String>();
+        Set<String> interfaceNames = new HashSet<String>();
+        for (ClassIndex index : indexes) {
+            if (index == null) {
+                return null;
+            }
+            classNames.addAll(index.classNames);
+            packagePrefixes.addAll(index.packagePrefixes);
+            superClassNames.addAll(index.superClassNames);
+            interfaceNames.addAll(index.interfaceNames);
+        }
+        return new ClassIndex(classNames, packagePrefixes, superClassNames, interfaceNames);
+    }
+
+    private static boolean addPattern(int patternType, String pattern, Set<String> classNames, Set<String> packagePrefixes) {
+        if (pattern == null) {
+            return false;
+        }
+        String exactName = toExactName(patternType, pattern);
+        if (exactName != null) {
+            classNames.add(exactName);
+            return true;
+        }
+        if (patternType != WILDCARD) {
+            return false;
+        }
+        /**
+         * 取第一个通配符之前的字面量，并截断到包名边界，得到一个匹配范围更大的包名前缀
+         */
+        int end = pattern.length();
+        for (int i = 0, len = pattern.length(); i < len; i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?' || c == '\\') {
+                end = i;
+                break;
+            }
+        }
+        int lastDot = pattern.lastIndexOf('.', end - 1);
+        if (lastDot <= 0) {
+            return false;
+        }
+        packagePrefixes.add(pattern.substring(0, lastDot + 1));
+        return true;
+    }
+
+    private static Set<String> toExactNames(int patternType, String... patterns) {
+        if (patterns == null || patterns.length == 0) {
+            return null;
+        }
+        Set<String> names = new HashSet<String>();
+        for (String pattern : patterns) {
+            String name = toExactName(patternType, pattern);
+            if (name == null) {
+                return null;
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    /**
+     * 将匹配模版转换成确定的类名
+     *
+     * @param patternType 匹配模式
+     * @param pattern     匹配模版
+     * @return 确定的类名, 如果不是确定的类名则返回 null
+     */
+    public static String toExactName(int patternType, String pattern) {
+        if (pattern == null || pattern.length() == 0) {
+            return null;
+        }
+        switch (patternType) {
+            case WILDCARD:
+                /**
+                 * 与 StringUtil.matching 保持一致，不包含 * 时为全匹配
+                 */
+                return pattern.indexOf('*') == -1 ? pattern : null;
+            case REGEX:
+                /**
+                 * 只识别 Pattern.quote 生成的正则
+                 */
+                if (pattern.startsWith("\\Q") && pattern.endsWith("\\E") && pattern.length() > 4) {
+                    String name = pattern.substring(2, pattern.length() - 2);
+                    if (name.indexOf("\\E") == -1 && Pattern.quote(name).equals(pattern)) {
+                        return name;
+                    }
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    public Set<String> getClassNames() {
+        return classNames;
+    }
+
+    public Set<String> getPackagePrefixes() {
+        return packagePrefixes;
+    }
+
+    public Set<String> getSuperClassNames() {
+        return superClassNames;
+    }
+
+    public Set<String> getInterfaceNames() {
+        return interfaceNames;
+    }
+
+    @Override
+    public String toString() {
+        return "ClassIndex{" +
+                "classNames=" + classNames +
+                ", packagePrefixes=" + packagePrefixes +
+                ", superClassNames=" + superClassNames +
+                ", interfaceNames=" + interfaceNames +
+                '}';
+    }
+}
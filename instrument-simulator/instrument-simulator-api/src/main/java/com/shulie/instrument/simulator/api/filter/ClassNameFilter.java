@@ -26,7 +26,7 @@ import java.util.List;
  * @author xiaobin.zfb|xiaobin@shulie.io
  * @since 2020/9/30 11:32 下午
  */
-public class ClassNameFilter implements ExtFilter {
+public class ClassNameFilter implements IndexedFilter {
     private String className;
     private boolean isIncludeSubClasses;
     private boolean isIncludeBootstrap;
@@ -70,4 +70,9 @@ public class ClassNameFilter implements ExtFilter {
     public List<BuildingForListeners> getAllListeners() {
         return Collections.EMPTY_LIST;
     }
+
+    @Override
+    public ClassIndex getClassIndex() {
+        return className == null ? null : ClassIndex.ofClassNames(Collections.singleton(className));
+    }
 }
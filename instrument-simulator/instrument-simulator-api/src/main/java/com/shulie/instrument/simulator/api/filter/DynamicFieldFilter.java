@@ -0,0 +1,36 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.api.filter;
+
+/**
+ * 需要动态属性的增强过滤器
+ * <p>
+ * 实现此接口并且返回 true 的过滤器匹配上的类在首次加载时会织入保存动态属性的属性，
+ * {@link com.shulie.instrument.simulator.api.resource.DynamicFieldManager} 对这些类的实例直接读写对象自身的属性。
+ * 类在过滤器注册之前已经加载时无法再增加属性，仍然使用全局的弱引用 Map 保存动态属性
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:49 下午
+ */
+public interface DynamicFieldFilter extends ExtFilter {
+
+    /**
+     * 匹配上的类是否需要织入动态属性
+     *
+     * @return TRUE:需要;FALSE:不需要;
+     */
+    boolean isDynamicFieldRequired();
+}
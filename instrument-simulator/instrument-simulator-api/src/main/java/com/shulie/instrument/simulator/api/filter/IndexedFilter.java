@@ -0,0 +1,35 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.api.filter;
+
+/**
+ * 可索引的增强过滤器
+ * <p>
+ * 实现此接口的过滤器可以向容器提供类索引，容器在类加载时只对命中索引的过滤器进行匹配，
+ * 未实现此接口或者返回 null 的过滤器在每一个类加载时都会参与匹配
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 3:22 下午
+ */
+public interface IndexedFilter extends ExtFilter {
+
+    /**
+     * 获取类索引, 类索引描述的范围必须覆盖该过滤器最终能匹配到的所有类
+     *
+     * @return 类索引, 无法索引时返回 null
+     */
+    ClassIndex getClassIndex();
+}
@@ -26,7 +26,7 @@ import java.util.List;
  * @author xiaobin.zfb|xiaobin@shulie.io
  * @since 2020/9/30 11:32 下午
  */
-public class MultiClassNameFilter implements ExtFilter {
+public class MultiClassNameFilter implements IndexedFilter {
     /**
      * 类名列表
      */
@@ -86,4 +86,9 @@ public class MultiClassNameFilter implements ExtFilter {
     public List<BuildingForListeners> doMethodFilter(MethodDescriptor methodDescriptor) {
         return Collections.EMPTY_LIST;
     }
+
+    @Override
+    public ClassIndex getClassIndex() {
+        return ClassIndex.ofClassNames(classNames);
+    }
 }
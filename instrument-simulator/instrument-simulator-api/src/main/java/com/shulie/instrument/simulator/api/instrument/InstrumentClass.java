@@ -36,6 +36,13 @@ public interface InstrumentClass {
      */
     void isIncludeBootstrap(boolean isIncludeBootstrap);
 
+    /**
+     * 增强类需要动态属性，类首次加载时织入保存动态属性的属性
+     *
+     * @see com.shulie.instrument.simulator.api.listener.ext.IClassMatchBuilder#withDynamicField()
+     */
+    void withDynamicField();
+
     /**
      * 获取方法
      *
@@ -47,6 +47,7 @@ public class Advice implements Attachment {
     private Class targetClass;
     private WeakReference<ClassLoader> classLoader;
     private LazyGet<Behavior> behaviorLazyGet;
+    private String behaviorName;
     private Object[] parameterArray;
     private Object target;
 
@@ -66,6 +67,7 @@ public class Advice implements Attachment {
      * @param processId       {@link InvokeEvent#getProcessId()}
      * @param invokeId        {@link InvokeEvent#getInvokeId()}
      * @param behaviorLazyGet 触发事件的行为(懒加载)
+     * @param behaviorName    触发事件的行为名称
      * @param classLoader     触发事件的行为所在ClassLoader
      * @param parameterArray  触发事件的行为入参
      * @param target          触发事件所归属的对象实例
@@ -73,6 +75,7 @@ public class Advice implements Attachment {
     Advice(final int processId,
            final int invokeId,
            final LazyGet<Behavior> behaviorLazyGet,
+           final String behaviorName,
            final Class targetClass,
            final ClassLoader classLoader,
            final Object[] parameterArray,
@@ -80,6 +83,7 @@ public class Advice implements Attachment {
         this.processId = processId;
         this.invokeId = invokeId;
         this.behaviorLazyGet = behaviorLazyGet;
+        this.behaviorName = behaviorName;
         this.targetClass = targetClass;
         if (classLoader != null) {
             this.classLoader = new WeakReference<ClassLoader>(classLoader);
@@ -173,6 +177,16 @@ public class Advice implements Attachment {
         return behaviorLazyGet.get();
     }
 
+    /**
+     * 获取触发事件的行为名称，与 {@link Behavior#getName()} 一致，
+     * 只需要名称时使用，不需要通过反射查找行为
+     *
+     * @return 触发事件的行为名称
+     */
+    public String getBehaviorName() {
+        return behaviorName;
+    }
+
     /**
      * 获取目标类
      *
@@ -94,6 +94,7 @@ public class AdviceAdapterListener extends EventListener implements Interruptabl
                                 );
                             }
                         },
+                        bEvent.getJavaMethodName(),
                         bEvent.getClazz(),
                         loader,
                         bEvent.getArgumentArray(),
@@ -17,6 +17,7 @@ package com.shulie.instrument.simulator.api.listener.ext;
 import com.shulie.instrument.simulator.api.listener.Listeners;
 
 import java.util.Arrays;
+import java.util.BitSet;
 
 /**
  * 监听器构造器
@@ -25,8 +26,19 @@ import java.util.Arrays;
  * @since 2020/10/24 1:29 下午
  */
 public class BuildingForListeners {
+    /**
+     * 监听器 ID 序列，ID 作为下标直接索引调用流程处理器表，所以必须从 0 开始稠密分配
+     */
+    private static int listenerIdSequence;
+
+    /**
+     * 已经释放的监听器 ID，分配时优先复用最小的 ID，模块反复重新加载时处理器表不会一直增长
+     */
+    private final static BitSet FREE_LISTENER_IDS = new BitSet();
+
     private final Listeners listeners;
     private final int[] eventTypes;
+    private final int listenerId = allocateListenerId();
 
 
     public BuildingForListeners(final Listeners listeners, final int... eventTypes) {
@@ -43,7 +55,31 @@ public class BuildingForListeners {
     }
 
     public int getListenerId() {
-        return System.identityHashCode(this);
+        return listenerId;
+    }
+
+    private static synchronized int allocateListenerId() {
+        final int listenerId = FREE_LISTENER_IDS.nextSetBit(0);
+        if (listenerId >= 0) {
+            FREE_LISTENER_IDS.clear(listenerId);
+            return listenerId;
+        }
+        return listenerIdSequence++;
+    }
+
+    /**
+     * 释放监听器 ID，之后新建的监听器可以复用
+     * <p>
+     * 织入了该 ID 的类必须已经全部重新增强完成，否则旧的字节码会把事件分发给复用了这个 ID 的监听器
+     * </p>
+     *
+     * @param listenerId 监听器 ID
+     */
+    public static synchronized void releaseListenerId(final int listenerId) {
+        if (listenerId < 0 || listenerId >= listenerIdSequence) {
+            return;
+        }
+        FREE_LISTENER_IDS.set(listenerId);
     }
 
     @Override
@@ -16,8 +16,10 @@ package com.shulie.instrument.simulator.api.listener.ext;
 
 
 import com.shulie.instrument.simulator.api.filter.ClassDescriptor;
-import com.shulie.instrument.simulator.api.filter.ExtFilter;
+import com.shulie.instrument.simulator.api.filter.ClassIndex;
+import com.shulie.instrument.simulator.api.filter.DynamicFieldFilter;
 import com.shulie.instrument.simulator.api.filter.Filter;
+import com.shulie.instrument.simulator.api.filter.IndexedFilter;
 import com.shulie.instrument.simulator.api.filter.MethodDescriptor;
 import com.shulie.instrument.simulator.api.resource.ModuleEventWatcher;
 import com.shulie.instrument.simulator.api.util.ArrayUtils;
@@ -48,6 +50,7 @@ class ClassMatchBuilder implements IClassMatchBuilder {
     private int withAccess = 0;
     private boolean isIncludeSubClasses = false;
     private boolean isIncludeBootstrap = true;
+    private boolean isDynamicFieldRequired = false;
     private final PatternGroupList hasInterfaceTypes = new PatternGroupList();
     private final PatternGroupList hasAnnotationTypes = new PatternGroupList();
     private final List<BehaviorMatchBuilder> bfBehaviors = new ArrayList<BehaviorMatchBuilder>();
@@ -105,6 +108,10 @@ class ClassMatchBuilder implements IClassMatchBuilder {
         return isIncludeBootstrap;
     }
 
+    public boolean isDynamicFieldRequired() {
+        return isDynamicFieldRequired;
+    }
+
     public PatternGroupList getHasInterfaceTypes() {
         return hasInterfaceTypes;
     }
@@ -240,6 +247,12 @@ class ClassMatchBuilder implements IClassMatchBuilder {
         return build(toProgressGroup(this.progresses));
     }
 
+    @Override
+    public IClassMatchBuilder withDynamicField() {
+        this.isDynamicFieldRequired = true;
+        return this;
+    }
+
     @Override
     public IClassMatchBuilder withProgress(Progress progress) {
         if (null != progress) {
@@ -283,7 +296,17 @@ class ClassMatchBuilder implements IClassMatchBuilder {
     private EventWatchCondition toEventWatchCondition() {
         final List<Filter> filters = new ArrayList<Filter>();
 
-        final Filter filter = new ExtFilter() {
+        final Filter filter = new WatchingFilter() {
+
+            @Override
+            public ClassIndex getClassIndex() {
+                return toClassIndex();
+            }
+
+            @Override
+            public boolean isDynamicFieldRequired() {
+                return isDynamicFieldRequired;
+            }
 
             @Override
             public boolean isIncludeSubClasses() {
@@ -433,6 +456,29 @@ class ClassMatchBuilder implements IClassMatchBuilder {
         }
     }
 
+    /**
+     * 根据类名、父类以及接口的匹配模版生成类索引
+     * <p>
+     * 优先使用类名模版，类名无法索引时再使用父类或者接口，
+     * 包含子类时父类只能匹配到直接子类，所以不使用父类作为索引
+     * </p>
+     *
+     * @return 类索引，无法索引时返回 null
+     */
+    ClassIndex toClassIndex() {
+        ClassIndex classIndex = ClassIndex.ofPatterns(patternType, pattern);
+        if (classIndex != null) {
+            return classIndex;
+        }
+        if (!isIncludeSubClasses) {
+            classIndex = ClassIndex.ofSuperClasses(patternType, superPatterns);
+            if (classIndex != null) {
+                return classIndex;
+            }
+        }
+        return hasInterfaceTypes.toClassIndex();
+    }
+
     private ProgressGroup toProgressGroup(final List<Progress> progresses) {
         if (progresses.isEmpty()) {
             return null;
@@ -451,6 +497,12 @@ class ClassMatchBuilder implements IClassMatchBuilder {
         }
     }
 
+    /**
+     * 类匹配构造器生成的过滤器，既可以索引也可以声明需要动态属性
+     */
+    private interface WatchingFilter extends IndexedFilter, DynamicFieldFilter {
+    }
+
     /**
      * 将字符串数组转换为正则表达式字符串数组
      *
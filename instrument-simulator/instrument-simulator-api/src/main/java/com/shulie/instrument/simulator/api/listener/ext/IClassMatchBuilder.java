@@ -135,6 +135,17 @@ public interface IClassMatchBuilder {
      */
     IClassMatchBuilder withProgress(Progress progress);
 
+    /**
+     * 匹配上的类需要动态属性
+     * <p>
+     * 类首次加载时织入保存动态属性的属性，{@link com.shulie.instrument.simulator.api.resource.DynamicFieldManager}
+     * 对这些类的实例直接读写对象自身的属性，不再经过全局的弱引用 Map
+     * </p>
+     *
+     * @return IBuildingForClass
+     */
+    IClassMatchBuilder withDynamicField();
+
     /**
      * 类是否拥有某一组标注
      * <p>
@@ -14,8 +14,12 @@
  */
 package com.shulie.instrument.simulator.api.listener.ext;
 
+import com.shulie.instrument.simulator.api.filter.ClassIndex;
+
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 模式匹配组列表
@@ -50,6 +54,32 @@ class PatternGroupList {
         return !isEmpty();
     }
 
+    /**
+     * 生成接口的类索引，每个匹配组中至少需要有一个确定的类名
+     *
+     * @return 类索引，无法索引时返回 null
+     */
+    ClassIndex toClassIndex() {
+        if (groups.isEmpty()) {
+            return null;
+        }
+        final Set<String> names = new HashSet<String>();
+        for (final Group group : groups) {
+            String name = null;
+            for (final String pattern : group.patternArray) {
+                name = ClassIndex.toExactName(group.patternType, pattern);
+                if (name != null) {
+                    break;
+                }
+            }
+            if (name == null) {
+                return null;
+            }
+            names.add(name);
+        }
+        return ClassIndex.ofInterfaces(names);
+    }
+
     /**
      * 模式匹配With
      *
@@ -97,7 +97,12 @@ class WatchingMatchBuilder implements IWatchingMatchBuilder {
     }
 
     private Filter toFilter() {
-        return new ExtFilter() {
+        return new IndexedFilter() {
+
+            @Override
+            public ClassIndex getClassIndex() {
+                return bfClass.toClassIndex();
+            }
 
             @Override
             public boolean isIncludeSubClasses() {
@@ -37,6 +37,15 @@ public class Reflect {
         return new Reflect(object);
     }
 
+    /**
+     * 清除类加载器加载的类相关的反射缓存，类加载器不再使用时调用，否则缓存会一直引用这个类加载器
+     *
+     * @param classLoader 类加载器
+     */
+    public static void clearCache(ClassLoader classLoader) {
+        ReflectCache.clear(classLoader);
+    }
+
     public static <T extends AccessibleObject> T accessible(T accessible) {
         if (accessible == null) {
             return null;
@@ -110,26 +119,7 @@ public class Reflect {
     }
 
     public boolean existsMethod(String name, Object... args) {
-        Class<?>[] types = types(args);
-
-        try {
-            Method method = exactMethod(name, types);
-            return method != null;
-        } catch (NoSuchMethodException e) {
-            try {
-                Method method = similarMethod(name, types);
-                return method != null;
-            } catch (NoSuchMethodException e1) {
-                return false;
-            }
-        } catch (ReflectException e) {
-            try {
-                Method method = similarMethod(name, types);
-                return method != null;
-            } catch (NoSuchMethodException e1) {
-                return false;
-            }
-        }
+        return method0(name, types(args)) != null;
     }
 
     public boolean existsConstructor() {
@@ -137,20 +127,7 @@ public class Reflect {
     }
 
     public boolean existsConstructor(Object... args) {
-        Class<?>[] types = types(args);
-
-        try {
-            Constructor<?> constructor = type().getDeclaredConstructor(types);
-            return constructor != null;
-        } catch (NoSuchMethodException e) {
-            for (Constructor<?> constructor : type().getDeclaredConstructors()) {
-                if (match(constructor.getParameterTypes(), types)) {
-                    return true;
-                }
-            }
-
-            return false;
-        }
+        return constructor0(types(args)) != null;
     }
 
     public Reflect field(String name) throws ReflectException {
@@ -171,6 +148,20 @@ public class Reflect {
     }
 
     private Field field0(String name) throws ReflectException {
+        ReflectCache.ClassMembers members = ReflectCache.of(type());
+        Object field = members.fields.get(name);
+        if (field == null) {
+            Field found = lookupField(name);
+            field = found == null ? ReflectCache.MISSING : found;
+            members.fields.put(name, field);
+        }
+        if (field == ReflectCache.MISSING) {
+            throw new ReflectException(new NoSuchFieldException(name));
+        }
+        return (Field) field;
+    }
+
+    private Field lookupField(String name) {
         Class<?> type = type();
 
         try {
@@ -185,7 +176,7 @@ public class Reflect {
             }
             while (type != null);
 
-            throw new ReflectException(e);
+            return null;
         }
     }
 
@@ -221,25 +212,37 @@ public class Reflect {
 
     public Reflect call(String name, Object... args) throws ReflectException {
         Class<?>[] types = types(args);
-
-        try {
-            Method method = exactMethod(name, types);
-            return call(method, args);
-        } catch (NoSuchMethodException e) {
-            try {
-                Method method = similarMethod(name, types);
-                return call(method, args);
-            } catch (NoSuchMethodException e1) {
-                throw new ReflectException(e1);
-            }
-        } catch (ReflectException e) {
+        Method method = method0(name, types);
+        if (method == null) {
+            throw new ReflectException(new NoSuchMethodException("No similar method " + name + " with params " + Arrays.toString(types) + " could be found on type " + type() + "."));
+        }
+        return call(method, args);
+    }
+
+    /**
+     * 按照方法名和实参类型查找方法，先精确匹配参数类型，再查找参数类型兼容的方法
+     *
+     * @return 找不到时返回 null
+     */
+    private Method method0(String name, Class<?>[] types) {
+        ReflectCache.ClassMembers members = ReflectCache.of(type());
+        ReflectCache.Signature signature = new ReflectCache.Signature(name, types);
+        Object method = members.methods.get(signature);
+        if (method == null) {
+            Method found;
             try {
-                Method method = similarMethod(name, types);
-                return call(method, args);
-            } catch (NoSuchMethodException e1) {
-                throw new ReflectException(e1);
+                found = exactMethod(name, types);
+            } catch (NoSuchMethodException e) {
+                try {
+                    found = similarMethod(name, types);
+                } catch (NoSuchMethodException e1) {
+                    found = null;
+                }
             }
+            method = found == null ? ReflectCache.MISSING : accessible(found);
+            members.methods.put(signature, method);
         }
+        return method == ReflectCache.MISSING ? null : (Method) method;
     }
 
     private Method exactMethod(String name, Class<?>[] types) throws NoSuchMethodException {
@@ -293,19 +296,38 @@ public class Reflect {
 
     public Reflect create(Object... args) throws ReflectException {
         Class<?>[] types = types(args);
-
-        try {
-            Constructor<?> constructor = type().getDeclaredConstructor(types);
-            return create(constructor, args);
-        } catch (NoSuchMethodException e) {
-            for (Constructor<?> constructor : type().getDeclaredConstructors()) {
-                if (match(constructor.getParameterTypes(), types)) {
-                    return create(constructor, args);
+        Constructor<?> constructor = constructor0(types);
+        if (constructor == null) {
+            throw new ReflectException(new NoSuchMethodException(type().getName() + ".<init>" + Arrays.toString(types)));
+        }
+        return create(constructor, args);
+    }
+
+    /**
+     * 按照实参类型查找构造方法
+     *
+     * @return 找不到时返回 null
+     */
+    private Constructor<?> constructor0(Class<?>[] types) {
+        ReflectCache.ClassMembers members = ReflectCache.of(type());
+        ReflectCache.Signature signature = new ReflectCache.Signature(null, types);
+        Object constructor = members.constructors.get(signature);
+        if (constructor == null) {
+            Constructor<?> found = null;
+            try {
+                found = type().getDeclaredConstructor(types);
+            } catch (NoSuchMethodException e) {
+                for (Constructor<?> declared : type().getDeclaredConstructors()) {
+                    if (match(declared.getParameterTypes(), types)) {
+                        found = declared;
+                        break;
+                    }
                 }
             }
-
-            throw new ReflectException(e);
+            constructor = found == null ? ReflectCache.MISSING : accessible(found);
+            members.constructors.put(signature, constructor);
         }
+        return constructor == ReflectCache.MISSING ? null : (Constructor<?>) constructor;
     }
 
     public Reflect create(Constructor constructor, Object... args) throws ReflectException {
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.api.reflect;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link Reflect} 查找到的字段、方法、构造方法的缓存
+ * <p>
+ * 按照 类 -> (成员名称, 参数类型) 缓存查找结果，找不到的成员也会缓存，
+ * 同一个成员只需要查找一次，也只需要调用一次 setAccessible
+ * </p>
+ * <p>
+ * 缓存强引用持有，不会因为 GC 而重新查找；缓存的成员和参数类型会引用类以及类加载器，
+ * 模块卸载时通过 {@link Reflect#clearCache(ClassLoader)} 清除模块类加载器加载的类相关的缓存，
+ * 卸载之后的模块类加载器不会被缓存引用
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:42 下午
+ */
+final class ReflectCache {
+
+    /**
+     * 找不到成员时缓存的值
+     */
+    static final Object MISSING = new Object();
+
+    private static final ConcurrentHashMap<Class<?>, ClassMembers> CACHE = new ConcurrentHashMap<Class<?>, ClassMembers>();
+
+    private ReflectCache() {
+    }
+
+    static ClassMembers of(Class<?> type) {
+        ClassMembers members = CACHE.get(type);
+        if (members != null) {
+            return members;
+        }
+        members = new ClassMembers();
+        ClassMembers old = CACHE.putIfAbsent(type, members);
+        return old == null ? members : old;
+    }
+
+    /**
+     * 清除类加载器加载的类的缓存，以及其他类中参数类型包含这些类的缓存
+     */
+    static void clear(ClassLoader classLoader) {
+        if (classLoader == null) {
+            return;
+        }
+        Iterator<Map.Entry<Class<?>, ClassMembers>> it = CACHE.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Class<?>, ClassMembers> entry = it.next();
+            if (entry.getKey().getClassLoader() == classLoader) {
+                it.remove();
+                continue;
+            }
+            clear(entry.getValue().methods, classLoader);
+            clear(entry.getValue().constructors, classLoader);
+        }
+    }
+
+    private static void clear(ConcurrentHashMap<Signature, Object> members, ClassLoader classLoader) {
+        Iterator<Signature> it = members.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().isLoadedBy(classLoader)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 一个类的成员缓存
+     */
+    static final class ClassMembers {
+        /**
+         * 字段名 -> 字段
+         */
+        final ConcurrentHashMap<String, Object> fields = new ConcurrentHashMap<String, Object>();
+        /**
+         * 方法名和实参类型 -> 方法
+         */
+        final ConcurrentHashMap<Signature, Object> methods = new ConcurrentHashMap<Signature, Object>();
+        /**
+         * 实参类型 -> 构造方法
+         */
+        final ConcurrentHashMap<Signature, Object> constructors = new ConcurrentHashMap<Signature, Object>();
+    }
+
+    /**
+     * 成员名称和实参类型
+     */
+    static final class Signature {
+        private final String name;
+        private final Class<?>[] types;
+        private final int hash;
+
+        Signature(String name, Class<?>[] types) {
+            this.name = name;
+            this.types = types;
+            this.hash = 31 * (name == null ? 0 : name.hashCode()) + Arrays.hashCode(types);
+        }
+
+        /**
+         * 参数类型中是否有这个类加载器加载的类
+         */
+        boolean isLoadedBy(ClassLoader classLoader) {
+            if (types == null) {
+                return false;
+            }
+            for (Class<?> type : types) {
+                if (type != null && type.getClassLoader() == classLoader) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Signature)) {
+                return false;
+            }
+            Signature other = (Signature) obj;
+            return hash == other.hash
+                    && (name == null ? other.name == null : name.equals(other.name))
+                    && Arrays.equals(types, other.types);
+        }
+    }
+}
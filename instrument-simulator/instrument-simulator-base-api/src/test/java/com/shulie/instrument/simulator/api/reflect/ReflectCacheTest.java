@@ -0,0 +1,96 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.api.reflect;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReflectCacheTest {
+
+    private static final int ITERATIONS = 200000;
+
+    private static class Target {
+        private int value = 1;
+
+        private int add(Integer delta) {
+            return value + delta;
+        }
+    }
+
+    @Test
+    public void hitReturnsCachedMembers() {
+        ReflectCache.ClassMembers members = ReflectCache.of(Target.class);
+        Assert.assertEquals(2, (int) Reflect.on(new Target()).call("add", 1).<Integer>get());
+        Assert.assertEquals(1, (int) Reflect.on(new Target()).<Integer>get("value"));
+        Assert.assertSame(members, ReflectCache.of(Target.class));
+        Assert.assertEquals(1, members.methods.size());
+        Assert.assertEquals(1, members.fields.size());
+    }
+
+    @Test
+    public void cacheSurvivesGc() {
+        ReflectCache.ClassMembers members = ReflectCache.of(Target.class);
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Assert.assertSame(members, ReflectCache.of(Target.class));
+    }
+
+    @Test
+    public void clearDropsClassesOfLoader() throws Exception {
+        URL classes = Reflect.class.getProtectionDomain().getCodeSource().getLocation();
+        URLClassLoader loader = new URLClassLoader(new URL[]{classes}, null);
+        Class<?> type = loader.loadClass(ReflectException.class.getName());
+        ReflectCache.ClassMembers members = ReflectCache.of(type);
+        ReflectCache.ClassMembers target = ReflectCache.of(Target.class);
+        target.methods.put(new ReflectCache.Signature("add", new Class<?>[]{type}), ReflectCache.MISSING);
+
+        Reflect.clearCache(loader);
+
+        Assert.assertNotSame(members, ReflectCache.of(type));
+        Assert.assertSame(target, ReflectCache.of(Target.class));
+        Assert.assertNull(target.methods.get(new ReflectCache.Signature("add", new Class<?>[]{type})));
+    }
+
+    /**
+     * 命中缓存时的调用耗时，与每次都查找并 setAccessible 的耗时对比，只输出结果
+     */
+    @Test
+    public void hitPathCost() throws Exception {
+        Target target = new Target();
+        int sum = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            sum += Reflect.on(target).call("add", i).<Integer>get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sum += Reflect.on(target).call("add", i).<Integer>get();
+        }
+        long cached = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            java.lang.reflect.Method method = Target.class.getDeclaredMethod("add", Integer.class);
+            method.setAccessible(true);
+            sum += (Integer) method.invoke(target, i);
+        }
+        long lookup = System.nanoTime() - start;
+        System.out.println("Reflect.call cached: " + cached / ITERATIONS + "ns/op, lookup every call: "
+            + lookup / ITERATIONS + "ns/op (" + sum + ")");
+    }
+}
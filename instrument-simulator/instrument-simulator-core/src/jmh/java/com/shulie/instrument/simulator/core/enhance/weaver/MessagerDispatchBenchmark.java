@@ -0,0 +1,114 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.core.enhance.weaver;
+
+import com.shulie.instrument.simulator.api.event.EventType;
+import com.shulie.instrument.simulator.api.listener.EventListener;
+import com.shulie.instrument.simulator.message.Messager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 织入代码触发事件时经过 {@link Messager} 分发到监听器的完整开销
+ * <p>
+ * 与织入代码的调用方式一致，每次调用 BEFORE 和 RETURN 两个方法，经过 {@link EventListenerHandler} 查找调用流程处理器、
+ * 维护调用流程并回调监听器。对比织入时确定的命名空间句柄与原来每次按命名空间字符串查找处理器的两种入口
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 5:43 下午
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MessagerDispatchBenchmark {
+
+    private final static String NAMESPACE = "jmh-dispatch";
+
+    @Param({"64", "2048"})
+    private int listenerCount;
+
+    private int namespaceId;
+
+    private int[] listenerIds;
+
+    private final Object[] argumentArray = new Object[0];
+
+    @Setup
+    public void setup() {
+        final EventListenerHandler handler = new EventListenerHandler(NAMESPACE);
+        Messager.init(NAMESPACE, handler);
+        namespaceId = Messager.getNamespaceId(NAMESPACE);
+        listenerIds = new int[listenerCount];
+        for (int i = 0; i < listenerCount; i++) {
+            handler.active(i, new EventListener() {
+            }, new int[]{EventType.BEFORE, EventType.RETURN, EventType.THROWS});
+            listenerIds[i] = i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        Messager.clean(NAMESPACE);
+    }
+
+    @Benchmark
+    public int dispatchByNamespaceId() throws Throwable {
+        int states = 0;
+        for (final int listenerId : listenerIds) {
+            states += Messager.invokeOnBefore(argumentArray, namespaceId, listenerId, null,
+                    MessagerDispatchBenchmark.class, "dispatch", "()V", this).state;
+            states += Messager.invokeOnReturn(null, MessagerDispatchBenchmark.class, namespaceId, listenerId).state;
+        }
+        return states;
+    }
+
+    @Benchmark
+    public int dispatchByNamespace() throws Throwable {
+        int states = 0;
+        for (final int listenerId : listenerIds) {
+            states += Messager.invokeOnBefore(argumentArray, NAMESPACE, listenerId, null,
+                    MessagerDispatchBenchmark.class, "dispatch", "()V", this).state;
+            states += Messager.invokeOnReturn(null, MessagerDispatchBenchmark.class, NAMESPACE, listenerId).state;
+        }
+        return states;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MessagerDispatchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
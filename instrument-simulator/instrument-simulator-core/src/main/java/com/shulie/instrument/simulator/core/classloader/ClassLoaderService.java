@@ -117,4 +117,11 @@ public interface ClassLoaderService {
      */
     ClassLoaderFactory getModuleClassLoaderFactory(String moduleName);
 
+    /**
+     * 导出类的版本号，每次加载、卸载模块时递增
+     *
+     * @return 返回导出类的版本号
+     */
+    long getExportVersion();
+
 }
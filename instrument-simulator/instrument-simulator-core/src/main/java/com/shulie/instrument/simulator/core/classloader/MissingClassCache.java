@@ -0,0 +1,100 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.core.classloader;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 类加载器中已知找不到的类
+ * <p>
+ * 只记录在路由、JDK、导出类、模块自身这些不会变化的位置中找不到的类，再次加载时直接跳过这些位置，
+ * 不再经过一次次抛出异常的查找；业务类加载器和系统类加载器可能在运行期定义新的类，每次仍然需要查找。
+ * 导出类会随着模块的加载、卸载发生变化，记录时带上导出类的版本号，版本号变化之后记录失效
+ * </p>
+ * <p>
+ * 超过容量时直接清空，防止大量不存在的类名占用内存
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:01 下午
+ */
+final class MissingClassCache {
+
+    private static final int DEFAULT_MAX_SIZE = 2048;
+
+    private final ConcurrentHashMap<String, Long> missingClasses = new ConcurrentHashMap<String, Long>();
+    private final int maxSize;
+
+    MissingClassCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    MissingClassCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 类是否已知找不到
+     *
+     * @param className 类名
+     * @param version   导出类的版本号
+     * @return 是否已知找不到
+     */
+    boolean isMissing(String className, long version) {
+        final Long missingVersion = missingClasses.get(className);
+        return missingVersion != null && missingVersion == version;
+    }
+
+    /**
+     * 记录找不到的类
+     *
+     * @param className 类名
+     * @param version   导出类的版本号
+     */
+    void markMissing(String className, long version) {
+        if (missingClasses.size() >= maxSize) {
+            missingClasses.clear();
+        }
+        missingClasses.put(className, version);
+    }
+
+    /**
+     * 类已经在类加载器中定义，清除记录
+     *
+     * @param className 类名
+     */
+    void remove(String className) {
+        missingClasses.remove(className);
+    }
+
+    void clear() {
+        missingClasses.clear();
+    }
+
+    /**
+     * 已知找不到的类抛出的异常，不填充异常栈
+     */
+    static final class MissingClassException extends ClassNotFoundException {
+
+        MissingClassException(String message) {
+            super(message);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
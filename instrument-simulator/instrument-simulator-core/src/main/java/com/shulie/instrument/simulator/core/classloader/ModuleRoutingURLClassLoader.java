@@ -296,30 +296,44 @@ public abstract class ModuleRoutingURLClassLoader extends RoutingURLClassLoader
     protected Class<?> loadClassInternal(String name, boolean resolve)
             throws ClassNotFoundException {
         Class<?> clazz = null;
+        final long exportVersion = classLoaderService.getExportVersion();
+        final boolean missing = missingClassCache.isMissing(name, exportVersion);
+        if (missing) {
+            // 类可能在记录之后才直接定义到当前类加载器中，命中记录前先查找已经加载的类，找到时清除记录
+            clazz = findLoadedClass(name);
+            if (clazz != null) {
+                missingClassCache.remove(name);
+            }
+        } else {
+            // 1. find routing
+            if (clazz == null) {
+                clazz = resolveRouting(name, resolve);
+            }
 
-        // 1. find routing
-        if (clazz == null) {
-            clazz = resolveRouting(name, resolve);
-        }
+            // 2. findLoadedClass
+            if (clazz == null) {
+                clazz = findLoadedClass(name);
+            }
 
-        // 2. findLoadedClass
-        if (clazz == null) {
-            clazz = findLoadedClass(name);
-        }
+            // 3. JDK related class
+            if (clazz == null) {
+                clazz = resolveJDKClass(name);
+            }
 
-        // 3. JDK related class
-        if (clazz == null) {
-            clazz = resolveJDKClass(name);
-        }
+            // 4. Import class export by other plugins
+            if (clazz == null) {
+                clazz = resolveExportClass(name);
+            }
 
-        // 4. Import class export by other plugins
-        if (clazz == null) {
-            clazz = resolveExportClass(name);
-        }
+            // 5. module classpath class
+            if (clazz == null) {
+                clazz = resolveLocalClass(name);
+            }
 
-        // 5. module classpath class
-        if (clazz == null) {
-            clazz = resolveLocalClass(name);
+            // 以上位置都找不到时记录下来，业务类加载器和系统类加载器每次都需要重新查找
+            if (clazz == null) {
+                missingClassCache.markMissing(name, exportVersion);
+            }
         }
 
         // 6. load class from business classloader
@@ -339,6 +353,9 @@ public abstract class ModuleRoutingURLClassLoader extends RoutingURLClassLoader
             return clazz;
         }
 
+        if (missing) {
+            throw new MissingClassCache.MissingClassException("class " + name + " not found in module: " + moduleId);
+        }
         throw new ClassNotFoundException("class " + name + " not found in module: " + moduleId);
     }
 
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.core.classloader;
+
+/**
+ * 类名、包名、资源名的匹配索引
+ * <p>
+ * 精确匹配和前缀匹配的规则放在同一棵前缀树中，后缀匹配的规则按字符倒序放在另一棵树中，
+ * 匹配时只需要沿着名称的字符走一遍树，与规则的数量无关，也不会产生新的字符串
+ * </p>
+ * <p>
+ * 构建完成之后只读，可以在多个线程中并发匹配
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:01 下午
+ */
+public final class NameMatcher {
+
+    private final Node prefixRoot = new Node();
+    private final Node suffixRoot = new Node();
+    private boolean empty = true;
+
+    /**
+     * 添加精确匹配的规则
+     */
+    public NameMatcher addExact(String name) {
+        if (name != null) {
+            Node node = prefixRoot;
+            for (int i = 0, len = name.length(); i < len; i++) {
+                node = node.getOrCreateChild(name.charAt(i));
+            }
+            node.exact = true;
+            empty = false;
+        }
+        return this;
+    }
+
+    /**
+     * 添加前缀匹配的规则，与 {@link String#startsWith(String)} 一致
+     */
+    public NameMatcher addPrefix(String prefix) {
+        if (prefix != null) {
+            Node node = prefixRoot;
+            for (int i = 0, len = prefix.length(); i < len; i++) {
+                node = node.getOrCreateChild(prefix.charAt(i));
+            }
+            node.all = true;
+            empty = false;
+        }
+        return this;
+    }
+
+    /**
+     * 添加后缀匹配的规则，与 {@link String#endsWith(String)} 一致
+     */
+    public NameMatcher addSuffix(String suffix) {
+        if (suffix != null) {
+            Node node = suffixRoot;
+            for (int i = suffix.length() - 1; i >= 0; i--) {
+                node = node.getOrCreateChild(suffix.charAt(i));
+            }
+            node.all = true;
+            empty = false;
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public boolean matches(String name) {
+        return name != null && matches(name, 0, name.length());
+    }
+
+    /**
+     * 匹配名称的 [start, end) 区间
+     */
+    public boolean matches(String name, int start, int end) {
+        if (empty) {
+            return false;
+        }
+        Node node = prefixRoot;
+        for (int i = start; node != null; i++) {
+            if (node.all) {
+                return true;
+            }
+            if (i == end) {
+                if (node.exact) {
+                    return true;
+                }
+                break;
+            }
+            node = node.getChild(name.charAt(i));
+        }
+        node = suffixRoot;
+        for (int i = end - 1; node != null; i--) {
+            if (node.all) {
+                return true;
+            }
+            if (i < start) {
+                break;
+            }
+            node = node.getChild(name.charAt(i));
+        }
+        return false;
+    }
+
+    private static final class Node {
+        private char[] keys;
+        private Node[] children;
+        private int size;
+        /**
+         * 在此结束的精确匹配规则
+         */
+        private boolean exact;
+        /**
+         * 在此结束的前缀(后缀)匹配规则
+         */
+        private boolean all;
+
+        Node getChild(char c) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node getOrCreateChild(char c) {
+            Node child = getChild(c);
+            if (child != null) {
+                return child;
+            }
+            if (keys == null) {
+                keys = new char[2];
+                children = new Node[2];
+            } else if (size == keys.length) {
+                final char[] newKeys = new char[size << 1];
+                final Node[] newChildren = new Node[size << 1];
+                System.arraycopy(keys, 0, newKeys, 0, size);
+                System.arraycopy(children, 0, newChildren, 0, size);
+                keys = newKeys;
+                children = newChildren;
+            }
+            child = new Node();
+            keys[size] = c;
+            children[size] = child;
+            size++;
+            return child;
+        }
+    }
+}
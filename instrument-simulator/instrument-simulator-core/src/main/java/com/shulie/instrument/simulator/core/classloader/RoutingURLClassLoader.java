@@ -38,6 +38,10 @@ public class RoutingURLClassLoader extends URLClassLoader {
     protected final BootLoader bootLoader = BootLoaderFactory.newBootLoader();
     protected final ClassLoader parent;
     protected Routing[] routingArray;
+    /**
+     * 在路由、JDK、本地类路径中已知找不到的类
+     */
+    protected final MissingClassCache missingClassCache = new MissingClassCache();
 
     public RoutingURLClassLoader(final URL[] urls,
                                  final Routing... routingArray) {
@@ -317,24 +321,36 @@ public class RoutingURLClassLoader extends URLClassLoader {
 //            }
 //        });
         Class<?> clazz = null;
+        final boolean missing = missingClassCache.isMissing(name, 0L);
+        if (missing) {
+            // 类可能在记录之后才直接定义到当前类加载器中，命中记录前先查找已经加载的类，找到时清除记录
+            clazz = findLoadedClass(name);
+            if (clazz != null) {
+                missingClassCache.remove(name);
+            }
+        } else {
+            // 1. find routing
+            if (clazz == null) {
+                clazz = resolveRouting(name, resolve);
+            }
 
-        // 1. find routing
-        if (clazz == null) {
-            clazz = resolveRouting(name, resolve);
-        }
+            // 2. findLoadedClass
+            if (clazz == null) {
+                clazz = findLoadedClass(name);
+            }
+            // 3. JDK related class
+            if (clazz == null) {
+                clazz = resolveJDKClass(name);
+            }
 
-        // 2. findLoadedClass
-        if (clazz == null) {
-            clazz = findLoadedClass(name);
-        }
-        // 3. JDK related class
-        if (clazz == null) {
-            clazz = resolveJDKClass(name);
-        }
+            // 4. module classpath class
+            if (clazz == null) {
+                clazz = resolveLocalClass(name);
+            }
 
-        // 4. module classpath class
-        if (clazz == null) {
-            clazz = resolveLocalClass(name);
+            if (clazz == null) {
+                missingClassCache.markMissing(name, 0L);
+            }
         }
 
         // 5. super classpath class
@@ -349,6 +365,9 @@ public class RoutingURLClassLoader extends URLClassLoader {
             return clazz;
         }
 
+        if (missing) {
+            throw new MissingClassCache.MissingClassException("class " + name + " not found");
+        }
         throw new ClassNotFoundException("class " + name + " not found");
 
     }
@@ -362,6 +381,12 @@ public class RoutingURLClassLoader extends URLClassLoader {
         protected Collection<String/*REGEX*/> regexExpresses = new ArrayList<String>();
         protected ClassLoader classLoader;
 
+        /**
+         * 精确匹配、只有前缀或者只有后缀的规则编译成索引，其他的规则逐个通配符匹配
+         */
+        private NameMatcher nameMatcher = new NameMatcher();
+        private Collection<String> wildcardExpresses = new ArrayList<String>();
+
         /**
          * 构造类加载路由匹配器
          *
@@ -372,9 +397,48 @@ public class RoutingURLClassLoader extends URLClassLoader {
             if (ArrayUtils.isNotEmpty(regexExpressArray)) {
                 regexExpresses.addAll(Arrays.asList(regexExpressArray));
             }
+            for (final String regexExpress : regexExpresses) {
+                compile(regexExpress);
+            }
             this.classLoader = classLoader;
         }
 
+        /**
+         * 按照 {@link #matching(String, String)} 的规则编译匹配规则：
+         * 不含 * 的规则精确匹配，只在末尾含 * 的规则前缀匹配，只在开头含 * 的规则后缀匹配
+         */
+        private void compile(final String wildcard) {
+            if (wildcard == null) {
+                return;
+            }
+            if (wildcard.indexOf('*') == -1) {
+                nameMatcher.addExact(wildcard);
+                return;
+            }
+            if (wildcard.indexOf('?') == -1 && wildcard.indexOf('\\') == -1) {
+                int start = 0;
+                int end = wildcard.length();
+                while (start < end && wildcard.charAt(start) == '*') {
+                    start++;
+                }
+                while (end > start && wildcard.charAt(end - 1) == '*') {
+                    end--;
+                }
+                final String literal = wildcard.substring(start, end);
+                if (literal.indexOf('*') == -1) {
+                    if (start == 0) {
+                        nameMatcher.addPrefix(literal);
+                        return;
+                    }
+                    if (end == wildcard.length()) {
+                        nameMatcher.addSuffix(literal);
+                        return;
+                    }
+                }
+            }
+            wildcardExpresses.add(wildcard);
+        }
+
         /**
          * 通配符表达式匹配
          * <p>
@@ -490,8 +554,11 @@ public class RoutingURLClassLoader extends URLClassLoader {
          * clean all resources
          */
         public void clean() {
+            nameMatcher = null;
             regexExpresses.clear();
             regexExpresses = null;
+            wildcardExpresses.clear();
+            wildcardExpresses = null;
             classLoader = null;
         }
 
@@ -503,7 +570,14 @@ public class RoutingURLClassLoader extends URLClassLoader {
          * @return true:命中;false:不命中;
          */
         protected boolean isHit(final String javaClassName) {
-            for (final String regexExpress : regexExpresses) {
+            final NameMatcher nameMatcher = this.nameMatcher;
+            if (nameMatcher == null || javaClassName == null) {
+                return false;
+            }
+            if (nameMatcher.matches(javaClassName)) {
+                return true;
+            }
+            for (final String regexExpress : wildcardExpresses) {
                 try {
                     if (matching(javaClassName, regexExpress)) {
                         return true;
@@ -15,6 +15,7 @@
 package com.shulie.instrument.simulator.core.classloader.impl;
 
 import com.shulie.instrument.simulator.api.ModuleRuntimeException;
+import com.shulie.instrument.simulator.api.reflect.Reflect;
 import com.shulie.instrument.simulator.api.util.ObjectIdUtils;
 import com.shulie.instrument.simulator.core.CoreConfigure;
 import com.shulie.instrument.simulator.core.classloader.ClassLoaderFactory;
@@ -102,8 +103,10 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
             return;
         }
         for (Map.Entry<Integer, ModuleClassLoader> entry : classLoaderCache.entrySet()) {
+            Reflect.clearCache(entry.getValue());
             entry.getValue().closeIfPossible();
         }
+        Reflect.clearCache(defaultClassLoader);
         defaultClassLoader.closeIfPossible();
         defaultClassLoader = null;
         classLoaderCache.clear();
@@ -19,17 +19,16 @@ import com.shulie.instrument.simulator.api.ModuleRuntimeException;
 import com.shulie.instrument.simulator.api.ModuleSpec;
 import com.shulie.instrument.simulator.core.classloader.ClassLoaderFactory;
 import com.shulie.instrument.simulator.core.classloader.ClassLoaderService;
+import com.shulie.instrument.simulator.core.classloader.NameMatcher;
 import com.shulie.instrument.simulator.core.util.ClassUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ClassLoader Service Implementation
@@ -51,6 +50,9 @@ public class DefaultClassLoaderService implements ClassLoaderService {
     private ConcurrentHashMap<String, List<ClassLoaderFactory>> exportSuffixResourceClassLoaderMap = new ConcurrentHashMap<String, List<ClassLoaderFactory>>();
     private ConcurrentHashMap<String, ModuleSpec> moduleSpecMap = new ConcurrentHashMap<String, ModuleSpec>();
     private ConcurrentHashMap<String, ClassLoaderFactory> moduleClassLoaderMap = new ConcurrentHashMap<String, ClassLoaderFactory>();
+    /* 模块导入的类、包、资源编译后的索引 */
+    private ConcurrentHashMap<String, ModuleImports> moduleImportsMap = new ConcurrentHashMap<String, ModuleImports>();
+    private final AtomicLong exportVersion = new AtomicLong();
 
     private WeakReference<ClassLoader> simulatorClassLoader;
     private WeakReference<ClassLoader> systemClassLoader;
@@ -86,13 +88,18 @@ public class DefaultClassLoaderService implements ClassLoaderService {
         if (moduleSpec == null) {
             return;
         }
+        this.moduleImportsMap.remove(moduleName);
         unloadExportClassAndResourceCache(moduleSpec, classLoaderFactory);
+        exportVersion.incrementAndGet();
     }
 
     @Override
     public void load(ModuleSpec moduleSpec, ClassLoaderFactory classLoaderFactory) {
-        this.moduleSpecMap.putIfAbsent(moduleSpec.getModuleId(), moduleSpec);
+        if (this.moduleSpecMap.putIfAbsent(moduleSpec.getModuleId(), moduleSpec) == null) {
+            this.moduleImportsMap.put(moduleSpec.getModuleId(), new ModuleImports(moduleSpec));
+        }
         loadExportClassAndResourceCache(moduleSpec, classLoaderFactory);
+        exportVersion.incrementAndGet();
     }
 
     /**
@@ -204,38 +211,19 @@ public class DefaultClassLoaderService implements ClassLoaderService {
         if (isDisposed) {
             return false;
         }
-        ModuleSpec moduleSpec = moduleSpecMap.get(moduleName);
-        if (moduleSpec == null) {
+        ModuleImports moduleImports = moduleImportsMap.get(moduleName);
+        if (moduleImports == null) {
             logger.warn("SIMULATOR: invoke module {} isClassImport {} error cause by moduleSpec is not found. default return false.", moduleName, className);
             return false;
         }
 
-        for (String importName : moduleSpec.getImportClasses()) {
-            if (className.equals(importName)) {
-                return true;
-            }
-        }
-
-        String packageName = ClassUtils.getPackageName(className);
-        for (String pattern : moduleSpec.getImportExactlyPackages()) {
-            if (packageName.equals(pattern)) {
-                return true;
-            }
-        }
-
-        for (String pattern : moduleSpec.getImportPrefixPackages()) {
-            if (packageName.startsWith(pattern)) {
-                return true;
-            }
-        }
-
-        for (String pattern : moduleSpec.getImportSuffixPackages()) {
-            if (packageName.endsWith(pattern)) {
-                return true;
-            }
+        if (moduleImports.classes.contains(className)) {
+            return true;
         }
 
-        return false;
+        // 直接匹配类名中的包名部分，不需要截取出包名
+        final int lastDot = className.lastIndexOf('.');
+        return moduleImports.packages.matches(className, 0, lastDot == -1 ? 0 : lastDot);
     }
 
     @Override
@@ -268,31 +256,12 @@ public class DefaultClassLoaderService implements ClassLoaderService {
         if (isDisposed) {
             return false;
         }
-        ModuleSpec moduleSpec = moduleSpecMap.get(moduleName);
-        if (moduleSpec == null) {
+        ModuleImports moduleImports = moduleImportsMap.get(moduleName);
+        if (moduleImports == null) {
             logger.warn("SIMULATOR: invoke module {} isResourceInImport error cause by moduleSpec is not found. default return false.");
             return false;
         }
-
-        for (String importResource : moduleSpec.getImportExactlyResources()) {
-            if (importResource.equals(resourceName)) {
-                return true;
-            }
-        }
-
-        for (String importResource : moduleSpec.getImportPrefixResources()) {
-            if (resourceName.startsWith(importResource)) {
-                return true;
-            }
-        }
-
-        for (String importResource : moduleSpec.getImportSuffixResources()) {
-            if (resourceName.endsWith(importResource)) {
-                return true;
-            }
-        }
-
-        return false;
+        return moduleImports.resources.matches(resourceName);
     }
 
     @Override
@@ -336,6 +305,11 @@ public class DefaultClassLoaderService implements ClassLoaderService {
         return this.moduleClassLoaderMap.get(moduleName);
     }
 
+    @Override
+    public long getExportVersion() {
+        return exportVersion.get();
+    }
+
     @Override
     public void init() throws ModuleRuntimeException {
         simulatorClassLoader = new WeakReference<ClassLoader>(this.getClass().getClassLoader());
@@ -374,7 +348,41 @@ public class DefaultClassLoaderService implements ClassLoaderService {
         moduleClassLoaderMap.clear();
         moduleClassLoaderMap = null;
 
+        moduleImportsMap.clear();
+        moduleImportsMap = null;
+
         simulatorClassLoader = null;
         systemClassLoader = null;
     }
+
+    /**
+     * 模块导入的类、包、资源，包和资源的精确、前缀、后缀规则编译成 {@link NameMatcher}
+     */
+    private static final class ModuleImports {
+        private final Set<String> classes;
+        private final NameMatcher packages = new NameMatcher();
+        private final NameMatcher resources = new NameMatcher();
+
+        ModuleImports(ModuleSpec moduleSpec) {
+            this.classes = new HashSet<String>(moduleSpec.getImportClasses());
+            for (String pattern : moduleSpec.getImportExactlyPackages()) {
+                packages.addExact(pattern);
+            }
+            for (String pattern : moduleSpec.getImportPrefixPackages()) {
+                packages.addPrefix(pattern);
+            }
+            for (String pattern : moduleSpec.getImportSuffixPackages()) {
+                packages.addSuffix(pattern);
+            }
+            for (String resource : moduleSpec.getImportExactlyResources()) {
+                resources.addExact(resource);
+            }
+            for (String resource : moduleSpec.getImportPrefixResources()) {
+                resources.addPrefix(resource);
+            }
+            for (String resource : moduleSpec.getImportSuffixResources()) {
+                resources.addSuffix(resource);
+            }
+        }
+    }
 }
@@ -0,0 +1,154 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.core.enhance;
+
+import com.shulie.instrument.simulator.message.DynamicFieldHolder;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import static org.objectweb.asm.Opcodes.ASM7;
+
+/**
+ * 动态属性的织入
+ * <p>
+ * 给类织入一个保存动态属性的属性以及 {@link DynamicFieldHolder} 的实现。
+ * 同一个类可能被多个模块的形变器依次形变，所以每个类只织入一个属性，各个模块的动态属性都保存在这个属性上
+ * </p>
+ * <p>
+ * 重新形变时不允许增加或者删除属性和接口，所以只有首次加载时才能织入，已经织入的类在之后的每一次重新形变中都必须再次织入，
+ * 否则重新形变会因为类结构发生变化而失败
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:49 下午
+ */
+public class DynamicFieldEnhancer implements Opcodes {
+
+    private final static String HOLDER_INTERNAL_NAME = Type.getInternalName(DynamicFieldHolder.class);
+
+    private final static String FIELD_DESC = "Ljava/lang/Object;";
+
+    private final static String GETTER_NAME = "$$simulator$getDynamicFields";
+
+    private final static String SETTER_NAME = "$$simulator$setDynamicFields";
+
+    /**
+     * 是否有类已经织入过动态属性
+     */
+    private static volatile boolean woven;
+
+    /**
+     * 类是否已经织入了动态属性，只判断类自身直接实现的接口
+     *
+     * @param clazz 类
+     * @return TRUE:已经织入;FALSE:未织入;
+     */
+    public static boolean isEnhanced(final Class<?> clazz) {
+        if (clazz == null) {
+            return false;
+        }
+        for (final Class<?> interfaceClass : clazz.getInterfaces()) {
+            if (DynamicFieldHolder.class.getName().equals(interfaceClass.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否有类已经织入过动态属性，织入过时关闭之后仍然需要保留 {@link DynamicFieldRetainTransformer}
+     *
+     * @return TRUE:织入过;FALSE:没有织入过;
+     */
+    public static boolean hasWoven() {
+        return woven;
+    }
+
+    /**
+     * 织入动态属性
+     *
+     * @param byteCodeArray 字节码数组
+     * @return 织入之后的字节码数组, 接口、注解或者已经织入过的类返回原字节码数组
+     */
+    public byte[] toByteCodeArray(final byte[] byteCodeArray) {
+        final ClassReader cr = new ClassReader(byteCodeArray);
+        if ((cr.getAccess() & (ACC_INTERFACE | ACC_ANNOTATION)) != 0) {
+            return byteCodeArray;
+        }
+        for (final String interfaceName : cr.getInterfaces()) {
+            if (HOLDER_INTERNAL_NAME.equals(interfaceName)) {
+                return byteCodeArray;
+            }
+        }
+        // 只增加属性和不带分支的方法，不需要重新计算栈帧
+        final ClassWriter cw = new ClassWriter(cr, 0);
+        cr.accept(new DynamicFieldClassVisitor(cw), 0);
+        woven = true;
+        return cw.toByteArray();
+    }
+
+    private static class DynamicFieldClassVisitor extends ClassVisitor {
+
+        private String className;
+
+        DynamicFieldClassVisitor(final ClassVisitor cv) {
+            super(ASM7, cv);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.className = name;
+            final String[] newInterfaces;
+            if (interfaces == null) {
+                newInterfaces = new String[]{HOLDER_INTERNAL_NAME};
+            } else {
+                newInterfaces = new String[interfaces.length + 1];
+                System.arraycopy(interfaces, 0, newInterfaces, 0, interfaces.length);
+                newInterfaces[interfaces.length] = HOLDER_INTERNAL_NAME;
+            }
+            super.visit(version, access, name, signature, superName, newInterfaces);
+        }
+
+        @Override
+        public void visitEnd() {
+            // transient 并且 private 的属性不参与序列化，也不影响默认的 serialVersionUID
+            super.visitField(ACC_PRIVATE | ACC_VOLATILE | ACC_TRANSIENT | ACC_SYNTHETIC,
+                    DynamicFieldHolder.FIELD_NAME, FIELD_DESC, null, null).visitEnd();
+
+            MethodVisitor mv = super.visitMethod(ACC_PUBLIC | ACC_SYNTHETIC, GETTER_NAME, "()" + FIELD_DESC, null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, className, DynamicFieldHolder.FIELD_NAME, FIELD_DESC);
+            mv.visitInsn(ARETURN);
+            mv.visitMaxs(1, 1);
+            mv.visitEnd();
+
+            mv = super.visitMethod(ACC_PUBLIC | ACC_SYNTHETIC, SETTER_NAME, "(" + FIELD_DESC + ")V", null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitFieldInsn(PUTFIELD, className, DynamicFieldHolder.FIELD_NAME, FIELD_DESC);
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(2, 2);
+            mv.visitEnd();
+
+            super.visitEnd();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.core.enhance;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+
+/**
+ * 关闭之后保留的动态属性织入器
+ * <p>
+ * 织入过动态属性的类已经改变了类结构，无法再恢复。关闭时移除分发器之后，其他 agent(例如 arthas)重新形变这些类时
+ * 拿到的是原始字节码，缺少动态属性会因为类结构发生变化而失败，所以关闭之后仍然注册这个形变器，只对已经织入过的类再次织入。
+ * 它会让仿真器的类加载器在关闭之后一直存活，所以只有确实织入过类时才会注册
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 5:29 下午
+ */
+public class DynamicFieldRetainTransformer implements ClassFileTransformer {
+
+    @Override
+    public byte[] transform(final ClassLoader loader,
+                            final String internalClassName,
+                            final Class<?> classBeingRedefined,
+                            final ProtectionDomain protectionDomain,
+                            final byte[] classfileBuffer) {
+        if (!DynamicFieldEnhancer.isEnhanced(classBeingRedefined)) {
+            return null;
+        }
+        try {
+            return new DynamicFieldEnhancer().toByteCodeArray(classfileBuffer);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+}
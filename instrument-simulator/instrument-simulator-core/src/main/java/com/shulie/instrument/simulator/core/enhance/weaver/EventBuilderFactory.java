@@ -20,9 +20,40 @@ import com.shulie.instrument.simulator.api.event.*;
  * 事件构建工厂
  * <p>
  * 用于构建各种产生的事件，包括 BEFORE、RETURN、THROWS、CALL_BEFORE、CALL_RETURN、CALL_THROWS、CALL_LINE
+ * <p>
+ * 每个线程共用一个事件工厂，每一次方法调用都会产生的 BEFORE、RETURN、THROWS 事件在销毁后回收到线程内的事件池中复用，
+ * 事件池只持有已经销毁(内部引用已经全部清空)的事件，不会引起内存泄漏
  */
 class EventBuilderFactory {
 
+    /**
+     * 每种事件池化的最大数量，嵌套调用时同一时刻会有多个同类型的事件存活
+     */
+    private static final int MAX_POOL_SIZE = 8;
+
+    private static final ThreadLocal<EventBuilderFactory> factoryRef = new ThreadLocal<EventBuilderFactory>() {
+        @Override
+        protected EventBuilderFactory initialValue() {
+            return new EventBuilderFactory();
+        }
+    };
+
+    /**
+     * 获取当前线程的事件工厂
+     *
+     * @return 事件工厂
+     */
+    static EventBuilderFactory getThreadLocalFactory() {
+        return factoryRef.get();
+    }
+
+    private final BeforeEvent[] beforeEventPool = new BeforeEvent[MAX_POOL_SIZE];
+    private int beforeEventPoolSize;
+    private final ReturnEvent[] returnEventPool = new ReturnEvent[MAX_POOL_SIZE];
+    private int returnEventPoolSize;
+    private final ThrowsEvent[] throwsEventPool = new ThrowsEvent[MAX_POOL_SIZE];
+    private int throwsEventPoolSize;
+
     /**
      * 构建 BEFORE 事件
      *
@@ -44,6 +75,11 @@ class EventBuilderFactory {
                                         final String javaMethodDesc,
                                         final Object target,
                                         final Object[] argumentArray) {
+        if (beforeEventPoolSize > 0) {
+            final BeforeEvent event = beforeEventPool[--beforeEventPoolSize];
+            beforeEventPool[beforeEventPoolSize] = null;
+            return event.reset(processId, invokeId, javaClassLoader, clazz, javaMethodName, javaMethodDesc, target, argumentArray);
+        }
         BeforeEvent event = new BeforeEvent(processId, invokeId, javaClassLoader, clazz, javaMethodName, javaMethodDesc, target, argumentArray);
         return event;
     }
@@ -59,6 +95,11 @@ class EventBuilderFactory {
     public ReturnEvent buildReturnEvent(final int processId,
                                         final int invokeId,
                                         final Object returnObj) {
+        if (returnEventPoolSize > 0) {
+            final ReturnEvent event = returnEventPool[--returnEventPoolSize];
+            returnEventPool[returnEventPoolSize] = null;
+            return event.reset(processId, invokeId, returnObj);
+        }
         ReturnEvent event = new ReturnEvent(processId, invokeId, returnObj);
         return event;
     }
@@ -89,6 +130,11 @@ class EventBuilderFactory {
     public ThrowsEvent buildThrowsEvent(final int processId,
                                         final int invokeId,
                                         final Throwable throwable) {
+        if (throwsEventPoolSize > 0) {
+            final ThrowsEvent event = throwsEventPool[--throwsEventPoolSize];
+            throwsEventPool[throwsEventPoolSize] = null;
+            return event.reset(processId, invokeId, throwable);
+        }
         ThrowsEvent event = new ThrowsEvent(processId, invokeId, throwable);
         return event;
     }
@@ -179,7 +225,7 @@ class EventBuilderFactory {
     }
 
     /**
-     * 销毁 event，让内存能更快的释放
+     * 销毁 event，让内存能更快的释放，可以复用的事件回收到事件池中
      *
      * @param event
      */
@@ -188,5 +234,20 @@ class EventBuilderFactory {
             return;
         }
         event.destroy();
+        // 只回收确定类型的事件，IMMEDIATELY 事件是子类，不能混入
+        final Class<?> eventClass = event.getClass();
+        if (eventClass == BeforeEvent.class) {
+            if (beforeEventPoolSize < MAX_POOL_SIZE) {
+                beforeEventPool[beforeEventPoolSize++] = (BeforeEvent) event;
+            }
+        } else if (eventClass == ReturnEvent.class) {
+            if (returnEventPoolSize < MAX_POOL_SIZE) {
+                returnEventPool[returnEventPoolSize++] = (ReturnEvent) event;
+            }
+        } else if (eventClass == ThrowsEvent.class) {
+            if (throwsEventPoolSize < MAX_POOL_SIZE) {
+                throwsEventPool[throwsEventPoolSize++] = (ThrowsEvent) event;
+            }
+        }
     }
 }
@@ -28,12 +28,9 @@ import com.shulie.instrument.simulator.message.MessageHandler;
 import com.shulie.instrument.simulator.message.Messager;
 import com.shulie.instrument.simulator.message.Result;
 import com.shulie.instrument.simulator.message.exception.ExceptionHandler;
-import org.apache.commons.lang.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.shulie.instrument.simulator.api.ProcessControlException.*;
@@ -51,8 +48,7 @@ public class EventListenerHandler implements MessageHandler {
     private final AtomicInteger invokeIdSequencer = new AtomicInteger(1000);
 
     // 全局处理器ID:处理器映射集合
-    private final Map<Integer/*LISTENER_ID*/, InvokeProcessor> mappingOfEventProcessor
-            = new ConcurrentHashMap<Integer, InvokeProcessor>();
+    private final InvokeProcessorArray mappingOfEventProcessor = new InvokeProcessorArray();
 
     // owner namespace
     private String namespace;
@@ -80,7 +76,7 @@ public class EventListenerHandler implements MessageHandler {
     public void active(final int listenerId,
                        final EventListener listener,
                        final int[] eventEventTypes) {
-        mappingOfEventProcessor.put(listenerId, new InvokeProcessor(listenerId, listener, eventEventTypes));
+        mappingOfEventProcessor.set(listenerId, new InvokeProcessor(listenerId, listener, eventEventTypes));
         if (logger.isInfoEnabled()) {
             logger.info("SIMULATOR: activated listener[id={};target={};] event={}",
                     listenerId,
@@ -138,7 +134,7 @@ public class EventListenerHandler implements MessageHandler {
         /**
          * 如果当前事件不在事件监听器处理列表中，则直接返回，不处理事件
          */
-        if (!ArrayUtils.contains(processor.eventEventTypes, event.getType())) {
+        if (!processor.isEventTypeSupported(event.getType())) {
             return newNone();
         }
 
@@ -333,7 +329,7 @@ public class EventListenerHandler implements MessageHandler {
          * 判断是否需要补偿
          */
         if (!(event instanceof InvokeEvent)
-                || !ArrayUtils.contains(processor.eventEventTypes, event.getType())) {
+                || !processor.isEventTypeSupported(event.getType())) {
             return;
         }
 
@@ -444,51 +440,48 @@ public class EventListenerHandler implements MessageHandler {
          */
         final InvokeProcessor.InvokeProcess invokeProcess = processor.getOrCreate();
 
-        try {
-            /**
-             * 如果当前处理ID被忽略，则立即返回
-             */
-            if (invokeProcess.isIgnoreProcess()) {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("SIMULATOR: listener={} is marked ignore process!", listenerId);
-                }
-                return newNone();
+        /**
+         * 如果当前处理ID被忽略，则立即返回
+         * 调用流程会被复用，堆栈为空时说明是一个新的调用流程，上一次调用流程的忽略标记不生效
+         */
+        if (!invokeProcess.isEmptyStack() && invokeProcess.isIgnoreProcess()) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("SIMULATOR: listener={} is marked ignore process!", listenerId);
             }
+            return newNone();
+        }
 
-            /**
-             * BEFORE 事件时产生新的 invokeId
-             */
-            int invokeId = invokeIdSequencer.getAndIncrement();
-            invokeProcess.pushInvokeId(invokeId);
+        /**
+         * BEFORE 事件时产生新的 invokeId
+         */
+        int invokeId = invokeIdSequencer.getAndIncrement();
+        invokeProcess.pushInvokeId(invokeId);
 
-            /**
-             * 调用过程ID
-             */
-            final int processId = invokeProcess.getProcessId();
+        /**
+         * 调用过程ID
+         */
+        final int processId = invokeProcess.getProcessId();
 
-            ClassLoader javaClassLoader = clazz.getClassLoader();
-            /**
-             * 放置业务类加载器
-             */
-            BizClassLoaderHolder.setBizClassLoader(javaClassLoader);
-            final BeforeEvent event = invokeProcess.getEventFactory().buildBeforeEvent(
-                    processId,
-                    invokeId,
-                    javaClassLoader,
-                    clazz,
-                    javaMethodName,
-                    javaMethodDesc,
-                    target,
-                    argumentArray
-            );
-            try {
-                return handleEvent(listenerId, processId, invokeId, clazz, event, processor);
-            } finally {
-                invokeProcess.getEventFactory().destroy(event);
-                BizClassLoaderHolder.clearBizClassLoader();
-            }
+        ClassLoader javaClassLoader = clazz.getClassLoader();
+        /**
+         * 放置业务类加载器
+         */
+        BizClassLoaderHolder.setBizClassLoader(javaClassLoader);
+        final BeforeEvent event = invokeProcess.getEventFactory().buildBeforeEvent(
+                processId,
+                invokeId,
+                javaClassLoader,
+                clazz,
+                javaMethodName,
+                javaMethodDesc,
+                target,
+                argumentArray
+        );
+        try {
+            return handleEvent(listenerId, processId, invokeId, clazz, event, processor);
         } finally {
-            processor.cleanIfEmpty();
+            invokeProcess.getEventFactory().destroy(event);
+            BizClassLoaderHolder.clearBizClassLoader();
         }
     }
 
@@ -514,10 +507,11 @@ public class EventListenerHandler implements MessageHandler {
 
     @Override
     public void destroy() {
-        for (Map.Entry<Integer, InvokeProcessor> entry : mappingOfEventProcessor.entrySet()) {
-            entry.getValue().clean();
+        for (InvokeProcessor processor : mappingOfEventProcessor.clear()) {
+            if (processor != null) {
+                processor.clean();
+            }
         }
-        this.mappingOfEventProcessor.clear();
         ClassStructureImplByAsm.clear();
         exceptionHandler = null;
     }
@@ -559,52 +553,48 @@ public class EventListenerHandler implements MessageHandler {
 
         final InvokeProcessor.InvokeProcess invokeProcess = processor.getOrCreate();
 
-        try {
-            // 如果当前调用过程信息堆栈是空的,说明
-            // 1. BEFORE/RETURN错位
-            // 2. super.<init>
-            // 处理方式是直接返回,不做任何事件的处理和代码流程的改变,放弃对super.<init>的观察
-            if (invokeProcess.isEmptyStack()) {
-                return newNone();
-            }
+        // 如果当前调用过程信息堆栈是空的,说明
+        // 1. BEFORE/RETURN错位
+        // 2. super.<init>
+        // 处理方式是直接返回,不做任何事件的处理和代码流程的改变,放弃对super.<init>的观察
+        if (invokeProcess.isEmptyStack()) {
+            return newNone();
+        }
 
-            // 如果异常来自于ImmediatelyException，则忽略处理直接返回抛异常
-            final boolean isExceptionFromImmediately = !isReturn && invokeProcess.rollingIsExceptionFromImmediately();
-            if (isExceptionFromImmediately) {
-                return newThrows((Throwable) object);
-            }
+        // 如果异常来自于ImmediatelyException，则忽略处理直接返回抛异常
+        final boolean isExceptionFromImmediately = !isReturn && invokeProcess.rollingIsExceptionFromImmediately();
+        if (isExceptionFromImmediately) {
+            return newThrows((Throwable) object);
+        }
 
-            // 继续异常处理
-            final int processId = invokeProcess.getProcessId();
-            final int invokeId = invokeProcess.popInvokeId();
+        // 继续异常处理
+        final int processId = invokeProcess.getProcessId();
+        final int invokeId = invokeProcess.popInvokeId();
 
-            // 忽略事件处理
-            // 放在stack.pop()后边是为了对齐执行栈
-            if (invokeProcess.isIgnoreProcess()) {
-                return newNone();
-            }
+        // 忽略事件处理
+        // 放在stack.pop()后边是为了对齐执行栈
+        if (invokeProcess.isIgnoreProcess()) {
+            return newNone();
+        }
 
-            // 如果ProcessId==InvokeId说明已经到栈顶，此时需要核对堆栈是否为空
-            // 如果不为空需要输出日志进行告警
-            if (checkProcessStack(processId, invokeId, invokeProcess.isEmptyStack())) {
-                logger.warn("SIMULATOR: ERROR process-stack. pid={};iid={};listener={};",
-                        processId,
-                        invokeId,
-                        listenerId
-                );
-            }
+        // 如果ProcessId==InvokeId说明已经到栈顶，此时需要核对堆栈是否为空
+        // 如果不为空需要输出日志进行告警
+        if (checkProcessStack(processId, invokeId, invokeProcess.isEmptyStack())) {
+            logger.warn("SIMULATOR: ERROR process-stack. pid={};iid={};listener={};",
+                    processId,
+                    invokeId,
+                    listenerId
+            );
+        }
 
-            final Event event = isReturn
-                    ? invokeProcess.getEventFactory().buildReturnEvent(processId, invokeId, object)
-                    : invokeProcess.getEventFactory().buildThrowsEvent(processId, invokeId, (Throwable) object);
+        final Event event = isReturn
+                ? invokeProcess.getEventFactory().buildReturnEvent(processId, invokeId, object)
+                : invokeProcess.getEventFactory().buildThrowsEvent(processId, invokeId, (Throwable) object);
 
-            try {
-                return handleEvent(listenerId, processId, invokeId, clazz, event, processor);
-            } finally {
-                invokeProcess.getEventFactory().destroy(event);
-            }
+        try {
+            return handleEvent(listenerId, processId, invokeId, clazz, event, processor);
         } finally {
-            processor.cleanIfEmpty();
+            invokeProcess.getEventFactory().destroy(event);
         }
 
     }
@@ -646,28 +636,24 @@ public class EventListenerHandler implements MessageHandler {
             return;
         }
 
-        try {
 
-            final int processId = invokeProcess.getProcessId();
-            final int invokeId = invokeProcess.getInvokeId();
+        final int processId = invokeProcess.getProcessId();
+        final int invokeId = invokeProcess.getInvokeId();
 
-            // 如果事件处理流被忽略，则直接返回，不产生后续事件
-            if (invokeProcess.isIgnoreProcess()) {
-                return;
-            }
+        // 如果事件处理流被忽略，则直接返回，不产生后续事件
+        if (invokeProcess.isIgnoreProcess()) {
+            return;
+        }
 
-            final Event event = invokeProcess
-                    .getEventFactory()
-                    .buildCallBeforeEvent(processId, invokeId, lineNumber, isInterface, owner, name, desc);
-            try {
-                BizClassLoaderHolder.setBizClassLoader(clazz.getClassLoader());
-                handleEvent(listenerId, processId, invokeId, clazz, event, wrap);
-            } finally {
-                invokeProcess.getEventFactory().destroy(event);
-                BizClassLoaderHolder.clearBizClassLoader();
-            }
+        final Event event = invokeProcess
+                .getEventFactory()
+                .buildCallBeforeEvent(processId, invokeId, lineNumber, isInterface, owner, name, desc);
+        try {
+            BizClassLoaderHolder.setBizClassLoader(clazz.getClassLoader());
+            handleEvent(listenerId, processId, invokeId, clazz, event, wrap);
         } finally {
-            wrap.cleanIfEmpty();
+            invokeProcess.getEventFactory().destroy(event);
+            BizClassLoaderHolder.clearBizClassLoader();
         }
     }
 
@@ -702,27 +688,23 @@ public class EventListenerHandler implements MessageHandler {
             return;
         }
 
-        try {
-            final int processId = invokeProcess.getProcessId();
-            final int invokeId = invokeProcess.getInvokeId();
+        final int processId = invokeProcess.getProcessId();
+        final int invokeId = invokeProcess.getInvokeId();
 
-            // 如果事件处理流被忽略，则直接返回，不产生后续事件
-            if (invokeProcess.isIgnoreProcess()) {
-                return;
-            }
+        // 如果事件处理流被忽略，则直接返回，不产生后续事件
+        if (invokeProcess.isIgnoreProcess()) {
+            return;
+        }
 
-            final Event event = invokeProcess
-                    .getEventFactory()
-                    .buildCallReturnEvent(processId, invokeId, isInterface);
-            try {
-                BizClassLoaderHolder.setBizClassLoader(clazz.getClassLoader());
-                handleEvent(listenerId, processId, invokeId, clazz, event, wrap);
-            } finally {
-                invokeProcess.getEventFactory().destroy(event);
-                BizClassLoaderHolder.clearBizClassLoader();
-            }
+        final Event event = invokeProcess
+                .getEventFactory()
+                .buildCallReturnEvent(processId, invokeId, isInterface);
+        try {
+            BizClassLoaderHolder.setBizClassLoader(clazz.getClassLoader());
+            handleEvent(listenerId, processId, invokeId, clazz, event, wrap);
         } finally {
-            wrap.cleanIfEmpty();
+            invokeProcess.getEventFactory().destroy(event);
+            BizClassLoaderHolder.clearBizClassLoader();
         }
     }
 
@@ -757,27 +739,23 @@ public class EventListenerHandler implements MessageHandler {
             return;
         }
 
-        try {
-            final int processId = invokeProcess.getProcessId();
-            final int invokeId = invokeProcess.getInvokeId();
+        final int processId = invokeProcess.getProcessId();
+        final int invokeId = invokeProcess.getInvokeId();
 
-            // 如果事件处理流被忽略，则直接返回，不产生后续事件
-            if (invokeProcess.isIgnoreProcess()) {
-                return;
-            }
+        // 如果事件处理流被忽略，则直接返回，不产生后续事件
+        if (invokeProcess.isIgnoreProcess()) {
+            return;
+        }
 
-            final Event event = invokeProcess
-                    .getEventFactory()
-                    .buildCallThrowsEvent(processId, invokeId, isInterface, e);
-            try {
-                BizClassLoaderHolder.setBizClassLoader(clazz.getClassLoader());
-                handleEvent(listenerId, processId, invokeId, clazz, event, wrap);
-            } finally {
-                invokeProcess.getEventFactory().destroy(event);
-                BizClassLoaderHolder.clearBizClassLoader();
-            }
+        final Event event = invokeProcess
+                .getEventFactory()
+                .buildCallThrowsEvent(processId, invokeId, isInterface, e);
+        try {
+            BizClassLoaderHolder.setBizClassLoader(clazz.getClassLoader());
+            handleEvent(listenerId, processId, invokeId, clazz, event, wrap);
         } finally {
-            wrap.cleanIfEmpty();
+            invokeProcess.getEventFactory().destroy(event);
+            BizClassLoaderHolder.clearBizClassLoader();
         }
     }
 
@@ -815,25 +793,21 @@ public class EventListenerHandler implements MessageHandler {
             return;
         }
 
-        try {
-            final int processId = invokeProcess.getProcessId();
-            final int invokeId = invokeProcess.getInvokeId();
+        final int processId = invokeProcess.getProcessId();
+        final int invokeId = invokeProcess.getInvokeId();
 
-            // 如果事件处理流被忽略，则直接返回，不产生后续事件
-            if (invokeProcess.isIgnoreProcess()) {
-                return;
-            }
+        // 如果事件处理流被忽略，则直接返回，不产生后续事件
+        if (invokeProcess.isIgnoreProcess()) {
+            return;
+        }
 
-            final Event event = invokeProcess.getEventFactory().buildLineEvent(processId, invokeId, lineNumber);
-            try {
-                BizClassLoaderHolder.setBizClassLoader(clazz.getClassLoader());
-                handleEvent(listenerId, processId, invokeId, clazz, event, wrap);
-            } finally {
-                invokeProcess.getEventFactory().destroy(event);
-                BizClassLoaderHolder.clearBizClassLoader();
-            }
+        final Event event = invokeProcess.getEventFactory().buildLineEvent(processId, invokeId, lineNumber);
+        try {
+            BizClassLoaderHolder.setBizClassLoader(clazz.getClassLoader());
+            handleEvent(listenerId, processId, invokeId, clazz, event, wrap);
         } finally {
-            wrap.cleanIfEmpty();
+            invokeProcess.getEventFactory().destroy(event);
+            BizClassLoaderHolder.clearBizClassLoader();
         }
     }
 }
@@ -15,11 +15,11 @@
 package com.shulie.instrument.simulator.core.enhance.weaver;
 
 import com.shulie.instrument.simulator.api.listener.EventListener;
-import com.shulie.instrument.simulator.api.util.SimulatorStack;
-import com.shulie.instrument.simulator.api.util.ThreadUnsafeSimulatorStack;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.NoSuchElementException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -29,7 +29,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 class InvokeProcessor {
 
-    private final Logger logger = LoggerFactory.getLogger(InvokeProcessor.class);
+    private static final Logger logger = LoggerFactory.getLogger(InvokeProcessor.class);
     /**
      * 事件监听器 ID
      */
@@ -42,9 +42,16 @@ class InvokeProcessor {
      * 需要支持的事件类型列表
      */
     final int[] eventEventTypes;
+    /**
+     * 需要支持的事件类型掩码，第 n 位表示是否支持类型为 n 的事件
+     */
+    private final int eventTypeMask;
 
     /**
      * 调用流程的 ThreadLocal，这个地方需要使用实例变量，因为需要根据按照线程和 {@link InvokeProcessor} 来隔离调用流程
+     * <p>
+     * 调用流程在调用栈清空后不再移除，下一次调用时重置后复用；调用流程不持有监听器的引用，
+     * 监听器冻结后 ThreadLocal 随处理器一起被回收，不会因为线程池中的线程长期存活而泄漏模块的类加载器
      */
     private final ThreadLocal<InvokeProcess> processRef = new ThreadLocal<InvokeProcess>();
 
@@ -67,6 +74,23 @@ class InvokeProcessor {
         this.listenerId = listenerId;
         this.eventEventTypes = eventEventTypes;
         this.listener = listener;
+        int mask = 0;
+        if (eventEventTypes != null) {
+            for (int eventType : eventEventTypes) {
+                mask |= 1 << eventType;
+            }
+        }
+        this.eventTypeMask = mask;
+    }
+
+    /**
+     * 判断是否需要处理该类型的事件
+     *
+     * @param eventType 事件类型
+     * @return 是否需要处理
+     */
+    boolean isEventTypeSupported(final int eventType) {
+        return (eventTypeMask & (1 << eventType)) != 0;
     }
 
     /**
@@ -92,48 +116,42 @@ class InvokeProcessor {
     InvokeProcess getOrCreate() {
         InvokeProcess invokeProcess = processRef.get();
         if (invokeProcess == null) {
-            invokeProcess = new InvokeProcess();
+            invokeProcess = new InvokeProcess(listenerId);
             processRef.set(invokeProcess);
         }
         return invokeProcess;
     }
 
-    InvokeProcess get() {
-        return processRef.get();
-    }
-
-    /**
-     * clean if empty
-     */
-    void cleanIfEmpty() {
-        InvokeProcess process = get();
-        if (process == null) {
-            return;
-        }
-        if (process.isEmptyStack()) {
-            processRef.remove();
-        }
-    }
-
     /**
      * 描述一个次调用过程，当一个方法开始调用时生成 invokeId，第一个产生的 invokeId 即为 processId
      * 因为方法存在嵌套调用的情况，所以在一次 process 过程中可能会生成一个或者多个 invokeId
      * 只有在方法结束(RETURN/THROWS 事件触发)时 invokeId 才会弹出，代表当前的方法调用已经结束
      * 当所有的栈被清空时表明当前的调用流程已经结束
      */
-    class InvokeProcess {
+    static class InvokeProcess {
+
+        private static final int DEFAULT_STACK_DEEP = 12;
+
+        /**
+         * 事件监听器 ID，仅用于日志输出
+         */
+        private final int listenerId;
 
         /**
-         * 事件工厂，一个流程有一个单独的事件工厂
+         * 事件工厂，同一个线程的所有流程共用一个事件工厂
          */
         private final EventBuilderFactory eventBuilderFactory
-                = new EventBuilderFactory();
+                = EventBuilderFactory.getThreadLocalFactory();
+
+        /**
+         * 一次方法调用流程的堆栈，直接使用 int 数组避免 invokeId 装箱
+         */
+        private int[] stack = new int[DEFAULT_STACK_DEEP];
 
         /**
-         * 一次方法调用流程的堆栈
+         * 栈深度
          */
-        private final SimulatorStack<Integer> stack
-                = new ThreadUnsafeSimulatorStack<Integer>();
+        private int deep;
 
         /**
          * 是否需要忽略整个调用过程
@@ -146,6 +164,10 @@ class InvokeProcessor {
          */
         private boolean isExceptionFromImmediately = false;
 
+        InvokeProcess(final int listenerId) {
+            this.listenerId = listenerId;
+        }
+
         /**
          * 压入调用ID
          * 当压入的第一个调用 ID 即为流程 ID，在 BEFORE 事件中产生
@@ -153,12 +175,19 @@ class InvokeProcessor {
          * @param invokeId 调用ID
          */
         void pushInvokeId(int invokeId) {
-            stack.push(invokeId);
+            if (deep == 0) {
+                // 新的调用流程开始，重置上一次调用流程遗留的状态
+                isIgnoreProcess = false;
+                isExceptionFromImmediately = false;
+            } else if (deep == stack.length) {
+                stack = Arrays.copyOf(stack, deep + (deep >> 1));
+            }
+            stack[deep++] = invokeId;
             if (logger.isDebugEnabled()) {
                 logger.debug("SIMULATOR: push process-stack, process-id={};invoke-id={};deep={};listener={};",
-                        stack.peekLast(),
+                        stack[0],
                         invokeId,
-                        stack.deep(),
+                        deep,
                         listenerId
                 );
             }
@@ -170,32 +199,33 @@ class InvokeProcessor {
          * @return 调用ID
          */
         int popInvokeId() {
-            final int invokeId = stack.pop();
+            checkForPopOrPeek();
+            final int invokeId = stack[--deep];
             if (logger.isDebugEnabled()) {
-                final int processId = stack.peekLast();
                 logger.debug("SIMULATOR: pop process-stack, process-id={};invoke-id={};deep={};listener={};",
-                        processId,
+                        stack[0],
                         invokeId,
-                        stack.deep(),
+                        deep,
                         listenerId
                 );
             }
-            if (stack.isEmpty()) {
-                processRef.remove();
-                if (logger.isDebugEnabled()) {
-                    logger.debug("SIMULATOR: clean TLS: event-processor, listener={};", listenerId);
-                }
-            }
             return invokeId;
         }
 
+        private void checkForPopOrPeek() {
+            if (deep == 0) {
+                throw new NoSuchElementException();
+            }
+        }
+
         /**
          * 获取调用ID
          *
          * @return 调用ID
          */
         int getInvokeId() {
-            return stack.peek();
+            checkForPopOrPeek();
+            return stack[deep - 1];
         }
 
         /**
@@ -204,7 +234,8 @@ class InvokeProcessor {
          * @return 调用过程ID
          */
         int getProcessId() {
-            return stack.peekLast();
+            checkForPopOrPeek();
+            return stack[0];
         }
 
         /**
@@ -213,7 +244,7 @@ class InvokeProcessor {
          * @return TRUE:是；FALSE：否
          */
         boolean isEmptyStack() {
-            return stack.isEmpty();
+            return deep == 0;
         }
 
         /**
@@ -17,79 +17,73 @@ package com.shulie.instrument.simulator.core.enhance.weaver;
 import java.util.Arrays;
 
 /**
+ * 以监听器 ID 为下标的调用流程处理器表
+ * <p>
+ * 监听器 ID 由全局序列生成，是稠密的整数，织入的代码触发事件时直接按下标读取，无需装箱和哈希查找；
+ * 激活和冻结监听器时整体复制数组，读取不加锁
+ * </p>
+ *
  * @author xiaobin.zfb|xiaobin@shulie.io
  * @since 2021/6/1 11:04 下午
  */
 public class InvokeProcessorArray {
 
-    private InvokeProcessor[] processors;
-    private volatile int length;
-    /**
-     * record assignment index of map
-     */
-    private byte[] idxMap;
-
-    public InvokeProcessorArray(int length) {
-        this.processors = new InvokeProcessor[length];
-        this.idxMap = new byte[length];
-    }
-
-    /**
-     * find empty index
-     *
-     * @return
-     */
-    public synchronized int getNextListenerId() {
-        int index = -1;
-        for (int i = 0, len = processors.length; i < len; i++) {
-            if (processors[i] == null && idxMap[i] == 0) {
-                index = i;
-                break;
-            }
-        }
-        if (index == -1) {
-            ensureCapacity(processors.length);
-            index = processors.length;
-        }
+    private static final InvokeProcessor[] EMPTY = new InvokeProcessor[0];
 
-        idxMap[index] = 1;
-        return index;
-    }
+    private volatile InvokeProcessor[] processors = EMPTY;
+    private int length;
 
     public synchronized void set(int index, InvokeProcessor processor) {
-        ensureCapacity(index);
-        processors[index] = processor;
-        idxMap[index] = 1;
-        length++;
-    }
-
-    private void ensureCapacity(int index) {
+        InvokeProcessor[] newProcessors;
         if (index >= processors.length) {
             int oldCapacity = processors.length;
-            int newCapacity = oldCapacity + (oldCapacity >> 1);
-            processors = Arrays.copyOf(processors, newCapacity);
-            idxMap = Arrays.copyOf(idxMap, newCapacity);
+            newProcessors = Arrays.copyOf(processors, Math.max(index + 1, oldCapacity + (oldCapacity >> 1)));
+        } else {
+            newProcessors = processors.clone();
+        }
+        if (newProcessors[index] == null) {
+            length++;
         }
+        newProcessors[index] = processor;
+        processors = newProcessors;
     }
 
     public InvokeProcessor get(int index) {
-        if (index >= processors.length) {
+        final InvokeProcessor[] processors = this.processors;
+        if (index < 0 || index >= processors.length) {
             return null;
         }
         return processors[index];
     }
 
     public synchronized InvokeProcessor remove(int index) {
-        if (index >= processors.length) {
+        if (index < 0 || index >= processors.length) {
             return null;
         }
         InvokeProcessor invokeProcessor = processors[index];
-        processors[index] = null;
-        idxMap[index] = 0;
+        if (invokeProcessor == null) {
+            return null;
+        }
+        InvokeProcessor[] newProcessors = processors.clone();
+        newProcessors[index] = null;
+        processors = newProcessors;
+        length--;
         return invokeProcessor;
     }
 
-    public int length() {
+    /**
+     * 清空并返回清空前所有的处理器
+     *
+     * @return 清空前的处理器
+     */
+    public synchronized InvokeProcessor[] clear() {
+        InvokeProcessor[] oldProcessors = processors;
+        processors = EMPTY;
+        length = 0;
+        return oldProcessors;
+    }
+
+    public synchronized int length() {
         return length;
     }
 }
@@ -18,6 +18,7 @@ import com.shulie.instrument.simulator.api.event.EventType;
 import com.shulie.instrument.simulator.api.listener.ext.BuildingForListeners;
 import com.shulie.instrument.simulator.core.enhance.weaver.CodeLock;
 import com.shulie.instrument.simulator.core.util.SimulatorStringUtils;
+import com.shulie.instrument.simulator.message.Messager;
 import com.shulie.instrument.simulator.message.Result;
 import org.objectweb.asm.*;
 import org.objectweb.asm.commons.JSRInlinerAdapter;
@@ -40,7 +41,10 @@ public class AsmCodeEnhancer extends ClassVisitor implements Opcodes, AsmTypes,
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final String namespace;
+    /**
+     * 命名空间句柄，织入时确定，运行时不再需要根据命名空间查找处理器
+     */
+    private final int namespaceId;
     private final String targetJavaClassName;
     private final Map<String/*BehaviorStructure#getSignCode()*/, Set<BuildingForListeners>> signCodes;
 
@@ -50,7 +54,7 @@ public class AsmCodeEnhancer extends ClassVisitor implements Opcodes, AsmTypes,
                            final String targetClassInternalName,
                            final Map<String/*BehaviorStructure#getSignCode()*/, Set<BuildingForListeners>> signCodes) {
         super(api, cv);
-        this.namespace = namespace;
+        this.namespaceId = Messager.getNamespaceId(namespace);
         this.targetJavaClassName = SimulatorStringUtils.toJavaClassName(targetClassInternalName);
         this.signCodes = signCodes;
 
@@ -243,7 +247,7 @@ public class AsmCodeEnhancer extends ClassVisitor implements Opcodes, AsmTypes,
                             mark(beginLabel);
                             loadArgArray();
                             dup();
-                            push(namespace);
+                            push(namespaceId);
                             push(listenerId);
                             push(listenerClassName);
                             push(Type.getObjectType(targetJavaClassName.replace('.', '/')));
@@ -301,7 +305,7 @@ public class AsmCodeEnhancer extends ClassVisitor implements Opcodes, AsmTypes,
                             public void code() {
                                 loadReturn(opcode);
                                 push(Type.getObjectType(targetJavaClassName.replace('.', '/')));
-                                push(namespace);
+                                push(namespaceId);
                                 push(listenerId);
                                 invokeStatic(ASM_TYPE_MESSAGER, MESSAGER_INVOKE_ON_RETURN);
                                 processControl();
@@ -323,7 +327,7 @@ public class AsmCodeEnhancer extends ClassVisitor implements Opcodes, AsmTypes,
                             storeLocal(newlocal);
                             loadLocal(newlocal);
                             push(Type.getObjectType(targetJavaClassName.replace('.', '/')));
-                            push(namespace);
+                            push(namespaceId);
                             push(listenerId);
                             invokeStatic(ASM_TYPE_MESSAGER, MESSAGER_INVOKE_ON_THROWS);
                             processControl();
@@ -347,7 +351,7 @@ public class AsmCodeEnhancer extends ClassVisitor implements Opcodes, AsmTypes,
                             public void code() {
                                 push(lineNumber);
                                 push(Type.getObjectType(targetJavaClassName.replace('.', '/')));
-                                push(namespace);
+                                push(namespaceId);
                                 push(listenerId);
                                 invokeStatic(ASM_TYPE_MESSAGER, MESSAGER_INVOKE_ON_LINE);
                             }
@@ -388,7 +392,7 @@ public class AsmCodeEnhancer extends ClassVisitor implements Opcodes, AsmTypes,
                                 push(name);
                                 push(desc);
                                 push(Type.getObjectType(targetJavaClassName.replace('.', '/')));
-                                push(namespace);
+                                push(namespaceId);
                                 push(listenerId);
                                 invokeStatic(ASM_TYPE_MESSAGER, MESSAGER_INVOKE_ON_CALL_BEFORE);
                             }
@@ -404,7 +408,7 @@ public class AsmCodeEnhancer extends ClassVisitor implements Opcodes, AsmTypes,
                             public void code() {
                                 push(isInterface);
                                 push(Type.getObjectType(targetJavaClassName.replace('.', '/')));
-                                push(namespace);
+                                push(namespaceId);
                                 push(listenerId);
                                 invokeStatic(ASM_TYPE_MESSAGER, MESSAGER_INVOKE_ON_CALL_RETURN);
                             }
@@ -432,7 +436,7 @@ public class AsmCodeEnhancer extends ClassVisitor implements Opcodes, AsmTypes,
                             public void code() {
                                 push(isInterface);
                                 push(Type.getObjectType(targetJavaClassName.replace('.', '/')));
-                                push(namespace);
+                                push(namespaceId);
                                 push(listenerId);
                                 invokeStatic(ASM_TYPE_MESSAGER, MESSAGER_INVOKE_ON_CALL_RETURN);
                             }
@@ -451,7 +455,7 @@ public class AsmCodeEnhancer extends ClassVisitor implements Opcodes, AsmTypes,
                             dup();
                             push(isInterface);
                             push(Type.getObjectType(targetJavaClassName.replace('.', '/')));
-                            push(namespace);
+                            push(namespaceId);
                             push(listenerId);
                             invokeStatic(ASM_TYPE_MESSAGER, MESSAGER_INVOKE_ON_CALL_THROWS);
                         }
@@ -46,6 +46,11 @@ public class DefaultInstrumentClass implements InstrumentClass {
         this.buildingForClass.isIncludeBootstrap(isIncludeBootstrap);
     }
 
+    @Override
+    public void withDynamicField() {
+        this.buildingForClass.withDynamicField();
+    }
+
     @Override
     public InstrumentMethod getDeclaredMethod(String methodName, String... parameterTypes) {
         IBehaviorMatchBuilder buildingForBehavior = this.buildingForClass.onBehavior(methodName)
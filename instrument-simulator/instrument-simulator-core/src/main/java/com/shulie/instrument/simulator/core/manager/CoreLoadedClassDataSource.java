@@ -25,6 +25,16 @@ import java.util.List;
  */
 public interface CoreLoadedClassDataSource extends LoadedClassDataSource {
 
+    /**
+     * 启动，开始跟踪类的加载
+     */
+    void onStartup();
+
+    /**
+     * 关闭，停止跟踪类的加载并释放已加载类的索引
+     */
+    void onShutdown();
+
     /**
      * 使用{@link Matcher}来完成类的检索
      * <p>
@@ -16,9 +16,12 @@ package com.shulie.instrument.simulator.core.manager;
 
 import com.shulie.instrument.simulator.api.listener.EventListener;
 import com.shulie.instrument.simulator.api.listener.ext.BuildingForListeners;
+import com.shulie.instrument.simulator.core.util.matcher.structure.ClassStructure;
 
 import java.io.File;
 import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.security.ProtectionDomain;
 import java.util.List;
 import java.util.Map;
 
@@ -65,4 +68,28 @@ public abstract class SimulatorClassFileTransformer implements ClassFileTransfor
     public Map<String, File> getDumpResult() {
         return null;
     }
+
+    /**
+     * 使用已经解析好的类结构进行类形变
+     * <p>
+     * 由类形变分发器调用，同一个类只解析一次类结构，所有候选的形变器共用
+     * </p>
+     *
+     * @param loader              类加载器
+     * @param className           内部类名
+     * @param classBeingRedefined 重定义的类，类首次加载时为 null
+     * @param protectionDomain    保护域
+     * @param classfileBuffer     当前的字节码
+     * @param classStructure      类结构，为 null 时由形变器自行解析
+     * @return 形变后的字节码，未形变返回 null
+     * @throws IllegalClassFormatException 字节码格式错误
+     */
+    public byte[] transform(ClassLoader loader,
+                            String className,
+                            Class<?> classBeingRedefined,
+                            ProtectionDomain protectionDomain,
+                            byte[] classfileBuffer,
+                            ClassStructure classStructure) throws IllegalClassFormatException {
+        return transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+    }
 }
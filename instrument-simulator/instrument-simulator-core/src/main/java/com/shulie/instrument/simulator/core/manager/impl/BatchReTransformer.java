@@ -0,0 +1,333 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.core.manager.impl;
+
+import com.shulie.instrument.simulator.api.listener.ext.BuildingForListeners;
+import com.shulie.instrument.simulator.api.listener.ext.Progress;
+import com.shulie.instrument.simulator.core.manager.AffectStatistic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.instrument.Instrumentation;
+import java.util.*;
+
+/**
+ * 批量类重新增强
+ * <p>
+ * 观察和删除观察时不再逐个调用 {@link Instrumentation#retransformClasses(Class[])}，而是将需要重新增强的类
+ * 按批次一次性交给 JVM。在 {@link #begin()} 和 {@link #commit()} 之间提交的所有任务会被合并，
+ * 同一个类只会重新增强一次，适用于模块的加载、卸载、重置等会产生大量观察的场景；
+ * 批量重新增强失败时才会退化成逐个类重新增强，以便找出失败的类
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 3:27 下午
+ */
+public class BatchReTransformer {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * 每一批次重新增强的类的最大数量配置
+     */
+    public static final String RETRANSFORM_BATCH_SIZE = "simulator.retransform.batch.size";
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final Instrumentation inst;
+    private final int batchSize;
+
+    /**
+     * 当前线程开启的批次，批次可以嵌套，只有最外层提交时才会执行
+     */
+    private final ThreadLocal<Batch> batchHolder = new ThreadLocal<Batch>();
+
+    public BatchReTransformer(final Instrumentation inst, final Integer batchSize) {
+        this.inst = inst;
+        this.batchSize = batchSize == null || batchSize <= 0 ? DEFAULT_BATCH_SIZE : batchSize;
+    }
+
+    /**
+     * 开启批次，需要与 {@link #commit()} 成对调用
+     */
+    public void begin() {
+        Batch batch = batchHolder.get();
+        if (batch == null) {
+            batch = new Batch();
+            batchHolder.set(batch);
+        }
+        batch.depth++;
+    }
+
+    /**
+     * 开启批次并加入其他线程开启的批次，需要与 {@link #commit()} 成对调用。
+     * 提交时任务合并到 parent 中，由开启 parent 的线程统一执行；parent 为 null 或者已经提交时与 {@link #begin()} 一致
+     *
+     * @param parent 其他线程开启的批次，见 {@link #current()}
+     */
+    public void begin(final Batch parent) {
+        if (parent == null || batchHolder.get() != null) {
+            begin();
+            return;
+        }
+        final Batch batch = new Batch();
+        batch.parent = parent;
+        batch.depth++;
+        batchHolder.set(batch);
+    }
+
+    /**
+     * 返回当前线程开启的批次，没有开启时返回 null
+     */
+    public Batch current() {
+        return batchHolder.get();
+    }
+
+    /**
+     * 提交批次，最外层的批次提交时执行批次中的所有任务
+     */
+    public void commit() {
+        final Batch batch = batchHolder.get();
+        if (batch == null) {
+            return;
+        }
+        if (--batch.depth > 0) {
+            return;
+        }
+        batchHolder.remove();
+        final Batch parent = batch.parent;
+        if (parent != null) {
+            synchronized (parent) {
+                if (!parent.committed) {
+                    parent.tasks.addAll(batch.tasks);
+                    return;
+                }
+            }
+        }
+        final List<Task> tasks;
+        synchronized (batch) {
+            batch.committed = true;
+            tasks = new ArrayList<Task>(batch.tasks);
+        }
+        execute(tasks);
+    }
+
+    /**
+     * 提交重新增强任务，如果当前线程开启了批次则延迟到批次提交时执行，否则立即执行
+     *
+     * @param task 重新增强任务
+     */
+    public void submit(final Task task) {
+        final Batch batch = batchHolder.get();
+        if (batch == null) {
+            execute(Collections.singletonList(task));
+        } else {
+            synchronized (batch) {
+                batch.tasks.add(task);
+            }
+        }
+    }
+
+    /**
+     * 立即执行重新增强任务，不参与当前线程的批次
+     *
+     * @param task 重新增强任务
+     */
+    public void execute(final Task task) {
+        execute(Collections.singletonList(task));
+    }
+
+    private void execute(final List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        final Set<Class<?>> waitingReTransformClasses = new LinkedHashSet<Class<?>>();
+        for (final Task task : tasks) {
+            beginProgress(task.progress, task.classes.size());
+            for (final Class<?> clazz : task.classes) {
+                if (inst.isModifiableClass(clazz)) {
+                    waitingReTransformClasses.add(clazz);
+                } else {
+                    logger.info("SIMULATOR: watch={} in module={} reTransform {} class not supported.",
+                            task.watchId, task.moduleId, clazz);
+                }
+            }
+        }
+
+        final Map<Class<?>, Throwable> failures = new HashMap<Class<?>, Throwable>();
+        try {
+            reTransformClasses(new ArrayList<Class<?>>(waitingReTransformClasses), failures);
+        } finally {
+            for (final Task task : tasks) {
+                releaseListenerIds(task, failures);
+                reportProgress(task, failures);
+                if (task.affectStatistic != null) {
+                    finishProgress(task.progress, task.affectStatistic.getEffectClassCount(), task.affectStatistic.getEffectMethodCount());
+                } else {
+                    finishProgress(task.progress, task.cCnt, task.mCnt);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按批次重新增强，批次失败时退化成逐个类重新增强
+     */
+    private void reTransformClasses(final List<Class<?>> classes, final Map<Class<?>, Throwable> failures) {
+        final int total = classes.size();
+        if (total == 0) {
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        for (int from = 0; from < total; from += batchSize) {
+            final List<Class<?>> batch = classes.subList(from, Math.min(from + batchSize, total));
+            try {
+                // 注意这里， 重新增强， 如果之前类加载过， 这里会重新增强， 保证下次加载的时候， 是增强后的。
+                inst.retransformClasses(batch.toArray(new Class<?>[batch.size()]));
+            } catch (Throwable cause) {
+                logger.warn("SIMULATOR: batch reTransform {} classes failed, fallback to single reTransform.", batch.size(), cause);
+                for (final Class<?> clazz : batch) {
+                    try {
+                        inst.retransformClasses(clazz);
+                    } catch (Throwable causeOfReTransform) {
+                        logger.warn("SIMULATOR: single reTransform {} failed. ignore this class.", clazz, causeOfReTransform);
+                        failures.put(clazz, causeOfReTransform);
+                    }
+                }
+            }
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("SIMULATOR: reTransform {} classes finished, failed {} classes, cost {}ms",
+                    total, failures.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 删除观察的类全部重新增强成功之后释放监听器 ID，有类重新增强失败时旧的字节码仍然引用这些 ID，不能释放
+     */
+    private void releaseListenerIds(final Task task, final Map<Class<?>, Throwable> failures) {
+        if (task.listenerIds == null) {
+            return;
+        }
+        for (final Class<?> clazz : task.classes) {
+            if (failures.containsKey(clazz)) {
+                return;
+            }
+        }
+        for (final int listenerId : task.listenerIds) {
+            BuildingForListeners.releaseListenerId(listenerId);
+        }
+    }
+
+    private void reportProgress(final Task task, final Map<Class<?>, Throwable> failures) {
+        if (null == task.progress) {
+            return;
+        }
+        int index = 0;
+        for (final Class<?> clazz : task.classes) {
+            index++;
+            final Throwable cause = failures.get(clazz);
+            try {
+                if (cause == null) {
+                    task.progress.progressOnSuccess(clazz, index);
+                } else {
+                    task.progress.progressOnFailed(clazz, index, cause);
+                }
+            } catch (Throwable e) {
+                // 在进行进度汇报的过程中抛出异常,直接进行忽略,因为不影响形变的主体流程
+                // 仅仅只是一个汇报作用而已
+                logger.warn("SIMULATOR: watch={} in module={} on {} report progress occur exception at index={};total={};",
+                        task.watchId, task.moduleId, clazz,
+                        index - 1, task.classes.size(),
+                        e
+                );
+            }
+        }
+    }
+
+    // 开始进度
+    private void beginProgress(final Progress progress,
+                               final int total) {
+        if (null != progress) {
+            try {
+                progress.begin(total);
+            } catch (Throwable cause) {
+                logger.warn("SIMULATOR: begin progress failed.", cause);
+            }
+        }
+    }
+
+    // 结束进度
+    private void finishProgress(final Progress progress, final int cCnt, final int mCnt) {
+        if (null != progress) {
+            try {
+                progress.finish(cCnt, mCnt);
+            } catch (Throwable cause) {
+                logger.warn("SIMULATOR: finish progress failed.", cause);
+            }
+        }
+    }
+
+    /**
+     * 当前线程开启的批次，其他线程可以通过 {@link #begin(Batch)} 加入
+     */
+    public static final class Batch {
+        private int depth;
+        private final List<Task> tasks = new ArrayList<Task>();
+        private Batch parent;
+        private boolean committed;
+    }
+
+    /**
+     * 重新增强任务
+     */
+    public static final class Task {
+        private final int watchId;
+        private final String moduleId;
+        private final List<Class<?>> classes;
+        private final Progress progress;
+        /**
+         * 观察时的影响计数，在重新增强完成之后才能确定
+         */
+        private final AffectStatistic affectStatistic;
+        /**
+         * 删除观察时的影响计数，在删除之前已经确定
+         */
+        private final int cCnt;
+        private final int mCnt;
+        /**
+         * 删除观察时需要在重新增强完成之后释放的监听器 ID
+         */
+        private final int[] listenerIds;
+
+        private Task(int watchId, String moduleId, List<Class<?>> classes, Progress progress, AffectStatistic affectStatistic, int cCnt, int mCnt, int[] listenerIds) {
+            this.listenerIds = listenerIds;
+            this.watchId = watchId;
+            this.moduleId = moduleId;
+            this.classes = classes;
+            this.progress = progress;
+            this.affectStatistic = affectStatistic;
+            this.cCnt = cCnt;
+            this.mCnt = mCnt;
+        }
+
+        public static Task watch(int watchId, String moduleId, List<Class<?>> classes, Progress progress, AffectStatistic affectStatistic) {
+            return new Task(watchId, moduleId, classes, progress, affectStatistic, 0, 0, null);
+        }
+
+        public static Task delete(int watchId, String moduleId, List<Class<?>> classes, Progress progress, int cCnt, int mCnt, int[] listenerIds) {
+            return new Task(watchId, moduleId, classes, progress, null, cCnt, mCnt, listenerIds);
+        }
+    }
+}
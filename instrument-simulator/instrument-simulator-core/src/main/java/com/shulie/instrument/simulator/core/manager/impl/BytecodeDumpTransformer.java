@@ -74,11 +74,16 @@ public class BytecodeDumpTransformer extends SimulatorClassFileTransformer {
 
     @Override
     public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer) throws IllegalClassFormatException {
+        return transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer, null);
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer, ClassStructure classStructure) throws IllegalClassFormatException {
 
         byte[] transformBytes = null;
         boolean success = false;
         try {
-            transformBytes = delegate.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+            transformBytes = delegate.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer, classStructure);
             if (transformBytes != null) {
                 success = true;
             }
@@ -19,6 +19,7 @@ import com.shulie.instrument.simulator.api.listener.ext.BuildingForListeners;
 import com.shulie.instrument.simulator.api.resource.SimulatorConfig;
 import com.shulie.instrument.simulator.core.manager.AffectStatistic;
 import com.shulie.instrument.simulator.core.manager.SimulatorClassFileTransformer;
+import com.shulie.instrument.simulator.core.util.matcher.structure.ClassStructure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,12 +62,17 @@ public class CostDumpTransformer extends SimulatorClassFileTransformer {
 
     @Override
     public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer) throws IllegalClassFormatException {
+        return transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer, null);
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer, ClassStructure classStructure) throws IllegalClassFormatException {
         if (!costDumpEnabled) {
-            return delegate.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+            return delegate.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer, classStructure);
         } else {
             long start = System.currentTimeMillis();
             try {
-                return delegate.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+                return delegate.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer, classStructure);
             } finally {
                 long end = System.currentTimeMillis();
                 long value = cost.addAndGet(end - start);
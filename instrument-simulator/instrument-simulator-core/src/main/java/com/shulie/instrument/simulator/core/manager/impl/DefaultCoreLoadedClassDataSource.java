@@ -14,6 +14,7 @@
  */
 package com.shulie.instrument.simulator.core.manager.impl;
 
+import com.shulie.instrument.simulator.api.filter.ClassIndex;
 import com.shulie.instrument.simulator.api.filter.Filter;
 import com.shulie.instrument.simulator.api.guard.SimulatorGuard;
 import com.shulie.instrument.simulator.api.util.ArrayUtils;
@@ -41,11 +42,27 @@ public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSour
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final Instrumentation inst;
     private final boolean isEnableUnsafe;
+    /**
+     * 已加载类目录
+     */
+    private final LoadedClassCatalog loadedClassCatalog;
 
     public DefaultCoreLoadedClassDataSource(final Instrumentation inst,
                                             final boolean isEnableUnsafe) {
         this.inst = inst;
         this.isEnableUnsafe = isEnableUnsafe;
+        this.loadedClassCatalog = new LoadedClassCatalog(inst);
+    }
+
+    @Override
+    public void onStartup() {
+        inst.addTransformer(loadedClassCatalog);
+    }
+
+    @Override
+    public void onShutdown() {
+        inst.removeTransformer(loadedClassCatalog);
+        loadedClassCatalog.clear();
     }
 
     @Override
@@ -94,34 +111,10 @@ public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSour
 
     @Override
     public List<Class<?>> findForReTransform(String className) {
-        SimulatorGuard.getInstance().enter();
-        try {
-
-            final List<Class<?>> classes = new ArrayList<Class<?>>();
-            if (null == className) {
-                return classes;
-            }
-
-            for (Class<?> clazz : getAllForLoadedClasses()) {
-                // 过滤掉Simulator家族的类
-                if (SimulatorClassUtils.isComeFromSimulatorFamily(SimulatorStringUtils.toInternalClassName(clazz.getName()), clazz.getClassLoader())) {
-                    continue;
-                }
-
-                try {
-                    if (clazz.getName().equals(className)) {
-                        classes.add(clazz);
-                    }
-                } catch (Throwable cause) {
-                    // 当解析类出现异常的时候，直接认为根本没有这个类即可
-                    logger.warn("SIMULATOR: remove from findForReTransform, because loading class:{} occur an exception", clazz.getName(), cause);
-                }
-            }
-            return classes;
-
-        } finally {
-            SimulatorGuard.getInstance().exit();
+        if (null == className) {
+            return new ArrayList<Class<?>>();
         }
+        return findForReTransform(Collections.singletonList(className));
     }
 
     @Override
@@ -129,35 +122,7 @@ public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSour
         if (ArrayUtils.isEmpty(classNames)) {
             return Collections.EMPTY_LIST;
         }
-        SimulatorGuard.getInstance().enter();
-        try {
-            final List<Class<?>> classes = new ArrayList<Class<?>>();
-            for (String className : classNames) {
-                if (null == className) {
-                    return classes;
-                }
-
-                for (Class<?> clazz : getAllForLoadedClasses()) {
-                    // 过滤掉Simulator家族的类
-                    if (SimulatorClassUtils.isComeFromSimulatorFamily(SimulatorStringUtils.toInternalClassName(clazz.getName()), clazz.getClassLoader())) {
-                        continue;
-                    }
-
-                    try {
-                        if (clazz.getName().equals(className)) {
-                            classes.add(clazz);
-                        }
-                    } catch (Throwable cause) {
-                        // 当解析类出现异常的时候，直接认为根本没有这个类即可
-                        logger.warn("SIMULATOR: remove from findForReTransform, because loading class:{} occur an exception", clazz.getName(), cause);
-                    }
-                }
-            }
-            return classes;
-
-        } finally {
-            SimulatorGuard.getInstance().exit();
-        }
+        return findForReTransform(Arrays.asList(classNames));
     }
 
     @Override
@@ -173,20 +138,12 @@ public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSour
                     return classes;
                 }
 
-                for (Class<?> clazz : getAllForLoadedClasses()) {
+                for (Class<?> clazz : loadedClassCatalog.findByName(className)) {
                     // 过滤掉Simulator家族的类
                     if (SimulatorClassUtils.isComeFromSimulatorFamily(SimulatorStringUtils.toInternalClassName(clazz.getName()), clazz.getClassLoader())) {
                         continue;
                     }
-
-                    try {
-                        if (clazz.getName().equals(className)) {
-                            classes.add(clazz);
-                        }
-                    } catch (Throwable cause) {
-                        // 当解析类出现异常的时候，直接认为根本没有这个类即可
-                        logger.warn("SIMULATOR: remove from findForReTransform, because loading class:{} occur an exception", clazz.getName(), cause);
-                    }
+                    classes.add(clazz);
                 }
             }
             return classes;
@@ -207,7 +164,15 @@ public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSour
                 return classes;
             }
 
-            for (Class<?> clazz : getAllForLoadedClasses()) {
+            /**
+             * 匹配器可以提供类索引时只需要匹配目录中命中索引的类，否则需要匹配所有已加载的类
+             */
+            final ClassIndex classIndex = matcher.getClassIndex();
+            final Collection<Class<?>> candidates = classIndex == null
+                    ? loadedClassCatalog.findAll()
+                    : loadedClassCatalog.findByClassIndex(classIndex);
+
+            for (Class<?> clazz : candidates) {
                 // 过滤掉对于JVM认为不可修改的类
                 if (isRemoveUnsupported
                         && !inst.isModifiableClass(clazz)) {
@@ -215,6 +180,10 @@ public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSour
                     continue;
                 }
                 try {
+                    // 先根据类名做预匹配，避免对不可能匹配的类解析类结构
+                    if (!matcher.preMatching(clazz.getName())) {
+                        continue;
+                    }
                     if (isRemoveUnsupported) {
                         if (isMatchedUnsupported(matcher, clazz)) {
                             classes.add(clazz);
@@ -26,6 +26,8 @@ import com.shulie.instrument.simulator.core.CoreModule;
 import com.shulie.instrument.simulator.core.classloader.ClassLoaderFactory;
 import com.shulie.instrument.simulator.core.classloader.ClassLoaderService;
 import com.shulie.instrument.simulator.core.classloader.impl.ClassLoaderFactoryImpl;
+import com.shulie.instrument.simulator.core.enhance.DynamicFieldEnhancer;
+import com.shulie.instrument.simulator.core.enhance.DynamicFieldRetainTransformer;
 import com.shulie.instrument.simulator.core.enhance.weaver.EventListenerHandler;
 import com.shulie.instrument.simulator.core.extension.DefaultExtensionTemplate;
 import com.shulie.instrument.simulator.core.inject.ClassInjector;
@@ -52,6 +54,7 @@ import java.lang.reflect.Field;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static com.shulie.instrument.simulator.api.ModuleException.ErrorCode.*;
 import static com.shulie.instrument.simulator.core.manager.impl.ModuleLifeCycleType.*;
@@ -67,6 +70,12 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
     private CoreConfigure config;
     private Instrumentation inst;
     private ClassFileTransformer defaultClassFileTransformer;
+    private DispatchClassFileTransformer dispatchClassFileTransformer;
+
+    /**
+     * 批量重新增强，模块加载、卸载时产生的重新增强合并执行
+     */
+    private BatchReTransformer batchReTransformer;
     private ClassInjector classInjector;
     private CoreLoadedClassDataSource classDataSource;
     private ProviderManager providerManager;
@@ -114,6 +123,22 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
     // 已加载的模块集合
     private Map<String, CoreModule> loadedModuleMap = new ConcurrentHashMap<String, CoreModule>();
 
+    /**
+     * 正在加载的模块，模块并行加载时防止同一个模块被重复加载
+     */
+    private final Set<String> loadingModuleIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * 模块生命周期锁，模块加载、激活、冻结可以在加载线程中并行执行，持有读锁；
+     * 模块卸载持有写锁，卸载过程中不会有模块在加载或者切换状态
+     */
+    private final ReentrantReadWriteLock lifecycleLock = new ReentrantReadWriteLock();
+
+    /**
+     * 并行模块加载器，线程数配置小于等于 1 时为 null，按顺序加载
+     */
+    private ParallelModuleLoader parallelModuleLoader;
+
     /**
      * 所有等待加载的模块
      */
@@ -153,17 +178,29 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
         this.disabledModules = config.getDisabledModules();
         this.classInjector = new ModuleJarClassInjector(this.simulatorConfig);
         this.eventListenerHandler = eventListenerHandler;
+        this.dispatchClassFileTransformer = new DispatchClassFileTransformer(config.isEnableUnsafe());
+        this.batchReTransformer = new BatchReTransformer(inst, config.getIntProperty(BatchReTransformer.RETRANSFORM_BATCH_SIZE, null));
+        final int moduleLoadThreads = config.getIntProperty(ParallelModuleLoader.MODULE_LOAD_THREADS, ParallelModuleLoader.getDefaultThreads());
+        if (moduleLoadThreads > 1) {
+            this.parallelModuleLoader = new ParallelModuleLoader(moduleLoadThreads, switcherManager, batchReTransformer);
+        }
     }
 
     @Override
     public void onStartup() {
         this.providerManager.onStart(config.getNamespace(), simulatorConfig);
+        this.classDataSource.onStartup();
         /**
          * 针对需要开放给业务类加载器的类文件转换器，这个类文件转换器中负责对业务类加载器进行 jar 包的注入
          */
         this.defaultClassFileTransformer = new InternalClassFileTransformer(classInjector);
         this.inst.addTransformer(this.defaultClassFileTransformer);
 
+        /**
+         * 所有模块的观察共用一个类形变分发器
+         */
+        this.inst.addTransformer(this.dispatchClassFileTransformer, true);
+
         /**
          * 如果已经加载的类则直接执行注入操作
          */
@@ -181,10 +218,26 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
     public void onShutdown() {
         this.providerManager.onShutdown(config.getNamespace(), simulatorConfig);
         this.inst.removeTransformer(this.defaultClassFileTransformer);
+        this.inst.removeTransformer(this.dispatchClassFileTransformer);
+        this.dispatchClassFileTransformer.clear();
+        /**
+         * 织入过动态属性的类无法恢复原来的类结构，保留一个只负责再次织入的形变器，
+         * 否则关闭之后其他 agent 重新形变这些类时会失败
+         */
+        if (DynamicFieldEnhancer.hasWoven()) {
+            this.inst.addTransformer(new DynamicFieldRetainTransformer(), true);
+        }
+        this.classDataSource.onShutdown();
+        if (this.parallelModuleLoader != null) {
+            this.parallelModuleLoader.shutdown();
+            this.parallelModuleLoader = null;
+        }
         this.switcherManager.close();
         this.config = null;
         this.inst = null;
         this.defaultClassFileTransformer = null;
+        this.dispatchClassFileTransformer = null;
+        this.batchReTransformer = null;
         this.classInjector.destroy();
         this.classInjector = null;
         this.classDataSource = null;
@@ -339,17 +392,33 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
      * @param classLoaderFactory 负责加载模块的ClassLoader工厂
      * @throws ModuleException 加载模块失败
      */
-    private synchronized void load(final ModuleSpec moduleSpec,
-                                   final ExtensionModule module,
-                                   final File moduleJarFile,
-                                   final ClassLoaderFactory classLoaderFactory) throws ModuleException {
+    private void load(final ModuleSpec moduleSpec,
+                      final ExtensionModule module,
+                      final File moduleJarFile,
+                      final ClassLoaderFactory classLoaderFactory) throws ModuleException {
 
-        if (loadedModuleMap.containsKey(moduleSpec.getModuleId())) {
+        if (loadedModuleMap.containsKey(moduleSpec.getModuleId()) || !loadingModuleIds.add(moduleSpec.getModuleId())) {
             if (logger.isDebugEnabled()) {
                 logger.debug("SIMULATOR: module already loaded. module={};", moduleSpec);
             }
             return;
         }
+        lifecycleLock.readLock().lock();
+        try {
+            doLoad(moduleSpec, module, moduleJarFile, classLoaderFactory);
+        } finally {
+            lifecycleLock.readLock().unlock();
+            loadingModuleIds.remove(moduleSpec.getModuleId());
+        }
+    }
+
+    private void doLoad(final ModuleSpec moduleSpec,
+                        final ExtensionModule module,
+                        final File moduleJarFile,
+                        final ClassLoaderFactory classLoaderFactory) throws ModuleException {
+        if (loadedModuleMap.containsKey(moduleSpec.getModuleId())) {
+            return;
+        }
 
         if (logger.isInfoEnabled()) {
             logger.info("SIMULATOR: loading module, module={};class={};module-jar={};",
@@ -391,7 +460,7 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
                 new ReleaseResource<ModuleEventWatcher>(
                         SimulatorGuard.getInstance().doGuard(
                                 ModuleEventWatcher.class,
-                                new DefaultModuleEventWatcher(inst, classDataSource, coreModule, config.isEnableUnsafe(), config.getNamespace(), eventListenerHandler)
+                                new DefaultModuleEventWatcher(inst, classDataSource, coreModule, config.isEnableUnsafe(), config.getNamespace(), eventListenerHandler, dispatchClassFileTransformer, batchReTransformer)
                         )
                 ) {
                     @Override
@@ -674,6 +743,18 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
      */
     @Override
     public CoreModule unload(CoreModule coreModule, boolean isIgnoreModuleException, boolean frozen) throws ModuleException {
+        // 模块卸载过程中删除的所有观察合并成一次重新增强
+        lifecycleLock.writeLock().lock();
+        batchReTransformer.begin();
+        try {
+            return doUnload(coreModule, isIgnoreModuleException, frozen);
+        } finally {
+            batchReTransformer.commit();
+            lifecycleLock.writeLock().unlock();
+        }
+    }
+
+    private CoreModule doUnload(CoreModule coreModule, boolean isIgnoreModuleException, boolean frozen) throws ModuleException {
         if (!coreModule.isLoaded()) {
             if (logger.isDebugEnabled()) {
                 logger.debug("SIMULATOR: module already unLoaded. module={};", coreModule.getModuleId());
@@ -735,6 +816,15 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
         if (logger.isInfoEnabled()) {
             logger.info("SIMULATOR: force unloading all loaded modules:{}", loadedModuleMap.keySet());
         }
+        batchReTransformer.begin();
+        try {
+            unloadAllModules();
+        } finally {
+            batchReTransformer.commit();
+        }
+    }
+
+    private void unloadAllModules() {
         //先卸载所有有开关依赖的模块
         List<CoreModule> modules = new ArrayList<CoreModule>(loadedModuleMap.values());
         List<CoreModule> userModules = new ArrayList<CoreModule>();
@@ -813,7 +903,19 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
     }
 
     @Override
-    public synchronized void active(final CoreModule coreModule) throws ModuleException {
+    public void active(final CoreModule coreModule) throws ModuleException {
+        // 模块可能在加载线程中并行激活，与卸载互斥，并行激活的模块之间只对当前模块加锁
+        lifecycleLock.readLock().lock();
+        try {
+            synchronized (coreModule) {
+                doActive(coreModule);
+            }
+        } finally {
+            lifecycleLock.readLock().unlock();
+        }
+    }
+
+    private void doActive(final CoreModule coreModule) throws ModuleException {
 
         // 如果模块已经被激活，则直接幂等返回
         if (coreModule.isActivated()) {
@@ -854,8 +956,20 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
     }
 
     @Override
-    public synchronized void frozen(final CoreModule coreModule,
-                                    final boolean isIgnoreModuleException) throws ModuleException {
+    public void frozen(final CoreModule coreModule,
+                       final boolean isIgnoreModuleException) throws ModuleException {
+        lifecycleLock.readLock().lock();
+        try {
+            synchronized (coreModule) {
+                doFrozen(coreModule, isIgnoreModuleException);
+            }
+        } finally {
+            lifecycleLock.readLock().unlock();
+        }
+    }
+
+    private void doFrozen(final CoreModule coreModule,
+                          final boolean isIgnoreModuleException) throws ModuleException {
 
         // 如果模块已经被冻结(尚未被激活)，则直接幂等返回
         if (!coreModule.isActivated()) {
@@ -1044,10 +1158,15 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
 
     @Override
     public synchronized void flush(final boolean isForce) throws ModuleException {
-        if (isForce) {
-            forceFlush();
-        } else {
-            softFlush();
+        batchReTransformer.begin();
+        try {
+            if (isForce) {
+                forceFlush();
+            } else {
+                softFlush();
+            }
+        } finally {
+            batchReTransformer.commit();
         }
     }
 
@@ -1087,23 +1206,30 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
         // 用户模块加载目录，加载用户模块目录下的所有模块
         // 对模块访问权限进行校验
         if (moduleSpec.getFile().exists() && moduleSpec.getFile().canRead()) {
-            new ModuleLibLoader(moduleSpec, config.getLaunchMode(), classLoaderService)
-                    .load(simulatorConfig,
-                            new InnerModuleJarLoadCallback(),
-                            new InnerModuleLoadCallback()
-                    );
+            // 模块加载过程中的所有观察合并成一次重新增强
+            batchReTransformer.begin();
+            try {
+                new ModuleLibLoader(moduleSpec, config.getLaunchMode(), classLoaderService)
+                        .load(simulatorConfig,
+                                new InnerModuleJarLoadCallback(),
+                                new InnerModuleLoadCallback()
+                        );
+            } finally {
+                batchReTransformer.commit();
+            }
         } else {
             logger.warn("SIMULATOR: module-lib not access, ignore flush load this lib. path={}, module-id={}", moduleSpec.getFile(), moduleSpec.getModuleId());
         }
     }
 
     /**
-     * 模块加载
+     * 校验模块并注册模块的类加载器
      *
      * @param moduleSpec
      * @param action
+     * @return 模块是否可以加载
      */
-    private void loadModule(final ModuleSpec moduleSpec, String action) {
+    private boolean prepareModule(final ModuleSpec moduleSpec, String action) {
         if (logger.isInfoEnabled()) {
             logger.info("SIMULATOR: prepare to load module {} ,file={}", moduleSpec.getModuleId(), moduleSpec.getFile().getAbsolutePath());
         }
@@ -1111,7 +1237,7 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
             moduleSpec.setValid(false);
             logger.warn("SIMULATOR: {} modules[{}]: module-lib can not access, cause by file is not exists or can't read. module-lib={}, exists={}, canRead={}",
                     action, moduleSpec.getModuleId(), moduleSpec.getFile(), moduleSpec.getFile().exists(), moduleSpec.getFile().canRead());
-            return;
+            return false;
         }
 
         /**
@@ -1121,7 +1247,7 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
             moduleSpec.setValid(false);
             logger.warn("SIMULATOR: {} modules[{}]: module is not enabled, cause by module version is not support simulator version, will be ignored. module-lib={}, simulator-version:{} module-support-version:{}-{}",
                     action, moduleSpec.getModuleId(), moduleSpec.getFile(), simulatorConfig.getSimulatorVersion(), moduleSpec.getSinceVersion(), moduleSpec.getUntilVersion());
-            return;
+            return false;
         }
 
         /**
@@ -1131,7 +1257,7 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
             if (disabledModules.contains(moduleSpec.getModuleId())) {
                 moduleSpec.setValid(false);
                 logger.warn("SIMULATOR: {} modules[{}]: module is disabled, will be ignored. module-lib={}", action, moduleSpec.getModuleId(), moduleSpec.getFile());
-                return;
+                return false;
             }
         }
 
@@ -1144,6 +1270,19 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
         if (logger.isInfoEnabled()) {
             logger.info("SIMULATOR: {} modules[{}]: load module success. module-lib={}", action, moduleSpec.getModuleId(), moduleSpec.getFile());
         }
+        return true;
+    }
+
+    /**
+     * 模块加载
+     *
+     * @param moduleSpec
+     * @param action
+     */
+    private void loadModule(final ModuleSpec moduleSpec, String action) {
+        if (!prepareModule(moduleSpec, action)) {
+            return;
+        }
         if (CollectionUtils.isNotEmpty(moduleSpec.getDependencies())) {
             /**
              * 如果开关已经是开启状态，则直接执行即可
@@ -1185,9 +1324,29 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
     }
 
     private void loadModules(List<ModuleSpec> moduleSpecs, String action) {
-        for (ModuleSpec moduleSpec : moduleSpecs) {
-            loadModule(moduleSpec, action);
+        /**
+         * 未开启并行加载或者在模块加载线程中时按顺序加载，在加载线程中等待线程池可能死锁
+         */
+        if (parallelModuleLoader == null || ParallelModuleLoader.isLoaderThread()) {
+            for (ModuleSpec moduleSpec : moduleSpecs) {
+                loadModule(moduleSpec, action);
+            }
+            return;
         }
+        parallelModuleLoader.load(moduleSpecs, action, new ParallelModuleLoader.Callback() {
+            @Override
+            public boolean prepare(ModuleSpec moduleSpec, String action) {
+                return prepareModule(moduleSpec, action);
+            }
+
+            @Override
+            public void load(ModuleSpec moduleSpec) {
+                loadModule(moduleSpec);
+                if (logger.isInfoEnabled()) {
+                    logger.info("SIMULATOR: load module {} successful,file={}", moduleSpec.getModuleId(), moduleSpec.getFile().getAbsolutePath());
+                }
+            }
+        });
     }
 
     @Override
@@ -1205,6 +1364,20 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
 
         waitLoadModules.clear();
 
+        // 卸载和重新加载过程中的重新增强合并执行，同一个类只重新增强一次
+        batchReTransformer.begin();
+        try {
+            resetModules();
+        } finally {
+            batchReTransformer.commit();
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("SIMULATOR: resetting all loaded modules finished :{}", loadedModuleMap.keySet());
+        }
+        return this;
+    }
+
+    private void resetModules() {
         // 1. 强制卸载所有模块
         unloadAll();
 
@@ -1217,10 +1390,6 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
         List<File> userModuleLibJars = getAllModuleLibJar(userModuleLibs);
         List<ModuleSpec> userModuleSpecs = ModuleSpecUtils.loadModuleSpecs(userModuleLibJars, false);
         loadModules(userModuleSpecs, "load");
-        if (logger.isInfoEnabled()) {
-            logger.info("SIMULATOR: resetting all loaded modules finished :{}", loadedModuleMap.keySet());
-        }
-        return this;
     }
 
     /**
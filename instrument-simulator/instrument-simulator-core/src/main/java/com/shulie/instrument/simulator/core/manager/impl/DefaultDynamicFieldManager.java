@@ -17,20 +17,70 @@ package com.shulie.instrument.simulator.core.manager.impl;
 import com.shulie.instrument.simulator.api.resource.DynamicFieldManager;
 import com.shulie.instrument.simulator.message.ConcurrentWeakHashMap;
 import com.shulie.instrument.simulator.message.DestroyHook;
+import com.shulie.instrument.simulator.message.DynamicFieldHolder;
 
 import java.io.Closeable;
 import java.io.Serializable;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * 动态属性管理器的默认实现
+ * <p>
+ * 目标对象实现了 {@link DynamicFieldHolder}(类首次加载时织入)时动态属性直接保存在对象自身的属性上，
+ * 属性中是一个按模块分配槽位的数组，每个模块的动态属性占用其中一个槽位；
+ * 未织入的对象仍然保存在以对象标识为 key 的弱引用 Map 中
+ * </p>
+ * <p>
+ * 槽位在模块第一次往对象属性上写入动态属性时分配，模块销毁时释放给后续加载的模块复用。每个槽位带有代数，
+ * 释放时代数加一，对象上代数不一致的属性视为已卸载模块遗留的属性，读取时当作不存在，写入时清理
+ * </p>
  *
  * @author xiaobin.zfb|xiaobin@shulie.io
  * @since 2021/4/24 1:52 下午
  */
 public class DefaultDynamicFieldManager implements DynamicFieldManager {
+    /**
+     * 槽位的分配和释放都在这把锁内完成
+     */
+    private final static Object SLOT_LOCK = new Object();
+
+    /**
+     * 已经释放、可以复用的槽位
+     */
+    private final static BitSet FREE_SLOTS = new BitSet();
+
+    /**
+     * 已经分配过的槽位数量
+     */
+    private static volatile int slotCount;
+
+    /**
+     * 每个槽位当前的代数，写时复制，读取时不需要加锁
+     */
+    private static volatile int[] generations = new int[16];
+
+    /**
+     * 只有第一次创建某个对象的动态属性时才加锁，按对象标识分段
+     */
+    private final static Object[] LOCKS = new Object[64];
+
+    static {
+        for (int i = 0; i < LOCKS.length; i++) {
+            LOCKS[i] = new Object();
+        }
+    }
+
+    /**
+     * 当前模块在对象属性中的槽位，第一次往对象属性上写入时分配
+     */
+    private volatile Slot slot;
+
+    private volatile boolean destroyed;
+
     /**
      * 所有动态属性的集合,可能很多的模块根本不需要动态属性，所以这里使用延迟初始化
      * 防止浪费不必要的内存
@@ -69,8 +119,148 @@ public class DefaultDynamicFieldManager implements DynamicFieldManager {
         }
     }
 
+    /**
+     * 获取当前模块的槽位，不存在时分配
+     *
+     * @return 模块已经销毁时返回 null
+     */
+    private Slot getOrAllocateSlot() {
+        Slot current = slot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (slot == null && !destroyed) {
+                slot = allocateSlot();
+            }
+            return slot;
+        }
+    }
+
+    private static Slot allocateSlot() {
+        synchronized (SLOT_LOCK) {
+            int index = FREE_SLOTS.nextSetBit(0);
+            if (index < 0) {
+                index = slotCount++;
+                if (index >= generations.length) {
+                    int[] newGenerations = new int[generations.length << 1];
+                    System.arraycopy(generations, 0, newGenerations, 0, generations.length);
+                    generations = newGenerations;
+                }
+            } else {
+                FREE_SLOTS.clear(index);
+            }
+            return new Slot(index, generations[index]);
+        }
+    }
+
+    /**
+     * 释放槽位，代数加一之后对象上遗留的属性全部失效
+     */
+    private static void releaseSlot(Slot slot) {
+        synchronized (SLOT_LOCK) {
+            int[] newGenerations = generations.clone();
+            newGenerations[slot.index]++;
+            generations = newGenerations;
+            FREE_SLOTS.set(slot.index);
+        }
+    }
+
+    /**
+     * 获取保存在对象属性上的当前模块的动态属性
+     *
+     * @param holder 目标对象
+     * @return 不存在时返回 null
+     */
+    private HolderFields getHolderFields(DynamicFieldHolder holder) {
+        final Slot current = slot;
+        if (current == null) {
+            return null;
+        }
+        final Object slots = holder.$$simulator$getDynamicFields();
+        if (!(slots instanceof AtomicReferenceArray)) {
+            return null;
+        }
+        final AtomicReferenceArray<HolderFields> array = (AtomicReferenceArray<HolderFields>) slots;
+        if (current.index >= array.length()) {
+            return null;
+        }
+        HolderFields fields = array.get(current.index);
+        return fields != null && fields.generation == current.generation ? fields : null;
+    }
+
+    /**
+     * 获取保存在对象属性上的当前模块的动态属性，不存在时创建
+     * <p>
+     * 槽位数组的创建、扩容以及槽位的写入都在同一把锁内完成，读取时不需要加锁。
+     * 写入时顺带清理数组中已卸载模块遗留的属性
+     * </p>
+     *
+     * @param holder 目标对象
+     * @return 当前模块的动态属性，模块已经销毁时返回 null
+     */
+    private HolderFields getOrCreateHolderFields(DynamicFieldHolder holder) {
+        HolderFields fields = getHolderFields(holder);
+        if (fields != null) {
+            return fields;
+        }
+        final Slot current = getOrAllocateSlot();
+        if (current == null) {
+            return null;
+        }
+        synchronized (getLock(holder)) {
+            final Object slots = holder.$$simulator$getDynamicFields();
+            AtomicReferenceArray<HolderFields> array = slots instanceof AtomicReferenceArray ? (AtomicReferenceArray<HolderFields>) slots : null;
+            if (array == null || current.index >= array.length()) {
+                final AtomicReferenceArray<HolderFields> newArray = new AtomicReferenceArray<HolderFields>(Math.max(current.index + 1, slotCount));
+                if (array != null) {
+                    for (int i = 0; i < array.length(); i++) {
+                        newArray.set(i, array.get(i));
+                    }
+                }
+                array = newArray;
+                holder.$$simulator$setDynamicFields(array);
+            }
+            fields = array.get(current.index);
+            if (fields != null && fields.generation == current.generation) {
+                return fields;
+            }
+            final int[] currentGenerations = generations;
+            for (int i = 0; i < array.length(); i++) {
+                HolderFields stale = array.get(i);
+                if (stale != null && i < currentGenerations.length && stale.generation != currentGenerations[i]) {
+                    array.set(i, null);
+                }
+            }
+            fields = new HolderFields(current.generation);
+            array.set(current.index, fields);
+        }
+        return fields;
+    }
+
+    private void removeHolderFields(DynamicFieldHolder holder) {
+        final Slot current = slot;
+        HolderFields fields = getHolderFields(holder);
+        if (current == null || fields == null) {
+            return;
+        }
+        synchronized (getLock(holder)) {
+            final AtomicReferenceArray<HolderFields> array = (AtomicReferenceArray<HolderFields>) holder.$$simulator$getDynamicFields();
+            array.compareAndSet(current.index, fields, null);
+        }
+        fields.clear();
+    }
+
+    private static Object getLock(Object target) {
+        return LOCKS[System.identityHashCode(target) & (LOCKS.length - 1)];
+    }
+
     @Override
     public boolean hasDynamicField(Object target, String fieldName) {
+        if (target instanceof DynamicFieldHolder) {
+            Map<String, Object> fields = getHolderFields((DynamicFieldHolder) target);
+            return fields != null && fields.containsKey(fieldName);
+        }
         if (dynamicFields == null) {
             return false;
         }
@@ -89,6 +279,14 @@ public class DefaultDynamicFieldManager implements DynamicFieldManager {
 
     @Override
     public <T> T getDynamicField(Object target, String fieldName, T defaultValue) {
+        if (target instanceof DynamicFieldHolder) {
+            Map<String, Object> fields = getHolderFields((DynamicFieldHolder) target);
+            if (fields == null) {
+                return defaultValue;
+            }
+            T value = (T) fields.get(fieldName);
+            return value == null ? defaultValue : value;
+        }
         if (dynamicFields == null) {
             return defaultValue;
         }
@@ -105,6 +303,10 @@ public class DefaultDynamicFieldManager implements DynamicFieldManager {
 
     @Override
     public void removeAll(Object target) {
+        if (target instanceof DynamicFieldHolder) {
+            removeHolderFields((DynamicFieldHolder) target);
+            return;
+        }
         if (dynamicFields == null) {
             return;
         }
@@ -119,6 +321,13 @@ public class DefaultDynamicFieldManager implements DynamicFieldManager {
         if (value == null || target == null || fieldName == null) {
             return;
         }
+        if (target instanceof DynamicFieldHolder) {
+            HolderFields fields = getOrCreateHolderFields((DynamicFieldHolder) target);
+            if (fields != null) {
+                fields.put(fieldName, value);
+            }
+            return;
+        }
         lazyInit();
         DynamicField field = dynamicFields.get(target);
         if (field == null) {
@@ -133,6 +342,10 @@ public class DefaultDynamicFieldManager implements DynamicFieldManager {
 
     @Override
     public <T> T removeField(Object target, String fieldName) {
+        if (target instanceof DynamicFieldHolder) {
+            Map<String, Object> fields = getHolderFields((DynamicFieldHolder) target);
+            return fields == null ? null : (T) fields.remove(fieldName);
+        }
         if (dynamicFields == null) {
             return null;
         }
@@ -146,6 +359,15 @@ public class DefaultDynamicFieldManager implements DynamicFieldManager {
 
     @Override
     public void destroy() {
+        Slot current;
+        synchronized (this) {
+            destroyed = true;
+            current = slot;
+            slot = null;
+        }
+        if (current != null) {
+            releaseSlot(current);
+        }
         if (dynamicFields == null) {
             return;
         }
@@ -158,6 +380,31 @@ public class DefaultDynamicFieldManager implements DynamicFieldManager {
         dynamicFields.clear();
     }
 
+    /**
+     * 分配给模块的槽位以及分配时槽位的代数
+     */
+    private static class Slot {
+        private final int index;
+        private final int generation;
+
+        Slot(int index, int generation) {
+            this.index = index;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * 保存在对象属性上的某个模块的动态属性，带有写入时槽位的代数
+     */
+    private static class HolderFields extends ConcurrentHashMap<String, Object> {
+        private final int generation;
+
+        HolderFields(int generation) {
+            super(4, 1.0f, 4);
+            this.generation = generation;
+        }
+    }
+
     private static class DynamicField implements Closeable, Serializable {
         /**
          * 缓存的对应只有当 gc 回收之后才会空，所以可以根据这个来判断该对象是否可以回收
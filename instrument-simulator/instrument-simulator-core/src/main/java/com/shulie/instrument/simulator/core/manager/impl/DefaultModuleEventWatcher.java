@@ -34,6 +34,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -57,6 +58,10 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
     // 观察ID序列生成器
     private final Sequencer watchIdSequencer = new Sequencer();
     private EventListenerHandler eventListenerHandler;
+    // 命名空间共享的类形变分发器
+    private DispatchClassFileTransformer dispatchClassFileTransformer;
+    // 命名空间共享的批量重新增强
+    private BatchReTransformer batchReTransformer;
 
 
     DefaultModuleEventWatcher(final Instrumentation inst,
@@ -64,148 +69,17 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                               final CoreModule coreModule,
                               final boolean isEnableUnsafe,
                               final String namespace,
-                              final EventListenerHandler eventListenerHandler) {
+                              final EventListenerHandler eventListenerHandler,
+                              final DispatchClassFileTransformer dispatchClassFileTransformer,
+                              final BatchReTransformer batchReTransformer) {
         this.inst = inst;
         this.classDataSource = classDataSource;
         this.coreModule = coreModule;
         this.isEnableUnsafe = isEnableUnsafe;
         this.namespace = namespace;
         this.eventListenerHandler = eventListenerHandler;
-    }
-
-    // 开始进度
-    private void beginProgress(final Progress progress,
-                               final int total) {
-        if (null != progress) {
-            try {
-                progress.begin(total);
-            } catch (Throwable cause) {
-                LOGGER.warn("SIMULATOR: begin progress failed.", cause);
-            }
-        }
-    }
-
-    // 结束进度
-    private void finishProgress(final Progress progress, final int cCnt, final int mCnt) {
-        if (null != progress) {
-            try {
-                progress.finish(cCnt, mCnt);
-            } catch (Throwable cause) {
-                LOGGER.warn("SIMULATOR: finish progress failed.", cause);
-            }
-        }
-    }
-
-    /**
-     * 重新增强对应的 class
-     */
-    private void reTransformClasses(
-            final int watchId,
-            final List<Class<?>> waitingReTransformClasses,
-            final Progress progress) {
-        reTransformClasses(watchId, waitingReTransformClasses, progress, false);
-    }
-
-    /**
-     * 重新增强对应的 class
-     */
-    private void reTransformClasses(
-            final int watchId,
-            final List<Class<?>> waitingReTransformClasses,
-            final Progress progress, boolean delete) {
-        // 需要形变总数
-        final int total = waitingReTransformClasses.size();
-
-        // 如果找不到需要被重新增强的类则直接返回
-        if (CollectionUtils.isEmpty(waitingReTransformClasses)) {
-            LOGGER.debug("SIMULATOR: reTransformClasses={};module={};watch={} not found any class;",
-                    waitingReTransformClasses, coreModule.getModuleId(), watchId);
-            return;
-        }
-
-        if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("SIMULATOR: reTransformClasses={};module={};watch={};",
-                    waitingReTransformClasses, coreModule.getModuleId(), watchId);
-        }
-
-        int index = 0;
-        for (final Class<?> waitingReTransformClass : waitingReTransformClasses) {
-            index++;
-            try {
-                if (null != progress) {
-                    try {
-                        progress.progressOnSuccess(waitingReTransformClass, index);
-                    } catch (Throwable cause) {
-                        // 在进行进度汇报的过程中抛出异常,直接进行忽略,因为不影响形变的主体流程
-                        // 仅仅只是一个汇报作用而已
-                        LOGGER.warn("SIMULATOR: watch={} in module={} on {} report progressOnSuccess occur exception at index={};total={};",
-                                watchId, coreModule.getModuleId(), waitingReTransformClass,
-                                index - 1, total,
-                                cause
-                        );
-                    }
-                }
-                if (!inst.isModifiableClass(waitingReTransformClass)) {
-                    LOGGER.info("SIMULATOR: watch={} in module={} single reTransform {} class not supported, at index={};total={};",
-                            watchId, coreModule.getModuleId(), waitingReTransformClass,
-                            index - 1, total
-                    );
-                    continue;
-                }
-                if (LOGGER.isInfoEnabled()) {
-                    LOGGER.info("SIMULATOR: pre{} watch={} in module={} single reTransform {}, at index={};total={};",
-                            delete ? " delete reTransformClasses" : "",
-                            watchId, coreModule.getModuleId(), waitingReTransformClass,
-                            index - 1, total
-                    );
-                }
-                // 注意这里， 重新增强， 如果之前类加载过， 这里会重新增强， 保证下次加载的时候， 是增强后的。
-                inst.retransformClasses(waitingReTransformClass);
-                if (LOGGER.isInfoEnabled()) {
-                    LOGGER.info("SIMULATOR: {}watch={} in module={} single reTransform {} success, at index={};total={};",
-                            delete ? "successful delete reTransformClasses " : "",
-                            watchId, coreModule.getModuleId(), waitingReTransformClass,
-                            index - 1, total
-                    );
-                }
-            } catch (UnsupportedOperationException e) {
-                LOGGER.warn("SIMULATOR: watch={} in module={} single reTransform {} failed, at index={};total={}.",
-                        watchId, coreModule.getModuleId(), waitingReTransformClass,
-                        index - 1, total,
-                        e
-                );
-                if (null != progress) {
-                    try {
-                        progress.progressOnFailed(waitingReTransformClass, index, e);
-                    } catch (Throwable cause) {
-                        LOGGER.warn("SIMULATOR: watch={} in module={} on {} report progressOnFailed occur exception, at index={};total={};",
-                                watchId, coreModule.getModuleId(), waitingReTransformClass,
-                                index - 1, total,
-                                cause
-                        );
-                    }
-                }
-            } catch (Throwable causeOfReTransform) {
-                LOGGER.warn("SIMULATOR: watch={} in module={} single reTransform {} failed, at index={};total={}. ignore this class.",
-                        watchId, coreModule.getModuleId(), waitingReTransformClass,
-                        index - 1, total,
-                        causeOfReTransform
-                );
-                if (null != progress) {
-                    try {
-                        progress.progressOnFailed(waitingReTransformClass, index, causeOfReTransform);
-                    } catch (Throwable cause) {
-                        LOGGER.warn("SIMULATOR: watch={} in module={} on {} report progressOnFailed occur exception, at index={};total={};",
-                                watchId, coreModule.getModuleId(), waitingReTransformClass,
-                                index - 1, total,
-                                cause
-                        );
-                    }
-                }
-                //如果报错先忽略掉 TODO
-            }
-        }//for
-
+        this.dispatchClassFileTransformer = dispatchClassFileTransformer;
+        this.batchReTransformer = batchReTransformer;
     }
 
     @Override
@@ -249,21 +123,11 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
             );
         }
 
-        int effectClassCount = 0, effectMethodCount = 0;
-
-        // 进度通知启动
-        beginProgress(progress, waitingReTransformClasses.size());
+        // dump 需要立即拿到结果，不参与批次
         try {
-
-            // 应用JVM
-            reTransformClasses(watchId, waitingReTransformClasses, progress);
-            // 计数
-            effectClassCount += proxy.getAffectStatistic().getEffectClassCount();
-            effectMethodCount += proxy.getAffectStatistic().getEffectMethodCount();
+            batchReTransformer.execute(BatchReTransformer.Task.watch(watchId, coreModule.getModuleId(), waitingReTransformClasses, progress, proxy.getAffectStatistic()));
         } catch (Throwable e) {
             LOGGER.error("dump class error. matcher={}, waitingReTransformClasses={}", matcher, waitingReTransformClasses, e);
-        } finally {
-            finishProgress(progress, effectClassCount, effectMethodCount);
         }
 
         return DumpResult.build(watchId, proxy.getDumpResult());
@@ -277,6 +141,15 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
     // 这里是用matcher重制过后的watch
     private int watch(final Matcher matcher,
                       final Progress progress) {
+        return watch(matcher, progress, false);
+    }
+
+    /**
+     * @param immediately 是否立即重新增强，为 false 时如果当前线程开启了批次则在批次提交时统一重新增强
+     */
+    private int watch(final Matcher matcher,
+                      final Progress progress,
+                      final boolean immediately) {
         final int watchId = watchIdSequencer.next();
         // 给对应的模块追加ClassFileTransformer
         // 自定义的Transformer ， 需要继承ClassFileTransformer
@@ -287,8 +160,8 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
         // 注册到CoreModule中
         coreModule.getSimulatorClassFileTransformers().add(proxy);
 
-        //这里addTransformer后，接下来引起的类加载都会经过sandClassFileTransformer 每个enhanceTemplate.enhance都是单独的一个transformer
-        inst.addTransformer(proxy, true);
+        //这里注册到分发器后，接下来引起的类加载都会经过分发器，由分发器根据类索引挑选出候选的transformer执行
+        dispatchClassFileTransformer.register(proxy);
 
         // 查找需要渲染的类集合
         final List<Class<?>> waitingReTransformClasses = classDataSource.findForReTransform(matcher);
@@ -300,21 +173,8 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
             );
         }
 
-        int effectClassCount = 0, effectMethodCount = 0;
-
-        // 进度通知启动
-        beginProgress(progress, waitingReTransformClasses.size());
         try {
-
-            // 应用JVM， 重新增强
-            reTransformClasses(watchId, waitingReTransformClasses, progress);
-
-            // 计数
-            effectClassCount += proxy.getAffectStatistic().getEffectClassCount();
-            effectMethodCount += proxy.getAffectStatistic().getEffectMethodCount();
-
-
-            // 激活增强类
+            // 激活增强类, 监听器先于重新增强激活不影响结果, 重新增强完成之后织入的代码才会回调监听器
             if (coreModule.isActivated()) {
                 List<BuildingForListeners> listeners = proxy.getAllListeners();
                 if (CollectionUtils.isNotEmpty(listeners)) {
@@ -324,10 +184,15 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                 }
             }
 
+            // 应用JVM， 重新增强
+            final BatchReTransformer.Task task = BatchReTransformer.Task.watch(watchId, coreModule.getModuleId(), waitingReTransformClasses, progress, proxy.getAffectStatistic());
+            if (immediately) {
+                batchReTransformer.execute(task);
+            } else {
+                batchReTransformer.submit(task);
+            }
         } catch (Throwable e) {
             LOGGER.error("watch class error. waitingReTransformClasses={}, matchers={}", waitingReTransformClasses, matcher, e);
-        } finally {
-            finishProgress(progress, effectClassCount, effectMethodCount);
         }
 
         return watchId;
@@ -336,8 +201,18 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
     @Override
     public void delete(final int watcherId,
                        final Progress progress) {
+        delete(watcherId, progress, false);
+    }
+
+    /**
+     * @param immediately 是否立即重新增强，为 false 时如果当前线程开启了批次则在批次提交时统一重新增强
+     */
+    private void delete(final int watcherId,
+                        final Progress progress,
+                        final boolean immediately) {
 
         final Set<Matcher> waitingRemoveMatcherSet = new LinkedHashSet<Matcher>();
+        final List<Integer> removedListenerIds = new ArrayList<Integer>();
 
         // 找出待删除的SimulatorClassFileTransformer
         final Iterator<SimulatorClassFileTransformer> it = coreModule.getSimulatorClassFileTransformers().iterator();
@@ -351,12 +226,15 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                     for (BuildingForListeners buildingForListeners : listeners) {
                         // 冻结所有关联代码增强
                         eventListenerHandler.frozen(buildingForListeners.getListenerId());
+                        removedListenerIds.add(buildingForListeners.getListenerId());
                     }
                 }
 
 
-                // 在JVM中移除掉命中的ClassFileTransformer
-                inst.removeTransformer(simulatorClassFileTransformer);
+                // 从分发器中移除掉命中的ClassFileTransformer, dump使用的ClassFileTransformer是直接注册在JVM中的
+                if (!dispatchClassFileTransformer.unregister(simulatorClassFileTransformer)) {
+                    inst.removeTransformer(simulatorClassFileTransformer);
+                }
 
                 // 计数
                 cCnt += simulatorClassFileTransformer.getAffectStatistic().getEffectClassCount();
@@ -383,17 +261,28 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
             );
         }
 
-        beginProgress(progress, waitingReTransformClasses.size());
         try {
             // 应用JVM
-            reTransformClasses(watcherId, waitingReTransformClasses, progress, true);
+            final BatchReTransformer.Task task = BatchReTransformer.Task.delete(watcherId, coreModule.getModuleId(), waitingReTransformClasses, progress, cCnt, mCnt,
+                    toArray(removedListenerIds));
+            if (immediately) {
+                batchReTransformer.execute(task);
+            } else {
+                batchReTransformer.submit(task);
+            }
         } catch (Throwable e) {
             LOGGER.error("delete transformer error. watcherId={}, waitingReTransformClasses={}", watcherId, waitingReTransformClasses, e);
-        } finally {
-            finishProgress(progress, cCnt, mCnt);
         }
     }
 
+    private static int[] toArray(final List<Integer> values) {
+        final int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
     @Override
     public void delete(int watcherId) {
         delete(watcherId, null);
@@ -407,6 +296,8 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
     @Override
     public void close() {
         eventListenerHandler = null;
+        dispatchClassFileTransformer = null;
+        batchReTransformer = null;
         inst = null;
         classDataSource = null;
         coreModule = null;
@@ -418,11 +309,12 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                          final Progress wProgress,
                          final WatchCallback watchCb,
                          final Progress dProgress) throws Throwable {
-        final int watchId = watch(new ExtFilterMatcher(make(filter)), wProgress);
+        // 回调执行时需要已经完成增强，不参与批次
+        final int watchId = watch(new ExtFilterMatcher(make(filter)), wProgress, true);
         try {
             watchCb.watchCompleted();
         } finally {
-            delete(watchId, dProgress);
+            delete(watchId, dProgress, true);
         }
     }
 
@@ -18,6 +18,7 @@ import com.shulie.instrument.simulator.api.guard.SimulatorGuard;
 import com.shulie.instrument.simulator.api.listener.EventListener;
 import com.shulie.instrument.simulator.api.listener.ext.BuildingForListeners;
 import com.shulie.instrument.simulator.core.CoreModule;
+import com.shulie.instrument.simulator.core.enhance.DynamicFieldEnhancer;
 import com.shulie.instrument.simulator.core.enhance.EventEnhancer;
 import com.shulie.instrument.simulator.core.manager.AffectStatistic;
 import com.shulie.instrument.simulator.core.manager.SimulatorClassFileTransformer;
@@ -45,6 +46,7 @@ public class DefaultSimulatorClassFileTransformer extends SimulatorClassFileTran
     private final static int CLASS_VERSION_15 = 49;
     private final static byte CLASS_VERSION_15_6 = 0;
     private final static byte CLASS_VERSION_15_7 = 49;
+    private final static String SERIALIZABLE_CLASS_NAME = "java.io.Serializable";
 
     private final int watchId;
     private final String moduleId;
@@ -113,6 +115,16 @@ public class DefaultSimulatorClassFileTransformer extends SimulatorClassFileTran
                             final Class<?> classBeingRedefined,
                             final ProtectionDomain protectionDomain,
                             final byte[] srcByteCodeArray) {
+        return transform(loader, internalClassName, classBeingRedefined, protectionDomain, srcByteCodeArray, null);
+    }
+
+    @Override
+    public byte[] transform(final ClassLoader loader,
+                            final String internalClassName,
+                            final Class<?> classBeingRedefined,
+                            final ProtectionDomain protectionDomain,
+                            final byte[] srcByteCodeArray,
+                            final ClassStructure classStructure) {
         SimulatorGuard.getInstance().enter();
         try {
 
@@ -127,7 +139,8 @@ public class DefaultSimulatorClassFileTransformer extends SimulatorClassFileTran
                     loader,
                     internalClassName,
                     classBeingRedefined,
-                    srcByteCodeArray
+                    srcByteCodeArray,
+                    classStructure
             );
 
 
@@ -153,12 +166,14 @@ public class DefaultSimulatorClassFileTransformer extends SimulatorClassFileTran
      * @param internalClassName
      * @param classBeingRedefined
      * @param srcByteCodeArray
+     * @param preparedClassStructure 已经解析好的类结构，为 null 时重新解析
      * @return
      */
     private byte[] _transform(final ClassLoader loader,
                               String internalClassName,
                               final Class<?> classBeingRedefined,
-                              byte[] srcByteCodeArray) {
+                              byte[] srcByteCodeArray,
+                              final ClassStructure preparedClassStructure) {
         // 如果未开启unsafe开关，是不允许增强来自BootStrapClassLoader的类
         if (!isEnableUnsafe
                 && null == loader) {
@@ -168,19 +183,28 @@ public class DefaultSimulatorClassFileTransformer extends SimulatorClassFileTran
             return null;
         }
 
-        // 获取类结构
-        final ClassStructure classStructure = getClassStructure(loader, classBeingRedefined, srcByteCodeArray);
-        if (internalClassName == null) {
-            internalClassName = classStructure.getJavaClassName();
-        }
-
-        if (!matcher.preMatching(internalClassName.replace('/', '.'))) {
+        // 类名已知时先做预匹配，避免无谓的类结构解析
+        if (internalClassName != null && !matcher.preMatching(internalClassName.replace('/', '.'))) {
             if (logger.isDebugEnabled()) {
                 logger.debug("SIMULATOR: transform ignore {}, classname is not matched!", internalClassName, loader);
             }
             return null;
         }
 
+        // 获取类结构
+        final ClassStructure classStructure = null == preparedClassStructure
+                ? getClassStructure(loader, classBeingRedefined, srcByteCodeArray)
+                : preparedClassStructure;
+        if (internalClassName == null) {
+            internalClassName = classStructure.getJavaClassName();
+            if (!matcher.preMatching(internalClassName)) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("SIMULATOR: transform ignore {}, classname is not matched!", internalClassName, loader);
+                }
+                return null;
+            }
+        }
+
         final MatchingResult matchingResult = new UnsupportedMatcher(loader, isEnableUnsafe).and(matcher).matching(classStructure);
         final Map<String, Set<BuildingForListeners>> behaviorSignCodes = matchingResult.getBehaviorSignCodeMap();
 
@@ -207,6 +231,12 @@ public class DefaultSimulatorClassFileTransformer extends SimulatorClassFileTran
                     behaviorSignCodes,
                     namespace
             );
+            // 只有首次加载时才能增加属性
+            if (null == classBeingRedefined
+                    && matchingResult.isDynamicFieldRequired()
+                    && isDynamicFieldSupported(classStructure)) {
+                toByteCodeArray = new DynamicFieldEnhancer().toByteCodeArray(toByteCodeArray);
+            }
             if (srcByteCodeArray == toByteCodeArray) {
                 if (logger.isDebugEnabled()) {
                     logger.debug("SIMULATOR: transform ignore {}, nothing changed in loader={}", internalClassName, loader);
@@ -228,6 +258,25 @@ public class DefaultSimulatorClassFileTransformer extends SimulatorClassFileTran
         }
     }
 
+    /**
+     * 可序列化的类增加接口和方法之后默认的 serialVersionUID 会发生变化，与其他未增强的进程之间无法再互相反序列化，
+     * 这些类不织入动态属性
+     *
+     * @param classStructure 类结构
+     * @return 是否可以织入动态属性
+     */
+    private boolean isDynamicFieldSupported(final ClassStructure classStructure) {
+        if (classStructure.getAccess().isInterface()) {
+            return false;
+        }
+        for (final ClassStructure interfaceStructure : classStructure.getFamilyInterfaceClassStructures()) {
+            if (SERIALIZABLE_CLASS_NAME.equals(interfaceStructure.getJavaClassName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * 获取 class 的编译的平台版本号
      * 46 -> 1.2
@@ -0,0 +1,362 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.core.manager.impl;
+
+import com.shulie.instrument.simulator.api.filter.ClassIndex;
+import com.shulie.instrument.simulator.api.guard.SimulatorGuard;
+import com.shulie.instrument.simulator.core.enhance.DynamicFieldEnhancer;
+import com.shulie.instrument.simulator.core.manager.SimulatorClassFileTransformer;
+import com.shulie.instrument.simulator.core.util.SimulatorClassUtils;
+import com.shulie.instrument.simulator.core.util.matcher.Matcher;
+import com.shulie.instrument.simulator.core.util.matcher.structure.ClassStructure;
+import com.shulie.instrument.simulator.core.util.matcher.structure.ClassStructureFactory;
+import org.objectweb.asm.ClassReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+import java.util.*;
+
+/**
+ * 命名空间级别的类形变分发器
+ * <p>
+ * 整个命名空间只向 JVM 注册这一个 ClassFileTransformer，所有模块的观察(watch)都注册到分发器中。
+ * 分发器按照类名、包名前缀、父类以及接口对所有观察的匹配器建立索引，类加载时只对命中索引的观察进行匹配，
+ * 并且同一个类只解析一次类结构，避免每一个观察都遍历一次所有加载的类
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 3:22 下午
+ */
+public class DispatchClassFileTransformer implements ClassFileTransformer {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final boolean isEnableUnsafe;
+
+    /**
+     * 所有已注册的形变器，按照注册顺序排列
+     */
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    /**
+     * 注册序列，保证形变器之间的执行顺序与注册顺序一致
+     */
+    private long sequence;
+
+    /**
+     * 索引快照，注册或者注销时整体重建，类加载时无锁读取
+     */
+    private volatile Index index = Index.EMPTY;
+
+    public DispatchClassFileTransformer(final boolean isEnableUnsafe) {
+        this.isEnableUnsafe = isEnableUnsafe;
+    }
+
+    /**
+     * 注册形变器
+     *
+     * @param transformer 形变器
+     */
+    public synchronized void register(final SimulatorClassFileTransformer transformer) {
+        final Object matcher = transformer.getMatcher();
+        final ClassIndex classIndex = matcher instanceof Matcher ? ((Matcher) matcher).getClassIndex() : null;
+        entries.add(new Entry(sequence++, transformer, classIndex));
+        index = new Index(entries);
+        if (logger.isInfoEnabled()) {
+            logger.info("SIMULATOR: register transformer watch={} into dispatcher, classIndex={}", transformer.getWatchId(), classIndex);
+        }
+    }
+
+    /**
+     * 注销形变器
+     *
+     * @param transformer 形变器
+     * @return 是否注销成功
+     */
+    public synchronized boolean unregister(final SimulatorClassFileTransformer transformer) {
+        final Iterator<Entry> it = entries.iterator();
+        boolean removed = false;
+        while (it.hasNext()) {
+            if (it.next().transformer == transformer) {
+                it.remove();
+                removed = true;
+            }
+        }
+        if (removed) {
+            index = new Index(entries);
+        }
+        return removed;
+    }
+
+    /**
+     * 注销所有形变器
+     */
+    public synchronized void clear() {
+        entries.clear();
+        index = Index.EMPTY;
+    }
+
+    @Override
+    public byte[] transform(final ClassLoader loader,
+                            final String internalClassName,
+                            final Class<?> classBeingRedefined,
+                            final ProtectionDomain protectionDomain,
+                            final byte[] classfileBuffer) {
+        // 首次加载时织入过动态属性的类，重新形变时不管是否还有形变器命中都需要再次织入
+        if (DynamicFieldEnhancer.isEnhanced(classBeingRedefined)) {
+            return transformDynamicFieldHolder(loader, internalClassName, classBeingRedefined, protectionDomain, classfileBuffer);
+        }
+        final Index index = this.index;
+        if (index.isEmpty()) {
+            return null;
+        }
+        SimulatorGuard.getInstance().enter();
+        try {
+            // 这里过滤掉Simulator所需要的类|来自SimulatorClassLoader所加载的类|来自ModuleJarClassLoader加载的类
+            // 防止ClassCircularityError的发生
+            if (SimulatorClassUtils.isComeFromSimulatorFamily(internalClassName, loader)) {
+                return null;
+            }
+            // 如果未开启unsafe开关，是不允许增强来自BootStrapClassLoader的类
+            if (!isEnableUnsafe && null == loader) {
+                return null;
+            }
+            return dispatch(index, loader, internalClassName, classBeingRedefined, protectionDomain, classfileBuffer);
+        } catch (Throwable cause) {
+            logger.warn("SIMULATOR: dispatch transform {} in loader={} failed, will ignore this transform.", internalClassName, loader, cause);
+            return null;
+        } finally {
+            SimulatorGuard.getInstance().exit();
+        }
+    }
+
+    private byte[] transformDynamicFieldHolder(final ClassLoader loader,
+                                               final String internalClassName,
+                                               final Class<?> classBeingRedefined,
+                                               final ProtectionDomain protectionDomain,
+                                               final byte[] classfileBuffer) {
+        SimulatorGuard.getInstance().enter();
+        try {
+            byte[] byteCodeArray = null;
+            final Index index = this.index;
+            if (!index.isEmpty()) {
+                try {
+                    byteCodeArray = dispatch(index, loader, internalClassName, classBeingRedefined, protectionDomain, classfileBuffer);
+                } catch (Throwable cause) {
+                    logger.warn("SIMULATOR: dispatch transform {} in loader={} failed, will ignore this transform.", internalClassName, loader, cause);
+                }
+            }
+            return new DynamicFieldEnhancer().toByteCodeArray(byteCodeArray == null ? classfileBuffer : byteCodeArray);
+        } catch (Throwable cause) {
+            logger.warn("SIMULATOR: transform dynamic field holder {} in loader={} failed.", internalClassName, loader, cause);
+            return null;
+        } finally {
+            SimulatorGuard.getInstance().exit();
+        }
+    }
+
+    private byte[] dispatch(final Index index,
+                            final ClassLoader loader,
+                            final String internalClassName,
+                            final Class<?> classBeingRedefined,
+                            final ProtectionDomain protectionDomain,
+                            final byte[] classfileBuffer) throws Throwable {
+        ClassStructure classStructure = null;
+        final String javaClassName;
+        if (internalClassName == null) {
+            classStructure = getClassStructure(loader, classBeingRedefined, classfileBuffer);
+            javaClassName = classStructure.getJavaClassName();
+        } else {
+            javaClassName = internalClassName.replace('/', '.');
+        }
+
+        final List<Entry> candidates = index.candidates(javaClassName);
+        if (index.hasSuperClassIndex()) {
+            index.collectBySuperClass(getSuperClassName(classBeingRedefined, classfileBuffer), candidates);
+        }
+        if (index.hasInterfaceIndex()) {
+            if (classStructure == null) {
+                classStructure = getClassStructure(loader, classBeingRedefined, classfileBuffer);
+            }
+            for (final ClassStructure interfaceStructure : classStructure.getFamilyInterfaceClassStructures()) {
+                index.collectByInterface(interfaceStructure.getJavaClassName(), candidates);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        if (candidates.size() > 1) {
+            Collections.sort(candidates);
+        }
+
+        byte[] byteCodeArray = classfileBuffer;
+        Entry last = null;
+        for (final Entry entry : candidates) {
+            // 同一个形变器可能通过多个索引命中
+            if (entry == last) {
+                continue;
+            }
+            last = entry;
+            final Object matcher = entry.transformer.getMatcher();
+            if (matcher instanceof Matcher && !((Matcher) matcher).preMatching(javaClassName)) {
+                continue;
+            }
+            if (classStructure == null) {
+                classStructure = getClassStructure(loader, classBeingRedefined, classfileBuffer);
+            }
+            final byte[] transformed = entry.transformer.transform(loader, internalClassName, classBeingRedefined, protectionDomain, byteCodeArray, classStructure);
+            if (transformed != null) {
+                byteCodeArray = transformed;
+            }
+        }
+        return byteCodeArray == classfileBuffer ? null : byteCodeArray;
+    }
+
+    // 获取当前类结构
+    private ClassStructure getClassStructure(final ClassLoader loader,
+                                             final Class<?> classBeingRedefined,
+                                             final byte[] srcByteCodeArray) {
+        return null == classBeingRedefined
+                ? ClassStructureFactory.createClassStructure(srcByteCodeArray, loader)
+                : ClassStructureFactory.createClassStructure(classBeingRedefined);
+    }
+
+    /**
+     * 获取直接父类名称，只读取常量池，不做完整的类结构解析
+     */
+    private String getSuperClassName(final Class<?> classBeingRedefined, final byte[] classfileBuffer) {
+        if (classBeingRedefined != null) {
+            final Class<?> superClass = classBeingRedefined.getSuperclass();
+            return superClass == null ? null : superClass.getName();
+        }
+        final String superName = new ClassReader(classfileBuffer).getSuperName();
+        return superName == null ? null : superName.replace('/', '.');
+    }
+
+    /**
+     * 已注册的形变器
+     */
+    private static final class Entry implements Comparable<Entry> {
+        private final long order;
+        private final SimulatorClassFileTransformer transformer;
+        private final ClassIndex classIndex;
+
+        Entry(long order, SimulatorClassFileTransformer transformer, ClassIndex classIndex) {
+            this.order = order;
+            this.transformer = transformer;
+            this.classIndex = classIndex;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            return order < o.order ? -1 : (order == o.order ? 0 : 1);
+        }
+    }
+
+    /**
+     * 不可变的索引快照
+     */
+    private static final class Index {
+        static final Index EMPTY = new Index(Collections.<Entry>emptyList());
+
+        private final Map<String, List<Entry>> classNameIndex = new HashMap<String, List<Entry>>();
+        private final Map<String, List<Entry>> packageIndex = new HashMap<String, List<Entry>>();
+        private final Map<String, List<Entry>> superClassIndex = new HashMap<String, List<Entry>>();
+        private final Map<String, List<Entry>> interfaceIndex = new HashMap<String, List<Entry>>();
+        /**
+         * 无法索引的形变器，每个类加载时都需要参与匹配
+         */
+        private final List<Entry> unindexed = new ArrayList<Entry>();
+        private final int size;
+
+        Index(List<Entry> entries) {
+            for (Entry entry : entries) {
+                final ClassIndex classIndex = entry.classIndex;
+                if (classIndex == null) {
+                    unindexed.add(entry);
+                    continue;
+                }
+                put(classNameIndex, classIndex.getClassNames(), entry);
+                put(packageIndex, classIndex.getPackagePrefixes(), entry);
+                put(superClassIndex, classIndex.getSuperClassNames(), entry);
+                put(interfaceIndex, classIndex.getInterfaceNames(), entry);
+            }
+            this.size = entries.size();
+        }
+
+        private static void put(Map<String, List<Entry>> index, Set<String> keys, Entry entry) {
+            for (String key : keys) {
+                List<Entry> list = index.get(key);
+                if (list == null) {
+                    list = new ArrayList<Entry>(1);
+                    index.put(key, list);
+                }
+                list.add(entry);
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean hasSuperClassIndex() {
+            return !superClassIndex.isEmpty();
+        }
+
+        boolean hasInterfaceIndex() {
+            return !interfaceIndex.isEmpty();
+        }
+
+        /**
+         * 根据类名以及包名前缀找出候选的形变器
+         */
+        List<Entry> candidates(final String javaClassName) {
+            final List<Entry> candidates = new ArrayList<Entry>(unindexed);
+            final List<Entry> byName = classNameIndex.get(javaClassName);
+            if (byName != null) {
+                candidates.addAll(byName);
+            }
+            if (!packageIndex.isEmpty()) {
+                int dot = javaClassName.indexOf('.');
+                while (dot != -1) {
+                    final List<Entry> byPackage = packageIndex.get(javaClassName.substring(0, dot + 1));
+                    if (byPackage != null) {
+                        candidates.addAll(byPackage);
+                    }
+                    dot = javaClassName.indexOf('.', dot + 1);
+                }
+            }
+            return candidates;
+        }
+
+        void collectBySuperClass(final String superClassName, final List<Entry> candidates) {
+            if (superClassName == null) {
+                return;
+            }
+            final List<Entry> list = superClassIndex.get(superClassName);
+            if (list != null) {
+                candidates.addAll(list);
+            }
+        }
+
+        void collectByInterface(final String interfaceName, final List<Entry> candidates) {
+            final List<Entry> list = interfaceIndex.get(interfaceName);
+            if (list != null) {
+                candidates.addAll(list);
+            }
+        }
+    }
+}
@@ -0,0 +1,421 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.core.manager.impl;
+
+import com.shulie.instrument.simulator.api.filter.ClassIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.ProtectionDomain;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 已加载类目录
+ * <p>
+ * 按照类名、包名、类加载器以及父类/接口对已加载的类建立索引，供观察和删除观察时检索需要重新增强的类，
+ * 避免每一次观察都遍历 {@link Instrumentation#getAllLoadedClasses()} 并解析所有类的类结构。
+ * </p>
+ * <p>
+ * 目录本身是一个不修改字节码的 ClassFileTransformer，记录新定义的类的类名和类加载器，下一次检索时只按类名
+ * 找到这些新增的类并建立索引，不再遍历所有已加载的类。首次检索、待处理的类过多或者有类无法按类名找到时
+ * 退回到遍历 {@link Instrumentation#getAllLoadedClasses()}；所有的类都通过弱引用持有，不会影响业务类及类加载器的卸载
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 3:27 下午
+ */
+public class LoadedClassCatalog implements ClassFileTransformer {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Instrumentation inst;
+
+    /**
+     * 待处理的新定义的类超过这个数量时不再逐个记录，下一次刷新时遍历所有已加载的类
+     */
+    private static final int MAX_PENDING = 8192;
+
+    /**
+     * 下一次刷新时是否需要遍历所有已加载的类
+     */
+    private volatile boolean fullScan = true;
+
+    /**
+     * 上一次刷新之后新定义的类
+     */
+    private final ConcurrentLinkedQueue<PendingClass> pending = new ConcurrentLinkedQueue<PendingClass>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final ReferenceQueue<Class<?>> referenceQueue = new ReferenceQueue<Class<?>>();
+
+    /**
+     * 所有已经建立索引的类
+     */
+    private final Map<Class<?>, ClassEntry> entries = new WeakHashMap<Class<?>, ClassEntry>();
+    private final Map<String, List<ClassEntry>> nameIndex = new HashMap<String, List<ClassEntry>>();
+    /**
+     * 包名索引，key 为包名并以 . 结尾
+     */
+    private final Map<String, List<ClassEntry>> packageIndex = new HashMap<String, List<ClassEntry>>();
+    /**
+     * 父类及接口索引，包含所有的祖先类和所有实现的接口
+     */
+    private final Map<String, List<ClassEntry>> superTypeIndex = new HashMap<String, List<ClassEntry>>();
+    private final Map<ClassLoader, List<ClassEntry>> loaderIndex = new WeakHashMap<ClassLoader, List<ClassEntry>>();
+    /**
+     * BootstrapClassLoader 加载的类
+     */
+    private final List<ClassEntry> bootstrapEntries = new ArrayList<ClassEntry>();
+
+    public LoadedClassCatalog(final Instrumentation inst) {
+        this.inst = inst;
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+        if (classBeingRedefined != null || fullScan) {
+            return null;
+        }
+        if (className == null || pendingCount.incrementAndGet() > MAX_PENDING) {
+            fullScan = true;
+        } else {
+            pending.offer(new PendingClass(className, loader));
+        }
+        return null;
+    }
+
+    /**
+     * 标记下一次刷新时遍历所有已加载的类
+     */
+    public void markDirty() {
+        fullScan = true;
+    }
+
+    /**
+     * 刷新目录，只对上一次刷新之后新定义的类建立索引，并清理掉已经卸载的类
+     */
+    private void refresh() {
+        expunge();
+        if (!fullScan) {
+            addPending();
+        }
+        if (fullScan) {
+            scanAll();
+        }
+    }
+
+    /**
+     * 按类名以及类加载器找到新定义的类，找不到或者找到的不是同一个类加载器定义的类时改为遍历所有已加载的类
+     */
+    private void addPending() {
+        PendingClass pendingClass;
+        while (!fullScan && (pendingClass = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            final ClassLoader loader = pendingClass.loaderRef == null ? null : pendingClass.loaderRef.get();
+            if (pendingClass.loaderRef != null && loader == null) {
+                continue;
+            }
+            final Class<?> clazz;
+            try {
+                clazz = Class.forName(pendingClass.className.replace('/', '.'), false, loader);
+            } catch (Throwable e) {
+                fullScan = true;
+                break;
+            }
+            if (clazz.getClassLoader() != loader) {
+                fullScan = true;
+                break;
+            }
+            if (!entries.containsKey(clazz)) {
+                add(clazz);
+            }
+        }
+    }
+
+    private void scanAll() {
+        fullScan = false;
+        pending.clear();
+        pendingCount.set(0);
+        final long start = System.currentTimeMillis();
+        int added = 0;
+        for (final Class<?> clazz : inst.getAllLoadedClasses()) {
+            if (clazz == null || clazz.isArray() || clazz.isPrimitive() || entries.containsKey(clazz)) {
+                continue;
+            }
+            add(clazz);
+            added++;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("SIMULATOR: loaded class catalog scanned all loaded classes, added {} classes, total {} classes, cost {}ms",
+                    added, entries.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    private void add(final Class<?> clazz) {
+        final String name = clazz.getName();
+        final ClassLoader loader = clazz.getClassLoader();
+        final ClassEntry entry = new ClassEntry(clazz, referenceQueue, name, loader == null ? null : new WeakReference<ClassLoader>(loader), getSuperTypeNames(clazz));
+        entries.put(clazz, entry);
+        put(nameIndex, name, entry);
+        put(packageIndex, getPackagePrefix(name), entry);
+        for (final String superTypeName : entry.superTypeNames) {
+            put(superTypeIndex, superTypeName, entry);
+        }
+        if (loader == null) {
+            bootstrapEntries.add(entry);
+        } else {
+            List<ClassEntry> list = loaderIndex.get(loader);
+            if (list == null) {
+                list = new ArrayList<ClassEntry>();
+                loaderIndex.put(loader, list);
+            }
+            list.add(entry);
+        }
+    }
+
+    /**
+     * 清理掉已经被卸载的类
+     */
+    private void expunge() {
+        Reference<? extends Class<?>> reference;
+        while ((reference = referenceQueue.poll()) != null) {
+            final ClassEntry entry = (ClassEntry) reference;
+            remove(nameIndex, entry.name, entry);
+            remove(packageIndex, getPackagePrefix(entry.name), entry);
+            for (final String superTypeName : entry.superTypeNames) {
+                remove(superTypeIndex, superTypeName, entry);
+            }
+            if (entry.loaderRef == null) {
+                bootstrapEntries.remove(entry);
+            } else {
+                final ClassLoader loader = entry.loaderRef.get();
+                if (loader != null) {
+                    final List<ClassEntry> list = loaderIndex.get(loader);
+                    if (list != null) {
+                        list.remove(entry);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void put(final Map<String, List<ClassEntry>> index, final String key, final ClassEntry entry) {
+        List<ClassEntry> list = index.get(key);
+        if (list == null) {
+            list = new ArrayList<ClassEntry>(1);
+            index.put(key, list);
+        }
+        list.add(entry);
+    }
+
+    private static void remove(final Map<String, List<ClassEntry>> index, final String key, final ClassEntry entry) {
+        final List<ClassEntry> list = index.get(key);
+        if (list == null) {
+            return;
+        }
+        list.remove(entry);
+        if (list.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static String getPackagePrefix(final String name) {
+        final int lastDot = name.lastIndexOf('.');
+        return lastDot == -1 ? "" : name.substring(0, lastDot + 1);
+    }
+
+    /**
+     * 获取所有的祖先类以及所有实现的接口，不包含 java.lang.Object
+     */
+    private String[] getSuperTypeNames(final Class<?> clazz) {
+        final Set<String> names = new LinkedHashSet<String>();
+        try {
+            Class<?> current = clazz;
+            while (current != null) {
+                final Class<?> superClass = current.getSuperclass();
+                if (superClass != null && superClass != Object.class) {
+                    names.add(superClass.getName());
+                }
+                collectInterfaces(current, names);
+                current = superClass;
+            }
+        } catch (Throwable e) {
+            // 父类或者接口无法加载时只记录已经获取到的部分
+            if (logger.isDebugEnabled()) {
+                logger.debug("SIMULATOR: loaded class catalog resolve super types of {} failed.", clazz.getName(), e);
+            }
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    private static void collectInterfaces(final Class<?> clazz, final Set<String> names) {
+        for (final Class<?> interfaceClass : clazz.getInterfaces()) {
+            if (names.add(interfaceClass.getName())) {
+                collectInterfaces(interfaceClass, names);
+            }
+        }
+    }
+
+    private static void collect(final List<ClassEntry> list, final Collection<Class<?>> result) {
+        if (list == null) {
+            return;
+        }
+        for (final ClassEntry entry : list) {
+            final Class<?> clazz = entry.get();
+            if (clazz != null) {
+                result.add(clazz);
+            }
+        }
+    }
+
+    /**
+     * 获取所有已加载的类
+     *
+     * @return 已加载的类
+     */
+    public synchronized List<Class<?>> findAll() {
+        refresh();
+        final List<Class<?>> result = new ArrayList<Class<?>>(entries.size());
+        for (final ClassEntry entry : entries.values()) {
+            final Class<?> clazz = entry.get();
+            if (clazz != null) {
+                result.add(clazz);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 根据类名检索, 不同的类加载器可能加载了同名的类
+     *
+     * @param className 类名
+     * @return 已加载的类
+     */
+    public synchronized List<Class<?>> findByName(final String className) {
+        refresh();
+        final List<Class<?>> result = new ArrayList<Class<?>>(1);
+        collect(nameIndex.get(className), result);
+        return result;
+    }
+
+    /**
+     * 根据类加载器检索
+     *
+     * @param loader 类加载器, null 表示 BootstrapClassLoader
+     * @return 该类加载器加载的类
+     */
+    public synchronized List<Class<?>> findByLoader(final ClassLoader loader) {
+        refresh();
+        final List<Class<?>> result = new ArrayList<Class<?>>();
+        collect(loader == null ? bootstrapEntries : loaderIndex.get(loader), result);
+        return result;
+    }
+
+    /**
+     * 根据父类或者接口检索, 返回所有的子类以及实现类
+     *
+     * @param superTypeName 父类或者接口名称
+     * @return 子类以及实现类
+     */
+    public synchronized List<Class<?>> findBySuperType(final String superTypeName) {
+        refresh();
+        final List<Class<?>> result = new ArrayList<Class<?>>();
+        collect(superTypeIndex.get(superTypeName), result);
+        return result;
+    }
+
+    /**
+     * 根据类索引检索候选的类, 返回的类是类索引所描述范围的超集
+     *
+     * @param classIndex 类索引
+     * @return 候选的类
+     */
+    public synchronized Collection<Class<?>> findByClassIndex(final ClassIndex classIndex) {
+        refresh();
+        final Set<Class<?>> result = new LinkedHashSet<Class<?>>();
+        for (final String className : classIndex.getClassNames()) {
+            collect(nameIndex.get(className), result);
+        }
+        if (!classIndex.getPackagePrefixes().isEmpty()) {
+            for (final Map.Entry<String, List<ClassEntry>> entry : packageIndex.entrySet()) {
+                for (final String prefix : classIndex.getPackagePrefixes()) {
+                    if (entry.getKey().startsWith(prefix)) {
+                        collect(entry.getValue(), result);
+                        break;
+                    }
+                }
+            }
+        }
+        for (final String superClassName : classIndex.getSuperClassNames()) {
+            collect(superTypeIndex.get(superClassName), result);
+        }
+        for (final String interfaceName : classIndex.getInterfaceNames()) {
+            collect(superTypeIndex.get(interfaceName), result);
+        }
+        return result;
+    }
+
+    /**
+     * 清空目录
+     */
+    public synchronized void clear() {
+        entries.clear();
+        nameIndex.clear();
+        packageIndex.clear();
+        superTypeIndex.clear();
+        loaderIndex.clear();
+        bootstrapEntries.clear();
+        while (referenceQueue.poll() != null) {
+        }
+        pending.clear();
+        pendingCount.set(0);
+        fullScan = true;
+    }
+
+    /**
+     * 新定义的类，类名为 JVM 内部格式
+     */
+    private static final class PendingClass {
+        private final String className;
+        private final WeakReference<ClassLoader> loaderRef;
+
+        PendingClass(String className, ClassLoader loader) {
+            this.className = className;
+            this.loaderRef = loader == null ? null : new WeakReference<ClassLoader>(loader);
+        }
+    }
+
+    /**
+     * 类目录条目，弱引用持有类
+     */
+    private static final class ClassEntry extends WeakReference<Class<?>> {
+        private final String name;
+        private final WeakReference<ClassLoader> loaderRef;
+        private final String[] superTypeNames;
+
+        ClassEntry(Class<?> clazz, ReferenceQueue<Class<?>> queue, String name, WeakReference<ClassLoader> loaderRef, String[] superTypeNames) {
+            super(clazz, queue);
+            this.name = name;
+            this.loaderRef = loaderRef;
+            this.superTypeNames = superTypeNames;
+        }
+    }
+}
@@ -0,0 +1,444 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.core.manager.impl;
+
+import com.shulie.instrument.simulator.api.ModuleSpec;
+import com.shulie.instrument.simulator.api.resource.SwitcherManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并行的模块加载器
+ * <p>
+ * 按照模块的 dependencies 在同一批次的模块之间建立依赖图。模块的准备(校验、创建并注册类加载器)在调用线程中按顺序执行，
+ * 同名的导出类、导出资源的归属与顺序加载时一致；模块只有在同一批次中依赖的模块都已经处理完成，并且依赖的开关都已经打开之后才会加载，互不依赖的模块在有界线程池中并行加载。
+ * 每当有模块处理完成或者开关打开时，都会按照批次中的顺序(即优先级顺序)检查并提交可以加载的模块，依赖方的提交顺序是确定的
+ * </p>
+ * <p>
+ * {@link #load(List, String, Callback)} 等待所有可以加载的模块处理完成之后返回，期间模块观察产生的重新增强合并到调用线程的批次中；
+ * 依赖的开关尚未打开的模块在开关打开之后由线程池异步加载，与原来在开关回调中加载一致。每个模块的准备和加载耗时都会输出到日志
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 3:58 下午
+ */
+public class ParallelModuleLoader {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * 加载模块的线程数配置，小于等于 1 时按顺序加载
+     */
+    public static final String MODULE_LOAD_THREADS = "simulator.module.load.threads";
+
+    private static final int MAX_DEFAULT_THREADS = 8;
+
+    private static final ThreadLocal<Boolean> LOADER_THREAD = new ThreadLocal<Boolean>();
+
+    private final int threads;
+    private final ThreadPoolExecutor executor;
+    private final SwitcherManager switcherManager;
+    private final BatchReTransformer batchReTransformer;
+
+    public ParallelModuleLoader(final int threads,
+                                final SwitcherManager switcherManager,
+                                final BatchReTransformer batchReTransformer) {
+        this.threads = threads;
+        this.switcherManager = switcherManager;
+        this.batchReTransformer = batchReTransformer;
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger sequence = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "simulator-module-loader-" + sequence.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 默认线程数，不超过 CPU 核数并且不超过 8
+     */
+    public static int getDefaultThreads() {
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), MAX_DEFAULT_THREADS));
+    }
+
+    /**
+     * 当前线程是否是模块加载线程，在模块加载线程中不能再等待线程池，否则可能死锁
+     */
+    public static boolean isLoaderThread() {
+        return LOADER_THREAD.get() != null;
+    }
+
+    /**
+     * 加载一批模块，等待所有可以加载的模块处理完成之后返回
+     *
+     * @param moduleSpecs 模块，按照优先级排序
+     * @param action      加载动作，用于日志
+     * @param callback    模块的准备和加载
+     */
+    public void load(final List<ModuleSpec> moduleSpecs, final String action, final Callback callback) {
+        if (moduleSpecs.isEmpty()) {
+            return;
+        }
+        final Batch batch = new Batch(moduleSpecs, action, callback, batchReTransformer.current());
+        batch.start();
+        batch.await();
+    }
+
+    /**
+     * 关闭线程池，还在队列中的加载任务不会再执行，按照提交失败处理，以免调用线程一直等待
+     */
+    public void shutdown() {
+        final List<Runnable> tasks = executor.shutdownNow();
+        for (Runnable task : tasks) {
+            if (task instanceof LoadTask) {
+                ((LoadTask) task).reject();
+            }
+        }
+    }
+
+    /**
+     * 提交任务到线程池
+     *
+     * @return 线程池已经关闭时返回 false
+     */
+    private boolean execute(final LoadTask task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            logger.warn("SIMULATOR: module loader is shutdown, ignore task {}", task);
+            return false;
+        }
+    }
+
+    /**
+     * 模块加载任务
+     */
+    private final class LoadTask implements Runnable {
+        private final Batch batch;
+        private final Node node;
+
+        LoadTask(Batch batch, Node node) {
+            this.batch = batch;
+            this.node = node;
+        }
+
+        @Override
+        public void run() {
+            LOADER_THREAD.set(Boolean.TRUE);
+            try {
+                batch.load(node);
+            } finally {
+                LOADER_THREAD.remove();
+            }
+        }
+
+        void reject() {
+            logger.warn("SIMULATOR: module loader is shutdown, ignore task {}", this);
+            batch.rejected(node);
+        }
+
+        @Override
+        public String toString() {
+            return "load " + node.moduleSpec.getModuleId();
+        }
+    }
+
+    /**
+     * 模块的准备和加载
+     */
+    public interface Callback {
+        /**
+         * 准备模块，校验模块并创建类加载器
+         *
+         * @param moduleSpec 模块
+         * @param action     加载动作
+         * @return 模块是否可以加载
+         */
+        boolean prepare(ModuleSpec moduleSpec, String action);
+
+        /**
+         * 加载模块
+         *
+         * @param moduleSpec 模块
+         */
+        void load(ModuleSpec moduleSpec);
+    }
+
+    private enum State {
+        PREPARING, WAITING, LOADING, DONE
+    }
+
+    private static final class Node {
+        private final ModuleSpec moduleSpec;
+        private final List<Node> dependencies = new ArrayList<Node>(0);
+        private State state = State.PREPARING;
+        private long prepareTime;
+        private boolean switchCallbackRegistered;
+
+        Node(ModuleSpec moduleSpec) {
+            this.moduleSpec = moduleSpec;
+        }
+    }
+
+    private final class Batch {
+        private final Node[] nodes;
+        private final String action;
+        private final Callback callback;
+        private final long startTime = System.currentTimeMillis();
+        /**
+         * 调用线程开启的重新增强批次，调用返回之后置空，之后异步加载的模块各自提交
+         */
+        private volatile BatchReTransformer.Batch reTransformBatch;
+        /**
+         * 已经提交但是还没有处理完成的任务数
+         */
+        private int running;
+
+        Batch(List<ModuleSpec> moduleSpecs, String action, Callback callback, BatchReTransformer.Batch reTransformBatch) {
+            this.action = action;
+            this.callback = callback;
+            this.reTransformBatch = reTransformBatch;
+            this.nodes = new Node[moduleSpecs.size()];
+            final Map<String, Node> nodeMap = new HashMap<String, Node>();
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = new Node(moduleSpecs.get(i));
+                if (!nodeMap.containsKey(nodes[i].moduleSpec.getModuleId())) {
+                    nodeMap.put(nodes[i].moduleSpec.getModuleId(), nodes[i]);
+                }
+            }
+            for (Node node : nodes) {
+                final Set<String> dependencies = node.moduleSpec.getDependencies();
+                if (dependencies == null) {
+                    continue;
+                }
+                for (String dependency : dependencies) {
+                    final Node dependencyNode = nodeMap.get(dependency);
+                    if (dependencyNode != null && dependencyNode != node) {
+                        node.dependencies.add(dependencyNode);
+                    }
+                }
+            }
+            breakCycles();
+        }
+
+        /**
+         * 循环依赖的模块不再等待批次中的依赖，只按照开关等待，与原来的行为一致
+         */
+        private void breakCycles() {
+            final Map<Node, Integer> inDegrees = new HashMap<Node, Integer>();
+            final Map<Node, List<Node>> dependents = new HashMap<Node, List<Node>>();
+            final LinkedList<Node> queue = new LinkedList<Node>();
+            for (Node node : nodes) {
+                inDegrees.put(node, node.dependencies.size());
+                for (Node dependency : node.dependencies) {
+                    List<Node> list = dependents.get(dependency);
+                    if (list == null) {
+                        list = new ArrayList<Node>();
+                        dependents.put(dependency, list);
+                    }
+                    list.add(node);
+                }
+                if (node.dependencies.isEmpty()) {
+                    queue.add(node);
+                }
+            }
+            while (!queue.isEmpty()) {
+                final List<Node> list = dependents.get(queue.removeFirst());
+                if (list == null) {
+                    continue;
+                }
+                for (Node dependent : list) {
+                    final int inDegree = inDegrees.get(dependent) - 1;
+                    inDegrees.put(dependent, inDegree);
+                    if (inDegree == 0) {
+                        queue.add(dependent);
+                    }
+                }
+            }
+            for (Node node : nodes) {
+                if (inDegrees.get(node) > 0) {
+                    logger.warn("SIMULATOR: {} modules[{}]: cyclic module dependencies found, dependencies={}",
+                            action, node.moduleSpec.getModuleId(), node.moduleSpec.getDependencies());
+                    node.dependencies.clear();
+                }
+            }
+        }
+
+        void start() {
+            for (Node node : nodes) {
+                prepare(node);
+            }
+            schedule();
+        }
+
+        void await() {
+            boolean interrupted = false;
+            synchronized (this) {
+                while (running > 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                reTransformBatch = null;
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (logger.isInfoEnabled()) {
+                int loaded = 0;
+                int waiting = 0;
+                synchronized (this) {
+                    for (Node node : nodes) {
+                        if (node.state == State.WAITING) {
+                            waiting++;
+                        } else if (node.state == State.DONE) {
+                            loaded++;
+                        }
+                    }
+                }
+                logger.info("SIMULATOR: {} modules finished in {}ms, threads={}, processed={}, waiting for switches={}",
+                        action, System.currentTimeMillis() - startTime, threads, loaded, waiting);
+            }
+        }
+
+        private void prepare(final Node node) {
+            final long start = System.currentTimeMillis();
+            boolean valid = false;
+            try {
+                valid = callback.prepare(node.moduleSpec, action);
+            } catch (Throwable e) {
+                logger.error("SIMULATOR: {} modules[{}]: prepare module failed.", action, node.moduleSpec.getModuleId(), e);
+            }
+            boolean registerSwitchCallback = false;
+            synchronized (this) {
+                node.prepareTime = System.currentTimeMillis() - start;
+                node.state = valid ? State.WAITING : State.DONE;
+                if (valid && !switcherManager.isAllSwitchOn(node.moduleSpec.getDependencies())) {
+                    registerSwitchCallback = !node.switchCallbackRegistered;
+                    node.switchCallbackRegistered = true;
+                }
+            }
+            if (registerSwitchCallback) {
+                switcherManager.registerMultiSwitchOnCallback(node.moduleSpec.getDependencies(), new Runnable() {
+                    @Override
+                    public void run() {
+                        if (switcherManager.isAllSwitchOn(node.moduleSpec.getDependencies())) {
+                            schedule();
+                        } else {
+                            // 回调执行一次就会销毁，开关未全部开启时重新注册
+                            switcherManager.registerMultiSwitchOnCallback(node.moduleSpec.getDependencies(), this);
+                        }
+                    }
+                });
+            }
+        }
+
+        private void load(final Node node) {
+            final long start = System.currentTimeMillis();
+            batchReTransformer.begin(reTransformBatch);
+            try {
+                callback.load(node.moduleSpec);
+            } catch (Throwable e) {
+                logger.error("SIMULATOR: {} modules[{}]: load module failed.", action, node.moduleSpec.getModuleId(), e);
+            } finally {
+                batchReTransformer.commit();
+            }
+            if (logger.isInfoEnabled()) {
+                logger.info("SIMULATOR: {} modules[{}]: prepare cost {}ms, load cost {}ms, thread={}",
+                        action, node.moduleSpec.getModuleId(), node.prepareTime,
+                        System.currentTimeMillis() - start, Thread.currentThread().getName());
+            }
+            synchronized (this) {
+                node.state = State.DONE;
+            }
+            complete();
+        }
+
+        private void complete() {
+            schedule();
+            synchronized (this) {
+                if (--running == 0) {
+                    notifyAll();
+                }
+            }
+        }
+
+        /**
+         * 线程池已经关闭，任务不会再执行，直接结束以免调用线程一直等待
+         */
+        private void rejected(final Node node) {
+            synchronized (this) {
+                node.state = State.DONE;
+                if (--running == 0) {
+                    notifyAll();
+                }
+            }
+        }
+
+        /**
+         * 按照批次中的顺序提交所有可以加载的模块
+         */
+        private void schedule() {
+            List<Node> ready = null;
+            synchronized (this) {
+                for (Node node : nodes) {
+                    if (node.state != State.WAITING || !isDependenciesDone(node)
+                            || !switcherManager.isAllSwitchOn(node.moduleSpec.getDependencies())) {
+                        continue;
+                    }
+                    node.state = State.LOADING;
+                    running++;
+                    if (ready == null) {
+                        ready = new ArrayList<Node>();
+                    }
+                    ready.add(node);
+                }
+            }
+            if (ready == null) {
+                return;
+            }
+            for (final Node node : ready) {
+                if (!execute(new LoadTask(this, node))) {
+                    rejected(node);
+                }
+            }
+        }
+
+        private boolean isDependenciesDone(Node node) {
+            for (Node dependency : node.dependencies) {
+                if (dependency.state != State.DONE) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
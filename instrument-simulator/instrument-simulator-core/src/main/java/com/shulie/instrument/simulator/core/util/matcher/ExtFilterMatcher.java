@@ -106,6 +106,14 @@ public class ExtFilterMatcher implements Matcher {
         return extFilter.getAllListeners();
     }
 
+    @Override
+    public ClassIndex getClassIndex() {
+        if (extFilter instanceof IndexedFilter) {
+            return ((IndexedFilter) extFilter).getClassIndex();
+        }
+        return null;
+    }
+
     @Override
     public boolean preMatching(String javaClassName) {
         return extFilter.doClassNameFilter(javaClassName);
@@ -151,7 +159,9 @@ public class ExtFilterMatcher implements Matcher {
             return MatchingResult.unMatched();
         }
 
-        MatchingResult result = new MatchingResult(true);
+        MatchingResult result = new MatchingResult(true)
+                .setDynamicFieldRequired(extFilter instanceof DynamicFieldFilter
+                        && ((DynamicFieldFilter) extFilter).isDynamicFieldRequired());
         // 匹配BehaviorStructure
         for (final BehaviorStructure behaviorStructure : classStructure.getBehaviorStructures()) {
             MethodDescriptor methodDescriptor = new MethodDescriptor() {
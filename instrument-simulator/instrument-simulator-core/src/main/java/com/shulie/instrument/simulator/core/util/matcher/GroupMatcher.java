@@ -14,6 +14,7 @@
  */
 package com.shulie.instrument.simulator.core.util.matcher;
 
+import com.shulie.instrument.simulator.api.filter.ClassIndex;
 import com.shulie.instrument.simulator.api.listener.ext.BuildingForListeners;
 import com.shulie.instrument.simulator.api.util.ArrayUtils;
 import com.shulie.instrument.simulator.core.util.matcher.structure.BehaviorStructure;
@@ -47,6 +48,19 @@ public abstract class GroupMatcher implements Matcher {
             return listeners;
         }
 
+        @Override
+        public ClassIndex getClassIndex() {
+            if (ArrayUtils.isEmpty(matcherArray)) {
+                return null;
+            }
+            final ClassIndex[] indexes = new ClassIndex[matcherArray.length];
+            for (int i = 0; i < matcherArray.length; i++) {
+                indexes[i] = matcherArray[i].getClassIndex();
+            }
+            // 任意一个匹配器无法索引则整体无法索引
+            return ClassIndex.merge(indexes);
+        }
+
         @Override
         public boolean preMatching(String javaClassName) {
             if (ArrayUtils.isEmpty(matcherArray)) {
@@ -76,6 +90,10 @@ public abstract class GroupMatcher implements Matcher {
                     return MatchingResult.unMatched();
                 }
 
+                if (subResult.isDynamicFieldRequired()) {
+                    result.setDynamicFieldRequired(true);
+                }
+
                 for (Map.Entry<BehaviorStructure, Set<BuildingForListeners>> entry : subResult.getBehaviorStructureListMap().entrySet()) {
                     Set<BuildingForListeners> listeners = found.get(entry.getKey());
                     if (listeners == null) {
@@ -110,6 +128,21 @@ public abstract class GroupMatcher implements Matcher {
             return listeners;
         }
 
+        @Override
+        public ClassIndex getClassIndex() {
+            if (ArrayUtils.isEmpty(matcherArray)) {
+                return null;
+            }
+            // 取交集时任意一个匹配器的索引都能覆盖最终的匹配范围
+            for (Matcher matcher : matcherArray) {
+                final ClassIndex classIndex = matcher.getClassIndex();
+                if (classIndex != null) {
+                    return classIndex;
+                }
+            }
+            return null;
+        }
+
         @Override
         public boolean preMatching(String javaClassName) {
             if (ArrayUtils.isEmpty(matcherArray)) {
@@ -126,6 +159,7 @@ public abstract class GroupMatcher implements Matcher {
         @Override
         public MatchingResult matching(ClassStructure classStructure) {
             boolean isFirst = true;
+            boolean isDynamicFieldRequired = false;
             final Map<BehaviorStructure, Set<BuildingForListeners>> found = new HashMap<BehaviorStructure, Set<BuildingForListeners>>();
             if (ArrayUtils.isEmpty(matcherArray)) {
                 return MatchingResult.unMatched();
@@ -137,6 +171,7 @@ public abstract class GroupMatcher implements Matcher {
                 if (!subResult.isMatched()) {
                     return MatchingResult.unMatched();
                 }
+                isDynamicFieldRequired |= subResult.isDynamicFieldRequired();
 
                 if (isFirst) {
                     for (Map.Entry<BehaviorStructure, Set<BuildingForListeners>> entry : subResult.getBehaviorStructureListMap().entrySet()) {
@@ -166,7 +201,7 @@ public abstract class GroupMatcher implements Matcher {
                     }
                 }
             }
-            MatchingResult result = new MatchingResult(true);
+            MatchingResult result = new MatchingResult(true).setDynamicFieldRequired(isDynamicFieldRequired);
             if (!found.isEmpty()) {
                 result.getBehaviorStructureListMap().putAll(found);
             }
@@ -14,6 +14,7 @@
  */
 package com.shulie.instrument.simulator.core.util.matcher;
 
+import com.shulie.instrument.simulator.api.filter.ClassIndex;
 import com.shulie.instrument.simulator.api.listener.ext.BuildingForListeners;
 import com.shulie.instrument.simulator.core.util.matcher.structure.ClassStructure;
 
@@ -34,6 +35,13 @@ public interface Matcher {
      */
     List<BuildingForListeners> getAllListeners();
 
+    /**
+     * 获取类索引, 类加载时只有命中类索引的匹配器才会参与匹配
+     *
+     * @return 类索引, 无法索引时返回 null
+     */
+    ClassIndex getClassIndex();
+
     /**
      * 预匹配
      * @param javaClassName
@@ -24,6 +24,7 @@ import java.util.*;
  */
 public class MatchingResult {
     private boolean isMatched;
+    private boolean isDynamicFieldRequired;
 
     public MatchingResult(boolean isMatched) {
         this.isMatched = isMatched;
@@ -44,6 +45,20 @@ public class MatchingResult {
         return isMatched;
     }
 
+    /**
+     * 匹配上的类是否需要织入动态属性
+     *
+     * @return TRUE:需要;FALSE:不需要;
+     */
+    public boolean isDynamicFieldRequired() {
+        return isDynamicFieldRequired;
+    }
+
+    public MatchingResult setDynamicFieldRequired(boolean isDynamicFieldRequired) {
+        this.isDynamicFieldRequired = isDynamicFieldRequired;
+        return this;
+    }
+
     public Map<BehaviorStructure, Set<BuildingForListeners>> getBehaviorStructureListMap() {
         return behaviorStructureListMap;
     }
@@ -15,6 +15,7 @@
 package com.shulie.instrument.simulator.core.util.matcher;
 
 import com.shulie.instrument.simulator.api.annotation.Stealth;
+import com.shulie.instrument.simulator.api.filter.ClassIndex;
 import com.shulie.instrument.simulator.api.listener.ext.BuildingForListeners;
 import com.shulie.instrument.simulator.core.util.matcher.structure.Access;
 import com.shulie.instrument.simulator.core.util.matcher.structure.BehaviorStructure;
@@ -138,6 +139,11 @@ public class UnsupportedMatcher implements Matcher {
         return Collections.EMPTY_LIST;
     }
 
+    @Override
+    public ClassIndex getClassIndex() {
+        return null;
+    }
+
     @Override
     public boolean preMatching(String javaClassName) {
         return true;
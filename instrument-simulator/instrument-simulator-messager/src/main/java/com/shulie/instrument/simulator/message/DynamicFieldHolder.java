@@ -0,0 +1,47 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.message;
+
+/**
+ * 动态属性的持有者
+ * <p>
+ * 声明了需要动态属性的类在首次加载时会织入一个属性以及此接口的实现，动态属性直接保存在对象自身的属性上，
+ * 随对象一起回收，不再需要通过全局的弱引用 Map 以对象标识查找。此接口由 Bootstrap 加载，所有的类加载器可见
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:49 下午
+ */
+public interface DynamicFieldHolder {
+
+    /**
+     * 织入的属性名称
+     */
+    String FIELD_NAME = "$$simulator$dynamicFields";
+
+    /**
+     * 获取织入属性上保存的动态属性
+     *
+     * @return 动态属性，未设置时返回 null
+     */
+    Object $$simulator$getDynamicFields();
+
+    /**
+     * 设置织入属性上保存的动态属性
+     *
+     * @param dynamicFields 动态属性
+     */
+    void $$simulator$setDynamicFields(Object dynamicFields);
+}
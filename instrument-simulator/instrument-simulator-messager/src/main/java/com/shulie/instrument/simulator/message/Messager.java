@@ -41,6 +41,74 @@ public class Messager {
     private static final ConcurrentHashMap<String, ExceptionHandler> exceptionHandlers
             = new ConcurrentHashMap<String, ExceptionHandler>();
 
+    /**
+     * 命名空间句柄, 命名空间第一次使用时分配, 分配后不再回收, 保证已经织入字节码中的句柄始终有效
+     */
+    private static final ConcurrentHashMap<String, Integer> namespaceIds = new ConcurrentHashMap<String, Integer>();
+    /**
+     * 按照命名空间句柄索引的命名空间名称, 写时复制
+     */
+    private static volatile String[] namespaces = new String[0];
+    /**
+     * 按照命名空间句柄索引的信使处理器, 写时复制, 织入的代码直接通过句柄获取处理器
+     */
+    private static volatile MessageHandler[] messageHandlers = new MessageHandler[0];
+
+    /**
+     * 获取命名空间句柄, 在字节码织入时获取一次, 直接织入到字节码中
+     *
+     * @param namespace 命名空间
+     * @return 命名空间句柄
+     */
+    public static int getNamespaceId(final String namespace) {
+        final Integer id = namespaceIds.get(namespace);
+        if (id != null) {
+            return id;
+        }
+        return allocateNamespaceId(namespace);
+    }
+
+    private synchronized static int allocateNamespaceId(final String namespace) {
+        final Integer id = namespaceIds.get(namespace);
+        if (id != null) {
+            return id;
+        }
+        final int newId = namespaces.length;
+        final String[] newNamespaces = new String[newId + 1];
+        System.arraycopy(namespaces, 0, newNamespaces, 0, newId);
+        newNamespaces[newId] = namespace;
+        final MessageHandler[] newMessageHandlers = new MessageHandler[newId + 1];
+        System.arraycopy(messageHandlers, 0, newMessageHandlers, 0, messageHandlers.length);
+        newMessageHandlers[newId] = namespaceMessagerHandlerMap.get(namespace);
+        namespaces = newNamespaces;
+        messageHandlers = newMessageHandlers;
+        namespaceIds.put(namespace, newId);
+        return newId;
+    }
+
+    /**
+     * 同步命名空间句柄对应的处理器
+     */
+    private synchronized static void syncMessageHandler(final String namespace) {
+        final Integer id = namespaceIds.get(namespace);
+        if (id == null) {
+            return;
+        }
+        final MessageHandler[] newMessageHandlers = messageHandlers.clone();
+        newMessageHandlers[id] = namespaceMessagerHandlerMap.get(namespace);
+        messageHandlers = newMessageHandlers;
+    }
+
+    private static MessageHandler getMessageHandler(final int namespaceId) {
+        final MessageHandler[] handlers = messageHandlers;
+        return namespaceId >= 0 && namespaceId < handlers.length ? handlers[namespaceId] : null;
+    }
+
+    private static String getNamespace(final int namespaceId) {
+        final String[] names = namespaces;
+        return namespaceId >= 0 && namespaceId < names.length ? names[namespaceId] : null;
+    }
+
     /**
      * register ExceptionHandler of namespace
      *
@@ -90,6 +158,7 @@ public class Messager {
     public static void init(final String namespace,
                             final MessageHandler messageHandler) {
         namespaceMessagerHandlerMap.putIfAbsent(namespace, messageHandler);
+        syncMessageHandler(namespace);
     }
 
     /**
@@ -99,6 +168,7 @@ public class Messager {
      */
     public synchronized static void clean(final String namespace) {
         MessageHandler messageHandler = namespaceMessagerHandlerMap.remove(namespace);
+        syncMessageHandler(namespace);
         if (messageHandler != null) {
             messageHandler.destroy();
         }
@@ -253,4 +323,127 @@ public class Messager {
             return Result.RESULT_NONE;
         }
     }
+
+    /*
+     * 以下方法与上面同名的方法一致, 区别是通过织入时确定的命名空间句柄直接获取处理器, 避免每次调用都根据命名空间查找
+     */
+
+    public static void invokeOnCallBefore(final int lineNumber,
+                                          final boolean isInterface,
+                                          final String owner,
+                                          final String name,
+                                          final String desc,
+                                          final Class clazz,
+                                          final int namespaceId,
+                                          final int listenerId) throws Throwable {
+        try {
+            final MessageHandler messageHandler = getMessageHandler(namespaceId);
+            if (null != messageHandler) {
+                messageHandler.handleOnCallBefore(listenerId, clazz, isInterface, lineNumber, owner, name, desc);
+            }
+        } catch (Throwable cause) {
+            handleException(getNamespace(namespaceId), cause);
+        }
+    }
+
+    public static void invokeOnCallReturn(final boolean isInterface,
+                                          final Class clazz,
+                                          final int namespaceId,
+                                          final int listenerId) throws Throwable {
+        try {
+            final MessageHandler messageHandler = getMessageHandler(namespaceId);
+            if (null != messageHandler) {
+                messageHandler.handleOnCallReturn(listenerId, clazz, isInterface);
+            }
+        } catch (Throwable cause) {
+            handleException(getNamespace(namespaceId), cause);
+        }
+    }
+
+    public static void invokeOnCallThrows(final Throwable e,
+                                          final boolean isInterface,
+                                          final Class clazz,
+                                          final int namespaceId,
+                                          final int listenerId) throws Throwable {
+        try {
+            final MessageHandler messageHandler = getMessageHandler(namespaceId);
+            if (null != messageHandler) {
+                messageHandler.handleOnCallThrows(listenerId, clazz, isInterface, e);
+            }
+        } catch (Throwable cause) {
+            handleException(getNamespace(namespaceId), cause);
+        }
+    }
+
+    public static void invokeOnLine(final int lineNumber,
+                                    final Class clazz,
+                                    final int namespaceId,
+                                    final int listenerId) throws Throwable {
+        try {
+            final MessageHandler messageHandler = getMessageHandler(namespaceId);
+            if (null != messageHandler) {
+                messageHandler.handleOnLine(listenerId, clazz, lineNumber);
+            }
+        } catch (Throwable cause) {
+            handleException(getNamespace(namespaceId), cause);
+        }
+    }
+
+    public static Result invokeOnBefore(final Object[] argumentArray,
+                                        final int namespaceId,
+                                        final int listenerId,
+                                        final String listenerClass, //只是为了排查时更加方便,所以在字节码增强时将注入的 listener 类名也写到字节码中
+                                        final Class clazz,
+                                        final String javaMethodName,
+                                        final String javaMethodDesc,
+                                        final Object target) throws Throwable {
+        try {
+            final MessageHandler messageHandler = getMessageHandler(namespaceId);
+            if (null == messageHandler) {
+                return Result.RESULT_NONE;
+            }
+            return messageHandler.handleOnBefore(
+                    listenerId, argumentArray,
+                    clazz,
+                    javaMethodName,
+                    javaMethodDesc,
+                    target
+            );
+        } catch (Throwable cause) {
+            handleException(getNamespace(namespaceId), cause);
+            return Result.RESULT_NONE;
+        }
+    }
+
+    public static Result invokeOnReturn(final Object object,
+                                        final Class clazz,
+                                        final int namespaceId,
+                                        final int listenerId) throws Throwable {
+        try {
+            final MessageHandler messageHandler = getMessageHandler(namespaceId);
+            if (null == messageHandler) {
+                return Result.RESULT_NONE;
+            }
+            return messageHandler.handleOnReturn(listenerId, clazz, object);
+        } catch (Throwable cause) {
+            handleException(getNamespace(namespaceId), cause);
+            return Result.RESULT_NONE;
+        }
+    }
+
+    public static Result invokeOnThrows(final Throwable throwable,
+                                        final Class clazz,
+                                        final int namespaceId,
+                                        final int listenerId) throws Throwable {
+        try {
+            final MessageHandler messageHandler = getMessageHandler(namespaceId);
+            if (null == messageHandler) {
+                return Result.RESULT_NONE;
+            }
+            return messageHandler.handleOnThrows(listenerId, clazz, throwable);
+        } catch (Throwable cause) {
+            handleException(getNamespace(namespaceId), cause);
+            return Result.RESULT_NONE;
+        }
+    }
 }
@@ -48,6 +48,21 @@ public class MonitorView implements Serializable {
      */
     private long minCost;
 
+    /**
+     * 50分位耗时
+     */
+    private long p50Cost;
+
+    /**
+     * 99分位耗时
+     */
+    private long p99Cost;
+
+    /**
+     * 99.9分位耗时
+     */
+    private long p999Cost;
+
     /**
      * 统计条数
      */
@@ -154,6 +169,30 @@ public class MonitorView implements Serializable {
         this.minCost = minCost;
     }
 
+    public long getP50Cost() {
+        return p50Cost;
+    }
+
+    public void setP50Cost(long p50Cost) {
+        this.p50Cost = p50Cost;
+    }
+
+    public long getP99Cost() {
+        return p99Cost;
+    }
+
+    public void setP99Cost(long p99Cost) {
+        this.p99Cost = p99Cost;
+    }
+
+    public long getP999Cost() {
+        return p999Cost;
+    }
+
+    public void setP999Cost(long p999Cost) {
+        this.p999Cost = p999Cost;
+    }
+
     public long getCount() {
         return count;
     }
@@ -186,6 +225,9 @@ public class MonitorView implements Serializable {
                 ", maxCost=" + maxCost +
                 ", avgCost=" + avgCost +
                 ", minCost=" + minCost +
+                ", p50Cost=" + p50Cost +
+                ", p99Cost=" + p99Cost +
+                ", p999Cost=" + p999Cost +
                 ", count=" + count +
                 ", success=" + success +
                 ", fail=" + fail +
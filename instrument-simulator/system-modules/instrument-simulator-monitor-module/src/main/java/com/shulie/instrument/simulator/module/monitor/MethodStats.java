@@ -0,0 +1,191 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.module.monitor;
+
+import com.shulie.instrument.simulator.module.model.monitor.MonitorView;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 单个方法的调用统计
+ * <p>
+ * 成功数、失败数、总耗时以及耗时直方图按线程分段累加，不同线程大多落在不同的分段上，
+ * 避免所有调用都竞争同一个计数器；记录一次调用不需要创建对象，只有取快照时才合并各个分段
+ * </p>
+ * <p>
+ * 耗时直方图的桶按 2 的幂次划分，每个幂次再均分成 {@link #SUB_BUCKET_COUNT} 个子桶，
+ * 分位值的相对误差不超过 1/{@link #SUB_BUCKET_COUNT}，最大可以区分 2^45 纳秒(约 9.7 小时)以内的耗时
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:21 下午
+ */
+class MethodStats {
+
+    private final static int SUB_BUCKET_BITS = 4;
+    private final static int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * 可以区分的最大耗时的幂次，超过的都记录在最后一个桶中
+     */
+    private final static int MAX_EXPONENT = 44;
+    private final static int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private final static int SUCCESS_OFFSET = BUCKET_COUNT;
+    private final static int FAIL_OFFSET = BUCKET_COUNT + 1;
+    private final static int TOTAL_COST_OFFSET = BUCKET_COUNT + 2;
+    /**
+     * 每个分段的长度，末尾留出一个缓存行，避免相邻分段的伪共享
+     */
+    private final static int STRIPE_LENGTH = BUCKET_COUNT + 3 + 8;
+
+    private final static int STRIPES = stripes();
+
+    private final String className;
+    private final String methodName;
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * STRIPE_LENGTH);
+    private final AtomicLong minCost = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxCost = new AtomicLong(0);
+
+    MethodStats(String className, String methodName) {
+        this.className = className;
+        this.methodName = methodName;
+    }
+
+    /**
+     * 分段数取不小于 CPU 数量的 2 的幂次，最多 4 段
+     */
+    private static int stripes() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = 1;
+        while (stripes < processors && stripes < 4) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    /**
+     * 记录一次调用
+     *
+     * @param cost 耗时，单位纳秒
+     * @param fail 是否失败
+     */
+    void record(long cost, boolean fail) {
+        if (cost < 0) {
+            cost = 0;
+        }
+        final int base = ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_LENGTH;
+        cells.incrementAndGet(base + bucketIndex(cost));
+        cells.incrementAndGet(base + (fail ? FAIL_OFFSET : SUCCESS_OFFSET));
+        cells.addAndGet(base + TOTAL_COST_OFFSET, cost);
+
+        long min = minCost.get();
+        while (cost < min && !minCost.compareAndSet(min, cost)) {
+            min = minCost.get();
+        }
+        long max = maxCost.get();
+        while (cost > max && !maxCost.compareAndSet(max, cost)) {
+            max = maxCost.get();
+        }
+    }
+
+    /**
+     * 取当前的统计快照
+     *
+     * @param reset 是否同时清空统计，用于按周期统计
+     * @return 统计快照，没有调用时返回 null
+     */
+    MonitorView snapshot(boolean reset) {
+        final long[] buckets = new long[BUCKET_COUNT];
+        long success = 0, fail = 0, totalCost = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            final int base = stripe * STRIPE_LENGTH;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets[i] += read(base + i, reset);
+            }
+            success += read(base + SUCCESS_OFFSET, reset);
+            fail += read(base + FAIL_OFFSET, reset);
+            totalCost += read(base + TOTAL_COST_OFFSET, reset);
+        }
+        final long min = reset ? minCost.getAndSet(Long.MAX_VALUE) : minCost.get();
+        final long max = reset ? maxCost.getAndSet(0) : maxCost.get();
+        final long count = success + fail;
+        if (count == 0) {
+            return null;
+        }
+
+        long bucketTotal = 0;
+        for (long bucket : buckets) {
+            bucketTotal += bucket;
+        }
+        MonitorView monitorView = new MonitorView();
+        monitorView.setClassName(className);
+        monitorView.setMethodName(methodName);
+        monitorView.setCount(count);
+        monitorView.setSuccess(success);
+        monitorView.setFail(fail);
+        monitorView.setAvgCost(totalCost / count);
+        monitorView.setMinCost(min == Long.MAX_VALUE ? 0 : min);
+        monitorView.setMaxCost(max);
+        monitorView.setP50Cost(percentile(buckets, bucketTotal, 0.5, max));
+        monitorView.setP99Cost(percentile(buckets, bucketTotal, 0.99, max));
+        monitorView.setP999Cost(percentile(buckets, bucketTotal, 0.999, max));
+        return monitorView;
+    }
+
+    private long read(int index, boolean reset) {
+        return reset ? cells.getAndSet(index, 0) : cells.get(index);
+    }
+
+    /**
+     * 计算分位值，取所在桶的上界，不超过最大耗时
+     */
+    private static long percentile(long[] buckets, long total, double percentile, long max) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        final int subBucket = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1));
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        final int subBucket = index % SUB_BUCKET_COUNT;
+        final int shift = exponent - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKET_COUNT + subBucket) << shift) + (1L << shift) - 1;
+    }
+}
@@ -17,24 +17,30 @@ package com.shulie.instrument.simulator.module.monitor;
 import com.shulie.instrument.simulator.api.CommandResponse;
 import com.shulie.instrument.simulator.api.ExtensionModule;
 import com.shulie.instrument.simulator.api.ModuleInfo;
+import com.shulie.instrument.simulator.api.ModuleLifecycleAdapter;
 import com.shulie.instrument.simulator.api.annotation.Command;
+import com.shulie.instrument.simulator.api.executors.ExecutorServiceFactory;
 import com.shulie.instrument.simulator.api.listener.Listeners;
 import com.shulie.instrument.simulator.api.listener.ext.EventWatchBuilder;
 import com.shulie.instrument.simulator.api.listener.ext.EventWatcher;
 import com.shulie.instrument.simulator.api.resource.ModuleEventWatcher;
 import com.shulie.instrument.simulator.api.util.ParameterUtils;
 import com.shulie.instrument.simulator.api.util.StringUtil;
-import com.shulie.instrument.simulator.module.ParamSupported;
+import com.shulie.instrument.simulator.module.model.monitor.MonitorView;
 import org.kohsuke.MetaInfServices;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Resource;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author xiaobin.zfb|xiaobin@shulie.io
@@ -42,11 +48,17 @@ import java.util.concurrent.TimeUnit;
  */
 @MetaInfServices(ExtensionModule.class)
 @ModuleInfo(id = "monitor", version = "1.0.0", author = "xiaobin@shulie.io", description = "监视器模块")
-public class MonitorModule extends ParamSupported implements ExtensionModule {
+public class MonitorModule extends ModuleLifecycleAdapter implements ExtensionModule {
     private final Logger logger = LoggerFactory.getLogger(MonitorModule.class);
     @Resource
     private ModuleEventWatcher moduleEventWatcher;
 
+    /**
+     * 持续监控，key 为监控 id
+     */
+    private final ConcurrentHashMap<String, ContinuousMonitor> continuousMonitors = new ConcurrentHashMap<String, ContinuousMonitor>();
+    private final AtomicInteger monitorIdGenerator = new AtomicInteger();
+
     @Command(value = "info", description = "监听代码/方法执行信息")
     public CommandResponse info(final Map<String, String> args) {
         final String classPattern = args.get("class");
@@ -77,11 +89,12 @@ public class MonitorModule extends ParamSupported implements ExtensionModule {
             final CountDownLatch latch = new CountDownLatch(1);
 
             Queue<Object> traceViews = new ConcurrentLinkedQueue<Object>();
+            MonitorRecorder recorder = new MonitorRecorder();
             watcher = new EventWatchBuilder(moduleEventWatcher)
                     .onClass(classPattern).includeSubClasses()
                     .onBehavior(methodPattern)
                     .withInvoke().withCall()
-                    .onListener(Listeners.of(MonitorListener.class, new Object[]{latch, traceViews, wait != -1 ? -1 : limits}))
+                    .onListener(Listeners.of(MonitorListener.class, new Object[]{recorder, latch, traceViews, wait != -1 ? -1 : limits}))
                     .onClass().onWatch();
 
             if (wait > 0) {
@@ -89,6 +102,12 @@ public class MonitorModule extends ParamSupported implements ExtensionModule {
             } else if (limits > 0) {
                 latch.await();
             }
+            /**
+             * 按等待时间统计时不会达到条数，直接取等待期间的统计
+             */
+            if (traceViews.isEmpty()) {
+                traceViews.addAll(recorder.snapshot(false));
+            }
             return CommandResponse.success(traceViews);
         } catch (Throwable e) {
             logger.error("SIMULATOR: monitor module err! class={}, method={}, limits={}, wait={}",
@@ -106,5 +125,110 @@ public class MonitorModule extends ParamSupported implements ExtensionModule {
         }
     }
 
+    @Command(value = "start", description = "持续监控代码/方法执行信息，按周期统计")
+    public CommandResponse start(final Map<String, String> args) {
+        final String classPattern = args.get("class");
+        String methodPattern = args.get("method");
+        /**
+         * 统计周期，单位秒
+         */
+        final int interval = ParameterUtils.getInt(args, "interval", 60);
+
+        if (StringUtil.isEmpty(classPattern)) {
+            return CommandResponse.failure("class must not be empty.");
+        }
+        if (StringUtil.isEmpty(methodPattern)) {
+            methodPattern = "*";
+        }
+        if (interval <= 0) {
+            return CommandResponse.failure("interval must be greater than 0.");
+        }
+
+        try {
+            final MonitorRecorder recorder = new MonitorRecorder();
+            final EventWatcher watcher = new EventWatchBuilder(moduleEventWatcher)
+                    .onClass(classPattern).includeSubClasses()
+                    .onBehavior(methodPattern)
+                    .withInvoke().withCall()
+                    .onListener(Listeners.of(MonitorListener.class, new Object[]{recorder}))
+                    .onClass().onWatch();
+            final ContinuousMonitor monitor = new ContinuousMonitor(watcher, recorder);
+            monitor.future = ExecutorServiceFactory.getFactory().scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    monitor.latest = recorder.snapshot(true);
+                }
+            }, interval, interval, TimeUnit.SECONDS);
+            final String id = String.valueOf(monitorIdGenerator.incrementAndGet());
+            continuousMonitors.put(id, monitor);
+            return CommandResponse.success(id);
+        } catch (Throwable e) {
+            logger.error("SIMULATOR: monitor module start err! class={}, method={}, interval={}",
+                    classPattern, methodPattern, interval, e);
+            return CommandResponse.failure(e);
+        }
+    }
+
+    @Command(value = "snapshot", description = "获取持续监控最近一个周期的统计")
+    public CommandResponse snapshot(final Map<String, String> args) {
+        final String id = args.get("id");
+        final ContinuousMonitor monitor = id == null ? null : continuousMonitors.get(id);
+        if (monitor == null) {
+            return CommandResponse.failure("monitor is not found with id:" + id);
+        }
+        /**
+         * 还没有完成第一个周期时返回当前累计的统计
+         */
+        List<MonitorView> views = monitor.latest;
+        if (views == null) {
+            views = monitor.recorder.snapshot(false);
+        }
+        return CommandResponse.success(views);
+    }
+
+    @Command(value = "stop", description = "停止持续监控")
+    public CommandResponse stop(final Map<String, String> args) {
+        final String id = args.get("id");
+        final ContinuousMonitor monitor = id == null ? null : continuousMonitors.remove(id);
+        if (monitor == null) {
+            return CommandResponse.failure("monitor is not found with id:" + id);
+        }
+        monitor.stop();
+        return CommandResponse.success(true);
+    }
 
+    @Override
+    public void onUnload() throws Throwable {
+        for (ContinuousMonitor monitor : continuousMonitors.values()) {
+            monitor.stop();
+        }
+        continuousMonitors.clear();
+    }
+
+    private class ContinuousMonitor {
+        private final EventWatcher watcher;
+        private final MonitorRecorder recorder;
+        private ScheduledFuture<?> future;
+        /**
+         * 最近一个周期的统计
+         */
+        private volatile List<MonitorView> latest;
+
+        ContinuousMonitor(EventWatcher watcher, MonitorRecorder recorder) {
+            this.watcher = watcher;
+            this.recorder = recorder;
+        }
+
+        void stop() {
+            if (future != null) {
+                future.cancel(false);
+            }
+            try {
+                watcher.onUnWatched();
+            } catch (Throwable e) {
+                logger.error("SIMULATOR: monitor module unwatched failed!", e);
+            }
+            recorder.clear();
+        }
+    }
 }
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.module.monitor;
+
+import com.shulie.instrument.simulator.module.model.monitor.MonitorView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 方法调用统计的集合
+ * <p>
+ * 按类和方法名两级索引，记录调用时直接用调用事件中已有的类和方法名查找，不需要创建 key
+ * </p>
+ *
+ * @author agent|agent@local
+ * @since 2026/10/18 4:21 下午
+ */
+public class MonitorRecorder {
+
+    private final ConcurrentHashMap<Class, ConcurrentHashMap<String, MethodStats>> stats = new ConcurrentHashMap<Class, ConcurrentHashMap<String, MethodStats>>();
+
+    /**
+     * 记录一次调用
+     *
+     * @param clazz      类
+     * @param methodName 方法名
+     * @param cost       耗时，单位纳秒
+     * @param fail       是否失败
+     */
+    public void record(Class clazz, String methodName, long cost, boolean fail) {
+        ConcurrentHashMap<String, MethodStats> methods = stats.get(clazz);
+        if (methods == null) {
+            methods = new ConcurrentHashMap<String, MethodStats>();
+            ConcurrentHashMap<String, MethodStats> old = stats.putIfAbsent(clazz, methods);
+            if (old != null) {
+                methods = old;
+            }
+        }
+        MethodStats methodStats = methods.get(methodName);
+        if (methodStats == null) {
+            methodStats = new MethodStats(clazz.getName(), methodName);
+            MethodStats old = methods.putIfAbsent(methodName, methodStats);
+            if (old != null) {
+                methodStats = old;
+            }
+        }
+        methodStats.record(cost, fail);
+    }
+
+    /**
+     * 取所有方法的统计快照，没有调用的方法不返回
+     *
+     * @param reset 是否同时清空统计
+     * @return 统计快照
+     */
+    public List<MonitorView> snapshot(boolean reset) {
+        List<MonitorView> views = new ArrayList<MonitorView>();
+        for (ConcurrentHashMap<String, MethodStats> methods : stats.values()) {
+            for (MethodStats methodStats : methods.values()) {
+                MonitorView monitorView = methodStats.snapshot(reset);
+                if (monitorView != null) {
+                    views.add(monitorView);
+                }
+            }
+        }
+        return views;
+    }
+
+    public void clear() {
+        stats.clear();
+    }
+}